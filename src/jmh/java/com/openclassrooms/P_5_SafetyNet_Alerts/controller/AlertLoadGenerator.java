@@ -0,0 +1,182 @@
+package com.openclassrooms.P_5_SafetyNet_Alerts.controller;
+
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Générateur de charge HTTP pour comparer les modes d'exécution des requêtes
+ * (pool de threads Tomcat ou threads virtuels, voir {@code spring.threads.virtual.enabled}).
+ * <p>
+ * Des clients en boucle fermée envoient pendant une durée fixe un mélange de requêtes d'alerte
+ * et, selon {@code --write-ratio}, de mises à jour ({@code PUT /person}) qui réécrivent le fichier
+ * de données. Le générateur affiche le débit, les percentiles de latence et le nombre d'erreurs.
+ * Les clés interrogées sont celles de Data/data.json.
+ * <p>
+ * Lancement, application démarrée à part :
+ * {@code mvn -Pbenchmark test-compile exec:exec@load -Dload.args="--clients 400 --duration 30"}
+ * <ul>
+ *     <li>{@code --url} : adresse de l'application (défaut http://localhost:8080) ;</li>
+ *     <li>{@code --clients} : nombre de clients simultanés (défaut 200) ;</li>
+ *     <li>{@code --duration} : durée de la mesure en secondes (défaut 30), après 5 secondes de chauffe ;</li>
+ *     <li>{@code --write-ratio} : part des requêtes qui sont des mises à jour (défaut 0.05).</li>
+ * </ul>
+ */
+public final class AlertLoadGenerator {
+
+    private static final int WARMUP_SECONDS = 5;
+
+    private static final List<String> ADDRESSES = List.of("1509 Culver St", "29 15th St", "834 Binoc Ave",
+            "644 Gershwin Cir", "748 Townings Dr", "112 Steppes Pl", "489 Manchester St", "892 Downing Ct",
+            "908 73rd St", "947 E. Rose Dr", "951 LoneTree Rd");
+    private static final List<String> LAST_NAMES = List.of("Boyd", "Carman", "Cooper", "Duncan", "Ferguson",
+            "Marrack", "Peters", "Shepard", "Stelzer", "Walker", "Zemicks");
+
+    private final HttpClient client;
+    private final String url;
+    private final int clients;
+    private final int durationSeconds;
+    private final double writeRatio;
+
+    private final AtomicLong errors = new AtomicLong();
+
+    private AlertLoadGenerator(String url, int clients, int durationSeconds, double writeRatio) {
+        this.url = url;
+        this.clients = clients;
+        this.durationSeconds = durationSeconds;
+        this.writeRatio = writeRatio;
+        this.client = HttpClient.newBuilder()
+                .connectTimeout(Duration.ofSeconds(5))
+                .build();
+    }
+
+    public static void main(String[] args) throws Exception {
+        String url = "http://localhost:8080";
+        int clients = 200;
+        int duration = 30;
+        double writeRatio = 0.05;
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "--url" -> url = args[++i];
+                case "--clients" -> clients = Integer.parseInt(args[++i]);
+                case "--duration" -> duration = Integer.parseInt(args[++i]);
+                case "--write-ratio" -> writeRatio = Double.parseDouble(args[++i]);
+                default -> throw new IllegalArgumentException("Option inconnue : " + args[i]);
+            }
+        }
+        new AlertLoadGenerator(url, clients, duration, writeRatio).run();
+    }
+
+    private void run() throws InterruptedException {
+        long warmupEnd = System.nanoTime() + WARMUP_SECONDS * 1_000_000_000L;
+        long end = warmupEnd + durationSeconds * 1_000_000_000L;
+        long[][] latencies = new long[clients][];
+        int[] counts = new int[clients];
+        CountDownLatch done = new CountDownLatch(clients);
+        for (int c = 0; c < clients; c++) {
+            int id = c;
+            Thread worker = new Thread(() -> {
+                try {
+                    SplittableRandom random = new SplittableRandom(id);
+                    long[] samples = new long[1024];
+                    int count = 0;
+                    long now;
+                    while ((now = System.nanoTime()) < end) {
+                        send(random);
+                        if (now >= warmupEnd) {
+                            if (count == samples.length) {
+                                samples = Arrays.copyOf(samples, count * 2);
+                            }
+                            samples[count++] = System.nanoTime() - now;
+                        }
+                    }
+                    latencies[id] = samples;
+                    counts[id] = count;
+                } finally {
+                    done.countDown();
+                }
+            }, "load-client-" + c);
+            worker.setDaemon(true);
+            worker.start();
+        }
+        done.await();
+        report(latencies, counts);
+    }
+
+    private void send(SplittableRandom random) {
+        HttpRequest request = random.nextDouble() < writeRatio ? update(random) : alert(random);
+        try {
+            HttpResponse<Void> response = client.send(request, HttpResponse.BodyHandlers.discarding());
+            if (response.statusCode() >= 500) {
+                errors.incrementAndGet();
+            }
+        } catch (Exception e) {
+            errors.incrementAndGet();
+        }
+    }
+
+    private HttpRequest alert(SplittableRandom random) {
+        int station = 1 + random.nextInt(4);
+        String path = switch (random.nextInt(7)) {
+            case 0 -> "/firestation?stationNumber=" + station;
+            case 1 -> "/childAlert?address=" + encode(pick(ADDRESSES, random));
+            case 2 -> "/phoneAlert?firestation=" + station;
+            case 3 -> "/fire?address=" + encode(pick(ADDRESSES, random));
+            case 4 -> "/flood/stations?stations=" + station + "," + (1 + random.nextInt(4));
+            case 5 -> "/personInfo?lastName=" + pick(LAST_NAMES, random);
+            default -> "/communityEmail?city=Culver";
+        };
+        return HttpRequest.newBuilder(URI.create(url + path)).GET().build();
+    }
+
+    private HttpRequest update(SplittableRandom random) {
+        String body = "{\"firstName\":\"John\",\"lastName\":\"Boyd\",\"address\":\"1509 Culver St\","
+                + "\"city\":\"Culver\",\"zip\":\"97451\",\"phone\":\"841-874-" + (1000 + random.nextInt(9000)) + "\","
+                + "\"email\":\"jaboyd@email.com\"}";
+        return HttpRequest.newBuilder(URI.create(url + "/person"))
+                .header("Content-Type", "application/json")
+                .PUT(HttpRequest.BodyPublishers.ofString(body))
+                .build();
+    }
+
+    private void report(long[][] latencies, int[] counts) {
+        int total = 0;
+        for (int count : counts) {
+            total += count;
+        }
+        long[] all = new long[total];
+        int offset = 0;
+        for (int c = 0; c < clients; c++) {
+            System.arraycopy(latencies[c], 0, all, offset, counts[c]);
+            offset += counts[c];
+        }
+        Arrays.sort(all);
+        System.out.printf("clients=%d durée=%ds écritures=%.0f%%%n", clients, durationSeconds, writeRatio * 100);
+        System.out.printf("requêtes=%d débit=%.0f req/s erreurs=%d%n", total, (double) total / durationSeconds, errors.get());
+        if (total > 0) {
+            System.out.printf("latence ms : p50=%.2f p95=%.2f p99=%.2f max=%.2f%n",
+                    millis(all, 0.50), millis(all, 0.95), millis(all, 0.99), all[total - 1] / 1e6);
+        }
+    }
+
+    private static double millis(long[] sorted, double quantile) {
+        return sorted[Math.min(sorted.length - 1, (int) (quantile * sorted.length))] / 1e6;
+    }
+
+    private static String pick(List<String> values, SplittableRandom random) {
+        return values.get(random.nextInt(values.size()));
+    }
+
+    private static String encode(String value) {
+        return URLEncoder.encode(value, StandardCharsets.UTF_8);
+    }
+}
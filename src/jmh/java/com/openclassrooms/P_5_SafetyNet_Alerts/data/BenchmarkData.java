@@ -0,0 +1,138 @@
+package com.openclassrooms.P_5_SafetyNet_Alerts.data;
+
+import com.openclassrooms.P_5_SafetyNet_Alerts.model.Firestation;
+import com.openclassrooms.P_5_SafetyNet_Alerts.model.MedicalRecord;
+import com.openclassrooms.P_5_SafetyNet_Alerts.model.Person;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Stream;
+
+/**
+ * Jeux de données synthétiques partagés par les benchmarks.
+ */
+public final class BenchmarkData {
+
+    /**
+     * Taille des foyers de {@link #households(int)}.
+     */
+    public static final int HOUSEHOLD_SIZE = 4;
+
+    /**
+     * Nombre de foyers couverts par chaque caserne dans {@link #households(int)}.
+     */
+    public static final int HOUSEHOLDS_PER_STATION = 250;
+
+    /**
+     * Nombre de villes dans {@link #households(int)}.
+     */
+    public static final int CITIES = 20;
+
+    private BenchmarkData() {
+    }
+
+    /**
+     * @param size nombre de personnes (et de dossiers médicaux), réparties sur 500 adresses d'une seule ville
+     */
+    public static DataWrapper dataset(int size) {
+        List<Person> persons = new ArrayList<>(size);
+        List<MedicalRecord> records = new ArrayList<>(size);
+        List<Firestation> firestations = new ArrayList<>();
+        for (int i = 0; i < size; i++) {
+            String address = (i % 500) + " Culver St";
+            persons.add(new Person("First" + i, "Last" + i, address, "Culver", "97451",
+                    "841-874-" + (i % 10000), "first" + i + "@email.com"));
+            records.add(new MedicalRecord("First" + i, "Last" + i, LocalDate.of(1950 + i % 70, 1 + i % 12, 1 + i % 28),
+                    List.of("aznol:350mg"), List.of("nillacilan")));
+        }
+        for (int i = 0; i < 500; i++) {
+            firestations.add(new Firestation(i + " Culver St", 1 + i % 4));
+        }
+        DataWrapper data = new DataWrapper();
+        data.setPersons(persons);
+        data.setMedicalrecords(records);
+        data.setFirestations(firestations);
+        return data;
+    }
+
+    /**
+     * Jeu de données dont la forme suit celle de data.json à plus grande échelle : foyers de
+     * {@value #HOUSEHOLD_SIZE} personnes partageant nom et adresse, une adresse par foyer,
+     * {@value #HOUSEHOLDS_PER_STATION} foyers par caserne, {@value #CITIES} villes. Les requêtes par caserne
+     * ou par adresse gardent ainsi une taille de réponse constante quand la population grandit.
+     * <p>
+     * Les chaînes répétées (ville, code postal, médicaments, etc.) sont partagées, pour qu'une population
+     * de 10 millions de personnes tienne dans un tas d'environ 8 Go.
+     *
+     * @param size nombre de personnes (et de dossiers médicaux)
+     */
+    public static DataWrapper households(int size) {
+        List<Person> persons = new ArrayList<>(size);
+        List<MedicalRecord> records = new ArrayList<>(size);
+        int households = (size + HOUSEHOLD_SIZE - 1) / HOUSEHOLD_SIZE;
+        List<Firestation> firestations = new ArrayList<>(households);
+        String[] firstNames = new String[HOUSEHOLD_SIZE];
+        for (int m = 0; m < HOUSEHOLD_SIZE; m++) {
+            firstNames[m] = "First" + m;
+        }
+        String[] cities = new String[CITIES];
+        for (int c = 0; c < CITIES; c++) {
+            cities[c] = city(c);
+        }
+        List<String> medications = List.of("aznol:350mg", "hydrapermazol:100mg");
+        List<String> allergies = List.of("nillacilan");
+        LocalDate today = LocalDate.now();
+
+        for (int h = 0; h < households; h++) {
+            String lastName = lastName(h);
+            String address = address(h);
+            String city = cities[h % CITIES];
+            firestations.add(new Firestation(address, station(h)));
+            for (int m = 0; m < HOUSEHOLD_SIZE && persons.size() < size; m++) {
+                int i = persons.size();
+                persons.add(new Person(firstNames[m], lastName, address, city, "97451",
+                        "841-874-" + (i % 10000), "p" + i + "@email.com"));
+                // Deux adultes et deux enfants par foyer
+                LocalDate birthdate = m < 2
+                        ? LocalDate.of(1950 + h % 50, 1 + h % 12, 1 + h % 28)
+                        : today.minusYears(1 + (h + m) % 16);
+                records.add(new MedicalRecord(firstNames[m], lastName, birthdate,
+                        m % 2 == 0 ? medications : List.of(), m == 0 ? allergies : List.of()));
+            }
+        }
+        DataWrapper data = new DataWrapper();
+        data.setPersons(persons);
+        data.setMedicalrecords(records);
+        data.setFirestations(firestations);
+        return data;
+    }
+
+    public static String lastName(int household) {
+        return "Last" + household;
+    }
+
+    public static String address(int household) {
+        return household + " Culver St";
+    }
+
+    public static String city(int index) {
+        return "City" + index;
+    }
+
+    public static int station(int household) {
+        return 1 + household / HOUSEHOLDS_PER_STATION;
+    }
+
+    static void deleteRecursively(Path directory) throws IOException {
+        try (Stream<Path> files = Files.walk(directory)) {
+            for (Path p : files.sorted(Comparator.reverseOrder()).toList()) {
+                Files.deleteIfExists(p);
+            }
+        }
+    }
+}
@@ -0,0 +1,412 @@
+package com.openclassrooms.P_5_SafetyNet_Alerts.data;
+
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.SplittableRandom;
+
+/**
+ * Générateur de jeux de données synthétiques au format de data.json ({@link DataWrapper}),
+ * pour les benchmarks et les tests de charge.
+ * <p>
+ * Forme des données, calquée sur data-original.json :
+ * <ul>
+ *     <li>un foyer par adresse, de 1 à 8 personnes (surtout 1 à 4), partageant nom, adresse et souvent téléphone ;</li>
+ *     <li>plusieurs adresses par caserne ({@code --addresses-per-station}), certaines couvertes par deux casernes ;</li>
+ *     <li>noms de famille tirés selon une loi de Zipf : quelques noms très fréquents, une longue traîne de noms rares ;</li>
+ *     <li>adultes et enfants mêlés : les membres d'un foyer au-delà des deux premiers sont le plus souvent mineurs ;</li>
+ *     <li>médicaments et allergies tirés du vocabulaire du jeu d'origine ;</li>
+ *     <li>taux configurables de personnes sans dossier, de dossiers sans personne ({@code --orphan-rate})
+ *     et de doublons de personnes et de mappings ({@code --duplicate-rate}).</li>
+ * </ul>
+ * Rien n'est conservé en mémoire : chaque foyer est régénéré à l'identique à partir de son numéro et de la graine
+ * pour chacune des trois sections, écrites en flux par un {@link JsonGenerator}.
+ * <p>
+ * Lancement : {@code mvn -Pbenchmark test-compile exec:exec@generate -Dgenerator.args="--persons 1000000 --out Data/big.json"}
+ */
+public final class DatasetGenerator {
+
+    private static final String[] LAST_NAMES = {"Boyd", "Marrack", "Zemicks", "Duncan", "Cadigan", "Walker",
+            "Shepard", "Ferguson", "Cooper", "Peters", "Stelzer", "Carman"};
+    private static final String[] FIRST_NAMES = {"John", "Jacob", "Tenley", "Roger", "Felicia", "Jonanathan",
+            "Tessa", "Peter", "Foster", "Tony", "Lily", "Sophia", "Warren", "Zach", "Reginold", "Jamie", "Ron",
+            "Allison", "Brian", "Shawna", "Kendrik", "Clive", "Eric", "Emma", "Noah", "Olivia", "Liam", "Ava",
+            "Lucas", "Mia", "Ethan", "Chloe", "Nathan", "Lea", "Hugo", "Jade", "Louis", "Alice", "Paul", "Rose"};
+    private static final String[] SYLLABLES = {"bar", "ber", "cal", "dan", "del", "fer", "gar", "hol", "kin",
+            "lan", "ler", "mar", "mon", "nor", "par", "ran", "ros", "sel", "son", "ter", "ton", "val", "ver", "wes"};
+    private static final String[] STREETS = {"Culver", "Binoc", "Gershwin", "Townings", "Steppes", "Manchester",
+            "Downing", "Rose", "LoneTree", "Maple", "Oak", "Cedar", "Pine", "Elm", "Willow", "Lake", "Hill", "Park"};
+    private static final String[] STREET_TYPES = {"St", "Ave", "Cir", "Dr", "Pl", "Ct", "Rd", "Ln"};
+    private static final String[] CITIES = {"Culver", "Springfield", "Riverton", "Fairview", "Oakdale",
+            "Greenville", "Lakeside", "Hillcrest", "Brookfield", "Westport"};
+    private static final String[] MEDICATIONS = {"aznol:60mg", "aznol:200mg", "aznol:350mg", "dodoxadin:30mg",
+            "hydrapermazol:100mg", "hydrapermazol:300mg", "hydrapermazol:400mg", "hydrapermazol:900mg",
+            "ibupurin:200mg", "noxidian:100mg", "noznazol:250mg", "pharmacol:2500mg", "pharmacol:5000mg",
+            "terazine:10mg", "terazine:500mg", "tetracyclaz:650mg", "thradox:700mg", "tradoxidine:400mg"};
+    private static final String[] ALLERGIES = {"aznol", "illisoxian", "nillacilan", "peanut", "shellfish", "xilliathal"};
+    // Répartition des tailles de foyer (1 à 8 personnes), en pourcentages cumulés
+    private static final int[] HOUSEHOLD_SIZE_CDF = {28, 63, 78, 91, 96, 98, 99, 100};
+    private static final int ADDRESSES_PER_STREET = 900;
+    // Prénoms réservés par foyer : taille maximale d'un foyer, plus un dossier orphelin
+    private static final int NAMES_PER_HOUSEHOLD = HOUSEHOLD_SIZE_CDF.length + 1;
+    private static final DateTimeFormatter BIRTHDATE = DateTimeFormatter.ofPattern("MM/dd/yyyy");
+
+    private final long persons;
+    private final long seed;
+    private final int addressesPerStation;
+    private final double orphanRate;
+    private final double duplicateRate;
+    private final LocalDate today;
+    private final double[] lastNameCdf;
+    // Nombre de foyers déjà générés pour chaque nom, remis à zéro avant chaque section
+    private final int[] lastNameUses;
+
+    // Nombre de foyers et taille du dernier (tronqué), connus après l'écriture des personnes
+    private long households;
+    private int lastHouseholdSize;
+
+    /**
+     * @param persons             nombre de personnes distinctes à générer (hors doublons)
+     * @param seed                graine : deux générations de même graine produisent le même fichier
+     * @param addressesPerStation nombre moyen d'adresses couvertes par une caserne
+     * @param orphanRate          part des personnes sans dossier médical, et des foyers ayant un dossier sans personne
+     * @param duplicateRate       part des personnes et des mappings caserne écrits deux fois
+     * @param today               date de référence des âges
+     */
+    public DatasetGenerator(long persons, long seed, int addressesPerStation, double orphanRate, double duplicateRate,
+                            LocalDate today) {
+        if (persons < 0 || addressesPerStation < 1 || orphanRate < 0 || orphanRate > 1
+                || duplicateRate < 0 || duplicateRate > 1) {
+            throw new IllegalArgumentException("Paramètres de génération invalides");
+        }
+        this.persons = persons;
+        this.seed = seed;
+        this.addressesPerStation = addressesPerStation;
+        this.orphanRate = orphanRate;
+        this.duplicateRate = duplicateRate;
+        this.today = today;
+        // Un nom pour 20 foyers en moyenne (2,6 personnes par foyer), au moins le vocabulaire d'origine
+        this.lastNameCdf = zipfCdf((int) Math.max(LAST_NAMES.length, Math.min(persons / 50, 2_000_000)));
+        this.lastNameUses = new int[lastNameCdf.length];
+    }
+
+    public static void main(String[] args) throws IOException {
+        long persons = 100_000;
+        long seed = 42;
+        int addressesPerStation = 50;
+        double orphanRate = 0.01;
+        double duplicateRate = 0.001;
+        boolean pretty = false;
+        Path out = Path.of("Data", "generated.json");
+        for (int i = 0; i < args.length; i++) {
+            String value = i + 1 < args.length ? args[i + 1] : null;
+            switch (args[i]) {
+                case "--persons" -> persons = Long.parseLong(value.replace("_", ""));
+                case "--seed" -> seed = Long.parseLong(value);
+                case "--addresses-per-station" -> addressesPerStation = Integer.parseInt(value);
+                case "--orphan-rate" -> orphanRate = Double.parseDouble(value);
+                case "--duplicate-rate" -> duplicateRate = Double.parseDouble(value);
+                case "--out" -> out = Path.of(value);
+                case "--pretty" -> {
+                    pretty = true;
+                    continue;
+                }
+                default -> throw new IllegalArgumentException("Option inconnue : " + args[i]);
+            }
+            i++;
+        }
+
+        long start = System.nanoTime();
+        DatasetGenerator generator = new DatasetGenerator(persons, seed, addressesPerStation, orphanRate, duplicateRate,
+                LocalDate.now());
+        generator.writeJson(out, pretty);
+        System.out.printf("%d personnes, %d foyers écrits dans %s (%d Mo) en %d ms%n", persons, generator.households,
+                out, Files.size(out) >> 20, (System.nanoTime() - start) / 1_000_000);
+    }
+
+    /**
+     * Écrit le jeu de données au format de data.json.
+     *
+     * @param out    fichier à écrire (remplacé s'il existe)
+     * @param pretty true pour une sortie indentée, comme celle de {@link DataLoader#saveData()}
+     */
+    public void writeJson(Path out, boolean pretty) throws IOException {
+        if (out.toAbsolutePath().getParent() != null) {
+            Files.createDirectories(out.toAbsolutePath().getParent());
+        }
+        try (JsonGenerator json = new JsonFactory().createGenerator(out.toFile(), JsonEncoding.UTF8)) {
+            if (pretty) {
+                json.useDefaultPrettyPrinter();
+            }
+            write(json);
+        }
+    }
+
+    /**
+     * Écrit l'objet racine (personnes, casernes, dossiers médicaux) dans le générateur fourni.
+     */
+    public void write(JsonGenerator json) throws IOException {
+        json.writeStartObject();
+        json.writeArrayFieldStart("persons");
+        writePersons(json);
+        json.writeEndArray();
+        json.writeArrayFieldStart("firestations");
+        writeFirestations(json);
+        json.writeEndArray();
+        json.writeArrayFieldStart("medicalrecords");
+        writeMedicalRecords(json);
+        json.writeEndArray();
+        json.writeEndObject();
+    }
+
+    private void writePersons(JsonGenerator json) throws IOException {
+        Arrays.fill(lastNameUses, 0);
+        long written = 0;
+        long h = 0;
+        while (written < persons) {
+            Household household = household(h, (int) Math.min(Integer.MAX_VALUE, persons - written));
+            for (Member m : household.members) {
+                writePerson(json, household, m);
+                if (m.duplicated) {
+                    writePerson(json, household, m);
+                }
+            }
+            written += household.members.size();
+            lastHouseholdSize = household.members.size();
+            h++;
+        }
+        households = h;
+    }
+
+    private void writePerson(JsonGenerator json, Household household, Member m) throws IOException {
+        json.writeStartObject();
+        json.writeStringField("firstName", m.firstName);
+        json.writeStringField("lastName", household.lastName);
+        json.writeStringField("address", household.address);
+        json.writeStringField("city", household.city);
+        json.writeStringField("zip", household.zip);
+        json.writeStringField("phone", m.phone);
+        json.writeStringField("email", m.email);
+        json.writeEndObject();
+    }
+
+    private void writeFirestations(JsonGenerator json) throws IOException {
+        Arrays.fill(lastNameUses, 0);
+        for (long h = 0; h < households; h++) {
+            Household household = household(h);
+            writeFirestation(json, household.address, household.station);
+            if (household.secondStation > 0) {
+                writeFirestation(json, household.address, household.secondStation);
+            }
+        }
+    }
+
+    private void writeFirestation(JsonGenerator json, String address, long station) throws IOException {
+        json.writeStartObject();
+        json.writeStringField("address", address);
+        json.writeNumberField("station", station);
+        json.writeEndObject();
+    }
+
+    private void writeMedicalRecords(JsonGenerator json) throws IOException {
+        Arrays.fill(lastNameUses, 0);
+        for (long h = 0; h < households; h++) {
+            Household household = household(h);
+            for (Member m : household.members) {
+                if (!m.orphan) {
+                    writeMedicalRecord(json, household.lastName, m);
+                }
+            }
+            if (household.orphanRecord != null) {
+                writeMedicalRecord(json, household.lastName, household.orphanRecord);
+            }
+        }
+    }
+
+    private void writeMedicalRecord(JsonGenerator json, String lastName, Member m) throws IOException {
+        json.writeStartObject();
+        json.writeStringField("firstName", m.firstName);
+        json.writeStringField("lastName", lastName);
+        json.writeStringField("birthdate", m.birthdate.format(BIRTHDATE));
+        json.writeArrayFieldStart("medications");
+        for (String medication : m.medications) {
+            json.writeString(medication);
+        }
+        json.writeEndArray();
+        json.writeArrayFieldStart("allergies");
+        for (String allergy : m.allergies) {
+            json.writeString(allergy);
+        }
+        json.writeEndArray();
+        json.writeEndObject();
+    }
+
+    //-------------------------------------------------/Foyers/----------------------------------------------//
+
+    private record Household(String lastName, String address, String city, String zip, long station,
+                             long secondStation, List<Member> members, Member orphanRecord) {
+    }
+
+    private record Member(String firstName, String phone, String email, LocalDate birthdate,
+                          List<String> medications, List<String> allergies, boolean orphan, boolean duplicated) {
+    }
+
+    private Household household(long h) {
+        return household(h, h == households - 1 ? lastHouseholdSize : Integer.MAX_VALUE);
+    }
+
+    /**
+     * Reconstruit le foyer {@code h} : le tirage ne dépend que de la graine et du numéro de foyer,
+     * et du nombre de foyers précédents de même nom (les foyers sont générés dans l'ordre à chaque section).
+     * <p>
+     * Le k-ième foyer d'un nom reçoit les prénoms d'indices {@code k * NAMES_PER_HOUSEHOLD ...} : prénom et nom
+     * restent uniques même pour les noms les plus fréquents, seuls les doublons voulus partagent une identité.
+     *
+     * @param maxSize taille maximale (le dernier foyer est tronqué pour atteindre le nombre de personnes demandé)
+     */
+    private Household household(long h, int maxSize) {
+        SplittableRandom random = new SplittableRandom(seed * 0x9E3779B97F4A7C15L + h);
+        int size = Math.min(householdSize(random), maxSize);
+        int rank = zipf(random);
+        String lastName = lastName(rank);
+        int firstNameBase = lastNameUses[rank]++ * NAMES_PER_HOUSEHOLD;
+        long street = h / ADDRESSES_PER_STREET;
+        String address = (1 + h % ADDRESSES_PER_STREET) + " " + street(street);
+        int cityIndex = (int) (street % CITIES.length);
+        String city = CITIES[cityIndex];
+        String zip = String.valueOf(97451 + cityIndex);
+        long station = 1 + h / addressesPerStation;
+        long secondStation = random.nextDouble() < duplicateRate ? station + 1 : 0;
+        String householdPhone = phone(random);
+        String householdEmail = lastName.toLowerCase(Locale.ROOT) + h + "@email.com";
+
+        List<Member> members = new ArrayList<>(size);
+        for (int m = 0; m < size; m++) {
+            // Les deux premiers membres sont adultes, les suivants le plus souvent mineurs
+            boolean child = m >= 2 && random.nextInt(10) < 8;
+            members.add(member(random, firstName(firstNameBase + m, rank), child, householdPhone, householdEmail));
+        }
+        Member orphanRecord = random.nextDouble() < orphanRate
+                ? member(random, firstName(firstNameBase + size, rank), false, householdPhone, householdEmail)
+                : null;
+        return new Household(lastName, address, city, zip, station, secondStation, members, orphanRecord);
+    }
+
+    private Member member(SplittableRandom random, String firstName, boolean child, String householdPhone,
+                          String householdEmail) {
+        int age = child ? random.nextInt(18) : 18 + random.nextInt(73);
+        LocalDate birthdate = today.minusYears(age).minusDays(1 + random.nextInt(364));
+        String phone = random.nextInt(10) < 6 ? householdPhone : phone(random);
+        String email = child || random.nextInt(10) < 3
+                ? householdEmail
+                : firstName.toLowerCase(Locale.ROOT) + "." + householdEmail;
+        return new Member(firstName, phone, email, birthdate,
+                pick(random, MEDICATIONS, random.nextInt(10) < 5 ? 0 : 1 + random.nextInt(3)),
+                pick(random, ALLERGIES, random.nextInt(10) < 6 ? 0 : 1 + random.nextInt(2)),
+                random.nextDouble() < orphanRate, random.nextDouble() < duplicateRate);
+    }
+
+    /**
+     * Prénom d'indice {@code index} parmi les prénoms d'un même nom : les chiffres de l'indice en base
+     * {@code FIRST_NAMES.length} désignent les prénoms composés ("John", ..., "John-Jacob", ...),
+     * décalés selon le nom pour varier l'ordre d'un nom à l'autre.
+     */
+    static String firstName(int index, int lastNameRank) {
+        StringBuilder name = new StringBuilder();
+        int i = index;
+        do {
+            if (!name.isEmpty()) {
+                name.append('-');
+            }
+            name.append(FIRST_NAMES[(i + lastNameRank) % FIRST_NAMES.length]);
+            i /= FIRST_NAMES.length;
+        } while (i > 0);
+        return name.toString();
+    }
+
+    private static int householdSize(SplittableRandom random) {
+        int p = random.nextInt(100);
+        int size = 0;
+        while (p >= HOUSEHOLD_SIZE_CDF[size]) {
+            size++;
+        }
+        return size + 1;
+    }
+
+    private static String phone(SplittableRandom random) {
+        return "841-874-" + String.valueOf(10000 + random.nextInt(10000)).substring(1);
+    }
+
+    private static List<String> pick(SplittableRandom random, String[] vocabulary, int count) {
+        if (count == 0) {
+            return List.of();
+        }
+        List<String> values = new ArrayList<>(count);
+        while (values.size() < count) {
+            String value = vocabulary[random.nextInt(vocabulary.length)];
+            if (!values.contains(value)) {
+                values.add(value);
+            }
+        }
+        return values;
+    }
+
+    private static String street(long index) {
+        String name = STREETS[(int) (index % STREETS.length)] + " "
+                + STREET_TYPES[(int) (index / STREETS.length % STREET_TYPES.length)];
+        long round = index / ((long) STREETS.length * STREET_TYPES.length);
+        return round == 0 ? name : name + " " + round;
+    }
+
+    /**
+     * Nom de rang {@code rank} : les noms du jeu d'origine en tête, puis des noms composés de syllabes.
+     */
+    static String lastName(int rank) {
+        if (rank < LAST_NAMES.length) {
+            return LAST_NAMES[rank];
+        }
+        StringBuilder name = new StringBuilder();
+        int r = rank - LAST_NAMES.length;
+        do {
+            name.append(SYLLABLES[r % SYLLABLES.length]);
+            r /= SYLLABLES.length;
+        } while (r > 0);
+        if (name.length() == 3) {
+            // Longueur hors des multiples de 3 : ne peut pas coïncider avec un nom de plusieurs syllabes
+            name.append("ez");
+        }
+        name.setCharAt(0, Character.toUpperCase(name.charAt(0)));
+        return name.toString();
+    }
+
+    private int zipf(SplittableRandom random) {
+        int rank = Arrays.binarySearch(lastNameCdf, random.nextDouble());
+        return Math.min(rank < 0 ? -rank - 1 : rank, lastNameCdf.length - 1);
+    }
+
+    /**
+     * Fonction de répartition de la loi de Zipf (exposant 1) sur {@code n} rangs.
+     */
+    private static double[] zipfCdf(int n) {
+        double[] cdf = new double[n];
+        double sum = 0;
+        for (int k = 0; k < n; k++) {
+            sum += 1.0 / (k + 1);
+            cdf[k] = sum;
+        }
+        for (int k = 0; k < n; k++) {
+            cdf[k] /= sum;
+        }
+        return cdf;
+    }
+}
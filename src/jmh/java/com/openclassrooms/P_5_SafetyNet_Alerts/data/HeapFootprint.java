@@ -0,0 +1,73 @@
+package com.openclassrooms.P_5_SafetyNet_Alerts.data;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import com.openclassrooms.P_5_SafetyNet_Alerts.repository.InMemoryPersonRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.nio.file.Path;
+
+/**
+ * Empreinte mémoire d'un fichier de données une fois chargé : tas occupé après GC par les objets liés
+ * tels quels par Jackson ({@code raw}, une chaîne par champ lu), par les listes de {@link DataLoader#run}
+ * ({@code loaded}), puis avec les index des personnes ({@code indexed}).
+ * <p>
+ * Lancement, sur un fichier produit par {@link DatasetGenerator} :
+ * {@code mvn -Pbenchmark test-compile exec:exec@footprint -Dfootprint.args="Data/big.json"}
+ */
+public final class HeapFootprint {
+
+    private HeapFootprint() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        if (args.length != 1) {
+            System.err.println("Usage : HeapFootprint <fichier de données>");
+            System.exit(2);
+        }
+        Path dataFile = Path.of(args[0]);
+        ObjectMapper mapper = new ObjectMapper().registerModule(new JavaTimeModule());
+
+        long baseline = usedHeapAfterGc();
+        DataWrapper raw = mapper.readValue(dataFile.toFile(), DataWrapper.class);
+        long rawBytes = usedHeapAfterGc() - baseline;
+        int persons = raw.getPersons().size();
+        raw = null;
+
+        baseline = usedHeapAfterGc();
+        DataLoader dataLoader = new DataLoader(new SimpleMeterRegistry(), null);
+        dataLoader.setDataFilePath(dataFile.toString());
+        dataLoader.setBinarySnapshotEnabled(false);
+        long start = System.nanoTime();
+        dataLoader.run();
+        long loadMillis = (System.nanoTime() - start) / 1_000_000;
+        long loadedBytes = usedHeapAfterGc() - baseline;
+        // Premier accès : construit les index des personnes
+        InMemoryPersonRepository personRepository = new InMemoryPersonRepository(dataLoader);
+        personRepository.findByAddress("");
+        long indexedBytes = usedHeapAfterGc() - baseline;
+
+        System.out.printf("persons=%d%n", persons);
+        System.out.printf("raw     %,15d octets  %,7d octets/personne%n", rawBytes, rawBytes / Math.max(1, persons));
+        System.out.printf("loaded  %,15d octets  %,7d octets/personne  (chargement %d ms)%n",
+                loadedBytes, loadedBytes / Math.max(1, persons), loadMillis);
+        System.out.printf("indexed %,15d octets  %,7d octets/personne%n", indexedBytes, indexedBytes / Math.max(1, persons));
+        // Garde le jeu chargé et ses index atteignables jusqu'à la mesure
+        System.out.println("versions=" + dataLoader.getLatestDataset().getVersion() + ", "
+                + personRepository.findAll().size() + " personnes");
+    }
+
+    private static long usedHeapAfterGc() throws InterruptedException {
+        MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+        long used = Long.MAX_VALUE;
+        // Plusieurs passes : la première peut laisser des objets en attente de finalisation
+        for (int i = 0; i < 5; i++) {
+            System.gc();
+            Thread.sleep(100);
+            used = Math.min(used, memory.getHeapMemoryUsage().getUsed());
+        }
+        return used;
+    }
+}
@@ -0,0 +1,67 @@
+package com.openclassrooms.P_5_SafetyNet_Alerts.data;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Temps de chargement du fichier de données : liaison complète d'un {@link DataWrapper}
+ * ({@code databind}, ancien chargeur), lecture en flux du JSON ({@code streaming})
+ * et lecture de la copie binaire ({@code snapshot}) par {@link DataLoader#run}.
+ * <p>
+ * Lancement : {@code mvn -Pbenchmark test-compile exec:exec -Djmh.args="LoadBenchmark -prof gc"}
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class LoadBenchmark {
+
+    @Param({"databind", "streaming", "snapshot"})
+    public String loader;
+
+    @Param({"100000", "1000000"})
+    public int persons;
+
+    private final ObjectMapper mapper = new ObjectMapper().registerModule(new JavaTimeModule());
+    private Path directory;
+    private Path dataFile;
+    private DataLoader dataLoader;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        directory = Files.createTempDirectory("load-bench");
+        dataFile = directory.resolve("data.json");
+        mapper.writeValue(dataFile.toFile(), BenchmarkData.dataset(persons));
+
+        dataLoader = new DataLoader(new SimpleMeterRegistry(), null);
+        dataLoader.setDataFilePath(dataFile.toString());
+        if ("snapshot".equals(loader)) {
+            dataLoader.setBinarySnapshotEnabled(true);
+            // premier chargement depuis le JSON : écrit la copie binaire
+            dataLoader.run();
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        BenchmarkData.deleteRecursively(directory);
+    }
+
+    @Benchmark
+    public Object load() throws Exception {
+        if ("databind".equals(loader)) {
+            return mapper.readValue(dataFile.toFile(), DataWrapper.class);
+        }
+        dataLoader.run();
+        return dataLoader.getPersons();
+    }
+}
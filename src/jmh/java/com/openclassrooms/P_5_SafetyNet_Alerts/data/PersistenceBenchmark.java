@@ -0,0 +1,69 @@
+package com.openclassrooms.P_5_SafetyNet_Alerts.data;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import com.openclassrooms.P_5_SafetyNet_Alerts.model.Person;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Débit d'écriture d'une mutation : réécriture complète du fichier ({@code sync}) contre
+ * ajout au journal avec commit groupé ({@code journal}).
+ * <p>
+ * Lancement : {@code mvn -Pbenchmark test-compile exec:exec -Djmh.args="PersistenceBenchmark -t 8"}
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 3, time = 3)
+@Fork(1)
+public class PersistenceBenchmark {
+
+    @Param({"sync", "journal"})
+    public String mode;
+
+    @Param({"1000", "10000"})
+    public int persons;
+
+    private final AtomicLong counter = new AtomicLong();
+    private Path directory;
+    private DataLoader dataLoader;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        directory = Files.createTempDirectory("persistence-bench");
+        Path dataFile = directory.resolve("data.json");
+        new ObjectMapper().registerModule(new JavaTimeModule()).writeValue(dataFile.toFile(), BenchmarkData.dataset(persons));
+
+        // Aucun segment de journal dans un répertoire neuf : le MutationApplier n'est jamais demandé
+        dataLoader = new DataLoader(new SimpleMeterRegistry(), null);
+        dataLoader.setDataFilePath(dataFile.toString());
+        dataLoader.setPersistenceMode(mode);
+        dataLoader.setCompactionThresholdBytes(Long.MAX_VALUE);
+        dataLoader.initPersistence();
+        dataLoader.run();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        dataLoader.shutdownPersistence();
+        BenchmarkData.deleteRecursively(directory);
+    }
+
+    @Benchmark
+    public void updatePerson() {
+        Person person = Person.builder()
+                .firstName("First0").lastName("Last0")
+                .address("1509 Culver St").city("Culver").zip("97451")
+                .phone("841-874-" + counter.incrementAndGet() % 10000).email("first0@email.com")
+                .build();
+        dataLoader.saveData(Mutation.updatePerson(person));
+    }
+}
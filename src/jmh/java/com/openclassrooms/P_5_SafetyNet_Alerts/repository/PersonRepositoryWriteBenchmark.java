@@ -0,0 +1,88 @@
+package com.openclassrooms.P_5_SafetyNet_Alerts.repository;
+
+import com.openclassrooms.P_5_SafetyNet_Alerts.data.BenchmarkData;
+import com.openclassrooms.P_5_SafetyNet_Alerts.data.DataLoader;
+import com.openclassrooms.P_5_SafetyNet_Alerts.model.Person;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Coût d'une écriture de {@link InMemoryPersonRepository} quand toute la population habite la même ville
+ * ({@link BenchmarkData#dataset(int)}) : l'entrée de la ville dans l'index par ville a la taille de la population.
+ * <p>
+ * Lancement : {@code mvn -Pbenchmark test-compile exec:exec -Djmh.args="PersonRepositoryWriteBenchmark -prof gc"}
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class PersonRepositoryWriteBenchmark {
+
+    // Personnes d'un lot de saveBatch
+    private static final int BATCH = 100;
+
+    @Param({"10000", "100000", "1000000"})
+    public int persons;
+
+    private DataLoader dataLoader;
+    private InMemoryPersonRepository repository;
+    private long next;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        dataLoader = new DataLoader(new SimpleMeterRegistry(), null);
+        dataLoader.setPersons(BenchmarkData.dataset(persons).getPersons());
+        repository = new InMemoryPersonRepository(dataLoader);
+        // Construit les index avant la première mesure
+        repository.findByCityOrderByEmail("Culver");
+    }
+
+    // Nom déjà porté : la mesure ne compte pas l'ajout d'un nom au tableau trié des noms
+    private Person newcomer(long n) {
+        return new Person("New" + n, "Last0", (n % 500) + " Culver St", "Culver", "97451",
+                "841-874-0000", "new" + n + "@email.com");
+    }
+
+    // Emménagement puis départ : la population reste stable d'une invocation à l'autre
+    @Benchmark
+    public boolean saveThenDelete() {
+        long n = next++;
+        return dataLoader.write(() -> {
+            repository.save(newcomer(n));
+            return repository.deleteByName("New" + n, "Last0");
+        });
+    }
+
+    @Benchmark
+    public Object updateEmail() {
+        long n = next++;
+        int i = (int) (n % persons);
+        Person change = new Person("First" + i, "Last" + i, (i % 500) + " Culver St", "Culver", "97451",
+                "841-874-" + (i % 10000), "moved" + n + "@email.com");
+        return dataLoader.write(() -> repository.update(change));
+    }
+
+    @Benchmark
+    public boolean saveBatchThenDelete() {
+        long n = next;
+        next += BATCH;
+        List<Person> batch = new ArrayList<>(BATCH);
+        for (int k = 0; k < BATCH; k++) {
+            batch.add(newcomer(n + k));
+        }
+        return dataLoader.write(() -> {
+            repository.saveAll(batch);
+            boolean deleted = true;
+            for (int k = 0; k < BATCH; k++) {
+                deleted &= repository.deleteByName("New" + (n + k), "Last0");
+            }
+            return deleted;
+        });
+    }
+}
@@ -0,0 +1,160 @@
+package com.openclassrooms.P_5_SafetyNet_Alerts.service;
+
+import com.openclassrooms.P_5_SafetyNet_Alerts.data.BenchmarkData;
+import com.openclassrooms.P_5_SafetyNet_Alerts.data.DataLoader;
+import com.openclassrooms.P_5_SafetyNet_Alerts.data.DataWrapper;
+import com.openclassrooms.P_5_SafetyNet_Alerts.repository.InMemoryFirestationRepository;
+import com.openclassrooms.P_5_SafetyNet_Alerts.repository.InMemoryMedicalRecordRepository;
+import com.openclassrooms.P_5_SafetyNet_Alerts.repository.InMemoryPersonRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Coût des requêtes d'alerte de {@link PersonService}, de la requête au DTO, sur une population
+ * générée par {@link BenchmarkData#households(int)}.
+ * <p>
+ * Chaque invocation interroge une clef différente (caserne, adresse, nom, ville), tirée d'un tableau
+ * préparé à l'initialisation pour ne pas compter l'allocation des paramètres.
+ * <p>
+ * Lancement : {@code mvn -Pbenchmark test-compile exec:exec -Djmh.args="PersonServiceBenchmark -prof gc"}
+ * (débit, temps moyen et, avec {@code -prof gc}, octets alloués par opération).
+ * La population de 10 millions demande environ 8 Go de tas ; pour s'en tenir aux plus petites :
+ * {@code -Djmh.args="PersonServiceBenchmark -p persons=10000,100000 -prof gc"}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx12g")
+public class PersonServiceBenchmark {
+
+    private static final int KEYS = 1024;
+    private static final int PAGE_SIZE = 50;
+
+    @Param({"10000", "100000", "1000000", "10000000"})
+    public int persons;
+
+    // Taille du cache de réponses : 0 mesure le calcul, -p cacheEntries=10000 le coût d'un accès en cache
+    @Param({"0"})
+    public int cacheEntries;
+
+    // Vues par caserne : false mesure la jointure de /firestation et /phoneAlert
+    @Param({"true"})
+    public boolean stationViews;
+
+    private PersonService personService;
+
+    private int[] stations;
+    private List<Integer>[] floodStations;
+    private String[] addresses;
+    private String[] lastNames;
+    private String[] cities;
+    private int next;
+
+    @Setup(Level.Trial)
+    @SuppressWarnings("unchecked")
+    public void setUp() {
+        DataWrapper data = BenchmarkData.households(persons);
+        DataLoader dataLoader = new DataLoader(new SimpleMeterRegistry(), null);
+        dataLoader.setPersons(data.getPersons());
+        dataLoader.setFirestations(data.getFirestations());
+        dataLoader.setMedicalRecords(data.getMedicalrecords());
+
+        ResponseCache responseCache = new ResponseCache(dataLoader, new SimpleMeterRegistry(), cacheEntries);
+        InMemoryPersonRepository personRepository = new InMemoryPersonRepository(dataLoader);
+        InMemoryFirestationRepository firestationRepository = new InMemoryFirestationRepository(dataLoader);
+        InMemoryMedicalRecordRepository medicalRecordRepository = new InMemoryMedicalRecordRepository(dataLoader);
+        AgeService ageService = new AgeService();
+        StationViews views = new StationViews(dataLoader, personRepository, firestationRepository, medicalRecordRepository,
+                ageService, new SimpleMeterRegistry(), stationViews);
+        FirestationService firestationService = new FirestationService(dataLoader, firestationRepository, responseCache, views);
+        MedicalIndex medicalIndex = new MedicalIndex(dataLoader, personRepository, medicalRecordRepository, new SimpleMeterRegistry());
+        MedicalRecordService medicalRecordService = new MedicalRecordService(dataLoader, medicalRecordRepository, responseCache, views,
+                medicalIndex);
+        personService = new PersonService(dataLoader, personRepository, medicalRecordService, firestationService,
+                ageService, new ServiceMetrics(new SimpleMeterRegistry()), responseCache, views, medicalIndex);
+
+        int households = data.getFirestations().size();
+        int stationCount = BenchmarkData.station(households - 1);
+        SplittableRandom random = new SplittableRandom(42);
+        stations = new int[KEYS];
+        floodStations = new List[KEYS];
+        addresses = new String[KEYS];
+        lastNames = new String[KEYS];
+        cities = new String[KEYS];
+        for (int k = 0; k < KEYS; k++) {
+            int household = random.nextInt(households);
+            stations[k] = 1 + random.nextInt(stationCount);
+            floodStations[k] = List.of(stations[k], 1 + random.nextInt(stationCount), 1 + random.nextInt(stationCount));
+            addresses[k] = BenchmarkData.address(household);
+            lastNames[k] = BenchmarkData.lastName(household);
+            cities[k] = BenchmarkData.city(random.nextInt(BenchmarkData.CITIES));
+        }
+
+        // Construit les index des dépôts et les vues par caserne avant la première mesure
+        personService.getHouseholdInfoByAddress(addresses[0]);
+        personService.getAllPersonsByDependingOfFirestationID(stations[0]);
+    }
+
+    private int nextKey() {
+        int k = next;
+        next = (k + 1) & (KEYS - 1);
+        return k;
+    }
+
+    @Benchmark
+    public Object firestation() {
+        return personService.getAllPersonsByDependingOfFirestationID(stations[nextKey()]);
+    }
+
+    @Benchmark
+    public Object childAlert() {
+        return personService.getChildsByAdress(addresses[nextKey()]);
+    }
+
+    @Benchmark
+    public Object fire() {
+        return personService.getHouseholdInfoByAddress(addresses[nextKey()]);
+    }
+
+    @Benchmark
+    public Object phoneAlert() {
+        return personService.getPhoneAlertByFirestation(stations[nextKey()]);
+    }
+
+    @Benchmark
+    public Object flood() {
+        return personService.getFloodInfoByStations(floodStations[nextKey()]);
+    }
+
+    @Benchmark
+    public Object personInfo() {
+        return personService.getPersonsInfoByLastName(lastNames[nextKey()]);
+    }
+
+    @Benchmark
+    public Object communityEmail() {
+        return personService.getEmailsByCity(cities[nextKey()]);
+    }
+
+    // Première page, telle que demandée par les tableaux de bord
+    @Benchmark
+    public Object firestationPage() {
+        return personService.getPersonsByFirestationIDPage(stations[nextKey()], PAGE_SIZE, null);
+    }
+
+    @Benchmark
+    public Object personInfoPage() {
+        return personService.getPersonsInfoByLastNamePage(lastNames[nextKey()], PAGE_SIZE, null);
+    }
+
+    @Benchmark
+    public Object communityEmailPage() {
+        return personService.getEmailsByCityPage(cities[nextKey()], PAGE_SIZE, null);
+    }
+}
@@ -1,5 +1,6 @@
 package com.openclassrooms.P_5_SafetyNet_Alerts;
 
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
 
@@ -13,6 +14,33 @@ import org.springframework.boot.autoconfigure.SpringBootApplication;
 @SpringBootApplication(exclude = {org.springframework.boot.autoconfigure.jdbc.DataSourceAutoConfiguration.class})
 public class P5SafetyNetAlertsApplication {
 
+    /**
+     * Version de Java à partir de laquelle Spring exécute les requêtes sur des threads virtuels.
+     */
+    static final int VIRTUAL_THREADS_JAVA_VERSION = 21;
+
+    /**
+     * @param virtualThreads mode threads virtuels demandé ({@code spring.threads.virtual.enabled})
+     */
+    public P5SafetyNetAlertsApplication(@Value("${spring.threads.virtual.enabled:false}") boolean virtualThreads) {
+        checkVirtualThreads(virtualThreads, Runtime.version().feature());
+    }
+
+    /**
+     * Refuse le démarrage quand les threads virtuels sont demandés sur un JRE qui ne les a pas :
+     * Spring ignorerait le réglage et servirait les requêtes sur le pool Tomcat, sans le signaler.
+     *
+     * @param virtualThreads mode threads virtuels demandé
+     * @param javaVersion    version de Java du JRE
+     * @throws IllegalStateException si le mode est demandé avant Java 21
+     */
+    static void checkVirtualThreads(boolean virtualThreads, int javaVersion) {
+        if (virtualThreads && javaVersion < VIRTUAL_THREADS_JAVA_VERSION) {
+            throw new IllegalStateException("spring.threads.virtual.enabled=true nécessite Java "
+                    + VIRTUAL_THREADS_JAVA_VERSION + " ou plus (JRE actuel : Java " + javaVersion + ")");
+        }
+    }
+
     /**
      * Point d'entrée principal de l'application.
      *
@@ -22,4 +50,3 @@ public class P5SafetyNetAlertsApplication {
         SpringApplication.run(P5SafetyNetAlertsApplication.class, args);
     }
 }
-
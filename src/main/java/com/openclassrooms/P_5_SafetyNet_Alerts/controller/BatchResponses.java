@@ -0,0 +1,40 @@
+package com.openclassrooms.P_5_SafetyNet_Alerts.controller;
+
+import com.openclassrooms.P_5_SafetyNet_Alerts.model.DTO.BatchItemDTO;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Réponses des endpoints de lot : le statut de chaque élément reprend celui de l'endpoint unitaire.
+ */
+final class BatchResponses {
+
+    static final int CREATED = 201;
+    static final int CONFLICT = 409;
+    static final int UPDATED = 200;
+    static final int GONE = 410;
+
+    private BatchResponses() {
+    }
+
+    /**
+     * @return pour chaque résultat, {@code success} et l'élément s'il est présent, {@code failure} sinon
+     */
+    static <T> List<BatchItemDTO<T>> of(List<Optional<T>> results, int success, int failure) {
+        List<BatchItemDTO<T>> items = new ArrayList<>(results.size());
+        for (Optional<T> result : results) {
+            items.add(result.map(item -> new BatchItemDTO<>(success, item))
+                    .orElseGet(() -> new BatchItemDTO<>(failure, null)));
+        }
+        return items;
+    }
+
+    /**
+     * @return le nombre d'éléments en échec, pour les logs
+     */
+    static long failures(List<? extends Optional<?>> results) {
+        return results.stream().filter(Optional::isEmpty).count();
+    }
+}
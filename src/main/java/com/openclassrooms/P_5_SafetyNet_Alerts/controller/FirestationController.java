@@ -1,13 +1,17 @@
 package com.openclassrooms.P_5_SafetyNet_Alerts.controller;
 
+import com.openclassrooms.P_5_SafetyNet_Alerts.model.DTO.BatchItemDTO;
 import com.openclassrooms.P_5_SafetyNet_Alerts.model.Firestation;
 import com.openclassrooms.P_5_SafetyNet_Alerts.service.FirestationService;
 import lombok.RequiredArgsConstructor;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
+import org.apache.logging.log4j.Marker;
+import org.apache.logging.log4j.MarkerManager;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
+import java.util.List;
 import java.util.Optional;
 
 /**
@@ -21,6 +25,12 @@ public class FirestationController {
 
 
     private static final Logger logger = LogManager.getLogger(FirestationController.class);
+    // Marqueurs de route, utilisés pour l'échantillonnage des logs INFO (voir RouteSamplingFilter)
+    private static final Marker POST_FIRESTATION = MarkerManager.getMarker("POST /firestation");
+    private static final Marker PUT_FIRESTATION = MarkerManager.getMarker("PUT /firestation");
+    private static final Marker POST_FIRESTATION_BATCH = MarkerManager.getMarker("POST /firestation/batch");
+    private static final Marker PUT_FIRESTATION_BATCH = MarkerManager.getMarker("PUT /firestation/batch");
+    private static final Marker DELETE_FIRESTATION = MarkerManager.getMarker("DELETE /firestation");
 
     private final FirestationService firestationService;
 
@@ -33,13 +43,14 @@ public class FirestationController {
     //post
     @PostMapping("/firestation")
     public ResponseEntity<Firestation> addFirestation(@RequestBody Firestation firestation) {
-        logger.info("POST /firestation - Request: {}", firestation);
+        logger.info(POST_FIRESTATION, "POST /firestation - address={}, station={}", firestation.getAddress(), firestation.getStation());
+        logger.debug(POST_FIRESTATION, "POST /firestation - Payload: {}", firestation);
         Optional<Firestation> result = firestationService.addFirestation(firestation);
         if (result.isPresent()) {
-            logger.info("POST /firestation - CREATED: {}", result.get());
+            logger.info(POST_FIRESTATION, "POST /firestation - CREATED: address={}, station={}", result.get().getAddress(), result.get().getStation());
             return ResponseEntity.status(201).body(result.get());
         }
-        logger.error("POST /firestation - CONFLICT: {}", firestation);
+        logger.error(POST_FIRESTATION, "POST /firestation - CONFLICT: address={}, station={}", firestation.getAddress(), firestation.getStation());
         return ResponseEntity.status(409).build();
     }
 
@@ -51,16 +62,47 @@ public class FirestationController {
      */
     @PutMapping("/firestation")
     public ResponseEntity<Firestation> updateFirestation(@RequestBody Firestation firestation) {
-        logger.info("PUT /firestation - Request: {}", firestation);
+        logger.info(PUT_FIRESTATION, "PUT /firestation - address={}, station={}", firestation.getAddress(), firestation.getStation());
+        logger.debug(PUT_FIRESTATION, "PUT /firestation - Payload: {}", firestation);
         Optional<Firestation> result = firestationService.updateFirestation(firestation);
         if (result.isPresent()) {
-            logger.info("PUT /firestation - UPDATED: {}", result.get());
+            logger.info(PUT_FIRESTATION, "PUT /firestation - UPDATED: address={}, station={}", result.get().getAddress(), result.get().getStation());
             return ResponseEntity.status(200).body(result.get());
         }
-        logger.error("PUT /firestation - NOT FOUND: {}", firestation);
+        logger.error(PUT_FIRESTATION, "PUT /firestation - NOT FOUND: address={}, station={}", firestation.getAddress(), firestation.getStation());
         return ResponseEntity.status(410).build();
     }
 
+    /**
+     * Ajoute un lot de mappings caserne/adresse, validé et enregistré en une seule écriture.
+     *
+     * @param firestations Mappings caserne/adresse à ajouter
+     * @return 200 et, pour chaque élément dans l'ordre, 201 avec l'élément créé ou 409 si conflit
+     */
+    @PostMapping("/firestation/batch")
+    public ResponseEntity<List<BatchItemDTO<Firestation>>> addFirestations(@RequestBody List<Firestation> firestations) {
+        logger.info(POST_FIRESTATION_BATCH, "POST /firestation/batch - size={}", firestations.size());
+        logger.debug(POST_FIRESTATION_BATCH, "POST /firestation/batch - Payload: {}", firestations);
+        List<Optional<Firestation>> results = firestationService.addFirestations(firestations);
+        logger.info(POST_FIRESTATION_BATCH, "POST /firestation/batch - size={}, conflicts={}", results.size(), BatchResponses.failures(results));
+        return ResponseEntity.status(200).body(BatchResponses.of(results, BatchResponses.CREATED, BatchResponses.CONFLICT));
+    }
+
+    /**
+     * Met à jour un lot de numéros de caserne (adresse comme clef), enregistré en une seule écriture.
+     *
+     * @param firestations Mappings à mettre à jour
+     * @return 200 et, pour chaque élément dans l'ordre, 200 avec l'élément modifié ou 410 si non trouvé
+     */
+    @PutMapping("/firestation/batch")
+    public ResponseEntity<List<BatchItemDTO<Firestation>>> updateFirestations(@RequestBody List<Firestation> firestations) {
+        logger.info(PUT_FIRESTATION_BATCH, "PUT /firestation/batch - size={}", firestations.size());
+        logger.debug(PUT_FIRESTATION_BATCH, "PUT /firestation/batch - Payload: {}", firestations);
+        List<Optional<Firestation>> results = firestationService.updateFirestations(firestations);
+        logger.info(PUT_FIRESTATION_BATCH, "PUT /firestation/batch - size={}, notFound={}", results.size(), BatchResponses.failures(results));
+        return ResponseEntity.status(200).body(BatchResponses.of(results, BatchResponses.UPDATED, BatchResponses.GONE));
+    }
+
     /**
      * Supprime la caserne par son identifiant firestation.
      *
@@ -69,13 +111,13 @@ public class FirestationController {
      */
     @DeleteMapping(path = "/firestation", params = "firestation")
     public ResponseEntity<Void> deleteFirestationWithID(@RequestParam int firestation) {
-        logger.info("DELETE /firestation?firestation={} - Request", firestation);
+        logger.info(DELETE_FIRESTATION, "DELETE /firestation?firestation={} - Request", firestation);
         boolean deleted = firestationService.deleteFirestationMappingById(firestation);
         if (deleted) {
-            logger.info("DELETE /firestation?firestation={} - DELETED", firestation);
+            logger.info(DELETE_FIRESTATION, "DELETE /firestation?firestation={} - DELETED", firestation);
             return ResponseEntity.status(200).build();
         } else {
-            logger.error("DELETE /firestation?firestation={} - NOT FOUND", firestation);
+            logger.error(DELETE_FIRESTATION, "DELETE /firestation?firestation={} - NOT FOUND", firestation);
             return ResponseEntity.status(410).build();
         }
     }
@@ -88,13 +130,13 @@ public class FirestationController {
      */
     @DeleteMapping(path = "/firestation", params = "address")
     public ResponseEntity<Void> deleteFirestationWithAdresse(@RequestParam String address) {
-        logger.info("DELETE /firestation?address={} - Request", address);
+        logger.info(DELETE_FIRESTATION, "DELETE /firestation?address={} - Request", address);
         boolean deleted = firestationService.deleteFirestationMappingByAdress(address);
         if (deleted) {
-            logger.info("DELETE /firestation?address={} - DELETED", address);
+            logger.info(DELETE_FIRESTATION, "DELETE /firestation?address={} - DELETED", address);
             return ResponseEntity.status(200).build();
         } else {
-            logger.error("DELETE /firestation?address={} - NOT FOUND", address);
+            logger.error(DELETE_FIRESTATION, "DELETE /firestation?address={} - NOT FOUND", address);
             return ResponseEntity.status(410).build();
         }
     }
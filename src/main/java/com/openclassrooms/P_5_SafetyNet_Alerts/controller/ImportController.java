@@ -0,0 +1,99 @@
+package com.openclassrooms.P_5_SafetyNet_Alerts.controller;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.openclassrooms.P_5_SafetyNet_Alerts.model.DTO.ImportProgressDTO;
+import com.openclassrooms.P_5_SafetyNet_Alerts.model.DTO.ImportRecordDTO;
+import com.openclassrooms.P_5_SafetyNet_Alerts.service.ImportService;
+import lombok.RequiredArgsConstructor;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.apache.logging.log4j.Marker;
+import org.apache.logging.log4j.MarkerManager;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Optional;
+
+/**
+ * Contrôleur REST pour l'import en masse de données dans l’application SafetyNet.
+ * <p>
+ * Le corps de POST /import est un flux NDJSON (une ligne JSON par enregistrement, voir {@link ImportRecordDTO}),
+ * analysé au fil de sa lecture : il n'est jamais gardé en entier en mémoire.
+ */
+@RestController
+@RequiredArgsConstructor
+public class ImportController {
+
+    private static final Logger logger = LogManager.getLogger(ImportController.class);
+    // Marqueurs de route, utilisés pour l'échantillonnage des logs INFO (voir RouteSamplingFilter)
+    private static final Marker POST_IMPORT = MarkerManager.getMarker("POST /import");
+    private static final Marker GET_IMPORT = MarkerManager.getMarker("GET /import");
+
+    // Un log d'avancement tous les N paquets appliqués
+    private static final int PROGRESS_LOG_EVERY = 20;
+
+    private final ImportService importService;
+    private final ObjectMapper objectMapper;
+
+    /**
+     * Importe un flux NDJSON de personnes, dossiers médicaux et mappings caserne/adresse.
+     * Les enregistrements existants sont mis à jour, les autres ajoutés.
+     *
+     * @param body flux NDJSON, lu au fil de l'import
+     * @return le bilan de l'import (200), 400 si le flux est invalide (avec le bilan des paquets déjà appliqués
+     * par cet import, ou sans corps si le flux est invalide dès son début), ou 409 si un import est déjà en cours
+     */
+    @PostMapping(path = "/import", consumes = {"application/x-ndjson", "application/json"})
+    public ResponseEntity<ImportProgressDTO> importRecords(InputStream body) throws IOException {
+        logger.info(POST_IMPORT, "POST /import - Request");
+        try (MappingIterator<ImportRecordDTO> records = objectMapper.readerFor(ImportRecordDTO.class).readValues(body)) {
+            Optional<ImportProgressDTO> result = importService.importRecords(
+                    () -> records.hasNextValue() ? records.nextValue() : null,
+                    progress -> {
+                        if (progress.getChunks() % PROGRESS_LOG_EVERY == 0) {
+                            logger.info(POST_IMPORT, "POST /import - PROGRESS: records={}, recordsPerSecond={}, backpressureWaits={}",
+                                    progress.getRecords(), Math.round(progress.getRecordsPerSecond()), progress.getBackpressureWaits());
+                        }
+                    });
+            if (result.isEmpty()) {
+                logger.error(POST_IMPORT, "POST /import - CONFLICT: import already running");
+                return ResponseEntity.status(409).build();
+            }
+            ImportProgressDTO progress = result.get();
+            logger.info(POST_IMPORT, "POST /import - IMPORTED: records={}, created={}, updated={}, rejected={}, elapsedMillis={}",
+                    progress.getRecords(), progress.getCreated(), progress.getUpdated(), progress.getRejected(), progress.getElapsedMillis());
+            return ResponseEntity.status(200).body(progress);
+        } catch (ImportService.ImportFailedException e) {
+            if (!(e.getCause() instanceof JsonProcessingException invalid)) {
+                throw e.getCause();
+            }
+            logger.error(POST_IMPORT, "POST /import - INVALID STREAM: {}", invalid.getOriginalMessage());
+            return ResponseEntity.status(400).body(e.getProgress());
+        } catch (JsonProcessingException e) {
+            logger.error(POST_IMPORT, "POST /import - INVALID STREAM: {}", e.getOriginalMessage());
+            return ResponseEntity.status(400).build();
+        }
+    }
+
+    /**
+     * Avancement de l'import en cours, ou bilan du dernier import.
+     *
+     * @return l'avancement (200), ou 404 si aucun import n'a été lancé
+     */
+    @GetMapping("/import")
+    public ResponseEntity<ImportProgressDTO> getImportProgress() {
+        logger.info(GET_IMPORT, "GET /import - Request");
+        Optional<ImportProgressDTO> progress = importService.getProgress();
+        if (progress.isEmpty()) {
+            logger.error(GET_IMPORT, "GET /import - NOT FOUND: no import");
+            return ResponseEntity.status(404).build();
+        }
+        return ResponseEntity.status(200).body(progress.get());
+    }
+}
@@ -0,0 +1,97 @@
+package com.openclassrooms.P_5_SafetyNet_Alerts.controller;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.openclassrooms.P_5_SafetyNet_Alerts.service.ResultStream;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.util.Map;
+
+/**
+ * Écriture en flux des réponses JSON volumineuses ({@link StreamingResponseBody}).
+ * <p>
+ * Les éléments d'un {@link ResultStream} sont sérialisés un par un, avec la même forme JSON que
+ * la réponse complète (tableau ou objet), et la réponse est envoyée au client tous les
+ * {@value #FLUSH_EVERY} éléments : la mémoire utilisée ne dépend pas de la taille du résultat.
+ * Si le client se déconnecte, l'écriture suivante échoue et le parcours du résultat s'arrête.
+ */
+final class JsonStreams {
+
+    static final int FLUSH_EVERY = 256;
+
+    private static final Logger logger = LogManager.getLogger(JsonStreams.class);
+
+    private JsonStreams() {
+    }
+
+    /**
+     * @return une réponse écrivant les éléments dans un tableau JSON
+     */
+    static StreamingResponseBody array(ObjectMapper mapper, ResultStream<?> elements) {
+        ObjectWriter values = valueWriter(mapper);
+        return out -> write(mapper, out, false, elements, (generator, element) -> values.writeValue(generator, element));
+    }
+
+    /**
+     * @return une réponse écrivant les paires clef / valeur dans un objet JSON
+     */
+    static <V> StreamingResponseBody object(ObjectMapper mapper, ResultStream<Map.Entry<String, V>> fields) {
+        ObjectWriter values = valueWriter(mapper);
+        return out -> write(mapper, out, true, fields, (generator, field) -> {
+            generator.writeFieldName(field.getKey());
+            values.writeValue(generator, field.getValue());
+        });
+    }
+
+    /**
+     * Sérialisation d'un élément, sans l'envoi au client que Jackson fait par défaut après chaque valeur.
+     */
+    private static ObjectWriter valueWriter(ObjectMapper mapper) {
+        return mapper.writer().without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+    }
+
+    private interface ElementWriter<T> {
+        void write(JsonGenerator generator, T element) throws IOException;
+    }
+
+    private static <T> void write(ObjectMapper mapper, OutputStream out, boolean object,
+                                  ResultStream<T> elements, ElementWriter<T> writer) throws IOException {
+        // Le flux de la réponse appartient au conteneur : il n'est pas fermé avec le générateur
+        try (JsonGenerator generator = mapper.getFactory().createGenerator(out)
+                .disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET)) {
+            if (object) {
+                generator.writeStartObject();
+            } else {
+                generator.writeStartArray();
+            }
+            int[] written = new int[1];
+            try {
+                elements.forEach(element -> {
+                    try {
+                        writer.write(generator, element);
+                        if (++written[0] % FLUSH_EVERY == 0) {
+                            generator.flush();
+                        }
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                });
+            } catch (UncheckedIOException e) {
+                logger.info("Réponse en flux interrompue après {} éléments : {}", written[0], e.getCause().getMessage());
+                throw e.getCause();
+            }
+            if (object) {
+                generator.writeEndObject();
+            } else {
+                generator.writeEndArray();
+            }
+        }
+    }
+}
@@ -1,13 +1,17 @@
 package com.openclassrooms.P_5_SafetyNet_Alerts.controller;
 
+import com.openclassrooms.P_5_SafetyNet_Alerts.model.DTO.BatchItemDTO;
 import com.openclassrooms.P_5_SafetyNet_Alerts.model.MedicalRecord;
 import com.openclassrooms.P_5_SafetyNet_Alerts.service.MedicalRecordService;
 import lombok.RequiredArgsConstructor;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
+import org.apache.logging.log4j.Marker;
+import org.apache.logging.log4j.MarkerManager;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
+import java.util.List;
 import java.util.Optional;
 
 /**
@@ -20,6 +24,12 @@ import java.util.Optional;
 public class MedicalRecordController {
 
     private static final Logger logger = LogManager.getLogger(MedicalRecordController.class);
+    // Marqueurs de route, utilisés pour l'échantillonnage des logs INFO (voir RouteSamplingFilter)
+    private static final Marker POST_MEDICAL_RECORD = MarkerManager.getMarker("POST /medicalRecord");
+    private static final Marker PUT_MEDICAL_RECORD = MarkerManager.getMarker("PUT /medicalRecord");
+    private static final Marker POST_MEDICAL_RECORD_BATCH = MarkerManager.getMarker("POST /medicalRecord/batch");
+    private static final Marker PUT_MEDICAL_RECORD_BATCH = MarkerManager.getMarker("PUT /medicalRecord/batch");
+    private static final Marker DELETE_MEDICAL_RECORD = MarkerManager.getMarker("DELETE /medicalRecord");
 
     private final MedicalRecordService medicalRecordService;
 
@@ -31,13 +41,14 @@ public class MedicalRecordController {
      */
     @PostMapping("/medicalRecord")
     public ResponseEntity<MedicalRecord> addMedicalRecord(@RequestBody MedicalRecord medicalRecord) {
-        logger.info("POST /medicalRecord - Request: {}", medicalRecord);
+        logger.info(POST_MEDICAL_RECORD, "POST /medicalRecord - firstName={}, lastName={}", medicalRecord.getFirstName(), medicalRecord.getLastName());
+        logger.debug(POST_MEDICAL_RECORD, "POST /medicalRecord - Payload: {}", medicalRecord);
         Optional<MedicalRecord> result = medicalRecordService.addMedicalRecord(medicalRecord);
         if (result.isPresent()) {
-            logger.info("POST /medicalRecord - CREATED: {}", result.get());
+            logger.info(POST_MEDICAL_RECORD, "POST /medicalRecord - CREATED: firstName={}, lastName={}", result.get().getFirstName(), result.get().getLastName());
             return ResponseEntity.status(201).body(result.get());
         }
-        logger.error("POST /medicalRecord - CONFLICT: {}", medicalRecord);
+        logger.error(POST_MEDICAL_RECORD, "POST /medicalRecord - CONFLICT: firstName={}, lastName={}", medicalRecord.getFirstName(), medicalRecord.getLastName());
         return ResponseEntity.status(409).build();
     }
 
@@ -49,16 +60,47 @@ public class MedicalRecordController {
      */
     @PutMapping("/medicalRecord")
     public ResponseEntity<MedicalRecord> updateMedicalRecord(@RequestBody MedicalRecord medicalRecord) {
-        logger.info("PUT /medicalRecord - Request: {}", medicalRecord);
+        logger.info(PUT_MEDICAL_RECORD, "PUT /medicalRecord - firstName={}, lastName={}", medicalRecord.getFirstName(), medicalRecord.getLastName());
+        logger.debug(PUT_MEDICAL_RECORD, "PUT /medicalRecord - Payload: {}", medicalRecord);
         Optional<MedicalRecord> result = medicalRecordService.updateMedicalRecord(medicalRecord);
         if (result.isPresent()) {
-            logger.info("PUT /medicalRecord - UPDATED: {}", result.get());
+            logger.info(PUT_MEDICAL_RECORD, "PUT /medicalRecord - UPDATED: firstName={}, lastName={}", result.get().getFirstName(), result.get().getLastName());
             return ResponseEntity.status(200).body(result.get());
         }
-        logger.error("PUT /medicalRecord - NOT FOUND: {}", medicalRecord);
+        logger.error(PUT_MEDICAL_RECORD, "PUT /medicalRecord - NOT FOUND: firstName={}, lastName={}", medicalRecord.getFirstName(), medicalRecord.getLastName());
         return ResponseEntity.status(410).build();
     }
 
+    /**
+     * Ajoute un lot de dossiers médicaux, validé et enregistré en une seule écriture.
+     *
+     * @param medicalRecords Dossiers médicaux à ajouter
+     * @return 200 et, pour chaque élément dans l'ordre, 201 avec l'élément créé ou 409 si conflit
+     */
+    @PostMapping("/medicalRecord/batch")
+    public ResponseEntity<List<BatchItemDTO<MedicalRecord>>> addMedicalRecords(@RequestBody List<MedicalRecord> medicalRecords) {
+        logger.info(POST_MEDICAL_RECORD_BATCH, "POST /medicalRecord/batch - size={}", medicalRecords.size());
+        logger.debug(POST_MEDICAL_RECORD_BATCH, "POST /medicalRecord/batch - Payload: {}", medicalRecords);
+        List<Optional<MedicalRecord>> results = medicalRecordService.addMedicalRecords(medicalRecords);
+        logger.info(POST_MEDICAL_RECORD_BATCH, "POST /medicalRecord/batch - size={}, conflicts={}", results.size(), BatchResponses.failures(results));
+        return ResponseEntity.status(200).body(BatchResponses.of(results, BatchResponses.CREATED, BatchResponses.CONFLICT));
+    }
+
+    /**
+     * Met à jour un lot de dossiers médicaux, enregistré en une seule écriture.
+     *
+     * @param medicalRecords Dossiers médicaux à mettre à jour
+     * @return 200 et, pour chaque élément dans l'ordre, 200 avec l'élément modifié ou 410 si non trouvé
+     */
+    @PutMapping("/medicalRecord/batch")
+    public ResponseEntity<List<BatchItemDTO<MedicalRecord>>> updateMedicalRecords(@RequestBody List<MedicalRecord> medicalRecords) {
+        logger.info(PUT_MEDICAL_RECORD_BATCH, "PUT /medicalRecord/batch - size={}", medicalRecords.size());
+        logger.debug(PUT_MEDICAL_RECORD_BATCH, "PUT /medicalRecord/batch - Payload: {}", medicalRecords);
+        List<Optional<MedicalRecord>> results = medicalRecordService.updateMedicalRecords(medicalRecords);
+        logger.info(PUT_MEDICAL_RECORD_BATCH, "PUT /medicalRecord/batch - size={}, notFound={}", results.size(), BatchResponses.failures(results));
+        return ResponseEntity.status(200).body(BatchResponses.of(results, BatchResponses.UPDATED, BatchResponses.GONE));
+    }
+
     /**
      * Supprime un dossier médical d'une personne à partir de son prénom et nom.
      *
@@ -68,13 +110,13 @@ public class MedicalRecordController {
      */
     @DeleteMapping("/medicalRecord")
     public ResponseEntity<Void> deleteMedicalRecord(@RequestParam String firstName, @RequestParam String lastName) {
-        logger.info("DELETE /medicalRecord - firstName={}, lastName={}", firstName, lastName);
+        logger.info(DELETE_MEDICAL_RECORD, "DELETE /medicalRecord - firstName={}, lastName={}", firstName, lastName);
         Boolean delete = medicalRecordService.deleteMedicalRecord(firstName, lastName);
         if (delete) {
-            logger.info("DELETE /medicalRecord - DELETED: firstName={}, lastName={}", firstName, lastName);
+            logger.info(DELETE_MEDICAL_RECORD, "DELETE /medicalRecord - DELETED: firstName={}, lastName={}", firstName, lastName);
             return ResponseEntity.status(200).build();
         }
-        logger.error("DELETE /medicalRecord - NOT FOUND: firstName={}, lastName={}", firstName, lastName);
+        logger.error(DELETE_MEDICAL_RECORD, "DELETE /medicalRecord - NOT FOUND: firstName={}, lastName={}", firstName, lastName);
         return ResponseEntity.status(410).build();
     }
 }
@@ -0,0 +1,53 @@
+package com.openclassrooms.P_5_SafetyNet_Alerts.controller;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.observation.Observation;
+import io.micrometer.observation.ObservationHandler;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.http.server.observation.ServerRequestObservationContext;
+import org.springframework.stereotype.Component;
+
+/**
+ * Compte les réponses 404 (aucune donnée), 409 (conflit à la création) et 410 (ressource disparue)
+ * de chaque route, dans le compteur {@value #OUTCOME_COUNTER} (tags {@code uri}, {@code method}, {@code status}).
+ * <p>
+ * Branché sur l'observation des requêtes HTTP qui alimente déjà {@code http.server.requests} :
+ * la route est le motif du mapping (par exemple {@code /person}), pas l'URL avec ses paramètres.
+ */
+@Component
+public class OutcomeMetrics implements ObservationHandler<ServerRequestObservationContext> {
+
+    public static final String OUTCOME_COUNTER = "safetynet.http.outcomes";
+
+    private final MeterRegistry registry;
+
+    public OutcomeMetrics(MeterRegistry registry) {
+        this.registry = registry;
+    }
+
+    @Override
+    public boolean supportsContext(Observation.Context context) {
+        return context instanceof ServerRequestObservationContext;
+    }
+
+    @Override
+    public void onStop(ServerRequestObservationContext context) {
+        HttpServletResponse response = context.getResponse();
+        if (response == null) {
+            return;
+        }
+        int status = response.getStatus();
+        if (status != 404 && status != 409 && status != 410) {
+            return;
+        }
+        String uri = context.getPathPattern() != null ? context.getPathPattern() : "UNKNOWN";
+        Counter.builder(OUTCOME_COUNTER)
+                .description("Réponses 404, 409 et 410 par route")
+                .tag("uri", uri)
+                .tag("method", context.getCarrier().getMethod())
+                .tag("status", Integer.toString(status))
+                .register(registry)
+                .increment();
+    }
+}
@@ -1,13 +1,21 @@
 package com.openclassrooms.P_5_SafetyNet_Alerts.controller;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
 import com.openclassrooms.P_5_SafetyNet_Alerts.model.DTO.*;
 import com.openclassrooms.P_5_SafetyNet_Alerts.model.Person;
+import com.openclassrooms.P_5_SafetyNet_Alerts.service.PageCursor;
 import com.openclassrooms.P_5_SafetyNet_Alerts.service.PersonService;
+import com.openclassrooms.P_5_SafetyNet_Alerts.service.ResultPage;
+import com.openclassrooms.P_5_SafetyNet_Alerts.service.ResultStream;
 import lombok.RequiredArgsConstructor;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
+import org.apache.logging.log4j.Marker;
+import org.apache.logging.log4j.MarkerManager;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import java.util.List;
 import java.util.Map;
@@ -16,32 +24,80 @@ import java.util.Optional;
 /**
  * Contrôleur REST pour la gestion des personnes dans l’application SafetyNet.
  * Gère les endpoints CRUD pour les personnes, ainsi que les GETs de l'API.
+ * <p>
+ * /communityEmail et /flood/stations acceptent {@code stream=true} : la réponse, de même forme JSON,
+ * est alors écrite au fur et à mesure de son calcul (voir {@link JsonStreams}).
+ * <p>
+ * /firestation, /personInfo et /communityEmail acceptent {@code limit} (et {@code cursor}) : la réponse,
+ * de même forme JSON, ne contient alors qu'une page ; l'en-tête {@value #NEXT_CURSOR_HEADER} donne le
+ * curseur opaque de la page suivante, absent sur la dernière page. 400 si {@code limit} ou {@code cursor} est invalide.
+ * <p>
+ * /personInfo accepte {@code prefix=true} : {@code lastName} est alors un début de nom, et la réponse est
+ * toujours paginée ({@value #DEFAULT_PREFIX_LIMIT} personnes par page si {@code limit} est absent).
  */
 @RestController
 @RequiredArgsConstructor
 public class PersonController {
 
     private static final Logger logger = LogManager.getLogger(PersonController.class);
+    // Marqueurs de route, utilisés pour l'échantillonnage des logs INFO (voir RouteSamplingFilter)
+    private static final Marker GET_FIRESTATION = MarkerManager.getMarker("GET /firestation");
+    private static final Marker GET_CHILD_ALERT = MarkerManager.getMarker("GET /childAlert");
+    private static final Marker GET_PHONE_ALERT = MarkerManager.getMarker("GET /phoneAlert");
+    private static final Marker GET_FIRE = MarkerManager.getMarker("GET /fire");
+    private static final Marker GET_FLOOD_STATIONS = MarkerManager.getMarker("GET /flood/stations");
+    private static final Marker GET_POPULATION = MarkerManager.getMarker("GET /population");
+    private static final Marker GET_PERSON_INFO = MarkerManager.getMarker("GET /personInfo");
+    private static final Marker GET_COMMUNITY_EMAIL = MarkerManager.getMarker("GET /communityEmail");
+    private static final Marker POST_PERSON = MarkerManager.getMarker("POST /person");
+    private static final Marker PUT_PERSON = MarkerManager.getMarker("PUT /person");
+    private static final Marker POST_PERSON_BATCH = MarkerManager.getMarker("POST /person/batch");
+    private static final Marker PUT_PERSON_BATCH = MarkerManager.getMarker("PUT /person/batch");
+    private static final Marker DELETE_PERSON = MarkerManager.getMarker("DELETE /person");
+
+    static final String NEXT_CURSOR_HEADER = "X-Next-Cursor";
+    static final int DEFAULT_PREFIX_LIMIT = 50;
 
     private final PersonService personService;
+    private final ObjectMapper objectMapper;
 
     /**
      * Récupère la liste des personnes couvertes par la caserne dont l'identifiant est passé en paramètre.
      *
      * @param stationNumber numéro de la caserne
+     * @param limit         taille de page, pour une réponse paginée
+     * @param cursor        curseur de la page demandée, donné par la page précédente
      * @return Les personnes couvertes, ou 404 si aucune trouvée
      */
-    // -------------------- /firestation?stationNumber=xx --------------------- //
+    // -------------------- /firestation?stationNumber=xx[&limit=n&cursor=xxx] --------------------- //
     @GetMapping("/firestation")
     public ResponseEntity<PersonsByFirestationIDReturn> getPersonsByFirestationId(
-            @RequestParam("stationNumber") int stationNumber) {
-        logger.info("GET /firestation - stationNumber={}", stationNumber);
+            @RequestParam("stationNumber") int stationNumber,
+            @RequestParam(value = "limit", required = false) Integer limit,
+            @RequestParam(value = "cursor", required = false) String cursor) {
+        if (limit != null || cursor != null) {
+            logger.info(GET_FIRESTATION, "GET /firestation - stationNumber={}, limit={}", stationNumber, limit);
+            Optional<PageCursor> after = cursor == null ? Optional.empty() : PageCursor.decode(cursor);
+            if (!isValidPage(limit, cursor, after)) {
+                logger.error(GET_FIRESTATION, "GET /firestation - BAD REQUEST: limit={}, cursor={}", limit, cursor);
+                return ResponseEntity.status(400).build();
+            }
+            Optional<ResultPage<PersonsByFirestationIDReturn>> page =
+                    personService.getPersonsByFirestationIDPage(stationNumber, limit, after.orElse(null));
+            if (page.isEmpty()) {
+                logger.error(GET_FIRESTATION, "GET /firestation - NOT FOUND for stationNumber={}", stationNumber);
+                return ResponseEntity.status(404).build();
+            }
+            logger.info(GET_FIRESTATION, "GET /firestation - OK for stationNumber={}, page", stationNumber);
+            return page(page.get());
+        }
+        logger.info(GET_FIRESTATION, "GET /firestation - stationNumber={}", stationNumber);
         Optional<PersonsByFirestationIDReturn> result = personService.getAllPersonsByDependingOfFirestationID(stationNumber);
         if (result.isEmpty()) {
-            logger.error("GET /firestation - NOT FOUND for stationNumber={}", stationNumber);
+            logger.error(GET_FIRESTATION, "GET /firestation - NOT FOUND for stationNumber={}", stationNumber);
             return ResponseEntity.status(404).build();
         }
-        logger.info("GET /firestation - OK for stationNumber={}", stationNumber);
+        logger.info(GET_FIRESTATION, "GET /firestation - OK for stationNumber={}", stationNumber);
         return ResponseEntity.ok(result.get());
     }
 
@@ -55,13 +111,13 @@ public class PersonController {
     // -------------------- /childAlert?address=xxx --------------------- //
     @GetMapping("/childAlert")
     public ResponseEntity<List<ChildAlertDTO>> getChildsByAddress(@RequestParam("address") String address) {
-        logger.info("GET /childAlert - address={}", address);
+        logger.info(GET_CHILD_ALERT, "GET /childAlert - address={}", address);
         List<ChildAlertDTO> result = personService.getChildsByAdress(address);
         if (result.isEmpty()) {
-            logger.error("GET /childAlert - NOT FOUND for address={}", address);
+            logger.error(GET_CHILD_ALERT, "GET /childAlert - NOT FOUND for address={}", address);
             return ResponseEntity.status(404).build();
         }
-        logger.info("GET /childAlert - OK for address={}", address);
+        logger.info(GET_CHILD_ALERT, "GET /childAlert - OK for address={}", address);
         return ResponseEntity.ok(result);
     }
 
@@ -74,13 +130,13 @@ public class PersonController {
     // -------------------- /phoneAlert?firestation=xx --------------------- //
     @GetMapping("/phoneAlert")
     public ResponseEntity<PhoneAlertByFirestationDTO> getPhonesByFirestationID(@RequestParam int firestation) {
-        logger.info("GET /phoneAlert - firestation={}", firestation);
+        logger.info(GET_PHONE_ALERT, "GET /phoneAlert - firestation={}", firestation);
         Optional<PhoneAlertByFirestationDTO> result = personService.getPhoneAlertByFirestation(firestation);
         if (result.isEmpty()) {
-            logger.error("GET /phoneAlert - NOT FOUND for firestation={}", firestation);
+            logger.error(GET_PHONE_ALERT, "GET /phoneAlert - NOT FOUND for firestation={}", firestation);
             return ResponseEntity.status(404).build();
         }
-        logger.info("GET /phoneAlert - OK for firestation={}", firestation);
+        logger.info(GET_PHONE_ALERT, "GET /phoneAlert - OK for firestation={}", firestation);
         return ResponseEntity.ok(result.get());
     }
 
@@ -93,13 +149,13 @@ public class PersonController {
     // -------------------- /fire?address=xxx --------------------- //
     @GetMapping("/fire")
     public ResponseEntity<FireAddressReturnDTO> getStationAndPeopleForAFire(@RequestParam String address) {
-        logger.info("GET /fire - address={}", address);
+        logger.info(GET_FIRE, "GET /fire - address={}", address);
         Optional<FireAddressReturnDTO> result = personService.getHouseholdInfoByAddress(address);
         if (result.isEmpty()) {
-            logger.error("GET /fire - NOT FOUND for address={}", address);
+            logger.error(GET_FIRE, "GET /fire - NOT FOUND for address={}", address);
             return ResponseEntity.status(404).build();
         }
-        logger.info("GET /fire - OK for address={}", address);
+        logger.info(GET_FIRE, "GET /fire - OK for address={}", address);
         return ResponseEntity.ok(result.get());
     }
 
@@ -113,56 +169,197 @@ public class PersonController {
     @GetMapping("/flood/stations")
     public ResponseEntity<Map<String, List<FireAddressResidentDTO>>> getFloodInfoByStations(
             @RequestParam("stations") List<Integer> stationNumbers) {
-        logger.info("GET /flood/stations - stations={}", stationNumbers);
+        logger.info(GET_FLOOD_STATIONS, "GET /flood/stations - stations={}", stationNumbers);
         Map<String, List<FireAddressResidentDTO>> result = personService.getFloodInfoByStations(stationNumbers);
         if (result.isEmpty()) {
-            logger.error("GET /flood/stations - NOT FOUND for stations={}", stationNumbers);
+            logger.error(GET_FLOOD_STATIONS, "GET /flood/stations - NOT FOUND for stations={}", stationNumbers);
+            return ResponseEntity.status(404).body(result);
+        }
+        logger.info(GET_FLOOD_STATIONS, "GET /flood/stations - OK for stations={}", stationNumbers);
+        return ResponseEntity.ok(result);
+    }
+
+    /**
+     * Variante en flux de /flood/stations, pour un grand nombre de casernes : chaque foyer est écrit
+     * dès qu'il est calculé.
+     *
+     * @param stationNumbers Liste des numéros de casernes
+     * @return Map des adresses et liste des habitants, écrite en flux, ou 404 si rien trouvé
+     */
+    // -------------------- /flood/stations?stations=xx,yy,zz&stream=true --------------------- //
+    @GetMapping(value = "/flood/stations", params = "stream=true")
+    public ResponseEntity<StreamingResponseBody> streamFloodInfoByStations(
+            @RequestParam("stations") List<Integer> stationNumbers) {
+        logger.info(GET_FLOOD_STATIONS, "GET /flood/stations - stations={}, stream", stationNumbers);
+        Optional<ResultStream<Map.Entry<String, List<FireAddressResidentDTO>>>> result =
+                personService.streamFloodInfoByStations(stationNumbers);
+        if (result.isEmpty()) {
+            logger.error(GET_FLOOD_STATIONS, "GET /flood/stations - NOT FOUND for stations={}", stationNumbers);
+            return ResponseEntity.status(404).contentType(MediaType.APPLICATION_JSON)
+                    .body(JsonStreams.object(objectMapper, action -> { }));
+        }
+        logger.info(GET_FLOOD_STATIONS, "GET /flood/stations - OK for stations={}, streaming", stationNumbers);
+        return ResponseEntity.ok().contentType(MediaType.APPLICATION_JSON)
+                .body(JsonStreams.object(objectMapper, result.get()));
+    }
+
+    /**
+     * Recherche, parmi les habitants couverts par des casernes ou habitant une adresse (toute la population
+     * si aucune n'est donnée), ceux dont le dossier médical contient toutes les allergies et tous les médicaments donnés.
+     *
+     * @param stationNumbers Liste des numéros de casernes
+     * @param address        Adresse couverte
+     * @param allergies      Allergies recherchées
+     * @param medications    Médicaments recherchés, par nom ou valeur complète (nom:dose)
+     * @return Map des adresses et liste des habitants trouvés, 400 sans allergie ni médicament, ou 404 si personne trouvé
+     */
+    // -------------------- /population?stations=xx,yy&address=xxx&allergy=xxx&medication=xxx --------------------- //
+    @GetMapping("/population")
+    public ResponseEntity<Map<String, List<FireAddressResidentDTO>>> getPopulationByMedicalTerms(
+            @RequestParam(value = "stations", required = false) List<Integer> stationNumbers,
+            @RequestParam(value = "address", required = false) String address,
+            @RequestParam(value = "allergy", required = false) List<String> allergies,
+            @RequestParam(value = "medication", required = false) List<String> medications) {
+        logger.info(GET_POPULATION, "GET /population - stations={}, address={}, allergy={}, medication={}",
+                stationNumbers, address, allergies, medications);
+        if ((allergies == null || allergies.isEmpty()) && (medications == null || medications.isEmpty())) {
+            logger.error(GET_POPULATION, "GET /population - BAD REQUEST: no allergy nor medication");
+            return ResponseEntity.status(400).build();
+        }
+        Map<String, List<FireAddressResidentDTO>> result =
+                personService.getPopulationByMedicalTerms(stationNumbers, address, allergies, medications);
+        if (result.isEmpty()) {
+            logger.error(GET_POPULATION, "GET /population - NOT FOUND for stations={}, address={}, allergy={}, medication={}",
+                    stationNumbers, address, allergies, medications);
             return ResponseEntity.status(404).body(result);
         }
-        logger.info("GET /flood/stations - OK for stations={}", stationNumbers);
+        logger.info(GET_POPULATION, "GET /population - OK for stations={}, address={}, allergy={}, medication={}",
+                stationNumbers, address, allergies, medications);
         return ResponseEntity.ok(result);
     }
 
     /**
      * Retourne les informations d'une ou plusieurs personnes portant ce nom de famille.
      *
-     * @param lastName Nom de famille à rechercher
+     * @param lastName Nom de famille à rechercher, ou son début avec {@code prefix=true}
+     * @param prefix   recherche des noms commençant par {@code lastName}, triés par nom puis prénom
+     * @param limit    taille de page, pour une réponse paginée
+     * @param cursor   curseur de la page demandée, donné par la page précédente
      * @return Liste d'informations ou 404 si personne trouvée
      */
-    // -------------------- /personInfo?lastName=xxx --------------------- //
+    // -------------------- /personInfo?lastName=xxx[&prefix=true][&limit=n&cursor=xxx] --------------------- //
     @GetMapping("/personInfo")
-    public ResponseEntity<List<PersonInfoByNameDTO>> getPersonInfoByName(@RequestParam("lastName") String lastName) {
-        logger.info("GET /personInfo - lastName={}", lastName);
+    public ResponseEntity<List<PersonInfoByNameDTO>> getPersonInfoByName(
+            @RequestParam("lastName") String lastName,
+            @RequestParam(value = "prefix", defaultValue = "false") boolean prefix,
+            @RequestParam(value = "limit", required = false) Integer limit,
+            @RequestParam(value = "cursor", required = false) String cursor) {
+        if (prefix) {
+            int pageSize = limit == null ? DEFAULT_PREFIX_LIMIT : limit;
+            logger.info(GET_PERSON_INFO, "GET /personInfo - lastName={}, prefix, limit={}", lastName, pageSize);
+            Optional<PageCursor> after = cursor == null ? Optional.empty() : PageCursor.decode(cursor);
+            if (!isValidPage(pageSize, cursor, after)) {
+                logger.error(GET_PERSON_INFO, "GET /personInfo - BAD REQUEST: limit={}, cursor={}", limit, cursor);
+                return ResponseEntity.status(400).build();
+            }
+            Optional<ResultPage<List<PersonInfoByNameDTO>>> page =
+                    personService.getPersonsInfoByLastNamePrefixPage(lastName, pageSize, after.orElse(null));
+            if (page.isEmpty()) {
+                logger.error(GET_PERSON_INFO, "GET /personInfo - NOT FOUND for lastName prefix={}", lastName);
+                return ResponseEntity.status(404).body(List.of());
+            }
+            logger.info(GET_PERSON_INFO, "GET /personInfo - OK for lastName prefix={}, page", lastName);
+            return page(page.get());
+        }
+        if (limit != null || cursor != null) {
+            logger.info(GET_PERSON_INFO, "GET /personInfo - lastName={}, limit={}", lastName, limit);
+            Optional<PageCursor> after = cursor == null ? Optional.empty() : PageCursor.decode(cursor);
+            if (!isValidPage(limit, cursor, after)) {
+                logger.error(GET_PERSON_INFO, "GET /personInfo - BAD REQUEST: limit={}, cursor={}", limit, cursor);
+                return ResponseEntity.status(400).build();
+            }
+            Optional<ResultPage<List<PersonInfoByNameDTO>>> page =
+                    personService.getPersonsInfoByLastNamePage(lastName, limit, after.orElse(null));
+            if (page.isEmpty()) {
+                logger.error(GET_PERSON_INFO, "GET /personInfo - NOT FOUND for lastName={}", lastName);
+                return ResponseEntity.status(404).body(List.of());
+            }
+            logger.info(GET_PERSON_INFO, "GET /personInfo - OK for lastName={}, page", lastName);
+            return page(page.get());
+        }
+        logger.info(GET_PERSON_INFO, "GET /personInfo - lastName={}", lastName);
         List<PersonInfoByNameDTO> result = personService.getPersonsInfoByLastName(lastName);
         if (result.isEmpty()) {
-            logger.error("GET /personInfo - NOT FOUND for lastName={}", lastName);
+            logger.error(GET_PERSON_INFO, "GET /personInfo - NOT FOUND for lastName={}", lastName);
             return ResponseEntity.status(404).body(result);
         }
-        logger.info("GET /personInfo - OK for lastName={}", lastName);
+        logger.info(GET_PERSON_INFO, "GET /personInfo - OK for lastName={}", lastName);
         return ResponseEntity.ok(result);
     }
 
     /**
      * Retourne toutes les adresses emails pour une ville donnée.
      *
-     * @param city Nom de la ville
+     * @param city   Nom de la ville
+     * @param limit  taille de page, pour une réponse paginée
+     * @param cursor curseur de la page demandée, donné par la page précédente
      * @return Liste des emails ou 404 si aucune trouvée
      */
-    // -------------------- /communityEmail?city=xxx --------------------- //
+    // -------------------- /communityEmail?city=xxx[&limit=n&cursor=xxx] --------------------- //
     @GetMapping("/communityEmail")
-    public ResponseEntity<List<String>> getEmailsByCity(@RequestParam("city") String city) {
-        logger.info("GET /communityEmail - city={}", city);
+    public ResponseEntity<List<String>> getEmailsByCity(
+            @RequestParam("city") String city,
+            @RequestParam(value = "limit", required = false) Integer limit,
+            @RequestParam(value = "cursor", required = false) String cursor) {
+        if (limit != null || cursor != null) {
+            logger.info(GET_COMMUNITY_EMAIL, "GET /communityEmail - city={}, limit={}", city, limit);
+            Optional<PageCursor> after = cursor == null ? Optional.empty() : PageCursor.decode(cursor);
+            if (!isValidPage(limit, cursor, after)) {
+                logger.error(GET_COMMUNITY_EMAIL, "GET /communityEmail - BAD REQUEST: limit={}, cursor={}", limit, cursor);
+                return ResponseEntity.status(400).build();
+            }
+            Optional<ResultPage<List<String>>> page = personService.getEmailsByCityPage(city, limit, after.orElse(null));
+            if (page.isEmpty()) {
+                logger.error(GET_COMMUNITY_EMAIL, "GET /communityEmail - NOT FOUND for city={}", city);
+                return ResponseEntity.status(404).body(List.of());
+            }
+            logger.info(GET_COMMUNITY_EMAIL, "GET /communityEmail - OK for city={}, page", city);
+            return page(page.get());
+        }
+        logger.info(GET_COMMUNITY_EMAIL, "GET /communityEmail - city={}", city);
         List<String> emails = personService.getEmailsByCity(city);
         if (emails.isEmpty()) {
-            logger.error("GET /communityEmail - NOT FOUND for city={}", city);
+            logger.error(GET_COMMUNITY_EMAIL, "GET /communityEmail - NOT FOUND for city={}", city);
             return ResponseEntity.status(404).body(emails);
         }
-        logger.info("GET /communityEmail - OK for city={}", city);
+        logger.info(GET_COMMUNITY_EMAIL, "GET /communityEmail - OK for city={}", city);
         return ResponseEntity.ok(emails);
 
 
     }
 
+    /**
+     * Variante en flux de /communityEmail, pour les grandes villes : chaque email est écrit
+     * dès qu'il est trouvé.
+     *
+     * @param city Nom de la ville
+     * @return Liste des emails, écrite en flux, ou 404 si aucune trouvée
+     */
+    // -------------------- /communityEmail?city=xxx&stream=true --------------------- //
+    @GetMapping(value = "/communityEmail", params = "stream=true")
+    public ResponseEntity<StreamingResponseBody> streamEmailsByCity(@RequestParam("city") String city) {
+        logger.info(GET_COMMUNITY_EMAIL, "GET /communityEmail - city={}, stream", city);
+        Optional<ResultStream<String>> emails = personService.streamEmailsByCity(city);
+        if (emails.isEmpty()) {
+            logger.error(GET_COMMUNITY_EMAIL, "GET /communityEmail - NOT FOUND for city={}", city);
+            return ResponseEntity.status(404).contentType(MediaType.APPLICATION_JSON)
+                    .body(JsonStreams.array(objectMapper, action -> { }));
+        }
+        logger.info(GET_COMMUNITY_EMAIL, "GET /communityEmail - OK for city={}, streaming", city);
+        return ResponseEntity.ok().contentType(MediaType.APPLICATION_JSON)
+                .body(JsonStreams.array(objectMapper, emails.get()));
+    }
+
     //-----------EndPoint----------//
     /**
      * Ajoute une personne à la base de données si elle n'existe pas déjà (même prenom et nom).
@@ -172,13 +369,14 @@ public class PersonController {
      */
     @PostMapping("/person")
     public ResponseEntity<Person> addPerson(@RequestBody Person person) {
-        logger.info("POST /person - Request: {}", person);
+        logger.info(POST_PERSON, "POST /person - firstName={}, lastName={}", person.getFirstName(), person.getLastName());
+        logger.debug(POST_PERSON, "POST /person - Payload: {}", person);
         Optional<Person> result = personService.addPerson(person);
         if (result.isPresent()) {
-            logger.info("POST /person - CREATED: {}", person);
+            logger.info(POST_PERSON, "POST /person - CREATED: firstName={}, lastName={}", person.getFirstName(), person.getLastName());
             return ResponseEntity.status(201).body(result.get());
         }
-        logger.error("POST /person - CONFLICT: {}", person);
+        logger.error(POST_PERSON, "POST /person - CONFLICT: firstName={}, lastName={}", person.getFirstName(), person.getLastName());
         return ResponseEntity.status(409).build();
     }
 
@@ -190,17 +388,48 @@ public class PersonController {
      */
     @PutMapping("/person")
     public ResponseEntity<Person> updatePerson(@RequestBody Person person) {
-        logger.info("PUT /person - Request: {}", person);
+        logger.info(PUT_PERSON, "PUT /person - firstName={}, lastName={}", person.getFirstName(), person.getLastName());
+        logger.debug(PUT_PERSON, "PUT /person - Payload: {}", person);
         Optional<Person> result = personService.updatePerson(person);
         if (result.isPresent()) {
-            logger.info("PUT /person - UPDATED: {}", person);
+            logger.info(PUT_PERSON, "PUT /person - UPDATED: firstName={}, lastName={}", person.getFirstName(), person.getLastName());
             return ResponseEntity.status(200).body(result.get());
         }
-        logger.error("PUT /person - NOT FOUND: {}", person);
+        logger.error(PUT_PERSON, "PUT /person - NOT FOUND: firstName={}, lastName={}", person.getFirstName(), person.getLastName());
         return ResponseEntity.status(410).build();
 
     }
 
+    /**
+     * Ajoute un lot de personnes, validé et enregistré en une seule écriture.
+     *
+     * @param persons Personnes à ajouter
+     * @return 200 et, pour chaque élément dans l'ordre, 201 avec l'élément créé ou 409 si conflit
+     */
+    @PostMapping("/person/batch")
+    public ResponseEntity<List<BatchItemDTO<Person>>> addPersons(@RequestBody List<Person> persons) {
+        logger.info(POST_PERSON_BATCH, "POST /person/batch - size={}", persons.size());
+        logger.debug(POST_PERSON_BATCH, "POST /person/batch - Payload: {}", persons);
+        List<Optional<Person>> results = personService.addPersons(persons);
+        logger.info(POST_PERSON_BATCH, "POST /person/batch - size={}, conflicts={}", results.size(), BatchResponses.failures(results));
+        return ResponseEntity.status(200).body(BatchResponses.of(results, BatchResponses.CREATED, BatchResponses.CONFLICT));
+    }
+
+    /**
+     * Met à jour un lot de personnes (identifiées par prénom et nom), enregistré en une seule écriture.
+     *
+     * @param persons Personnes à mettre à jour (identifiées par prénom et nom)
+     * @return 200 et, pour chaque élément dans l'ordre, 200 avec l'élément modifié ou 410 si non trouvé
+     */
+    @PutMapping("/person/batch")
+    public ResponseEntity<List<BatchItemDTO<Person>>> updatePersons(@RequestBody List<Person> persons) {
+        logger.info(PUT_PERSON_BATCH, "PUT /person/batch - size={}", persons.size());
+        logger.debug(PUT_PERSON_BATCH, "PUT /person/batch - Payload: {}", persons);
+        List<Optional<Person>> results = personService.updatePersons(persons);
+        logger.info(PUT_PERSON_BATCH, "PUT /person/batch - size={}, notFound={}", results.size(), BatchResponses.failures(results));
+        return ResponseEntity.status(200).body(BatchResponses.of(results, BatchResponses.UPDATED, BatchResponses.GONE));
+    }
+
     /**
      * Supprime une personne par son prénom et son nom.
      *
@@ -210,13 +439,28 @@ public class PersonController {
      */
     @DeleteMapping("/person")
     public ResponseEntity<Void> deletePerson(@RequestParam String firstName, @RequestParam String lastName) {
-        logger.info("DELETE /person - firstName={}, lastName={}", firstName, lastName);
+        logger.info(DELETE_PERSON, "DELETE /person - firstName={}, lastName={}", firstName, lastName);
         boolean delete = personService.deletePerson(firstName, lastName);
         if (delete) {
-            logger.info("DELETE /person - DELETED: firstName={}, lastName={}", firstName, lastName);
+            logger.info(DELETE_PERSON, "DELETE /person - DELETED: firstName={}, lastName={}", firstName, lastName);
             return ResponseEntity.status(200).build();
         }
-        logger.error("DELETE /person - NOT FOUND: firstName={}, lastName={}", firstName, lastName);
+        logger.error(DELETE_PERSON, "DELETE /person - NOT FOUND: firstName={}, lastName={}", firstName, lastName);
         return ResponseEntity.status(410).build();
     }
+
+    /**
+     * @return true si {@code limit} est positif et le curseur, s'il est fourni, valide
+     */
+    private static boolean isValidPage(Integer limit, String cursor, Optional<PageCursor> after) {
+        return limit != null && limit > 0 && (cursor == null || after.isPresent());
+    }
+
+    private static <T> ResponseEntity<T> page(ResultPage<T> page) {
+        ResponseEntity.BodyBuilder ok = ResponseEntity.ok();
+        if (page.next() != null) {
+            ok.header(NEXT_CURSOR_HEADER, page.next().encode());
+        }
+        return ok.body(page.content());
+    }
 }
@@ -0,0 +1,386 @@
+package com.openclassrooms.P_5_SafetyNet_Alerts.data;
+
+import com.openclassrooms.P_5_SafetyNet_Alerts.model.Firestation;
+import com.openclassrooms.P_5_SafetyNet_Alerts.model.MedicalRecord;
+import com.openclassrooms.P_5_SafetyNet_Alerts.model.Person;
+import com.openclassrooms.P_5_SafetyNet_Alerts.utils.DateUtils;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Copie binaire du fichier de données ({@code data.snapshot}), lue par projection mémoire
+ * ({@link FileChannel#map}) pour accélérer le redémarrage.
+ * <p>
+ * Le fichier est projeté par fenêtres de 1 Go (voir {@link Mapping}) : un {@link MappedByteBuffer} ne dépasse pas 2 Go,
+ * et les copies d'un jeu de données de plusieurs Go doivent être lues comme les autres.
+ * <p>
+ * Structure (entiers big-endian, positions sur 64 bits) :
+ * <ul>
+ *     <li>en-tête : signature, version, date et taille du fichier JSON correspondant, numéro de journal,
+ *     nombre d'éléments de chaque section puis position de chaque section ;</li>
+ *     <li>table des chaînes : chaque chaîne distincte n'est stockée qu'une fois (UTF-8, position de début de chacune
+ *     dans la zone des chaînes), les enregistrements
+ *     n'en contiennent que l'indice ({@code -1} pour null) ;</li>
+ *     <li>enregistrements de taille fixe : personne (7 indices), caserne (adresse, numéro),
+ *     dossier médical (prénom, nom, date {@code aaaammjj}, position et taille des deux listes) ;</li>
+ *     <li>réserve d'indices des listes de médicaments et d'allergies.</li>
+ * </ul>
+ * La copie n'est utilisée que si le fichier JSON n'a pas changé depuis son écriture (même date, même taille).
+ */
+final class BinarySnapshot {
+
+    private static final int MAGIC = 0x534E4150; // "SNAP"
+    private static final int VERSION = 2;
+    private static final int HEADER_BYTES = 104;
+    private static final int PERSON_INTS = 7;
+    private static final int FIRESTATION_INTS = 2;
+    private static final int MEDICAL_RECORD_INTS = 7;
+    private static final int NULL = -1;
+    /**
+     * Taille des fenêtres de projection, une puissance de 2.
+     */
+    private static final int WINDOW_BYTES = 1 << 30;
+
+    private BinarySnapshot() {
+    }
+
+    /**
+     * @return le chemin de la copie binaire associée au fichier de données
+     */
+    static Path pathFor(Path dataFile) {
+        String name = dataFile.getFileName().toString();
+        int dot = name.lastIndexOf('.');
+        return dataFile.resolveSibling((dot > 0 ? name.substring(0, dot) : name) + ".snapshot");
+    }
+
+    /**
+     * @return true si la copie existe et a été écrite à partir de la version actuelle du fichier JSON
+     */
+    static boolean isCurrent(Path snapshot, Path dataFile) throws IOException {
+        if (!Files.isRegularFile(snapshot) || !Files.isRegularFile(dataFile)) {
+            return false;
+        }
+        BasicFileAttributes source = Files.readAttributes(dataFile, BasicFileAttributes.class);
+        try (FileChannel channel = FileChannel.open(snapshot, StandardOpenOption.READ)) {
+            if (channel.size() < HEADER_BYTES) {
+                return false;
+            }
+            MappedByteBuffer header = channel.map(FileChannel.MapMode.READ_ONLY, 0, HEADER_BYTES);
+            return header.getInt(0) == MAGIC && header.getInt(4) == VERSION
+                    && header.getLong(8) == source.lastModifiedTime().toMillis()
+                    && header.getLong(16) == source.size();
+        }
+    }
+
+    //-------------------------------------------------/Lecture/----------------------------------------------//
+
+    /**
+     * Lit la copie binaire et ajoute ses éléments aux listes fournies.
+     * Les chaînes ne sont décodées qu'une fois et partagées entre les enregistrements.
+     *
+     * @return le numéro de la dernière mutation du journal incluse (0 si aucun)
+     * @throws IOException si le fichier est absent, tronqué ou d'un autre format
+     */
+    static long read(Path snapshot, List<Person> persons, List<Firestation> firestations,
+                     List<MedicalRecord> medicalRecords) throws IOException {
+        return read(snapshot, persons, firestations, medicalRecords, WINDOW_BYTES);
+    }
+
+    /**
+     * @param windowBytes taille des fenêtres de projection, une puissance de 2
+     */
+    static long read(Path snapshot, List<Person> persons, List<Firestation> firestations,
+                     List<MedicalRecord> medicalRecords, int windowBytes) throws IOException {
+        try (FileChannel channel = FileChannel.open(snapshot, StandardOpenOption.READ)) {
+            if (channel.size() < HEADER_BYTES) {
+                throw new IOException("Taille de copie binaire invalide : " + channel.size());
+            }
+            Mapping buffer = new Mapping(channel, windowBytes);
+            if (buffer.getInt(0) != MAGIC || buffer.getInt(4) != VERSION) {
+                throw new IOException("Format de copie binaire inconnu : " + snapshot);
+            }
+            try {
+                return new Reader(buffer).readInto(persons, firestations, medicalRecords);
+            } catch (IndexOutOfBoundsException e) {
+                throw new IOException("Copie binaire tronquée : " + snapshot, e);
+            }
+        }
+    }
+
+    /**
+     * Fichier projeté par fenêtres consécutives. Chaque fenêtre déborde de 8 octets sur la suivante :
+     * un entier qui commence dans une fenêtre s'y lit en entier. Seules les chaînes peuvent chevaucher deux fenêtres.
+     */
+    private static final class Mapping {
+        private final MappedByteBuffer[] windows;
+        private final int shift;
+        private final int mask;
+
+        Mapping(FileChannel channel, int windowBytes) throws IOException {
+            if (Integer.bitCount(windowBytes) != 1 || windowBytes < Long.BYTES) {
+                throw new IllegalArgumentException("Taille de fenêtre invalide : " + windowBytes);
+            }
+            long size = channel.size();
+            shift = Integer.numberOfTrailingZeros(windowBytes);
+            mask = windowBytes - 1;
+            windows = new MappedByteBuffer[(int) ((size + mask) >>> shift)];
+            for (int i = 0; i < windows.length; i++) {
+                long start = (long) i << shift;
+                windows[i] = channel.map(FileChannel.MapMode.READ_ONLY, start, Math.min(windowBytes + Long.BYTES, size - start));
+            }
+        }
+
+        int getInt(long at) {
+            return windows[(int) (at >>> shift)].getInt((int) (at & mask));
+        }
+
+        long getLong(long at) {
+            return windows[(int) (at >>> shift)].getLong((int) (at & mask));
+        }
+
+        void get(long at, byte[] bytes) {
+            for (int done = 0; done < bytes.length; ) {
+                int offset = (int) ((at + done) & mask);
+                int length = Math.min(bytes.length - done, mask + 1 - offset);
+                windows[(int) ((at + done) >>> shift)].get(offset, bytes, done, length);
+                done += length;
+            }
+        }
+    }
+
+    private static final class Reader {
+        private final Mapping buffer;
+        private final int stringCount;
+        private final long stringOffsetsAt;
+        private final long blobAt;
+        private final String[] strings;
+
+        Reader(Mapping buffer) {
+            this.buffer = buffer;
+            this.stringCount = buffer.getInt(32);
+            this.stringOffsetsAt = buffer.getLong(56);
+            this.blobAt = buffer.getLong(96);
+            this.strings = new String[stringCount];
+        }
+
+        long readInto(List<Person> persons, List<Firestation> firestations, List<MedicalRecord> medicalRecords) {
+            long journalSequence = Math.max(buffer.getLong(24), 0);
+            int personCount = buffer.getInt(36);
+            int firestationCount = buffer.getInt(40);
+            int medicalRecordCount = buffer.getInt(44);
+            long personsAt = buffer.getLong(64);
+            long firestationsAt = buffer.getLong(72);
+            long medicalRecordsAt = buffer.getLong(80);
+            long poolAt = buffer.getLong(88);
+
+            long at = personsAt;
+            for (int i = 0; i < personCount; i++, at += PERSON_INTS * 4) {
+                persons.add(new Person(stringAt(at), stringAt(at + 4), stringAt(at + 8), stringAt(at + 12),
+                        stringAt(at + 16), stringAt(at + 20), stringAt(at + 24)));
+            }
+            at = firestationsAt;
+            for (int i = 0; i < firestationCount; i++, at += FIRESTATION_INTS * 4) {
+                firestations.add(new Firestation(stringAt(at), buffer.getInt(at + 4)));
+            }
+            at = medicalRecordsAt;
+            for (int i = 0; i < medicalRecordCount; i++, at += MEDICAL_RECORD_INTS * 4) {
+                int birthdate = buffer.getInt(at + 8);
+                medicalRecords.add(new MedicalRecord(stringAt(at), stringAt(at + 4),
+                        birthdate == 0 ? null : DateUtils.fromPackedDate(birthdate),
+                        list(poolAt, buffer.getInt(at + 12), buffer.getInt(at + 16)),
+                        list(poolAt, buffer.getInt(at + 20), buffer.getInt(at + 24))));
+            }
+            return journalSequence;
+        }
+
+        private String stringAt(long at) {
+            return string(buffer.getInt(at));
+        }
+
+        private String string(int id) {
+            if (id == NULL) {
+                return null;
+            }
+            String s = strings[id];
+            if (s == null) {
+                long start = buffer.getLong(stringOffsetsAt + id * 8L);
+                long end = buffer.getLong(stringOffsetsAt + (id + 1) * 8L);
+                byte[] bytes = new byte[(int) (end - start)];
+                buffer.get(blobAt + start, bytes);
+                s = new String(bytes, StandardCharsets.UTF_8);
+                strings[id] = s;
+            }
+            return s;
+        }
+
+        private List<String> list(long poolAt, int offset, int count) {
+            if (count == NULL) {
+                return null;
+            }
+            List<String> values = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                values.add(string(buffer.getInt(poolAt + (offset + i) * 4L)));
+            }
+            return values;
+        }
+    }
+
+    //-------------------------------------------------/Ecriture/----------------------------------------------//
+
+    /**
+     * Écrit la copie binaire des données (fichier temporaire puis renommage).
+     *
+     * @param snapshot chemin de la copie
+     * @param data     données à écrire (listes déjà copiées)
+     * @param dataFile fichier JSON contenant les mêmes données, dont la date et la taille sont enregistrées
+     */
+    static void write(Path snapshot, DataWrapper data, Path dataFile) throws IOException {
+        BasicFileAttributes source = Files.readAttributes(dataFile, BasicFileAttributes.class);
+        List<Person> persons = orEmpty(data.getPersons());
+        List<Firestation> firestations = orEmpty(data.getFirestations());
+        List<MedicalRecord> medicalRecords = orEmpty(data.getMedicalrecords());
+
+        StringTable table = new StringTable();
+        int[] personIds = new int[persons.size() * PERSON_INTS];
+        for (int i = 0; i < persons.size(); i++) {
+            Person p = persons.get(i);
+            int at = i * PERSON_INTS;
+            personIds[at] = table.id(p.getFirstName());
+            personIds[at + 1] = table.id(p.getLastName());
+            personIds[at + 2] = table.id(p.getAddress());
+            personIds[at + 3] = table.id(p.getCity());
+            personIds[at + 4] = table.id(p.getZip());
+            personIds[at + 5] = table.id(p.getPhone());
+            personIds[at + 6] = table.id(p.getEmail());
+        }
+        int[] firestationIds = new int[firestations.size() * FIRESTATION_INTS];
+        for (int i = 0; i < firestations.size(); i++) {
+            firestationIds[i * FIRESTATION_INTS] = table.id(firestations.get(i).getAddress());
+            firestationIds[i * FIRESTATION_INTS + 1] = firestations.get(i).getStation();
+        }
+        List<Integer> pool = new ArrayList<>();
+        int[] medicalRecordIds = new int[medicalRecords.size() * MEDICAL_RECORD_INTS];
+        for (int i = 0; i < medicalRecords.size(); i++) {
+            MedicalRecord m = medicalRecords.get(i);
+            int at = i * MEDICAL_RECORD_INTS;
+            medicalRecordIds[at] = table.id(m.getFirstName());
+            medicalRecordIds[at + 1] = table.id(m.getLastName());
+            medicalRecordIds[at + 2] = m.getBirthdate() == null ? 0 : DateUtils.toPackedDate(m.getBirthdate());
+            appendList(m.getMedications(), table, pool, medicalRecordIds, at + 3);
+            appendList(m.getAllergies(), table, pool, medicalRecordIds, at + 5);
+        }
+
+        long stringOffsetsAt = HEADER_BYTES;
+        long personsAt = stringOffsetsAt + (table.size() + 1) * 8L;
+        long firestationsAt = personsAt + personIds.length * 4L;
+        long medicalRecordsAt = firestationsAt + firestationIds.length * 4L;
+        long poolAt = medicalRecordsAt + medicalRecordIds.length * 4L;
+        long blobAt = poolAt + pool.size() * 4L;
+
+        Path temp = snapshot.resolveSibling(snapshot.getFileName() + ".tmp");
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temp), 1 << 16))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeLong(source.lastModifiedTime().toMillis());
+            out.writeLong(source.size());
+            out.writeLong(data.getJournalSequence() == null ? NULL : data.getJournalSequence());
+            out.writeInt(table.size());
+            out.writeInt(persons.size());
+            out.writeInt(firestations.size());
+            out.writeInt(medicalRecords.size());
+            out.writeInt(pool.size());
+            out.writeInt(0);
+            out.writeLong(stringOffsetsAt);
+            out.writeLong(personsAt);
+            out.writeLong(firestationsAt);
+            out.writeLong(medicalRecordsAt);
+            out.writeLong(poolAt);
+            out.writeLong(blobAt);
+
+            long offset = 0;
+            for (byte[] bytes : table.encoded) {
+                out.writeLong(offset);
+                offset += bytes.length;
+            }
+            out.writeLong(offset);
+            writeInts(out, personIds);
+            writeInts(out, firestationIds);
+            writeInts(out, medicalRecordIds);
+            for (int id : pool) {
+                out.writeInt(id);
+            }
+            for (byte[] bytes : table.encoded) {
+                out.write(bytes);
+            }
+        }
+        try {
+            Files.move(temp, snapshot, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(temp, snapshot, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    private static void appendList(List<String> values, StringTable table, List<Integer> pool, int[] ids, int at) {
+        if (values == null) {
+            ids[at] = 0;
+            ids[at + 1] = NULL;
+            return;
+        }
+        ids[at] = pool.size();
+        ids[at + 1] = values.size();
+        for (String value : values) {
+            pool.add(table.id(value));
+        }
+    }
+
+    private static void writeInts(DataOutputStream out, int[] values) throws IOException {
+        for (int value : values) {
+            out.writeInt(value);
+        }
+    }
+
+    private static <T> List<T> orEmpty(List<T> list) {
+        return list == null ? List.of() : list;
+    }
+
+    /**
+     * Attribue un indice à chaque chaîne distincte, dans l'ordre de première apparition.
+     */
+    private static final class StringTable {
+        private final Map<String, Integer> ids = new HashMap<>();
+        private final List<byte[]> encoded = new ArrayList<>();
+
+        int id(String value) {
+            if (value == null) {
+                return NULL;
+            }
+            Integer id = ids.get(value);
+            if (id == null) {
+                id = encoded.size();
+                byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+                encoded.add(bytes);
+                ids.put(value, id);
+            }
+            return id;
+        }
+
+        int size() {
+            return encoded.size();
+        }
+    }
+}
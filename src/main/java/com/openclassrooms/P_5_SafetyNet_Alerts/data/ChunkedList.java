@@ -0,0 +1,360 @@
+package com.openclassrooms.P_5_SafetyNet_Alerts.data;
+
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.RandomAccess;
+
+/**
+ * Liste immuable découpée en morceaux de {@value #CHUNK_SIZE} cases, partagés d'une version à l'autre.
+ * <p>
+ * Chaque élément occupe une case, repérée par son numéro (0 à {@code slotCount() - 1}). Comme pour
+ * {@link PersonTable} :
+ * <ul>
+ *     <li>une écriture ({@link #edit()}) ne copie que les morceaux qu'elle touche, et le tableau des morceaux :
+ *     publier une version modifiée coûte les éléments modifiés et non la taille de la liste ;</li>
+ *     <li>une suppression vide sa case sans décaler les suivantes : les numéros de case restent stables.
+ *     {@link #compact} renumérote les cases en retirant les vides.</li>
+ * </ul>
+ * La liste est en lecture seule : ce sont les éléments des cases non vides, dans l'ordre des cases.
+ *
+ * @param <E> type des éléments, immuables
+ */
+public final class ChunkedList<E> extends AbstractList<E> implements RandomAccess {
+
+    // Cases par morceau
+    public static final int CHUNK_SIZE = 1 << 10;
+    private static final int CHUNK_SHIFT = 10;
+    private static final int CHUNK_MASK = CHUNK_SIZE - 1;
+
+    // Contenu d'une case vidée par une suppression
+    private static final Object DELETED = new Object();
+
+    private static final ChunkedList<?> EMPTY = new ChunkedList<>(new Chunk[0], 0, 0, null);
+
+    private final Chunk[] chunks;
+    // Cases écrites, vides comprises
+    private final int slotCount;
+    // Cases non vides : taille de la liste
+    private final int size;
+    // Cases non vides des morceaux précédant chaque morceau, null si aucune case n'est vide
+    private final int[] liveBefore;
+
+    private ChunkedList(Chunk[] chunks, int slotCount, int size, int[] liveBefore) {
+        this.chunks = chunks;
+        this.slotCount = slotCount;
+        this.size = size;
+        this.liveBefore = liveBefore;
+    }
+
+    /**
+     * Morceau de {@link #CHUNK_SIZE} cases (les dernières du dernier morceau ne sont pas encore écrites).
+     * Modifié par la seule écriture qui l'a copié, jamais après la publication de sa liste.
+     */
+    private static final class Chunk {
+        private final Object[] slots;
+        // Cases vides du morceau
+        private int deleted;
+
+        private Chunk() {
+            slots = new Object[CHUNK_SIZE];
+        }
+
+        private Chunk(Chunk from) {
+            slots = from.slots.clone();
+            deleted = from.deleted;
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    public static <E> ChunkedList<E> empty() {
+        return (ChunkedList<E>) EMPTY;
+    }
+
+    /**
+     * @param elements éléments à ranger, dans l'ordre de la liste
+     * @return la liste découpée de ces éléments (la liste elle-même si elle l'est déjà)
+     */
+    public static <E> ChunkedList<E> of(List<E> elements) {
+        if (elements instanceof ChunkedList<E> list) {
+            return list;
+        }
+        Editor<E> editor = ChunkedList.<E>empty().edit();
+        elements.forEach(editor::add);
+        return editor.build();
+    }
+
+    /**
+     * @return le nombre de cases écrites, vides comprises : les numéros de case vont de 0 à cette valeur exclue
+     */
+    public int slotCount() {
+        return slotCount;
+    }
+
+    /**
+     * @param slot numéro d'une case non vide
+     * @return l'élément de cette case
+     */
+    public E slot(int slot) {
+        return element(chunks, checkSlot(slot));
+    }
+
+    /**
+     * @param slots numéros de cases non vides
+     * @return les éléments de ces cases, dans l'ordre des numéros donnés
+     */
+    public List<E> slots(int[] slots) {
+        if (slots.length == 0) {
+            return Collections.emptyList();
+        }
+        return new SlotList<>(this, slots);
+    }
+
+    /**
+     * @return les numéros des cases non vides, dans un ensemble propre à l'appelant
+     */
+    public BitSet liveSlots() {
+        BitSet slots = new BitSet(slotCount);
+        for (int slot = 0; slot < slotCount; slot++) {
+            if (chunks[slot >>> CHUNK_SHIFT].slots[slot & CHUNK_MASK] != DELETED) {
+                slots.set(slot);
+            }
+        }
+        return slots;
+    }
+
+    /**
+     * @return une liste des seules cases non vides, renumérotées dans leur ordre (la liste elle-même
+     * si aucune case n'est vide)
+     */
+    public ChunkedList<E> compact() {
+        if (size == slotCount) {
+            return this;
+        }
+        Editor<E> editor = ChunkedList.<E>empty().edit();
+        forEach(editor::add);
+        return editor.build();
+    }
+
+    /**
+     * @return une écriture dérivée de cette liste, qui reste inchangée
+     */
+    public Editor<E> edit() {
+        return new Editor<>(this);
+    }
+
+    @Override
+    public E get(int index) {
+        return element(chunks, slotOf(Objects.checkIndex(index, size)));
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public Iterator<E> iterator() {
+        return new Iterator<>() {
+            private int slot = nextLive(0);
+
+            @Override
+            public boolean hasNext() {
+                return slot < slotCount;
+            }
+
+            @Override
+            public E next() {
+                if (slot >= slotCount) {
+                    throw new NoSuchElementException();
+                }
+                E element = element(chunks, slot);
+                slot = nextLive(slot + 1);
+                return element;
+            }
+        };
+    }
+
+    private int checkSlot(int slot) {
+        Objects.checkIndex(slot, slotCount);
+        if (chunks[slot >>> CHUNK_SHIFT].slots[slot & CHUNK_MASK] == DELETED) {
+            throw new IllegalArgumentException("Case vide : " + slot);
+        }
+        return slot;
+    }
+
+    /**
+     * @return la première case non vide à partir de {@code slot}, ou {@code slotCount}
+     */
+    private int nextLive(int slot) {
+        while (slot < slotCount && chunks[slot >>> CHUNK_SHIFT].slots[slot & CHUNK_MASK] == DELETED) {
+            slot++;
+        }
+        return slot;
+    }
+
+    /**
+     * @return le numéro de la case au rang {@code index} parmi les cases non vides
+     */
+    private int slotOf(int index) {
+        if (liveBefore == null) {
+            return index;
+        }
+        // Dernier morceau précédé de {@code index} cases non vides au plus : il contient la case
+        int low = 0;
+        int high = chunks.length - 1;
+        while (low < high) {
+            int mid = (low + high + 1) >>> 1;
+            if (liveBefore[mid] <= index) {
+                low = mid;
+            } else {
+                high = mid - 1;
+            }
+        }
+        Chunk chunk = chunks[low];
+        int rank = index - liveBefore[low];
+        int base = low << CHUNK_SHIFT;
+        if (chunk.deleted == 0) {
+            return base + rank;
+        }
+        for (int i = 0; ; i++) {
+            if (chunk.slots[i] != DELETED && rank-- == 0) {
+                return base + i;
+            }
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <E> E element(Chunk[] chunks, int slot) {
+        return (E) chunks[slot >>> CHUNK_SHIFT].slots[slot & CHUNK_MASK];
+    }
+
+    /**
+     * Écriture en cours : tableau des morceaux de la liste d'origine, dont les morceaux écrits sont copiés
+     * à leur première écriture, puis figés par {@link #build}, après quoi l'écriture n'est plus utilisée.
+     */
+    public static final class Editor<E> {
+        private Chunk[] chunks;
+        // Morceaux déjà copiés par cette écriture, modifiables sur place
+        private boolean[] copied;
+        private int slotCount;
+        private int size;
+
+        private Editor(ChunkedList<E> from) {
+            chunks = from.chunks.clone();
+            copied = new boolean[chunks.length];
+            slotCount = from.slotCount;
+            size = from.size;
+        }
+
+        /**
+         * @param slot numéro d'une case non vide
+         * @return l'élément de cette case, tel que modifié par cette écriture
+         */
+        public E get(int slot) {
+            Objects.checkIndex(slot, slotCount);
+            Object element = chunks[slot >>> CHUNK_SHIFT].slots[slot & CHUNK_MASK];
+            if (element == DELETED) {
+                throw new IllegalArgumentException("Case vide : " + slot);
+            }
+            @SuppressWarnings("unchecked")
+            E e = (E) element;
+            return e;
+        }
+
+        /**
+         * @param element élément ajouté en fin de liste
+         * @return le numéro de sa case
+         */
+        public int add(E element) {
+            int slot = slotCount;
+            int c = slot >>> CHUNK_SHIFT;
+            if (c == chunks.length) {
+                chunks = Arrays.copyOf(chunks, Math.max(4, c * 2));
+                copied = Arrays.copyOf(copied, chunks.length);
+            }
+            slotCount++;
+            size++;
+            writable(slot).slots[slot & CHUNK_MASK] = element;
+            return slot;
+        }
+
+        /**
+         * @param slot    numéro d'une case non vide
+         * @param element nouvel élément de cette case
+         */
+        public void set(int slot, E element) {
+            get(slot);
+            writable(slot).slots[slot & CHUNK_MASK] = element;
+        }
+
+        /**
+         * Vide une case ; les suivantes gardent leur numéro.
+         */
+        public void remove(int slot) {
+            Objects.checkIndex(slot, slotCount);
+            if (chunks[slot >>> CHUNK_SHIFT].slots[slot & CHUNK_MASK] == DELETED) {
+                return;
+            }
+            Chunk chunk = writable(slot);
+            chunk.slots[slot & CHUNK_MASK] = DELETED;
+            chunk.deleted++;
+            size--;
+        }
+
+        public ChunkedList<E> build() {
+            Chunk[] built = Arrays.copyOf(chunks, (slotCount + CHUNK_MASK) >>> CHUNK_SHIFT);
+            return new ChunkedList<>(built, slotCount, size, liveBefore(built));
+        }
+
+        private int[] liveBefore(Chunk[] built) {
+            if (size == slotCount) {
+                return null;
+            }
+            int[] liveBefore = new int[built.length];
+            int live = 0;
+            for (int c = 0; c < built.length; c++) {
+                liveBefore[c] = live;
+                live += Math.min(CHUNK_SIZE, slotCount - (c << CHUNK_SHIFT)) - built[c].deleted;
+            }
+            return liveBefore;
+        }
+
+        private Chunk writable(int slot) {
+            int c = slot >>> CHUNK_SHIFT;
+            if (!copied[c]) {
+                chunks[c] = chunks[c] == null ? new Chunk() : new Chunk(chunks[c]);
+                copied[c] = true;
+            }
+            return chunks[c];
+        }
+    }
+
+    /**
+     * Éléments d'une sélection de cases.
+     */
+    private static final class SlotList<E> extends AbstractList<E> implements RandomAccess {
+        private final ChunkedList<E> list;
+        private final int[] slots;
+
+        private SlotList(ChunkedList<E> list, int[] slots) {
+            this.list = list;
+            this.slots = slots;
+        }
+
+        @Override
+        public E get(int index) {
+            return element(list.chunks, slots[index]);
+        }
+
+        @Override
+        public int size() {
+            return slots.length;
+        }
+    }
+}
@@ -1,22 +1,66 @@
 package com.openclassrooms.P_5_SafetyNet_Alerts.data;
 
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectWriter;
 import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
 import com.openclassrooms.P_5_SafetyNet_Alerts.model.Firestation;
 import com.openclassrooms.P_5_SafetyNet_Alerts.model.MedicalRecord;
 import com.openclassrooms.P_5_SafetyNet_Alerts.model.Person;
+import com.openclassrooms.P_5_SafetyNet_Alerts.utils.StringPool;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.TimeGauge;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.AccessLevel;
 import lombok.Data;
+import lombok.Getter;
 import lombok.RequiredArgsConstructor;
+import lombok.Setter;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.CommandLineRunner;
 import org.springframework.stereotype.Component;
 
 import java.io.File;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
 
 /**
  * Composant Spring chargé de l'importation initiale des données de l'application
  * depuis un fichier data.json situé sur le disque (modifiable).
  * Implemente {@link CommandLineRunner} pour être exécuté au lancement de l'application.
+ * <p>
+ * La sauvegarde suit le mode {@code data.persistence.mode} :
+ * <ul>
+ *     <li>{@code sync} (défaut) : chaque mutation réécrit le fichier sur le thread de la requête ;</li>
+ *     <li>{@code write-behind} : les mutations sont regroupées et écrites par un thread dédié
+ *     (voir {@link WriteBehindWriter}) ;</li>
+ *     <li>{@code journal} : chaque mutation est ajoutée au journal (voir {@link MutationJournal}),
+ *     le fichier de données n'étant réécrit que lors des compactions.</li>
+ * </ul>
+ * Au démarrage, les mutations d'un journal existant sont rejouées sur le fichier de données,
+ * quel que soit le mode.
  */
 @Component
 @RequiredArgsConstructor
@@ -26,57 +70,559 @@ public class DataLoader implements CommandLineRunner {
     // Chemin du fichier de données utilisé à la fois en lecture et en écriture
     private static final String DATA_FILE_PATH = "Data/data.json";
 
-    private List<Person> persons;
-    private List<Firestation> firestations;
-    private List<MedicalRecord> medicalRecords;
+    private static final String WRITE_BEHIND_MODE = "write-behind";
+    private static final String JOURNAL_MODE = "journal";
+
+    private final MeterRegistry meterRegistry;
+    // Résolu à la demande : les dépôts utilisés pour rejouer le journal dépendent eux-mêmes du DataLoader
+    private final ObjectProvider<MutationApplier> mutationApplier;
+
+    private final ObjectMapper mapper = new ObjectMapper().registerModule(new JavaTimeModule());
+    // Écriture compacte utilisée par l'écriture différée
+    private final ObjectWriter compactWriter = mapper.writer();
+
+    @Value("${data.persistence.path:" + DATA_FILE_PATH + "}")
+    private String dataFilePath = DATA_FILE_PATH;
+
+    @Value("${data.persistence.mode:sync}")
+    private String persistenceMode;
+
+    @Value("${data.persistence.flush-interval-ms:1000}")
+    private long flushIntervalMillis;
+
+    @Value("${data.persistence.flush-threshold:1000}")
+    private long flushThreshold;
+
+    @Value("${data.journal.compaction-threshold-bytes:67108864}")
+    private long compactionThresholdBytes;
+
+    @Value("${data.persistence.binary-snapshot:true}")
+    private boolean binarySnapshotEnabled;
+
+    private WriteBehindWriter writeBehindWriter;
+    private MutationJournal journal;
+
+    // Version publiée du jeu de données, remplacée d'un bloc à chaque écriture
+    @Getter(AccessLevel.NONE)
+    private final AtomicReference<Dataset> dataset = new AtomicReference<>(Dataset.EMPTY);
+    // Dictionnaire des chaînes répétées, remplacé à chaque chargement du fichier de données
+    @Setter(AccessLevel.NONE)
+    private volatile StringPool stringPool = new StringPool();
+    // Version figée pour le thread courant le temps d'une lecture (voir read)
+    @Getter(AccessLevel.NONE)
+    private final ThreadLocal<Dataset> pinned = new ThreadLocal<>();
+    // Sérialise les écritures : une seule version suivante est construite à la fois
+    @Getter(AccessLevel.NONE)
+    private final ReentrantLock writeLock = new ReentrantLock();
+    // Sauvegardes demandées pendant l'écriture en cours, faites après libération du verrou
+    @Getter(AccessLevel.NONE)
+    private final ThreadLocal<PendingSaves> pendingSaves = new ThreadLocal<>();
+    // Sérialise les réécritures de data.json en mode sync, sans bloquer les écritures en mémoire
+    @Getter(AccessLevel.NONE)
+    private final ReentrantLock fileLock = new ReentrantLock();
+    // Dernière version écrite dans data.json en mode sync (protégé par fileLock)
+    @Getter(AccessLevel.NONE)
+    private Dataset savedDataset;
+    @Getter(AccessLevel.NONE)
+    private String savedPath;
+    // Nombre de chargements du fichier de données (voir getLoadCount)
+    @Getter(AccessLevel.NONE)
+    private final AtomicLong loads = new AtomicLong();
+    // Durée de saveData sur le chemin de la requête, créé au premier enregistrement
+    @Getter(AccessLevel.NONE)
+    private volatile Timer saveTimer;
+
+    /**
+     * Démarre l'écriture différée si elle est activée, et publie ses métriques.
+     */
+    @PostConstruct
+    public void initPersistence() {
+        if (JOURNAL_MODE.equals(persistenceMode)) {
+            Gauge.builder("safetynet.journal.bytes", this, d -> d.journal == null ? 0 : d.journal.getSegmentBytes())
+                    .description("Taille du segment de journal courant")
+                    .register(meterRegistry);
+            Gauge.builder("safetynet.journal.commits", this, d -> d.journal == null ? 0 : d.journal.getCommitCount())
+                    .description("Nombre de synchronisations disque du journal")
+                    .register(meterRegistry);
+        }
+        if (!WRITE_BEHIND_MODE.equals(persistenceMode)) {
+            return;
+        }
+        writeBehindWriter = new WriteBehindWriter(this::writeSnapshot, flushIntervalMillis, flushThreshold);
+        TimeGauge.builder("safetynet.persistence.lag", writeBehindWriter, TimeUnit.MILLISECONDS, WriteBehindWriter::getLagMillis)
+                .description("Âge de la plus ancienne mutation non écrite sur le disque")
+                .register(meterRegistry);
+        Gauge.builder("safetynet.persistence.pending", writeBehindWriter, WriteBehindWriter::getPendingMutations)
+                .description("Nombre de mutations en attente d'écriture")
+                .register(meterRegistry);
+        Gauge.builder("safetynet.persistence.flushes", writeBehindWriter, WriteBehindWriter::getFlushCount)
+                .description("Nombre d'écritures différées effectuées")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Écrit les mutations en attente avant l'arrêt de l'application.
+     */
+    @PreDestroy
+    public void shutdownPersistence() {
+        if (writeBehindWriter != null) {
+            writeBehindWriter.close();
+            writeBehindWriter = null;
+        }
+        closeJournal();
+        if (binarySnapshotEnabled && dataset.get() != Dataset.EMPTY && !JOURNAL_MODE.equals(persistenceMode)) {
+            // En mode sync, data.json a pu être réécrit depuis la dernière copie binaire
+            try {
+                Path dataFile = Path.of(dataFilePath);
+                if (!BinarySnapshot.isCurrent(BinarySnapshot.pathFor(dataFile), dataFile)) {
+                    writeBinarySnapshot(toDataWrapper(dataset.get(), null), dataFile);
+                }
+            } catch (Exception e) {
+                System.err.println("Erreur lors de l'écriture de la copie binaire : " + e.getMessage());
+            }
+        }
+    }
+
+    private void closeJournal() {
+        if (journal != null) {
+            journal.close();
+            journal = null;
+        }
+    }
 
     /**
      * Méthode exécutée au lancement de l'application.
      * Cette méthode charge les données de l'application depuis le fichier "Data/data.json"
      * sur le disque, et les map sous forme de listes d'objets métier.
+     * Les mutations d'un éventuel journal sont ensuite rejouées puis intégrées au fichier.
      */
     @Override
     public void run(String... args) throws Exception {
-        ObjectMapper mapper = new ObjectMapper().registerModule(new JavaTimeModule());
-        File file = new File(DATA_FILE_PATH);
-        // charge les données depuis le fichier du disque
-        DataWrapper data = mapper.readValue(file, DataWrapper.class);
-        this.persons = data.getPersons();
-        this.firestations = data.getFirestations();
-        this.medicalRecords = data.getMedicalrecords();
+        closeJournal();
+        Path dataFile = Path.of(dataFilePath);
+        List<Person> loadedPersons = new ArrayList<>();
+        List<Firestation> loadedFirestations = new ArrayList<>();
+        List<MedicalRecord> loadedMedicalRecords = new ArrayList<>();
+        // charge les données depuis la copie binaire si elle est à jour, sinon depuis le fichier JSON
+        Path snapshotFile = BinarySnapshot.pathFor(dataFile);
+        boolean fromSnapshot = binarySnapshotEnabled && BinarySnapshot.isCurrent(snapshotFile, dataFile);
+        long sequence = 0;
+        if (fromSnapshot) {
+            try {
+                sequence = BinarySnapshot.read(snapshotFile, loadedPersons, loadedFirestations, loadedMedicalRecords);
+            } catch (IOException e) {
+                System.err.println("Copie binaire illisible, lecture du JSON : " + e.getMessage());
+                fromSnapshot = false;
+                loadedPersons.clear();
+                loadedFirestations.clear();
+                loadedMedicalRecords.clear();
+            }
+        }
+        if (!fromSnapshot) {
+            sequence = readData(dataFile, loadedPersons, loadedFirestations, loadedMedicalRecords);
+        }
+        // Adresses et listes de médicaments répétées partagées, clefs d'adresse précalculées ; personnes rangées en colonnes.
+        // Nouveau dictionnaire : celui du chargement précédent n'est plus retenu que par ses versions encore lues
+        StringPool strings = new StringPool();
+        loadedFirestations.forEach(strings::canonicalize);
+        loadedMedicalRecords.forEach(strings::canonicalize);
+        PersonTable persons = PersonTable.of(loadedPersons, strings);
+        loadedPersons.clear();
+        // Les listes chargées ne seront plus jamais modifiées : les écritures publient de nouvelles listes
+        stringPool = strings;
+        dataset.updateAndGet(previous -> new Dataset(previous.getVersion() + 1,
+                persons,
+                Collections.unmodifiableList(loadedFirestations),
+                Collections.unmodifiableList(loadedMedicalRecords)));
+
+        if (MutationJournal.exists(dataFile)) {
+            MutationApplier applier = mutationApplier.getObject();
+            sequence = MutationJournal.replay(dataFile, mapper, sequence, applier::apply);
+            writeSnapshot(JOURNAL_MODE.equals(persistenceMode) ? sequence : null);
+            MutationJournal.deleteAll(dataFile);
+            System.out.println("Journal rejoué jusqu'à la mutation " + sequence + " !");
+        } else if (binarySnapshotEnabled && !fromSnapshot) {
+            try {
+                writeBinarySnapshot(toDataWrapper(dataset.get(), sequence > 0 ? sequence : null), dataFile);
+            } catch (IOException e) {
+                System.err.println("Erreur lors de l'écriture de la copie binaire : " + e.getMessage());
+            }
+        }
+        if (JOURNAL_MODE.equals(persistenceMode)) {
+            journal = new MutationJournal(dataFile, mapper, sequence, compactionThresholdBytes, this::writeSnapshot);
+        }
+
+        loads.incrementAndGet();
+        System.out.println("Données chargées depuis " + (fromSnapshot ? snapshotFile : dataFilePath) + " !");
+    }
+
+    /**
+     * Lit le fichier de données en flux : chaque élément est désérialisé puis ajouté directement
+     * à sa liste, sans construire d'arbre JSON ni d'objet {@link DataWrapper} intermédiaire.
+     * Les champs inconnus sont ignorés.
+     *
+     * @return le numéro de la dernière mutation du journal incluse dans le fichier (0 si aucun)
+     */
+    private long readData(Path dataFile, List<Person> persons, List<Firestation> firestations,
+                          List<MedicalRecord> medicalRecords) throws IOException {
+        long journalSequence = 0;
+        try (JsonParser parser = mapper.getFactory().createParser(dataFile.toFile())) {
+            if (parser.nextToken() != JsonToken.START_OBJECT) {
+                throw new IOException("Objet JSON attendu au début de " + dataFile);
+            }
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String field = parser.currentName();
+                parser.nextToken();
+                switch (field) {
+                    case "persons" -> readArray(parser, Person.class, persons);
+                    case "firestations" -> readArray(parser, Firestation.class, firestations);
+                    case "medicalrecords" -> readArray(parser, MedicalRecord.class, medicalRecords);
+                    case "journalSequence" -> journalSequence = parser.getValueAsLong();
+                    default -> parser.skipChildren();
+                }
+            }
+        }
+        return journalSequence;
+    }
+
+    private <T> void readArray(JsonParser parser, Class<T> type, List<T> target) throws IOException {
+        if (parser.currentToken() == JsonToken.VALUE_NULL) {
+            return;
+        }
+        if (parser.currentToken() != JsonToken.START_ARRAY) {
+            throw new IOException("Tableau JSON attendu pour " + parser.currentName());
+        }
+        if (parser.nextToken() == JsonToken.END_ARRAY) {
+            return;
+        }
+        // Un seul itérateur (et contexte de désérialisation) pour tout le tableau, positionné sur son premier élément
+        try (MappingIterator<T> elements = mapper.readerFor(type).readValues(parser)) {
+            while (elements.hasNextValue()) {
+                target.add(elements.nextValue());
+            }
+        }
+    }
+
+    /**
+     * @return la version du jeu de données figée par {@link #read(Supplier)} pour ce thread,
+     * sinon la dernière version publiée
+     */
+    public Dataset getDataset() {
+        Dataset current = pinned.get();
+        return current != null ? current : dataset.get();
+    }
+
+    /**
+     * @return la dernière version publiée, même pendant une lecture figée par {@link #read(Supplier)}
+     */
+    public Dataset getLatestDataset() {
+        return dataset.get();
+    }
 
-        System.out.println("Données chargées depuis " + DATA_FILE_PATH + " !");
+    /**
+     * @return le nombre de chargements du fichier de données : les versions publiées par un
+     * rechargement remplacent tout le jeu de données, sans passer par les écritures des services
+     */
+    public long getLoadCount() {
+        return loads.get();
     }
 
     public List<Person> getPersons() {
-        return persons;
+        return getDataset().getPersons();
     }
 
     public List<Firestation> getFirestations() {
-        return firestations;
+        return getDataset().getFirestations();
     }
 
     public List<MedicalRecord> getMedicalRecords() {
-        return medicalRecords;
+        return getDataset().getMedicalRecords();
+    }
+
+    /**
+     * Publie une nouvelle liste de personnes (nouvelle version du jeu de données).
+     * La liste ne doit plus être modifiée après publication.
+     */
+    public void setPersons(List<Person> persons) {
+        dataset.updateAndGet(d -> d.withPersons(persons));
+    }
+
+    /**
+     * Publie une nouvelle liste de casernes (nouvelle version du jeu de données).
+     * La liste ne doit plus être modifiée après publication.
+     */
+    public void setFirestations(List<Firestation> firestations) {
+        dataset.updateAndGet(d -> d.withFirestations(firestations));
+    }
+
+    /**
+     * Publie une nouvelle liste de dossiers médicaux (nouvelle version du jeu de données).
+     * La liste ne doit plus être modifiée après publication.
+     */
+    public void setMedicalRecords(List<MedicalRecord> medicalRecords) {
+        dataset.updateAndGet(d -> d.withMedicalRecords(medicalRecords));
+    }
+
+    /**
+     * Exécute une lecture sur une seule version du jeu de données : toutes les lectures faites
+     * par ce thread pendant l'opération voient la version publiée au moment de l'appel.
+     * Ne prend aucun verrou.
+     *
+     * @param operation lecture à exécuter
+     * @return le résultat de la lecture
+     */
+    public <T> T read(Supplier<T> operation) {
+        if (pinned.get() != null) {
+            return operation.get();
+        }
+        pinned.set(dataset.get());
+        try {
+            return operation.get();
+        } finally {
+            pinned.remove();
+        }
+    }
+
+    /**
+     * Exécute une lecture sur une version donnée du jeu de données, par exemple depuis un autre
+     * thread que celui qui l'a obtenue (réponse écrite en flux après la fin de la requête).
+     *
+     * @param version   version obtenue par {@link #getDataset()}
+     * @param operation lecture à exécuter
+     * @return le résultat de la lecture
+     */
+    public <T> T read(Dataset version, Supplier<T> operation) {
+        Dataset previous = pinned.get();
+        pinned.set(version);
+        try {
+            return operation.get();
+        } finally {
+            if (previous == null) {
+                pinned.remove();
+            } else {
+                pinned.set(previous);
+            }
+        }
+    }
+
+    /**
+     * Exécute une écriture (lecture de la version courante, publication de la suivante, sauvegarde)
+     * en exclusion mutuelle avec les autres écritures. Les lectures ne sont jamais bloquées.
+     * En mode journal, les mutations sont ajoutées au journal sous le verrou, dans l'ordre de leur
+     * application, mais leur synchronisation disque est attendue après sa libération.
+     * En mode sync, data.json est de même réécrit après la libération du verrou.
+     *
+     * @param operation écriture à exécuter
+     * @return le résultat de l'écriture
+     */
+    public <T> T write(Supplier<T> operation) {
+        if (writeLock.isHeldByCurrentThread()) {
+            return operation.get();
+        }
+        PendingSaves saves = new PendingSaves();
+        writeLock.lock();
+        pendingSaves.set(saves);
+        T result;
+        try {
+            result = operation.get();
+        } finally {
+            pendingSaves.remove();
+            writeLock.unlock();
+        }
+        for (CompletableFuture<Void> commit : saves.commits) {
+            try {
+                MutationJournal.await(commit);
+            } catch (IOException e) {
+                System.err.println("Erreur lors de la journalisation : " + e.getMessage());
+            }
+        }
+        if (saves.dataFile) {
+            writeDataFile();
+        }
+        return result;
     }
 
     /**
-     * Ecrit l'état courant des listes dans le fichier de données
+     * Sauvegardes demandées par une écriture, à terminer une fois le verrou d'écriture libéré.
+     */
+    private static final class PendingSaves {
+        // Mutations journalisées, en attente de synchronisation disque (mode journal)
+        private final List<CompletableFuture<Void>> commits = new ArrayList<>(1);
+        // Réécriture de data.json demandée (mode sync)
+        private boolean dataFile;
+    }
+
+    /**
+     * Enregistre une mutation déjà appliquée en mémoire.
+     * En mode journal, la mutation est ajoutée au journal et la méthode rend la main une fois celui-ci
+     * synchronisé sur le disque ; dans les autres modes, équivaut à {@link #saveData()}.
+     *
+     * @param mutation mutation appliquée
+     */
+    public void saveData(Mutation mutation) {
+        MutationJournal current = journal;
+        if (current == null) {
+            saveData();
+            return;
+        }
+        long start = System.nanoTime();
+        try {
+            PendingSaves saves = pendingSaves.get();
+            if (saves != null) {
+                saves.commits.add(current.enqueue(mutation));
+            } else {
+                current.append(mutation);
+            }
+        } catch (Exception e) {
+            System.err.println("Erreur lors de la journalisation : " + e.getMessage());
+        } finally {
+            recordSave(start);
+        }
+    }
+
+    /**
+     * Ecrit l'état courant des listes dans le fichier de données.
+     * En mode write-behind, la mutation est seulement signalée et l'écriture est faite plus tard.
+     * Appelée dans {@link #write}, l'écriture du fichier est faite après la libération du verrou
+     * d'écriture, avant de rendre la main à l'appelant.
      */
     public void saveData() {
+        WriteBehindWriter writer = writeBehindWriter;
+        if (writer != null) {
+            long start = System.nanoTime();
+            writer.markDirty();
+            recordSave(start);
+            return;
+        }
+        PendingSaves saves = pendingSaves.get();
+        if (saves != null) {
+            saves.dataFile = true;
+            return;
+        }
+        writeDataFile();
+    }
+
+    /**
+     * Freine un appelant qui enregistre plus vite que le disque n'écrit : en mode write-behind, si
+     * la plus ancienne mutation non écrite a plus de {@code maxLagMillis}, attend l'écriture suivante
+     * (au plus {@code timeoutMillis}). Sans effet dans les autres modes, où {@link #saveData(Mutation)}
+     * rend déjà la main une fois la mutation sur le disque.
+     *
+     * @return true si l'appelant a attendu
+     */
+    public boolean awaitPersistence(long maxLagMillis, long timeoutMillis) {
+        WriteBehindWriter writer = writeBehindWriter;
+        if (writer == null || writer.getLagMillis() <= maxLagMillis) {
+            return false;
+        }
         try {
-            ObjectMapper mapper = new ObjectMapper().registerModule(new JavaTimeModule());
-            DataWrapper data = new DataWrapper();
-            data.setPersons(this.persons);
-            data.setFirestations(this.firestations);
-            data.setMedicalrecords(this.medicalRecords);
+            writer.flushed().get(timeoutMillis, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException | TimeoutException e) {
+            System.err.println("Écriture différée toujours en retard après " + timeoutMillis + " ms");
+        }
+        return true;
+    }
 
-            File file = new File(DATA_FILE_PATH);
+    /**
+     * Réécrit data.json avec la dernière version publiée.
+     * <p>
+     * Les réécritures sont sérialisées par un verrou qui leur est propre : une écriture en mémoire
+     * n'attend jamais les entrées/sorties d'une autre. Une version déjà couverte par une réécriture
+     * plus récente n'est pas réécrite, si bien que des écritures concurrentes se partagent une seule
+     * réécriture du fichier. Aucun moniteur n'est tenu pendant l'entrée/sortie : un thread virtuel
+     * qui attend le verrou ou le disque libère son thread porteur.
+     */
+    private void writeDataFile() {
+        long start = System.nanoTime();
+        fileLock.lock();
+        try {
+            Dataset current = dataset.get();
+            if (savedDataset != null && current.getVersion() <= savedDataset.getVersion()
+                    && dataFilePath.equals(savedPath)) {
+                return;
+            }
+            DataWrapper data = toDataWrapper(current, null);
+
+            File file = new File(dataFilePath);
             mapper.writerWithDefaultPrettyPrinter().writeValue(file, data);
+            savedDataset = current;
+            savedPath = dataFilePath;
 
-            System.out.println("Données sauvegardées dans " + DATA_FILE_PATH + " !");
+            System.out.println("Données sauvegardées dans " + dataFilePath + " !");
         } catch (Exception e) {
             System.err.println("Erreur lors de la sauvegarde : " + e.getMessage());
+        } finally {
+            fileLock.unlock();
+            recordSave(start);
+        }
+    }
+
+    /**
+     * Enregistre la durée d'un appel à saveData dans le timer {@code safetynet.stage{stage=save-data}},
+     * à côté des étapes des requêtes de lecture.
+     * En mode journal, l'attente de la synchronisation disque, faite après libération du verrou
+     * d'écriture, n'est pas comptée ; en mode sync, c'est la réécriture du fichier qui est mesurée.
+     */
+    private void recordSave(long start) {
+        Timer timer = saveTimer;
+        if (timer == null) {
+            timer = Timer.builder("safetynet.stage")
+                    .description("Durée d'une étape de requête")
+                    .tag("operation", "mutation")
+                    .tag("stage", "save-data")
+                    .register(meterRegistry);
+            saveTimer = timer;
+        }
+        timer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Écrit une copie des listes dans un fichier temporaire, puis le renomme atomiquement
+     * en data.json : un arrêt brutal laisse toujours un fichier complet.
+     * La version publiée est immuable : elle est écrite sans copie ni verrou.
+     */
+    private void writeSnapshot() throws Exception {
+        writeSnapshot(null);
+    }
+
+    /**
+     * @param journalSequence dernière mutation du journal incluse dans la copie (null hors mode journal)
+     */
+    private void writeSnapshot(Long journalSequence) throws Exception {
+        DataWrapper data = toDataWrapper(dataset.get(), journalSequence);
+
+        Path target = Path.of(dataFilePath);
+        Path temp = target.resolveSibling(target.getFileName() + ".tmp");
+        compactWriter.writeValue(temp.toFile(), data);
+        // Le fichier doit être sur le disque avant de remplacer data.json (les segments du journal seront supprimés)
+        try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.WRITE)) {
+            channel.force(true);
         }
+        try {
+            Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING);
+        }
+        if (binarySnapshotEnabled) {
+            writeBinarySnapshot(data, target);
+        }
+    }
+
+    /**
+     * Écrit la copie binaire correspondant au fichier JSON qui vient d'être lu ou écrit.
+     */
+    private void writeBinarySnapshot(DataWrapper data, Path dataFile) throws IOException {
+        BinarySnapshot.write(BinarySnapshot.pathFor(dataFile), data, dataFile);
+    }
+
+    private static DataWrapper toDataWrapper(Dataset version, Long journalSequence) {
+        DataWrapper data = new DataWrapper();
+        data.setPersons(version.getPersons());
+        data.setFirestations(version.getFirestations());
+        data.setMedicalrecords(version.getMedicalRecords());
+        data.setJournalSequence(journalSequence);
+        return data;
     }
 }
@@ -1,5 +1,6 @@
 package com.openclassrooms.P_5_SafetyNet_Alerts.data;
 
+import com.fasterxml.jackson.annotation.JsonInclude;
 import com.openclassrooms.P_5_SafetyNet_Alerts.model.Firestation;
 import com.openclassrooms.P_5_SafetyNet_Alerts.model.MedicalRecord;
 import com.openclassrooms.P_5_SafetyNet_Alerts.model.Person;
@@ -30,4 +31,11 @@ public class DataWrapper {
      * Liste des dossiers médicaux présents dans les données.
      */
     private List<MedicalRecord> medicalrecords;
+
+    /**
+     * Numéro de la dernière mutation du journal incluse dans ce fichier (mode journal uniquement).
+     * Les mutations de numéro inférieur ou égal ne sont pas rejouées au démarrage.
+     */
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private Long journalSequence;
 }
@@ -0,0 +1,62 @@
+package com.openclassrooms.P_5_SafetyNet_Alerts.data;
+
+import com.openclassrooms.P_5_SafetyNet_Alerts.model.Firestation;
+import com.openclassrooms.P_5_SafetyNet_Alerts.model.MedicalRecord;
+import com.openclassrooms.P_5_SafetyNet_Alerts.model.Person;
+
+import java.util.List;
+
+/**
+ * Version immuable du jeu de données.
+ * <p>
+ * Une version n'est jamais modifiée après sa publication par le {@link DataLoader} : les écritures
+ * construisent de nouvelles listes (et de nouveaux objets pour les éléments modifiés) puis publient
+ * une nouvelle version. Les lecteurs peuvent donc parcourir une version sans verrou ni copie.
+ */
+public final class Dataset {
+
+    static final Dataset EMPTY = new Dataset(0, List.of(), List.of(), List.of());
+
+    private final long version;
+    private final List<Person> persons;
+    private final List<Firestation> firestations;
+    private final List<MedicalRecord> medicalRecords;
+
+    Dataset(long version, List<Person> persons, List<Firestation> firestations, List<MedicalRecord> medicalRecords) {
+        this.version = version;
+        this.persons = persons;
+        this.firestations = firestations;
+        this.medicalRecords = medicalRecords;
+    }
+
+    /**
+     * @return le numéro de version, incrémenté à chaque publication
+     */
+    public long getVersion() {
+        return version;
+    }
+
+    public List<Person> getPersons() {
+        return persons;
+    }
+
+    public List<Firestation> getFirestations() {
+        return firestations;
+    }
+
+    public List<MedicalRecord> getMedicalRecords() {
+        return medicalRecords;
+    }
+
+    Dataset withPersons(List<Person> persons) {
+        return new Dataset(version + 1, persons, firestations, medicalRecords);
+    }
+
+    Dataset withFirestations(List<Firestation> firestations) {
+        return new Dataset(version + 1, persons, firestations, medicalRecords);
+    }
+
+    Dataset withMedicalRecords(List<MedicalRecord> medicalRecords) {
+        return new Dataset(version + 1, persons, firestations, medicalRecords);
+    }
+}
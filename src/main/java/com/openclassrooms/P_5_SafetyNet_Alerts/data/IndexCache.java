@@ -0,0 +1,78 @@
+package com.openclassrooms.P_5_SafetyNet_Alerts.data;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Predicate;
+
+/**
+ * Index dérivés des dernières versions du jeu de données, retrouvés par la liste dont ils sont construits.
+ * <p>
+ * Un dépôt garde ainsi l'index de la dernière version et ceux des versions précédentes encore lues :
+ * une lecture figée sur une version dépassée ({@link DataLoader#read(Dataset, java.util.function.Supplier)},
+ * ou lecture commencée avant une écriture) retrouve son index au lieu de le reconstruire à chaque appel.
+ * L'index de la dernière version reste en tête : les index des versions dépassées ne l'évincent jamais.
+ * <p>
+ * Lecture sans verrou (liste immuable remplacée à chaque ajout) ; les ajouts sont sérialisés.
+ *
+ * @param <I> type de l'index, immuable
+ */
+public final class IndexCache<I> {
+
+    // Dernière version, précédente, et deux versions dépassées encore lues (réponses en flux)
+    private static final int DEFAULT_CAPACITY = 4;
+
+    private final int capacity;
+    // Index du plus récent au plus ancien ; la tête est celui de la dernière version ajoutée comme telle
+    private volatile List<I> indexes = List.of();
+
+    public IndexCache() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    /**
+     * @param capacity nombre de versions gardées, au moins 2 (dernière version et précédente)
+     */
+    public IndexCache(int capacity) {
+        if (capacity < 2) {
+            throw new IllegalArgumentException("capacity < 2");
+        }
+        this.capacity = capacity;
+    }
+
+    /**
+     * @param matches reconnaît l'index recherché, en général par identité de sa liste source
+     * @return l'index gardé, ou null
+     */
+    public I find(Predicate<? super I> matches) {
+        for (I index : indexes) {
+            if (matches.test(index)) {
+                return index;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Garde un index. Un index à publier doit être ajouté avant la publication de sa version :
+     * un lecteur de la nouvelle version le trouve alors sans le reconstruire.
+     *
+     * @param index  index à garder
+     * @param latest true pour l'index de la dernière version (ou de la version sur le point d'être publiée),
+     *               placé en tête ; false pour celui d'une version dépassée, placé juste derrière
+     * @return l'index ajouté
+     */
+    public synchronized I add(I index, boolean latest) {
+        List<I> current = indexes;
+        List<I> next = new ArrayList<>(Math.min(current.size() + 1, capacity));
+        if (latest || current.isEmpty()) {
+            next.add(index);
+            next.addAll(current);
+        } else {
+            next.add(current.get(0));
+            next.add(index);
+            next.addAll(current.subList(1, current.size()));
+        }
+        indexes = List.copyOf(next.subList(0, Math.min(next.size(), capacity)));
+        return index;
+    }
+}
@@ -0,0 +1,104 @@
+package com.openclassrooms.P_5_SafetyNet_Alerts.data;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.openclassrooms.P_5_SafetyNet_Alerts.model.Firestation;
+import com.openclassrooms.P_5_SafetyNet_Alerts.model.MedicalRecord;
+import com.openclassrooms.P_5_SafetyNet_Alerts.model.Person;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * Mutation unitaire du jeu de données, telle qu'enregistrée dans le journal
+ * (une ligne JSON compacte par mutation).
+ * <p>
+ * Seuls les champs utiles au type de mutation sont renseignés.
+ * Les mutations d'un même lot ({@link Type#BATCH}) forment une seule ligne : elles sont
+ * synchronisées sur le disque et rejouées ensemble, ou pas du tout.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class Mutation {
+
+    /**
+     * Types de mutation, un par opération d'écriture des services.
+     */
+    public enum Type {
+        ADD_PERSON, UPDATE_PERSON, DELETE_PERSON,
+        ADD_MEDICAL_RECORD, UPDATE_MEDICAL_RECORD, DELETE_MEDICAL_RECORD,
+        ADD_FIRESTATION, UPDATE_FIRESTATION, DELETE_FIRESTATION_BY_ADDRESS, DELETE_FIRESTATION_BY_STATION,
+        BATCH
+    }
+
+    /**
+     * Numéro d'ordre attribué par le journal.
+     */
+    private long seq;
+
+    private Type type;
+
+    private Person person;
+
+    private MedicalRecord medicalRecord;
+
+    private Firestation firestation;
+
+    // Clefs des suppressions
+    private String firstName;
+    private String lastName;
+    private String address;
+    private Integer station;
+
+    // Mutations d'un lot, dans leur ordre d'application
+    private List<Mutation> batch;
+
+    public static Mutation addPerson(Person person) {
+        return Mutation.builder().type(Type.ADD_PERSON).person(person).build();
+    }
+
+    public static Mutation updatePerson(Person person) {
+        return Mutation.builder().type(Type.UPDATE_PERSON).person(person).build();
+    }
+
+    public static Mutation deletePerson(String firstName, String lastName) {
+        return Mutation.builder().type(Type.DELETE_PERSON).firstName(firstName).lastName(lastName).build();
+    }
+
+    public static Mutation addMedicalRecord(MedicalRecord medicalRecord) {
+        return Mutation.builder().type(Type.ADD_MEDICAL_RECORD).medicalRecord(medicalRecord).build();
+    }
+
+    public static Mutation updateMedicalRecord(MedicalRecord medicalRecord) {
+        return Mutation.builder().type(Type.UPDATE_MEDICAL_RECORD).medicalRecord(medicalRecord).build();
+    }
+
+    public static Mutation deleteMedicalRecord(String firstName, String lastName) {
+        return Mutation.builder().type(Type.DELETE_MEDICAL_RECORD).firstName(firstName).lastName(lastName).build();
+    }
+
+    public static Mutation addFirestation(Firestation firestation) {
+        return Mutation.builder().type(Type.ADD_FIRESTATION).firestation(firestation).build();
+    }
+
+    public static Mutation updateFirestation(Firestation firestation) {
+        return Mutation.builder().type(Type.UPDATE_FIRESTATION).firestation(firestation).build();
+    }
+
+    public static Mutation deleteFirestationByAddress(String address) {
+        return Mutation.builder().type(Type.DELETE_FIRESTATION_BY_ADDRESS).address(address).build();
+    }
+
+    public static Mutation deleteFirestationByStation(int station) {
+        return Mutation.builder().type(Type.DELETE_FIRESTATION_BY_STATION).station(station).build();
+    }
+
+    public static Mutation batch(List<Mutation> mutations) {
+        return Mutation.builder().type(Type.BATCH).batch(mutations).build();
+    }
+}
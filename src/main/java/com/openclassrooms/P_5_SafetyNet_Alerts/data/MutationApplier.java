@@ -0,0 +1,54 @@
+package com.openclassrooms.P_5_SafetyNet_Alerts.data;
+
+import com.openclassrooms.P_5_SafetyNet_Alerts.repository.FirestationRepository;
+import com.openclassrooms.P_5_SafetyNet_Alerts.repository.MedicalRecordRepository;
+import com.openclassrooms.P_5_SafetyNet_Alerts.repository.PersonRepository;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+
+/**
+ * Applique une {@link Mutation} du journal sur les dépôts, avec les mêmes règles que les services
+ * (un ajout est ignoré si la clef existe déjà), mais sans déclencher de sauvegarde.
+ * Utilisé pour rejouer le journal au démarrage.
+ */
+@Component
+@RequiredArgsConstructor
+public class MutationApplier {
+
+    private final PersonRepository personRepository;
+    private final MedicalRecordRepository medicalRecordRepository;
+    private final FirestationRepository firestationRepository;
+
+    /**
+     * Applique une mutation.
+     *
+     * @param mutation mutation à appliquer
+     */
+    public void apply(Mutation mutation) {
+        switch (mutation.getType()) {
+            case ADD_PERSON -> {
+                if (personRepository.findByName(mutation.getPerson().getFirstName(), mutation.getPerson().getLastName()).isEmpty()) {
+                    personRepository.save(mutation.getPerson());
+                }
+            }
+            case UPDATE_PERSON -> personRepository.update(mutation.getPerson());
+            case DELETE_PERSON -> personRepository.deleteByName(mutation.getFirstName(), mutation.getLastName());
+            case ADD_MEDICAL_RECORD -> {
+                if (medicalRecordRepository.findByName(mutation.getMedicalRecord().getFirstName(), mutation.getMedicalRecord().getLastName()).isEmpty()) {
+                    medicalRecordRepository.save(mutation.getMedicalRecord());
+                }
+            }
+            case UPDATE_MEDICAL_RECORD -> medicalRecordRepository.update(mutation.getMedicalRecord());
+            case DELETE_MEDICAL_RECORD -> medicalRecordRepository.deleteByName(mutation.getFirstName(), mutation.getLastName());
+            case ADD_FIRESTATION -> {
+                if (firestationRepository.findByAddress(mutation.getFirestation().getAddress()).isEmpty()) {
+                    firestationRepository.save(mutation.getFirestation());
+                }
+            }
+            case UPDATE_FIRESTATION -> firestationRepository.updateStation(mutation.getFirestation().getAddress(), mutation.getFirestation().getStation());
+            case DELETE_FIRESTATION_BY_ADDRESS -> firestationRepository.deleteByAddress(mutation.getAddress());
+            case DELETE_FIRESTATION_BY_STATION -> firestationRepository.deleteByStation(mutation.getStation());
+            case BATCH -> mutation.getBatch().forEach(this::apply);
+        }
+    }
+}
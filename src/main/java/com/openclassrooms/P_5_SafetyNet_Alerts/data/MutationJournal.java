@@ -0,0 +1,368 @@
+package com.openclassrooms.P_5_SafetyNet_Alerts.data;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+/**
+ * Journal des mutations en ajout seul, écrit à côté du fichier de données.
+ * <p>
+ * Le journal est découpé en segments {@code data.journal.000001}, {@code data.journal.000002}...
+ * Chaque mutation y est ajoutée sous forme d'une ligne JSON compacte.
+ * <ul>
+ *     <li>Commit groupé : un thread unique écrit toutes les mutations en attente puis fait un seul
+ *     {@code fsync} ; les appelants concurrents partagent ainsi la même synchronisation disque.</li>
+ *     <li>Compaction : quand le segment courant dépasse le seuil, le journal bascule sur un nouveau segment
+ *     et un thread de compaction réécrit le fichier de données, puis supprime les anciens segments.</li>
+ * </ul>
+ * Rejouer une mutation déjà présente dans le fichier de données est sans effet sur l'état final
+ * (ajout ignoré si la clef existe, mise à jour et suppression idempotentes).
+ */
+class MutationJournal {
+
+    private static final Logger logger = LogManager.getLogger(MutationJournal.class);
+
+    private static final int MAX_BATCH = 4096;
+
+    /**
+     * Réécriture du fichier de données incluant toutes les mutations jusqu'à {@code upToSequence}.
+     */
+    interface Compactor {
+        void compact(long upToSequence) throws Exception;
+    }
+
+    private record Pending(long seq, byte[] line, CompletableFuture<Void> done) {
+    }
+
+    private final Path dataFile;
+    private final Path directory;
+    private final String baseName;
+    private final ObjectWriter writer;
+    private final long compactionThresholdBytes;
+    private final Compactor compactor;
+
+    private final BlockingQueue<Pending> queue = new LinkedBlockingQueue<>();
+    // Garantit que l'ordre de la file suit l'ordre des numéros de séquence
+    private final ReentrantLock appendLock = new ReentrantLock();
+    private final AtomicBoolean compacting = new AtomicBoolean();
+    private final ExecutorService compactionExecutor;
+    private final Thread writerThread;
+
+    private long sequence;
+    private volatile boolean closed;
+
+    // Etat du segment courant, manipulé uniquement par le thread d'écriture
+    private FileChannel channel;
+    private long segmentNumber;
+    private volatile long segmentBytes;
+    private volatile long lastWrittenSequence;
+    private volatile long commitCount;
+
+    MutationJournal(Path dataFile, ObjectMapper mapper, long lastSequence, long compactionThresholdBytes,
+                    Compactor compactor) throws IOException {
+        this.dataFile = dataFile;
+        this.directory = dataFile.toAbsolutePath().getParent();
+        this.baseName = journalBaseName(dataFile);
+        this.writer = mapper.writer();
+        this.compactionThresholdBytes = compactionThresholdBytes;
+        this.compactor = compactor;
+        this.sequence = lastSequence;
+        this.lastWrittenSequence = lastSequence;
+
+        List<Path> existing = listSegments(dataFile);
+        long lastSegment = existing.isEmpty() ? 0 : segmentNumberOf(existing.get(existing.size() - 1), baseName);
+        openSegment(lastSegment + 1);
+
+        this.compactionExecutor = Executors.newSingleThreadExecutor(r -> daemon(r, "journal-compactor"));
+        this.writerThread = daemon(this::writeLoop, "journal-writer");
+        this.writerThread.start();
+    }
+
+    /**
+     * Ajoute une mutation au journal et attend qu'elle soit écrite et synchronisée sur le disque.
+     *
+     * @param mutation mutation à journaliser (son numéro de séquence est attribué ici)
+     * @throws IOException si l'écriture ou la synchronisation échoue
+     */
+    void append(Mutation mutation) throws IOException {
+        await(enqueue(mutation));
+    }
+
+    /**
+     * Ajoute une mutation à la file d'écriture sans attendre sa synchronisation.
+     * L'ordre du journal est l'ordre des appels.
+     *
+     * @param mutation mutation à journaliser (son numéro de séquence est attribué ici)
+     * @return futur terminé une fois la mutation synchronisée sur le disque
+     * @throws IOException si le journal est fermé ou la mutation non sérialisable
+     */
+    CompletableFuture<Void> enqueue(Mutation mutation) throws IOException {
+        CompletableFuture<Void> done = new CompletableFuture<>();
+        appendLock.lock();
+        try {
+            if (closed) {
+                throw new IOException("Journal fermé");
+            }
+            mutation.setSeq(++sequence);
+            byte[] json = writer.writeValueAsBytes(mutation);
+            byte[] line = new byte[json.length + 1];
+            System.arraycopy(json, 0, line, 0, json.length);
+            line[json.length] = '\n';
+            queue.add(new Pending(mutation.getSeq(), line, done));
+        } finally {
+            appendLock.unlock();
+        }
+        return done;
+    }
+
+    /**
+     * Attend la synchronisation d'une mutation ajoutée par {@link #enqueue(Mutation)}.
+     */
+    static void await(CompletableFuture<Void> done) throws IOException {
+        try {
+            done.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Attente du journal interrompue", e);
+        } catch (ExecutionException e) {
+            throw new IOException("Echec d'écriture du journal", e.getCause());
+        }
+    }
+
+    /**
+     * @return la taille en octets du segment courant
+     */
+    long getSegmentBytes() {
+        return segmentBytes;
+    }
+
+    /**
+     * @return le nombre de synchronisations disque effectuées (une par lot de mutations)
+     */
+    long getCommitCount() {
+        return commitCount;
+    }
+
+    /**
+     * @return le numéro de la dernière mutation synchronisée sur le disque
+     */
+    long getLastWrittenSequence() {
+        return lastWrittenSequence;
+    }
+
+    /**
+     * Termine l'écriture des mutations en attente, attend la fin d'une éventuelle compaction
+     * et ferme le journal.
+     */
+    void close() {
+        appendLock.lock();
+        try {
+            closed = true;
+        } finally {
+            appendLock.unlock();
+        }
+        try {
+            writerThread.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        compactionExecutor.shutdown();
+        try {
+            compactionExecutor.awaitTermination(1, TimeUnit.MINUTES);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        try {
+            channel.close();
+        } catch (IOException e) {
+            logger.error("Erreur à la fermeture du journal : {}", e.getMessage());
+        }
+    }
+
+    private void writeLoop() {
+        List<Pending> batch = new ArrayList<>();
+        while (!closed || !queue.isEmpty()) {
+            try {
+                Pending first = queue.poll(100, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                queue.drainTo(batch, MAX_BATCH - 1);
+                commit(batch);
+                batch.clear();
+                maybeCompact();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+
+    private void commit(List<Pending> batch) {
+        try {
+            long written = 0;
+            for (Pending p : batch) {
+                ByteBuffer buffer = ByteBuffer.wrap(p.line());
+                while (buffer.hasRemaining()) {
+                    written += channel.write(buffer);
+                }
+            }
+            channel.force(false);
+            segmentBytes += written;
+            lastWrittenSequence = batch.get(batch.size() - 1).seq();
+            commitCount++;
+            batch.forEach(p -> p.done().complete(null));
+        } catch (IOException e) {
+            logger.error("Erreur d'écriture du journal : {}", e.getMessage());
+            batch.forEach(p -> p.done().completeExceptionally(e));
+        }
+    }
+
+    /**
+     * Bascule sur un nouveau segment et lance la compaction en tâche de fond
+     * si le segment courant a dépassé le seuil.
+     */
+    private void maybeCompact() {
+        if (segmentBytes < compactionThresholdBytes || !compacting.compareAndSet(false, true)) {
+            return;
+        }
+        long upTo = lastWrittenSequence;
+        long compactedSegment = segmentNumber;
+        try {
+            channel.close();
+            openSegment(segmentNumber + 1);
+        } catch (IOException e) {
+            logger.error("Impossible d'ouvrir un nouveau segment de journal : {}", e.getMessage());
+            compacting.set(false);
+            return;
+        }
+        compactionExecutor.execute(() -> {
+            try {
+                compactor.compact(upTo);
+                deleteSegmentsUpTo(compactedSegment);
+                logger.info("Journal compacté jusqu'à la mutation {}", upTo);
+            } catch (Exception e) {
+                logger.error("Erreur de compaction du journal : {}", e.getMessage());
+            } finally {
+                compacting.set(false);
+            }
+        });
+    }
+
+    private void openSegment(long number) throws IOException {
+        Path path = directory.resolve(String.format("%s.%06d", baseName, number));
+        channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+        segmentNumber = number;
+        segmentBytes = channel.size();
+    }
+
+    private void deleteSegmentsUpTo(long number) throws IOException {
+        for (Path segment : listSegments(dataFile)) {
+            if (segmentNumberOf(segment, baseName) <= number) {
+                Files.deleteIfExists(segment);
+            }
+        }
+    }
+
+    //-------------------------------------------------/Relecture/----------------------------------------------//
+
+    /**
+     * Rejoue, dans l'ordre, les mutations des segments existants dont le numéro est supérieur à
+     * {@code afterSequence}. Une ligne illisible (écriture interrompue) arrête la relecture.
+     *
+     * @param dataFile      fichier de données à côté duquel se trouve le journal
+     * @param mapper        mapper Jackson
+     * @param afterSequence dernière mutation déjà incluse dans le fichier de données
+     * @param consumer      application d'une mutation
+     * @return le numéro de la dernière mutation lue (ou {@code afterSequence} si aucune)
+     */
+    static long replay(Path dataFile, ObjectMapper mapper, long afterSequence, Consumer<Mutation> consumer) throws IOException {
+        long last = afterSequence;
+        for (Path segment : listSegments(dataFile)) {
+            try (BufferedReader reader = Files.newBufferedReader(segment, StandardCharsets.UTF_8)) {
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    if (line.isBlank()) continue;
+                    Mutation mutation;
+                    try {
+                        mutation = mapper.readValue(line, Mutation.class);
+                    } catch (IOException e) {
+                        logger.error("Ligne de journal illisible dans {}, relecture arrêtée", segment.getFileName());
+                        return last;
+                    }
+                    if (mutation.getSeq() > last) {
+                        consumer.accept(mutation);
+                        last = mutation.getSeq();
+                    }
+                }
+            }
+        }
+        return last;
+    }
+
+    /**
+     * @return true si des segments de journal existent à côté du fichier de données
+     */
+    static boolean exists(Path dataFile) throws IOException {
+        return !listSegments(dataFile).isEmpty();
+    }
+
+    /**
+     * Supprime tous les segments de journal (après leur intégration au fichier de données).
+     */
+    static void deleteAll(Path dataFile) throws IOException {
+        for (Path segment : listSegments(dataFile)) {
+            Files.deleteIfExists(segment);
+        }
+    }
+
+    private static List<Path> listSegments(Path dataFile) throws IOException {
+        Path dir = dataFile.toAbsolutePath().getParent();
+        String base = journalBaseName(dataFile);
+        if (!Files.isDirectory(dir)) {
+            return List.of();
+        }
+        try (Stream<Path> files = Files.list(dir)) {
+            return files.filter(p -> segmentNumberOf(p, base) > 0)
+                    .sorted((a, b) -> Long.compare(segmentNumberOf(a, base), segmentNumberOf(b, base)))
+                    .toList();
+        }
+    }
+
+    private static long segmentNumberOf(Path path, String base) {
+        Matcher m = Pattern.compile(Pattern.quote(base) + "\\.(\\d+)").matcher(path.getFileName().toString());
+        return m.matches() ? Long.parseLong(m.group(1)) : -1;
+    }
+
+    private static String journalBaseName(Path dataFile) {
+        String name = dataFile.getFileName().toString();
+        int dot = name.lastIndexOf('.');
+        return (dot > 0 ? name.substring(0, dot) : name) + ".journal";
+    }
+
+    private static Thread daemon(Runnable r, String name) {
+        Thread t = new Thread(r, name);
+        t.setDaemon(true);
+        return t;
+    }
+}
@@ -0,0 +1,689 @@
+package com.openclassrooms.P_5_SafetyNet_Alerts.data;
+
+import com.openclassrooms.P_5_SafetyNet_Alerts.model.Person;
+import com.openclassrooms.P_5_SafetyNet_Alerts.utils.StringPool;
+
+import java.nio.charset.StandardCharsets;
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.RandomAccess;
+
+/**
+ * Personnes d'une version du jeu de données, rangées en colonnes.
+ * <p>
+ * Chaque personne est une ligne, repérée par son numéro (0 à {@code rowCount() - 1}) :
+ * <ul>
+ *     <li>nom, adresse, ville et code postal sont des codes du dictionnaire {@link StringPool} de la table
+ *     (celui du chargement du jeu de données, repris par les tables qui en dérivent), une colonne {@code int[]}
+ *     par champ ;</li>
+ *     <li>prénom, téléphone et email sont rangés en UTF-8, bout à bout, dans un tas d'octets ;
+ *     une colonne {@code long[]} par champ donne la position et la longueur de chaque valeur.</li>
+ * </ul>
+ * Une personne coûte ainsi sept cases de tableau au lieu d'un objet {@link Person} et de ses chaînes.
+ * <p>
+ * La table est une liste en lecture seule des personnes non supprimées, dans l'ordre des lignes, dont les
+ * éléments sont des vues : des {@link Person} dont les accesseurs lisent les colonnes de leur ligne, et dont
+ * les mutateurs lèvent une {@link UnsupportedOperationException}. Un parcours qui ne lit qu'un champ ne décode
+ * que sa colonne.
+ * <p>
+ * Comme les listes qu'elle remplace, une table n'est jamais modifiée : {@link #append}, {@link #update} et
+ * {@link #remove} retournent une nouvelle table.
+ * <ul>
+ *     <li>Les colonnes sont découpées en morceaux de {@value #CHUNK_SIZE} lignes : une écriture ne copie que
+ *     les morceaux qu'elle touche (et le tableau des morceaux), les autres sont partagés avec la version
+ *     précédente.</li>
+ *     <li>Une suppression marque ses lignes (pierres tombales) sans décaler les suivantes : les numéros de
+ *     ligne restent stables. {@link #compact} renumérote les lignes en retirant les supprimées.</li>
+ *     <li>Le tas d'octets est partagé avec les versions précédentes, en ajout seul, et recopié (sans les
+ *     valeurs remplacées ou supprimées) quand il contient plus de deux fois les octets utilisés.</li>
+ * </ul>
+ */
+public final class PersonTable extends AbstractList<Person> implements RandomAccess {
+
+    // Lignes par morceau de colonnes
+    public static final int CHUNK_SIZE = 1 << 10;
+    private static final int CHUNK_SHIFT = 10;
+    private static final int CHUNK_MASK = CHUNK_SIZE - 1;
+
+    // Position et longueur d'une valeur nulle
+    private static final long NULL_REF = -1;
+    // Octets perdus tolérés dans le tas avant recopie
+    private static final long COMPACTION_SLACK = 1 << 20;
+
+    private final StringPool strings;
+    private final Chunk[] chunks;
+    // Lignes écrites, supprimées comprises
+    private final int rowCount;
+    // Lignes non supprimées : taille de la liste
+    private final int size;
+    // Lignes non supprimées des morceaux précédant chaque morceau, null si aucune ligne n'est supprimée
+    private final int[] liveBefore;
+    private final ByteHeap heap;
+    // Octets du tas référencés par cette table
+    private final long liveBytes;
+
+    private PersonTable(StringPool strings, Chunk[] chunks, int rowCount, int size, int[] liveBefore, ByteHeap heap,
+                        long liveBytes) {
+        this.strings = strings;
+        this.chunks = chunks;
+        this.rowCount = rowCount;
+        this.size = size;
+        this.liveBefore = liveBefore;
+        this.heap = heap;
+        this.liveBytes = liveBytes;
+    }
+
+    /**
+     * Morceau de colonnes : {@link #CHUNK_SIZE} lignes au plus (le dernier morceau n'a que ses lignes écrites).
+     * Modifié par la seule écriture qui l'a copié, jamais après la publication de sa table.
+     */
+    private static final class Chunk {
+        private final int[] lastNames;
+        private final int[] addresses;
+        private final int[] cities;
+        private final int[] zips;
+        private final long[] firstNames;
+        private final long[] phones;
+        private final long[] emails;
+        // Lignes supprimées, un bit par ligne ; null si aucune
+        private long[] deleted;
+
+        private Chunk(int rows) {
+            lastNames = new int[rows];
+            addresses = new int[rows];
+            cities = new int[rows];
+            zips = new int[rows];
+            firstNames = new long[rows];
+            phones = new long[rows];
+            emails = new long[rows];
+        }
+
+        private Chunk(Chunk from, int rows) {
+            lastNames = Arrays.copyOf(from.lastNames, rows);
+            addresses = Arrays.copyOf(from.addresses, rows);
+            cities = Arrays.copyOf(from.cities, rows);
+            zips = Arrays.copyOf(from.zips, rows);
+            firstNames = Arrays.copyOf(from.firstNames, rows);
+            phones = Arrays.copyOf(from.phones, rows);
+            emails = Arrays.copyOf(from.emails, rows);
+            deleted = from.deleted == null ? null : from.deleted.clone();
+        }
+
+        private boolean isDeleted(int i) {
+            return deleted != null && (deleted[i >>> 6] & (1L << i)) != 0;
+        }
+    }
+
+    /**
+     * @param strings dictionnaire des colonnes codées
+     * @return une table sans ligne
+     */
+    public static PersonTable empty(StringPool strings) {
+        return new PersonTable(strings, new Chunk[0], 0, 0, null, new ByteHeap(0), 0);
+    }
+
+    /**
+     * @param persons personnes à ranger, dans l'ordre de la liste
+     * @param strings dictionnaire des colonnes codées, si la liste n'est pas déjà une table
+     * @return la table de ces personnes (la liste elle-même si c'est déjà une table)
+     */
+    public static PersonTable of(List<Person> persons, StringPool strings) {
+        if (persons instanceof PersonTable table) {
+            return table;
+        }
+        return empty(strings).append(persons);
+    }
+
+    /**
+     * @param added personnes à ajouter en fin de table
+     * @return une nouvelle table ; les personnes ajoutées occupent les lignes {@code rowCount()} et suivantes
+     */
+    public PersonTable append(List<Person> added) {
+        int n = rowCount + added.size();
+        Columns columns = new Columns(this, n);
+        for (int i = 0; i < added.size(); i++) {
+            columns.set(rowCount + i, added.get(i));
+        }
+        return columns.build();
+    }
+
+    /**
+     * @param changes numéro de ligne -> nouvelles valeurs de la ligne
+     * @return une nouvelle table
+     */
+    public PersonTable update(Map<Integer, Person> changes) {
+        Columns columns = new Columns(this, rowCount);
+        for (Map.Entry<Integer, Person> change : changes.entrySet()) {
+            int row = checkRow(change.getKey());
+            columns.release(row);
+            columns.set(row, change.getValue());
+        }
+        return columns.build();
+    }
+
+    /**
+     * @param rows numéros des lignes à supprimer
+     * @return une nouvelle table ; les autres lignes gardent leur numéro
+     */
+    public PersonTable remove(int[] rows) {
+        Columns columns = new Columns(this, rowCount);
+        for (int row : rows) {
+            columns.delete(checkRow(row));
+        }
+        return columns.build();
+    }
+
+    /**
+     * @return une table des seules lignes non supprimées, renumérotées dans leur ordre (la table elle-même
+     * si aucune ligne n'est supprimée)
+     */
+    public PersonTable compact() {
+        return size == rowCount ? this : empty(strings).append(this);
+    }
+
+    /**
+     * @param rows numéros de lignes
+     * @return les vues de ces lignes, dans l'ordre des numéros donnés
+     */
+    public List<Person> rows(int[] rows) {
+        if (rows.length == 0) {
+            return Collections.emptyList();
+        }
+        return new RowList(this, rows);
+    }
+
+    /**
+     * @param rows entrée d'index
+     * @return les vues des lignes de cette entrée, dans son ordre
+     */
+    public List<Person> rows(Postings rows) {
+        if (rows.isEmpty()) {
+            return Collections.emptyList();
+        }
+        return new PostingsList(this, rows);
+    }
+
+    /**
+     * @param row numéro d'une ligne non supprimée
+     * @return la vue de cette ligne
+     */
+    public Person row(int row) {
+        return new Row(this, checkRow(row));
+    }
+
+    /**
+     * @return les numéros des lignes non supprimées, dans un ensemble propre à l'appelant
+     */
+    public BitSet liveRows() {
+        BitSet rows = new BitSet(rowCount);
+        rows.set(0, rowCount);
+        if (liveBefore != null) {
+            for (int c = 0; c < chunks.length; c++) {
+                long[] deleted = chunks[c].deleted;
+                if (deleted != null) {
+                    for (int word = 0; word < deleted.length; word++) {
+                        for (long bits = deleted[word]; bits != 0; bits &= bits - 1) {
+                            rows.clear((c << CHUNK_SHIFT) + (word << 6) + Long.numberOfTrailingZeros(bits));
+                        }
+                    }
+                }
+            }
+        }
+        return rows;
+    }
+
+    /**
+     * @return le nombre de lignes écrites, supprimées comprises : les numéros de ligne vont de 0 à cette valeur exclue
+     */
+    public int rowCount() {
+        return rowCount;
+    }
+
+    @Override
+    public Person get(int index) {
+        return new Row(this, rowOf(Objects.checkIndex(index, size)));
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public Iterator<Person> iterator() {
+        return new Iterator<>() {
+            private int row = nextLive(0);
+
+            @Override
+            public boolean hasNext() {
+                return row < rowCount;
+            }
+
+            @Override
+            public Person next() {
+                if (row >= rowCount) {
+                    throw new NoSuchElementException();
+                }
+                Person person = new Row(PersonTable.this, row);
+                row = nextLive(row + 1);
+                return person;
+            }
+        };
+    }
+
+    /**
+     * @return le dictionnaire des colonnes codées
+     */
+    public StringPool strings() {
+        return strings;
+    }
+
+    public String firstName(int row) {
+        return heap.read(chunks[row >>> CHUNK_SHIFT].firstNames[row & CHUNK_MASK]);
+    }
+
+    public String lastName(int row) {
+        return strings.value(chunks[row >>> CHUNK_SHIFT].lastNames[row & CHUNK_MASK]);
+    }
+
+    public String address(int row) {
+        return strings.value(chunks[row >>> CHUNK_SHIFT].addresses[row & CHUNK_MASK]);
+    }
+
+    /**
+     * @return la clef canonique de l'adresse de la ligne, précalculée par le dictionnaire
+     */
+    public String addressKey(int row) {
+        return strings.canonicalAddress(address(row));
+    }
+
+    public String city(int row) {
+        return strings.value(chunks[row >>> CHUNK_SHIFT].cities[row & CHUNK_MASK]);
+    }
+
+    public String zip(int row) {
+        return strings.value(chunks[row >>> CHUNK_SHIFT].zips[row & CHUNK_MASK]);
+    }
+
+    public String phone(int row) {
+        return heap.read(chunks[row >>> CHUNK_SHIFT].phones[row & CHUNK_MASK]);
+    }
+
+    public String email(int row) {
+        return heap.read(chunks[row >>> CHUNK_SHIFT].emails[row & CHUNK_MASK]);
+    }
+
+    private int checkRow(int row) {
+        Objects.checkIndex(row, rowCount);
+        if (chunks[row >>> CHUNK_SHIFT].isDeleted(row & CHUNK_MASK)) {
+            throw new IllegalArgumentException("Ligne supprimée : " + row);
+        }
+        return row;
+    }
+
+    /**
+     * @return la première ligne non supprimée à partir de {@code row}, ou {@code rowCount}
+     */
+    private int nextLive(int row) {
+        while (row < rowCount && chunks[row >>> CHUNK_SHIFT].isDeleted(row & CHUNK_MASK)) {
+            row++;
+        }
+        return row;
+    }
+
+    /**
+     * @return le numéro de la ligne au rang {@code index} parmi les lignes non supprimées
+     */
+    private int rowOf(int index) {
+        if (liveBefore == null) {
+            return index;
+        }
+        // Dernier morceau précédé de {@code index} lignes non supprimées au plus : il contient la ligne
+        int low = 0;
+        int high = chunks.length - 1;
+        while (low < high) {
+            int mid = (low + high + 1) >>> 1;
+            if (liveBefore[mid] <= index) {
+                low = mid;
+            } else {
+                high = mid - 1;
+            }
+        }
+        Chunk chunk = chunks[low];
+        int rank = index - liveBefore[low];
+        int base = low << CHUNK_SHIFT;
+        if (chunk.deleted == null) {
+            return base + rank;
+        }
+        for (int word = 0; ; word++) {
+            long live = ~chunk.deleted[word];
+            int count = Long.bitCount(live);
+            if (rank < count) {
+                for (int i = 0; i < rank; i++) {
+                    live &= live - 1;
+                }
+                return base + (word << 6) + Long.numberOfTrailingZeros(live);
+            }
+            rank -= count;
+        }
+    }
+
+    /**
+     * Colonnes d'une table en construction : tableau des morceaux de la table d'origine, dont les morceaux
+     * écrits sont copiés à leur première écriture, puis figés par {@link #build}.
+     */
+    private static final class Columns {
+        private final StringPool strings;
+        private final Chunk[] chunks;
+        // Morceaux déjà copiés par cette écriture, modifiables sur place
+        private final boolean[] copied;
+        private final int rowCapacity;
+        private int size;
+        private final ByteHeap heap;
+        private long liveBytes;
+
+        /**
+         * @param rowCapacity lignes de la table construite ; celles au-delà des lignes d'origine sont ajoutées
+         */
+        private Columns(PersonTable from, int rowCapacity) {
+            strings = from.strings;
+            chunks = Arrays.copyOf(from.chunks, (rowCapacity + CHUNK_MASK) >>> CHUNK_SHIFT);
+            copied = new boolean[chunks.length];
+            this.rowCapacity = rowCapacity;
+            size = from.size + rowCapacity - from.rowCount;
+            // Une table sans ligne ne partage pas son tas
+            heap = from.rowCount == 0 ? new ByteHeap(rowCapacity * 40L) : from.heap;
+            liveBytes = from.liveBytes;
+        }
+
+        /**
+         * @return le morceau de cette ligne, copié (et agrandi jusqu'à la capacité visée) à sa première écriture
+         */
+        private Chunk writable(int row) {
+            int c = row >>> CHUNK_SHIFT;
+            if (!copied[c]) {
+                int rows = Math.min(CHUNK_SIZE, rowCapacity - (c << CHUNK_SHIFT));
+                chunks[c] = chunks[c] == null ? new Chunk(rows) : new Chunk(chunks[c], rows);
+                copied[c] = true;
+            }
+            return chunks[c];
+        }
+
+        private void set(int row, Person person) {
+            Chunk chunk = writable(row);
+            int i = row & CHUNK_MASK;
+            chunk.lastNames[i] = strings.code(person.getLastName());
+            chunk.addresses[i] = strings.addressCode(person.getAddress());
+            chunk.cities[i] = strings.code(person.getCity());
+            chunk.zips[i] = strings.code(person.getZip());
+            chunk.firstNames[i] = write(person.getFirstName());
+            chunk.phones[i] = write(person.getPhone());
+            chunk.emails[i] = write(person.getEmail());
+        }
+
+        private long write(String value) {
+            if (value == null) return NULL_REF;
+            byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+            liveBytes += bytes.length;
+            return heap.append(bytes);
+        }
+
+        /**
+         * Retire du décompte les octets d'une ligne remplacée ou supprimée.
+         */
+        private void release(int row) {
+            Chunk chunk = chunks[row >>> CHUNK_SHIFT];
+            int i = row & CHUNK_MASK;
+            liveBytes -= length(chunk.firstNames[i]) + length(chunk.phones[i]) + length(chunk.emails[i]);
+        }
+
+        private void delete(int row) {
+            Chunk chunk = writable(row);
+            int i = row & CHUNK_MASK;
+            if (chunk.isDeleted(i)) {
+                return;
+            }
+            release(row);
+            if (chunk.deleted == null) {
+                chunk.deleted = new long[CHUNK_SIZE >>> 6];
+            }
+            chunk.deleted[i >>> 6] |= 1L << i;
+            size--;
+        }
+
+        private PersonTable build() {
+            PersonTable table = new PersonTable(strings, chunks, rowCapacity, size, liveBefore(), heap, liveBytes);
+            return heap.length() > 2 * liveBytes + COMPACTION_SLACK ? compact(table) : table;
+        }
+
+        private int[] liveBefore() {
+            if (size == rowCapacity) {
+                return null;
+            }
+            int[] liveBefore = new int[chunks.length];
+            int live = 0;
+            for (int c = 0; c < chunks.length; c++) {
+                liveBefore[c] = live;
+                Chunk chunk = chunks[c];
+                live += chunk.firstNames.length;
+                if (chunk.deleted != null) {
+                    for (long word : chunk.deleted) {
+                        live -= Long.bitCount(word);
+                    }
+                }
+            }
+            return liveBefore;
+        }
+
+        /**
+         * Recopie les seules valeurs de la table dans un nouveau tas.
+         */
+        private static PersonTable compact(PersonTable table) {
+            ByteHeap heap = new ByteHeap(table.liveBytes);
+            Chunk[] chunks = new Chunk[table.chunks.length];
+            for (int c = 0; c < chunks.length; c++) {
+                Chunk from = table.chunks[c];
+                Chunk chunk = new Chunk(from, from.firstNames.length);
+                for (int i = 0; i < from.firstNames.length; i++) {
+                    boolean deleted = from.isDeleted(i);
+                    chunk.firstNames[i] = deleted ? NULL_REF : table.heap.copyTo(from.firstNames[i], heap);
+                    chunk.phones[i] = deleted ? NULL_REF : table.heap.copyTo(from.phones[i], heap);
+                    chunk.emails[i] = deleted ? NULL_REF : table.heap.copyTo(from.emails[i], heap);
+                }
+                chunks[c] = chunk;
+            }
+            return new PersonTable(table.strings, chunks, table.rowCount, table.size, table.liveBefore, heap,
+                    table.liveBytes);
+        }
+    }
+
+    private static int length(long ref) {
+        return ref == NULL_REF ? 0 : (int) ref;
+    }
+
+    /**
+     * Tas d'octets en ajout seul, partagé par les tables successives : les octets déjà écrits ne
+     * changent jamais, seule la fin du tableau (pas encore référencée par une table publiée) est écrite.
+     * Une valeur est repérée par sa position (32 bits de poids fort) et sa longueur (32 bits de poids faible).
+     */
+    private static final class ByteHeap {
+        private volatile byte[] data;
+        // Écrit sous le verrou du tas
+        private int length;
+
+        private ByteHeap(long capacity) {
+            data = new byte[(int) Math.min(Math.max(capacity, 16), Integer.MAX_VALUE - 8)];
+        }
+
+        private synchronized long append(byte[] bytes) {
+            byte[] current = data;
+            long needed = (long) length + bytes.length;
+            if (needed > current.length) {
+                if (needed > Integer.MAX_VALUE - 8) {
+                    throw new IllegalStateException("Tas d'octets des personnes plein");
+                }
+                current = Arrays.copyOf(current, (int) Math.min(Integer.MAX_VALUE - 8, Math.max(needed, current.length * 3L / 2)));
+            }
+            System.arraycopy(bytes, 0, current, length, bytes.length);
+            long ref = ((long) length << 32) | bytes.length;
+            length += bytes.length;
+            // Écriture volatile : publie les octets avec la table qui les référence
+            data = current;
+            return ref;
+        }
+
+        private synchronized int length() {
+            return length;
+        }
+
+        private String read(long ref) {
+            if (ref == NULL_REF) return null;
+            return new String(data, (int) (ref >>> 32), (int) ref, StandardCharsets.UTF_8);
+        }
+
+        private long copyTo(long ref, ByteHeap target) {
+            if (ref == NULL_REF) return NULL_REF;
+            return target.append(Arrays.copyOfRange(data, (int) (ref >>> 32), (int) (ref >>> 32) + (int) ref));
+        }
+    }
+
+    /**
+     * Vues d'une sélection de lignes.
+     */
+    private static final class RowList extends AbstractList<Person> implements RandomAccess {
+        private final PersonTable table;
+        private final int[] rows;
+
+        private RowList(PersonTable table, int[] rows) {
+            this.table = table;
+            this.rows = rows;
+        }
+
+        @Override
+        public Person get(int index) {
+            return new Row(table, rows[index]);
+        }
+
+        @Override
+        public int size() {
+            return rows.length;
+        }
+    }
+
+    /**
+     * Vues des lignes d'une entrée d'index.
+     */
+    private static final class PostingsList extends AbstractList<Person> implements RandomAccess {
+        private final PersonTable table;
+        private final Postings rows;
+
+        private PostingsList(PersonTable table, Postings rows) {
+            this.table = table;
+            this.rows = rows;
+        }
+
+        @Override
+        public Person get(int index) {
+            return new Row(table, rows.get(index));
+        }
+
+        @Override
+        public int size() {
+            return rows.size();
+        }
+    }
+
+    /**
+     * Vue d'une ligne : les accesseurs lisent les colonnes, les mutateurs sont interdits.
+     */
+    private static final class Row extends Person {
+        private final PersonTable table;
+        private final int row;
+
+        private Row(PersonTable table, int row) {
+            this.table = table;
+            this.row = row;
+        }
+
+        @Override
+        public String getFirstName() {
+            return table.firstName(row);
+        }
+
+        @Override
+        public String getLastName() {
+            return table.lastName(row);
+        }
+
+        @Override
+        public String getAddress() {
+            return table.address(row);
+        }
+
+        @Override
+        public String getCity() {
+            return table.city(row);
+        }
+
+        @Override
+        public String getZip() {
+            return table.zip(row);
+        }
+
+        @Override
+        public String getPhone() {
+            return table.phone(row);
+        }
+
+        @Override
+        public String getEmail() {
+            return table.email(row);
+        }
+
+        @Override
+        public void setFirstName(String firstName) {
+            throw readOnly();
+        }
+
+        @Override
+        public void setLastName(String lastName) {
+            throw readOnly();
+        }
+
+        @Override
+        public void setAddress(String address) {
+            throw readOnly();
+        }
+
+        @Override
+        public void setCity(String city) {
+            throw readOnly();
+        }
+
+        @Override
+        public void setZip(String zip) {
+            throw readOnly();
+        }
+
+        @Override
+        public void setPhone(String phone) {
+            throw readOnly();
+        }
+
+        @Override
+        public void setEmail(String email) {
+            throw readOnly();
+        }
+
+        private static UnsupportedOperationException readOnly() {
+            return new UnsupportedOperationException("Personne publiée : vue en lecture seule");
+        }
+    }
+}
@@ -0,0 +1,252 @@
+package com.openclassrooms.P_5_SafetyNet_Alerts.data;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Objects;
+import java.util.function.IntPredicate;
+
+/**
+ * Suite immuable de numéros de ligne d'une entrée d'index, découpée en morceaux de {@value #CHUNK_SIZE} numéros
+ * au plus, partagés d'une version à l'autre.
+ * <p>
+ * Une écriture ({@link #edit()}) insère ou retire un numéro en ne copiant que son morceau, et la liste des
+ * morceaux : une entrée de la taille d'une ville coûte, par écriture, un morceau et non la population de la ville.
+ * Les positions sont trouvées par recherche dichotomique sur un prédicat monotone (vrai pour les numéros qui
+ * précèdent la position cherchée, faux ensuite), fourni par l'appelant selon l'ordre de l'entrée.
+ */
+public final class Postings {
+
+    // Numéros par morceau, au plus ; un morceau plein est coupé en deux à l'insertion suivante
+    public static final int CHUNK_SIZE = 1 << 10;
+    // Un morceau réduit à moins de ce nombre de numéros est fusionné avec un voisin quand ils tiennent ensemble
+    private static final int MIN_CHUNK_SIZE = CHUNK_SIZE / 4;
+
+    private static final Postings EMPTY = new Postings(new int[0][], new int[]{0});
+
+    // Morceaux non vides, jamais modifiés
+    private final int[][] chunks;
+    // Numéros des morceaux précédant chaque morceau ; le dernier élément est la taille
+    private final int[] offsets;
+
+    private Postings(int[][] chunks, int[] offsets) {
+        this.chunks = chunks;
+        this.offsets = offsets;
+    }
+
+    public static Postings empty() {
+        return EMPTY;
+    }
+
+    /**
+     * @param rows numéros de ligne, dans l'ordre de l'entrée
+     * @return la suite de ces numéros
+     */
+    public static Postings of(int[] rows) {
+        if (rows.length == 0) {
+            return EMPTY;
+        }
+        int[][] chunks = new int[(rows.length + CHUNK_SIZE - 1) / CHUNK_SIZE][];
+        for (int c = 0; c < chunks.length; c++) {
+            chunks[c] = Arrays.copyOfRange(rows, c * CHUNK_SIZE, Math.min(rows.length, (c + 1) * CHUNK_SIZE));
+        }
+        return new Postings(chunks, offsets(chunks));
+    }
+
+    public int size() {
+        return offsets[chunks.length];
+    }
+
+    public boolean isEmpty() {
+        return size() == 0;
+    }
+
+    /**
+     * @param index position dans la suite
+     * @return le numéro de ligne à cette position
+     */
+    public int get(int index) {
+        Objects.checkIndex(index, size());
+        // Dernier morceau précédé de {@code index} numéros au plus : il contient la position
+        int low = 0;
+        int high = chunks.length - 1;
+        while (low < high) {
+            int mid = (low + high + 1) >>> 1;
+            if (offsets[mid] <= index) {
+                low = mid;
+            } else {
+                high = mid - 1;
+            }
+        }
+        return chunks[low][index - offsets[low]];
+    }
+
+    /**
+     * @return les numéros des positions {@code from} (incluse) à {@code to} (exclue), dans un tableau propre à l'appelant
+     */
+    public int[] toArray(int from, int to) {
+        Objects.checkFromToIndex(from, to, size());
+        int[] rows = new int[to - from];
+        for (int i = 0; i < rows.length; i++) {
+            rows[i] = get(from + i);
+        }
+        return rows;
+    }
+
+    /**
+     * @param before prédicat monotone sur les numéros de la suite : vrai jusqu'à la position cherchée, faux ensuite
+     * @return la position du premier numéro pour lequel {@code before} est faux, ou la taille
+     */
+    public int bound(IntPredicate before) {
+        int c = chunkOf(Arrays.asList(chunks), before);
+        return c == chunks.length ? size() : offsets[c] + boundIn(chunks[c], before);
+    }
+
+    /**
+     * @return une écriture dérivée de cette suite, qui reste inchangée
+     */
+    public Editor edit() {
+        return new Editor(this);
+    }
+
+    /**
+     * Écriture en cours, figée par {@link #build}, après quoi elle n'est plus utilisée. Chaque insertion ou
+     * retrait remplace le morceau touché par une copie : les morceaux de la suite d'origine ne sont jamais modifiés.
+     */
+    public static final class Editor {
+        private final List<int[]> chunks;
+        private int size;
+
+        private Editor(Postings from) {
+            chunks = new ArrayList<>(Arrays.asList(from.chunks));
+            size = from.size();
+        }
+
+        public int size() {
+            return size;
+        }
+
+        /**
+         * Insère un numéro après tous ceux pour lesquels {@code before} est vrai.
+         */
+        public void insert(int row, IntPredicate before) {
+            if (chunks.isEmpty()) {
+                chunks.add(new int[]{row});
+                size++;
+                return;
+            }
+            int c = chunkOf(chunks, before);
+            if (c == chunks.size()) {
+                // Après le dernier numéro : fin du dernier morceau
+                c--;
+            }
+            int[] chunk = chunks.get(c);
+            int i = boundIn(chunk, before);
+            int[] copy = new int[chunk.length + 1];
+            System.arraycopy(chunk, 0, copy, 0, i);
+            copy[i] = row;
+            System.arraycopy(chunk, i, copy, i + 1, chunk.length - i);
+            if (copy.length > CHUNK_SIZE) {
+                int half = copy.length / 2;
+                chunks.set(c, Arrays.copyOf(copy, half));
+                chunks.add(c + 1, Arrays.copyOfRange(copy, half, copy.length));
+            } else {
+                chunks.set(c, copy);
+            }
+            size++;
+        }
+
+        /**
+         * Retire un numéro, cherché à partir de la position du premier numéro pour lequel {@code before} est faux
+         * (parmi ses ex aequo).
+         *
+         * @return vrai si le numéro était dans la suite
+         */
+        public boolean remove(int row, IntPredicate before) {
+            for (int c = chunkOf(chunks, before); c < chunks.size(); c++) {
+                int[] chunk = chunks.get(c);
+                for (int i = boundIn(chunk, before); i < chunk.length; i++) {
+                    if (chunk[i] == row) {
+                        remove(c, i);
+                        return true;
+                    }
+                }
+            }
+            return false;
+        }
+
+        private void remove(int c, int i) {
+            int[] chunk = chunks.get(c);
+            size--;
+            if (chunk.length == 1) {
+                chunks.remove(c);
+                return;
+            }
+            int[] copy = new int[chunk.length - 1];
+            System.arraycopy(chunk, 0, copy, 0, i);
+            System.arraycopy(chunk, i + 1, copy, i, copy.length - i);
+            chunks.set(c, copy);
+            if (copy.length < MIN_CHUNK_SIZE) {
+                // Morceau réduit : fusionné avec un voisin, pour que le nombre de morceaux suive la taille
+                int neighbour = c + 1 < chunks.size() ? c + 1 : c - 1;
+                if (neighbour >= 0 && chunks.get(neighbour).length + copy.length <= CHUNK_SIZE) {
+                    int first = Math.min(c, neighbour);
+                    int[] left = chunks.get(first);
+                    int[] right = chunks.get(first + 1);
+                    int[] merged = Arrays.copyOf(left, left.length + right.length);
+                    System.arraycopy(right, 0, merged, left.length, right.length);
+                    chunks.set(first, merged);
+                    chunks.remove(first + 1);
+                }
+            }
+        }
+
+        public Postings build() {
+            if (size == 0) {
+                return EMPTY;
+            }
+            int[][] built = chunks.toArray(new int[0][]);
+            return new Postings(built, offsets(built));
+        }
+    }
+
+    /**
+     * @return le premier morceau dont le dernier numéro ne vérifie pas {@code before}, ou le nombre de morceaux
+     */
+    private static int chunkOf(List<int[]> chunks, IntPredicate before) {
+        int low = 0;
+        int high = chunks.size();
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            int[] chunk = chunks.get(mid);
+            if (before.test(chunk[chunk.length - 1])) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    private static int boundIn(int[] chunk, IntPredicate before) {
+        int low = 0;
+        int high = chunk.length;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (before.test(chunk[mid])) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    private static int[] offsets(int[][] chunks) {
+        int[] offsets = new int[chunks.length + 1];
+        for (int c = 0; c < chunks.length; c++) {
+            offsets[c + 1] = offsets[c] + chunks[c].length;
+        }
+        return offsets;
+    }
+}
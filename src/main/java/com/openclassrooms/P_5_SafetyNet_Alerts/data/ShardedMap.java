@@ -0,0 +1,165 @@
+package com.openclassrooms.P_5_SafetyNet_Alerts.data;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.BiConsumer;
+
+/**
+ * Table de hachage immuable découpée en sous-tables (par hachage de la clef), partagées d'une version à l'autre.
+ * <p>
+ * Une écriture ({@link #edit()}) ne copie que les sous-tables qu'elle modifie, et le tableau des sous-tables :
+ * un index de dépôt dérivé de celui de la version précédente coûte les entrées modifiées et non la taille
+ * de l'index. Le nombre de sous-tables suit la taille : il est quadruplé, par une recopie complète, quand
+ * les sous-tables dépassent en moyenne {@value #MAX_SHARD_SIZE} entrées.
+ *
+ * @param <K> type des clefs
+ * @param <V> type des valeurs, immuables
+ */
+public final class ShardedMap<K, V> {
+
+    private static final int MIN_SHARDS = 16;
+    private static final int MAX_SHARD_SIZE = 256;
+
+    private static final ShardedMap<?, ?> EMPTY = new ShardedMap<>(emptyShards(MIN_SHARDS), 0);
+
+    // Sous-tables, jamais modifiées après publication ; null si vide
+    private final HashMap<K, V>[] shards;
+    private final int size;
+
+    private ShardedMap(HashMap<K, V>[] shards, int size) {
+        this.shards = shards;
+        this.size = size;
+    }
+
+    @SuppressWarnings("unchecked")
+    public static <K, V> ShardedMap<K, V> empty() {
+        return (ShardedMap<K, V>) EMPTY;
+    }
+
+    /**
+     * @param entries entrées à ranger
+     * @return une table de ces entrées
+     */
+    public static <K, V> ShardedMap<K, V> of(Map<K, V> entries) {
+        Editor<K, V> editor = new Editor<>(ShardedMap.<K, V>empty(), shardsFor(entries.size()));
+        entries.forEach(editor::put);
+        return editor.build();
+    }
+
+    public V get(K key) {
+        HashMap<K, V> shard = shards[shardOf(key, shards.length)];
+        return shard == null ? null : shard.get(key);
+    }
+
+    public V getOrDefault(K key, V defaultValue) {
+        V value = get(key);
+        return value == null ? defaultValue : value;
+    }
+
+    public boolean containsKey(K key) {
+        return get(key) != null;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public void forEach(BiConsumer<? super K, ? super V> action) {
+        for (HashMap<K, V> shard : shards) {
+            if (shard != null) {
+                shard.forEach(action);
+            }
+        }
+    }
+
+    /**
+     * @return une écriture dérivée de cette table, qui reste inchangée
+     */
+    public Editor<K, V> edit() {
+        return new Editor<>(this, shards.length);
+    }
+
+    /**
+     * Écriture en cours : les sous-tables touchées sont copiées à leur première modification, puis figées par
+     * {@link #build}, après quoi l'écriture n'est plus utilisée. Les valeurs nulles ne sont pas admises.
+     */
+    public static final class Editor<K, V> {
+        private final HashMap<K, V>[] shards;
+        // Sous-tables déjà copiées par cette écriture, modifiables sur place
+        private final boolean[] copied;
+        private int size;
+
+        private Editor(ShardedMap<K, V> from, int shardCount) {
+            copied = new boolean[shardCount];
+            if (shardCount == from.shards.length) {
+                shards = from.shards.clone();
+                size = from.size;
+            } else {
+                shards = emptyShards(shardCount);
+                from.forEach(this::put);
+            }
+        }
+
+        public V get(K key) {
+            HashMap<K, V> shard = shards[shardOf(key, shards.length)];
+            return shard == null ? null : shard.get(key);
+        }
+
+        public V getOrDefault(K key, V defaultValue) {
+            V value = get(key);
+            return value == null ? defaultValue : value;
+        }
+
+        public boolean containsKey(K key) {
+            return get(key) != null;
+        }
+
+        public void put(K key, V value) {
+            if (writable(key).put(key, value) == null) {
+                size++;
+            }
+        }
+
+        public void remove(K key) {
+            if (get(key) != null) {
+                writable(key).remove(key);
+                size--;
+            }
+        }
+
+        public ShardedMap<K, V> build() {
+            if (size > shards.length * MAX_SHARD_SIZE) {
+                // Recopie complète, amortie sur les ajouts qui ont fait croître la table
+                return new Editor<>(new ShardedMap<>(shards, size), shardsFor(size)).build();
+            }
+            return new ShardedMap<>(shards, size);
+        }
+
+        private HashMap<K, V> writable(K key) {
+            int i = shardOf(key, shards.length);
+            if (!copied[i]) {
+                shards[i] = shards[i] == null ? new HashMap<>() : new HashMap<>(shards[i]);
+                copied[i] = true;
+            }
+            return shards[i];
+        }
+    }
+
+    private static int shardsFor(int size) {
+        int shards = MIN_SHARDS;
+        while (shards * (MAX_SHARD_SIZE / 4) < size && shards < (1 << 20)) {
+            shards <<= 1;
+        }
+        return shards;
+    }
+
+    private static int shardOf(Object key, int shards) {
+        // Bits de poids fort du hachage multiplicatif : les sous-tables répartissent leurs clefs sur les bits de poids faible
+        return (key.hashCode() * 0x9E3779B9) >>> (32 - Integer.numberOfTrailingZeros(shards));
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <K, V> HashMap<K, V>[] emptyShards(int shards) {
+        return (HashMap<K, V>[]) new HashMap[shards];
+    }
+}
@@ -0,0 +1,146 @@
+package com.openclassrooms.P_5_SafetyNet_Alerts.data;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Écriture différée (write-behind) du fichier de données.
+ * <p>
+ * Chaque mutation marque le jeu de données comme modifié. Les mutations sont regroupées pendant
+ * une fenêtre de temps ({@code flushIntervalMillis}) ou jusqu'à un nombre de mutations
+ * ({@code flushThreshold}), puis une seule écriture est faite par un thread dédié.
+ * Une mutation survenue pendant une écriture relance une nouvelle écriture : le fichier
+ * finit toujours par refléter le dernier état en mémoire.
+ */
+class WriteBehindWriter {
+
+    private static final Logger logger = LogManager.getLogger(WriteBehindWriter.class);
+
+    /**
+     * Écriture effective du jeu de données.
+     */
+    interface SnapshotWriter {
+        void write() throws Exception;
+    }
+
+    private final SnapshotWriter snapshotWriter;
+    private final long flushIntervalMillis;
+    private final long flushThreshold;
+    private final ScheduledExecutorService executor;
+
+    private final AtomicLong pendingMutations = new AtomicLong();
+    // Instant (System.nanoTime) de la plus ancienne mutation non écrite, 0 si rien en attente
+    private final AtomicLong oldestPendingNanos = new AtomicLong();
+    private final AtomicBoolean flushScheduled = new AtomicBoolean();
+    private final AtomicLong flushCount = new AtomicLong();
+    // Terminé par la prochaine écriture réussie, remplacé au début de chaque écriture
+    private final AtomicReference<CompletableFuture<Void>> nextFlush = new AtomicReference<>(new CompletableFuture<>());
+
+    WriteBehindWriter(SnapshotWriter snapshotWriter, long flushIntervalMillis, long flushThreshold) {
+        this.snapshotWriter = snapshotWriter;
+        this.flushIntervalMillis = flushIntervalMillis;
+        this.flushThreshold = flushThreshold;
+        this.executor = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "data-write-behind");
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    /**
+     * Signale une mutation. Ne fait aucune entrée/sortie sur le thread appelant.
+     */
+    void markDirty() {
+        oldestPendingNanos.compareAndSet(0, System.nanoTime());
+        long pending = pendingMutations.incrementAndGet();
+        if (pending == flushThreshold) {
+            executor.execute(this::flush);
+        } else if (flushScheduled.compareAndSet(false, true)) {
+            executor.schedule(this::flush, flushIntervalMillis, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * @return le nombre de mutations pas encore écrites sur le disque
+     */
+    long getPendingMutations() {
+        return pendingMutations.get();
+    }
+
+    /**
+     * @return l'âge en millisecondes de la plus ancienne mutation non écrite (0 si aucune)
+     */
+    long getLagMillis() {
+        long since = oldestPendingNanos.get();
+        return since == 0 ? 0 : TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - since);
+    }
+
+    /**
+     * @return le nombre d'écritures effectuées
+     */
+    long getFlushCount() {
+        return flushCount.get();
+    }
+
+    /**
+     * @return un futur terminé une fois les mutations déjà signalées écrites sur le disque
+     */
+    CompletableFuture<Void> flushed() {
+        CompletableFuture<Void> next = nextFlush.get();
+        return pendingMutations.get() == 0 ? CompletableFuture.completedFuture(null) : next;
+    }
+
+    /**
+     * Écrit immédiatement les mutations en attente puis arrête le thread d'écriture.
+     */
+    void close() {
+        executor.execute(this::flush);
+        shutdownAndWait(executor);
+    }
+
+    private void flush() {
+        flushScheduled.set(false);
+        // Les mutations signalées à partir d'ici attendent l'écriture suivante
+        CompletableFuture<Void> done = nextFlush.getAndSet(new CompletableFuture<>());
+        long pending = pendingMutations.getAndSet(0);
+        long since = oldestPendingNanos.getAndSet(0);
+        if (pending == 0) {
+            done.complete(null);
+            return;
+        }
+        try {
+            snapshotWriter.write();
+            flushCount.incrementAndGet();
+            done.complete(null);
+        } catch (Exception e) {
+            nextFlush.get().whenComplete((v, t) -> done.complete(null));
+            logger.error("Erreur lors de l'écriture différée : {}", e.getMessage());
+            // Les mutations restent à écrire : on les replace en attente pour la prochaine fenêtre
+            oldestPendingNanos.compareAndSet(0, since);
+            pendingMutations.addAndGet(pending);
+            if (!executor.isShutdown() && flushScheduled.compareAndSet(false, true)) {
+                executor.schedule(this::flush, flushIntervalMillis, TimeUnit.MILLISECONDS);
+            }
+        }
+    }
+
+    private static void shutdownAndWait(ExecutorService executor) {
+        executor.shutdown();
+        try {
+            if (!executor.awaitTermination(30, TimeUnit.SECONDS)) {
+                logger.error("Écriture différée non terminée après 30 secondes");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,38 @@
+package com.openclassrooms.P_5_SafetyNet_Alerts.logging;
+
+import ch.qos.logback.classic.AsyncAppender;
+import ch.qos.logback.classic.spi.ILoggingEvent;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * {@link AsyncAppender} qui compte les événements perdus.
+ * <p>
+ * Les événements passent par une file bornée (tableau circulaire préalloué) vidée par un thread dédié :
+ * le thread de la requête ne fait aucune entrée/sortie. Avec {@code neverBlock}, un événement arrivant
+ * sur une file pleine est abandonné ; au-dessous de {@code discardingThreshold} places libres, les
+ * événements TRACE, DEBUG et INFO le sont aussi. Ces abandons sont comptés, la file ne le faisant pas
+ * (à quelques événements près quand la file se remplit entre le test et l'ajout).
+ */
+public class CountingAsyncAppender extends AsyncAppender {
+
+    private final AtomicLong dropped = new AtomicLong();
+
+    @Override
+    protected void append(ILoggingEvent event) {
+        int remaining = getRemainingCapacity();
+        if ((isNeverBlock() && remaining == 0)
+                || (remaining < getDiscardingThreshold() && isDiscardable(event))) {
+            dropped.incrementAndGet();
+            return;
+        }
+        super.append(event);
+    }
+
+    /**
+     * @return le nombre d'événements abandonnés depuis le démarrage
+     */
+    public long getDroppedCount() {
+        return dropped.get();
+    }
+}
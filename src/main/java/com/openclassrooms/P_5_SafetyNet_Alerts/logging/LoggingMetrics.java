@@ -0,0 +1,54 @@
+package com.openclassrooms.P_5_SafetyNet_Alerts.logging;
+
+import ch.qos.logback.classic.LoggerContext;
+import ch.qos.logback.core.Appender;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import org.slf4j.ILoggerFactory;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+
+/**
+ * Publie l'état de la file des logs asynchrones (profil {@code async-logging}) :
+ * <ul>
+ *     <li>{@code safetynet.logging.queue.depth} : événements en attente d'écriture ;</li>
+ *     <li>{@code safetynet.logging.queue.capacity} : taille de la file ;</li>
+ *     <li>{@code safetynet.logging.dropped} : événements abandonnés, file pleine.</li>
+ * </ul>
+ * Sans écriture asynchrone, aucune métrique n'est publiée.
+ */
+@Component
+@RequiredArgsConstructor
+public class LoggingMetrics {
+
+    static final String ASYNC_APPENDER = "ASYNC";
+
+    private final MeterRegistry meterRegistry;
+
+    @PostConstruct
+    public void register() {
+        ILoggerFactory factory = LoggerFactory.getILoggerFactory();
+        if (!(factory instanceof LoggerContext context)) {
+            return;
+        }
+        Appender<?> appender = context.getLogger(org.slf4j.Logger.ROOT_LOGGER_NAME).getAppender(ASYNC_APPENDER);
+        if (appender instanceof CountingAsyncAppender async) {
+            register(async);
+        }
+    }
+
+    void register(CountingAsyncAppender appender) {
+        Gauge.builder("safetynet.logging.queue.depth", appender, CountingAsyncAppender::getNumberOfElementsInQueue)
+                .description("Événements de log en attente d'écriture")
+                .register(meterRegistry);
+        Gauge.builder("safetynet.logging.queue.capacity", appender, CountingAsyncAppender::getQueueSize)
+                .description("Taille de la file des logs asynchrones")
+                .register(meterRegistry);
+        FunctionCounter.builder("safetynet.logging.dropped", appender, CountingAsyncAppender::getDroppedCount)
+                .description("Événements de log abandonnés, file pleine")
+                .register(meterRegistry);
+    }
+}
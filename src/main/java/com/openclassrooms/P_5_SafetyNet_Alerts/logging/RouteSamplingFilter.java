@@ -0,0 +1,64 @@
+package com.openclassrooms.P_5_SafetyNet_Alerts.logging;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.turbo.TurboFilter;
+import ch.qos.logback.core.spi.FilterReply;
+import org.slf4j.Marker;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Échantillonnage des logs INFO par route : seul un log sur {@code every} est gardé pour chaque route.
+ * <p>
+ * La route est le nom du marqueur passé au log (par exemple {@code GET /firestation}, voir les contrôleurs).
+ * Les logs sans marqueur et ceux d'un niveau autre que INFO (erreurs, DEBUG) ne sont jamais échantillonnés.
+ * <p>
+ * La décision est prise au test de niveau ({@code isInfoEnabled}) qui précède chaque log de l'API Log4j :
+ * un log écarté n'est ni formaté ni alloué. L'appel de log qui suit un test accepté n'est pas recompté.
+ * <p>
+ * Configuration (logback-spring.xml) : {@code every} pour toutes les routes, {@code routes} pour des
+ * fréquences propres à certaines routes, sous la forme {@code GET /firestation=10,PUT /person=1}.
+ */
+public class RouteSamplingFilter extends TurboFilter {
+
+    private long every = 1;
+    private final Map<String, Long> everyByRoute = new ConcurrentHashMap<>();
+    private final Map<String, AtomicLong> counters = new ConcurrentHashMap<>();
+
+    public void setEvery(long every) {
+        this.every = Math.max(1, every);
+    }
+
+    public void setRoutes(String routes) {
+        everyByRoute.clear();
+        if (routes == null || routes.isBlank()) {
+            return;
+        }
+        for (String entry : routes.split(",")) {
+            int separator = entry.lastIndexOf('=');
+            if (separator <= 0) {
+                addWarn("Fréquence d'échantillonnage ignorée : " + entry);
+                continue;
+            }
+            everyByRoute.put(entry.substring(0, separator).trim(),
+                    Math.max(1, Long.parseLong(entry.substring(separator + 1).trim())));
+        }
+    }
+
+    @Override
+    public FilterReply decide(Marker marker, Logger logger, Level level, String format, Object[] params, Throwable t) {
+        if (marker == null || level != Level.INFO || format != null) {
+            return FilterReply.NEUTRAL;
+        }
+        String route = marker.getName();
+        long routeEvery = everyByRoute.getOrDefault(route, every);
+        if (routeEvery == 1) {
+            return FilterReply.NEUTRAL;
+        }
+        long n = counters.computeIfAbsent(route, r -> new AtomicLong()).getAndIncrement();
+        return n % routeEvery == 0 ? FilterReply.NEUTRAL : FilterReply.DENY;
+    }
+}
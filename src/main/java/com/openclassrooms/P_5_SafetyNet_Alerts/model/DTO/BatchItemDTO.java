@@ -0,0 +1,28 @@
+package com.openclassrooms.P_5_SafetyNet_Alerts.model.DTO;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * DTO utilisé pour transmettre le résultat d'un élément d'un lot d'écritures.
+ * Réponse aux endpoints /person/batch, /medicalRecord/batch et /firestation/batch,
+ * un élément par élément du lot, dans le même ordre.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class BatchItemDTO<T> {
+
+    /**
+     * Statut qu'aurait renvoyé l'endpoint unitaire (201 ou 409 à l'ajout, 200 ou 410 à la mise à jour).
+     */
+    private int status;
+
+    /**
+     * Élément ajouté ou modifié, absent en cas d'échec.
+     */
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private T item;
+}
@@ -0,0 +1,65 @@
+package com.openclassrooms.P_5_SafetyNet_Alerts.model.DTO;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.Builder;
+import lombok.Data;
+
+/**
+ * DTO utilisé pour transmettre l'avancement d'un import NDJSON.
+ * Réponse aux endpoints POST /import (bilan final) et GET /import (import en cours ou dernier import).
+ */
+@Data
+@Builder
+public class ImportProgressDTO {
+
+    /**
+     * Vrai tant que l'import lit et applique le flux.
+     */
+    private boolean running;
+
+    /**
+     * Nombre d'enregistrements lus et appliqués.
+     */
+    private long records;
+
+    /**
+     * Enregistrements ajoutés.
+     */
+    private long created;
+
+    /**
+     * Enregistrements existants, mis à jour.
+     */
+    private long updated;
+
+    /**
+     * Enregistrements refusés (ligne vide ou ambiguë, clef manquante, jeu de données vide).
+     */
+    private long rejected;
+
+    /**
+     * Nombre de paquets appliqués, chacun en une seule écriture.
+     */
+    private long chunks;
+
+    /**
+     * Nombre d'attentes de l'écriture sur le disque, quand elle prend du retard sur l'import.
+     */
+    private long backpressureWaits;
+
+    /**
+     * Durée de l'import, en millisecondes.
+     */
+    private long elapsedMillis;
+
+    /**
+     * Débit moyen depuis le début de l'import.
+     */
+    private double recordsPerSecond;
+
+    /**
+     * Erreur ayant interrompu l'import, absente sinon.
+     */
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private String error;
+}
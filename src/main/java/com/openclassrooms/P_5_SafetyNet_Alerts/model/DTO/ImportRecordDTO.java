@@ -0,0 +1,35 @@
+package com.openclassrooms.P_5_SafetyNet_Alerts.model.DTO;
+
+import com.openclassrooms.P_5_SafetyNet_Alerts.model.Firestation;
+import com.openclassrooms.P_5_SafetyNet_Alerts.model.MedicalRecord;
+import com.openclassrooms.P_5_SafetyNet_Alerts.model.Person;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * DTO utilisé pour une ligne du flux NDJSON de l'endpoint POST /import.
+ * Une ligne porte exactement un enregistrement, par exemple {@code {"person":{...}}}.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class ImportRecordDTO {
+
+    /**
+     * Personne à ajouter ou à mettre à jour.
+     */
+    private Person person;
+
+    /**
+     * Dossier médical à ajouter ou à mettre à jour.
+     */
+    private MedicalRecord medicalRecord;
+
+    /**
+     * Mapping caserne/adresse à ajouter ou à mettre à jour.
+     */
+    private Firestation firestation;
+}
@@ -1,4 +1,104 @@
 package com.openclassrooms.P_5_SafetyNet_Alerts.repository;
 
+import com.openclassrooms.P_5_SafetyNet_Alerts.model.Firestation;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Accès aux mappings adresse-caserne ({@link Firestation}) chargés en mémoire.
+ * <p>
+ * Les recherches par adresse sont insensibles à la casse. Une même adresse peut apparaître
+ * dans plusieurs mappings : le premier mapping chargé fait alors référence.
+ */
 public interface FirestationRepository {
+
+    /**
+     * @return la liste de tous les mappings
+     */
+    List<Firestation> findAll();
+
+    /**
+     * Recherche le mapping d'une adresse.
+     *
+     * @param address adresse recherchée
+     * @return Optional du premier mapping de cette adresse
+     */
+    Optional<Firestation> findByAddress(String address);
+
+    /**
+     * Retourne tous les mappings d'une adresse, dans l'ordre de chargement.
+     *
+     * @param address adresse recherchée
+     * @return liste des mappings (vide si aucun)
+     */
+    List<Firestation> findAllByAddress(String address);
+
+    /**
+     * Retourne les mappings d'une caserne.
+     *
+     * @param station numéro de la caserne
+     * @return liste des mappings (vide si aucun)
+     */
+    List<Firestation> findByStation(int station);
+
+    /**
+     * Retourne les adresses distinctes couvertes par un ensemble de casernes,
+     * dans l'ordre des casernes demandées puis dans l'ordre d'ajout des adresses.
+     *
+     * @param stations numéros de casernes
+     * @return liste d'adresses sans doublon
+     */
+    List<String> findAddressesByStations(Collection<Integer> stations);
+
+    /**
+     * Ajoute un mapping.
+     *
+     * @param firestation mapping à ajouter
+     * @return le mapping ajouté
+     */
+    Firestation save(Firestation firestation);
+
+    /**
+     * Ajoute des mappings, publiés ensemble en une seule version.
+     *
+     * @param firestations mappings à ajouter
+     * @return les mappings ajoutés
+     */
+    List<Firestation> saveAll(List<Firestation> firestations);
+
+    /**
+     * Change le numéro de caserne du premier mapping d'une adresse.
+     *
+     * @param address adresse du mapping
+     * @param station nouveau numéro de caserne
+     * @return Optional du mapping modifié, vide si l'adresse n'est pas couverte
+     */
+    Optional<Firestation> updateStation(String address, int station);
+
+    /**
+     * Change le numéro de caserne de plusieurs adresses, publiées ensemble en une seule version.
+     * Les changements sont appliqués dans l'ordre.
+     *
+     * @param firestations adresses et nouveaux numéros de caserne
+     * @return pour chaque adresse, dans l'ordre, le mapping modifié ou vide si l'adresse n'est pas couverte
+     */
+    List<Optional<Firestation>> updateStations(List<Firestation> firestations);
+
+    /**
+     * Supprime tous les mappings d'une adresse.
+     *
+     * @param address adresse à retirer
+     * @return true si au moins un mapping a été supprimé
+     */
+    boolean deleteByAddress(String address);
+
+    /**
+     * Supprime tous les mappings d'une caserne.
+     *
+     * @param station numéro de la caserne
+     * @return true si au moins un mapping a été supprimé
+     */
+    boolean deleteByStation(int station);
 }
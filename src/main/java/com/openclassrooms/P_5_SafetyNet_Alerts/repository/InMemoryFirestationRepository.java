@@ -0,0 +1,436 @@
+package com.openclassrooms.P_5_SafetyNet_Alerts.repository;
+
+import com.openclassrooms.P_5_SafetyNet_Alerts.data.ChunkedList;
+import com.openclassrooms.P_5_SafetyNet_Alerts.data.DataLoader;
+import com.openclassrooms.P_5_SafetyNet_Alerts.data.IndexCache;
+import com.openclassrooms.P_5_SafetyNet_Alerts.data.ShardedMap;
+import com.openclassrooms.P_5_SafetyNet_Alerts.model.Firestation;
+import com.openclassrooms.P_5_SafetyNet_Alerts.utils.KeyUtils;
+import com.openclassrooms.P_5_SafetyNet_Alerts.utils.StringPool;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Repository;
+
+import java.util.*;
+
+/**
+ * Implémentation en mémoire de {@link FirestationRepository}, adossée à la liste du {@link DataLoader}.
+ * <p>
+ * Maintient deux index inversés :
+ * <ul>
+ *     <li>caserne -> adresses couvertes, dans l'ordre d'ajout (clef canonique et adresse telle que saisie) ;</li>
+ *     <li>adresse canonique -> cases des mappings de cette adresse dans la liste.</li>
+ * </ul>
+ * Comme pour les personnes, les index sont immuables et propres à une version de la liste, gardés pour
+ * les dernières versions lues ({@link IndexCache}) :
+ * chaque écriture publie une nouvelle liste et des index dérivés des précédents. Liste, index et adresses de
+ * chaque caserne sont découpés en morceaux partagés d'une version à l'autre ({@link ChunkedList},
+ * {@link ShardedMap}) : une écriture ne copie que les morceaux et les entrées qu'elle touche. Une suppression vide
+ * ses cases sans décaler les suivantes ; une liste est compactée quand ses cases vides dépassent le quart des cases.
+ * Les écritures doivent être faites dans {@link DataLoader#write}.
+ */
+@Repository
+@RequiredArgsConstructor
+public class InMemoryFirestationRepository implements FirestationRepository {
+
+    private final DataLoader dataLoader;
+
+    // Cases vides tolérées avant compaction d'une liste : un quart des cases, au moins un morceau
+    private static final int MIN_COMPACTION_SLOTS = ChunkedList.CHUNK_SIZE;
+
+    private static final int[] NO_SLOTS = new int[0];
+
+    private final IndexCache<Index> indexes = new IndexCache<>();
+
+    /**
+     * Index construits pour une liste donnée, jamais modifiés après construction (ni leurs tableaux de cases).
+     *
+     * @param source    liste exposée par le {@link DataLoader}
+     * @param mappings  la même liste, découpée (la source elle-même une fois publiée par ce dépôt)
+     * @param byStation caserne -> adresses couvertes
+     * @param byAddress adresse canonique -> cases des mappings, dans l'ordre de la liste
+     */
+    private record Index(List<Firestation> source,
+                         ChunkedList<Firestation> mappings,
+                         ShardedMap<Integer, Station> byStation,
+                         ShardedMap<String, int[]> byAddress) {
+    }
+
+    /**
+     * Adresses couvertes par une caserne.
+     *
+     * @param addresses clef canonique -> adresse telle que saisie, dans l'ordre d'ajout
+     * @param slots     clef canonique -> case dans {@code addresses}
+     */
+    private record Station(ChunkedList<Map.Entry<String, String>> addresses, ShardedMap<String, Integer> slots) {
+    }
+
+    @Override
+    public List<Firestation> findAll() {
+        return dataLoader.getFirestations();
+    }
+
+    @Override
+    public Optional<Firestation> findByAddress(String address) {
+        Index current = index();
+        int[] slots = current.byAddress().get(KeyUtils.canonicalAddress(address));
+        return slots == null ? Optional.empty() : Optional.of(current.mappings().slot(slots[0]));
+    }
+
+    @Override
+    public List<Firestation> findAllByAddress(String address) {
+        Index current = index();
+        int[] slots = current.byAddress().get(KeyUtils.canonicalAddress(address));
+        return slots == null ? Collections.emptyList() : current.mappings().slots(slots);
+    }
+
+    @Override
+    public List<Firestation> findByStation(int station) {
+        Index current = index();
+        Station addresses = current.byStation().get(station);
+        if (addresses == null) {
+            return Collections.emptyList();
+        }
+        List<Firestation> result = new ArrayList<>();
+        for (Map.Entry<String, String> address : addresses.addresses()) {
+            for (int slot : current.byAddress().get(address.getKey())) {
+                Firestation f = current.mappings().slot(slot);
+                if (f.getStation() == station) {
+                    result.add(f);
+                }
+            }
+        }
+        return result;
+    }
+
+    @Override
+    public List<String> findAddressesByStations(Collection<Integer> stations) {
+        Index current = index();
+        LinkedHashMap<String, String> result = new LinkedHashMap<>();
+        for (Integer station : stations) {
+            Station addresses = current.byStation().get(station);
+            if (addresses != null) {
+                for (Map.Entry<String, String> address : addresses.addresses()) {
+                    result.putIfAbsent(address.getKey(), address.getValue());
+                }
+            }
+        }
+        return new ArrayList<>(result.values());
+    }
+
+    @Override
+    public Firestation save(Firestation firestation) {
+        saveAll(List.of(firestation));
+        return firestation;
+    }
+
+    @Override
+    public List<Firestation> saveAll(List<Firestation> added) {
+        Index current = index();
+        Writer writer = new Writer(current, dataLoader.getStringPool());
+        for (Firestation firestation : added) {
+            dataLoader.getStringPool().canonicalize(firestation);
+            writer.add(firestation);
+        }
+        publish(writer.build());
+        return added;
+    }
+
+    @Override
+    public Optional<Firestation> updateStation(String address, int station) {
+        return updateStations(List.of(new Firestation(address, station))).get(0);
+    }
+
+    @Override
+    public List<Optional<Firestation>> updateStations(List<Firestation> changes) {
+        Index current = index();
+        Writer writer = new Writer(current, dataLoader.getStringPool());
+        List<Optional<Firestation>> results = new ArrayList<>(changes.size());
+        boolean changed = false;
+        for (Firestation change : changes) {
+            // Les mappings ne changent pas d'adresse : les cases de l'adresse sont celles de la version lue
+            int[] slots = current.byAddress().get(KeyUtils.canonicalAddress(change.getAddress()));
+            if (slots == null) {
+                results.add(Optional.empty());
+                continue;
+            }
+            // Les versions publiées sont immuables : le mapping modifié est une nouvelle instance
+            Firestation updated = writer.replace(slots, change.getStation());
+            changed = true;
+            results.add(Optional.of(updated));
+        }
+        if (!changed) {
+            return results;
+        }
+        publish(writer.build());
+        return results;
+    }
+
+    @Override
+    public boolean deleteByAddress(String address) {
+        Index current = index();
+        String key = KeyUtils.canonicalAddress(address);
+        int[] slots = current.byAddress().get(key);
+        if (slots == null) {
+            return false;
+        }
+        Writer writer = new Writer(current, dataLoader.getStringPool());
+        writer.removeAddress(key, slots);
+        publish(writer.build());
+        return true;
+    }
+
+    @Override
+    public boolean deleteByStation(int station) {
+        Index current = index();
+        Station addresses = current.byStation().get(station);
+        if (addresses == null) {
+            return false;
+        }
+        Writer writer = new Writer(current, dataLoader.getStringPool());
+        for (Map.Entry<String, String> address : addresses.addresses()) {
+            writer.removeStation(address.getKey(), station);
+        }
+        publish(writer.build());
+        return true;
+    }
+
+    /**
+     * Retourne les index de la liste exposée par le {@link DataLoader}, en les reconstruisant
+     * si elle a changé.
+     */
+    private Index index() {
+        List<Firestation> firestations = dataLoader.getFirestations();
+        Index current = indexes.find(i -> i.source() == firestations);
+        if (current != null) {
+            return current;
+        }
+        current = build(firestations, ChunkedList.of(firestations == null ? List.of() : firestations));
+        // Une lecture figée sur une version dépassée ne doit pas évincer l'index de la dernière version
+        return indexes.add(current, firestations == dataLoader.getLatestDataset().getFirestations());
+    }
+
+    /**
+     * Construit les index d'une liste découpée, pour la liste {@code source} dont elle est tirée.
+     */
+    private Index build(List<Firestation> source, ChunkedList<Firestation> mappings) {
+        Map<String, List<Integer>> byAddress = new HashMap<>();
+        Map<Integer, LinkedHashMap<String, String>> byStation = new HashMap<>();
+        BitSet slots = mappings.liveSlots();
+        for (int slot = slots.nextSetBit(0); slot >= 0; slot = slots.nextSetBit(slot + 1)) {
+            Firestation firestation = mappings.slot(slot);
+            String key = dataLoader.getStringPool().canonicalAddress(firestation.getAddress());
+            if (key != null) {
+                byAddress.computeIfAbsent(key, k -> new ArrayList<>(1)).add(slot);
+                byStation.computeIfAbsent(firestation.getStation(), s -> new LinkedHashMap<>())
+                        .putIfAbsent(key, firestation.getAddress());
+            }
+        }
+        Map<String, int[]> addressIndex = new HashMap<>(byAddress.size() * 4 / 3 + 1);
+        byAddress.forEach((key, list) -> addressIndex.put(key, list.stream().mapToInt(Integer::intValue).toArray()));
+        Map<Integer, Station> stationIndex = new HashMap<>();
+        byStation.forEach((station, addresses) -> stationIndex.put(station, station(addresses.entrySet())));
+        return new Index(source, mappings, ShardedMap.of(stationIndex), ShardedMap.of(addressIndex));
+    }
+
+    private static Station station(Collection<Map.Entry<String, String>> addresses) {
+        ChunkedList.Editor<Map.Entry<String, String>> list = ChunkedList.<Map.Entry<String, String>>empty().edit();
+        Map<String, Integer> slots = new HashMap<>(addresses.size() * 4 / 3 + 1);
+        for (Map.Entry<String, String> address : addresses) {
+            slots.put(address.getKey(), list.add(Map.entry(address.getKey(), address.getValue())));
+        }
+        return new Station(list.build(), ShardedMap.of(slots));
+    }
+
+    /**
+     * Publie la liste d'un index. L'index est gardé avant : aucun lecteur de la nouvelle version ne le reconstruit.
+     */
+    private void publish(Index next) {
+        indexes.add(next, true);
+        dataLoader.setFirestations(next.mappings());
+    }
+
+    /**
+     * Écriture d'une nouvelle version, dérivée des index d'une version lue : chaque morceau, entrée ou caserne
+     * touché n'est copié qu'une fois pour toute l'écriture.
+     */
+    private static final class Writer {
+        private final StringPool strings;
+        private final ChunkedList.Editor<Firestation> mappings;
+        private final ShardedMap.Editor<Integer, Station> byStation;
+        private final ShardedMap.Editor<String, int[]> byAddress;
+        // Casernes modifiées par cette écriture
+        private final Map<Integer, StationWriter> stations = new HashMap<>();
+
+        private Writer(Index from, StringPool strings) {
+            this.strings = strings;
+            mappings = from.mappings().edit();
+            byStation = from.byStation().edit();
+            byAddress = from.byAddress().edit();
+        }
+
+        private void add(Firestation firestation) {
+            int slot = mappings.add(firestation);
+            String key = strings.canonicalAddress(firestation.getAddress());
+            if (key == null) return;
+            int[] slots = byAddress.getOrDefault(key, NO_SLOTS);
+            int[] copy = Arrays.copyOf(slots, slots.length + 1);
+            copy[slots.length] = slot;
+            byAddress.put(key, copy);
+            station(firestation.getStation()).add(key, firestation.getAddress());
+        }
+
+        /**
+         * Change la caserne du premier mapping d'une adresse, à la même case : le premier mapping d'une adresse
+         * (voir {@link #findByAddress}) reste le même, comme dans la liste publiée.
+         *
+         * @return le mapping modifié
+         */
+        private Firestation replace(int[] slots, int station) {
+            Firestation existing = mappings.get(slots[0]);
+            Firestation updated = new Firestation(existing.getAddress(), station);
+            mappings.set(slots[0], updated);
+            if (existing.getStation() != station) {
+                String key = strings.canonicalAddress(existing.getAddress());
+                if (!covers(slots, existing.getStation())) {
+                    station(existing.getStation()).remove(key);
+                }
+                station(station).add(key, updated.getAddress());
+            }
+            return updated;
+        }
+
+        /**
+         * Retire tous les mappings d'une adresse.
+         */
+        private void removeAddress(String key, int[] slots) {
+            Set<Integer> stations = new HashSet<>();
+            for (int slot : slots) {
+                stations.add(mappings.get(slot).getStation());
+                mappings.remove(slot);
+            }
+            byAddress.remove(key);
+            stations.forEach(station -> station(station).remove(key));
+        }
+
+        /**
+         * Retire les mappings d'une adresse vers une caserne.
+         */
+        private void removeStation(String key, int station) {
+            int[] slots = byAddress.get(key);
+            int[] remaining = new int[slots.length];
+            int n = 0;
+            for (int slot : slots) {
+                if (mappings.get(slot).getStation() == station) {
+                    mappings.remove(slot);
+                } else {
+                    remaining[n++] = slot;
+                }
+            }
+            if (n == 0) {
+                byAddress.remove(key);
+            } else {
+                byAddress.put(key, Arrays.copyOf(remaining, n));
+            }
+            station(station).remove(key);
+        }
+
+        /**
+         * @return vrai si un mapping de ces cases est rattaché à cette caserne
+         */
+        private boolean covers(int[] slots, int station) {
+            for (int slot : slots) {
+                if (mappings.get(slot).getStation() == station) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        private StationWriter station(int station) {
+            return stations.computeIfAbsent(station, s -> new StationWriter(byStation.get(s)));
+        }
+
+        private Index build() {
+            stations.forEach((station, writer) -> {
+                Station built = writer.build();
+                if (built == null) {
+                    byStation.remove(station);
+                } else {
+                    byStation.put(station, built);
+                }
+            });
+            ChunkedList<Firestation> published = mappings.build();
+            ShardedMap<Integer, Station> stationIndex = byStation.build();
+            ShardedMap<String, int[]> addressIndex = byAddress.build();
+            if (published.slotCount() - published.size() > Math.max(MIN_COMPACTION_SLOTS, published.slotCount() / 4)) {
+                // Cases renumérotées : cases de l'index des adresses recalculées, en temps amorti sur les suppressions
+                return compact(published, stationIndex, addressIndex);
+            }
+            return new Index(published, published, stationIndex, addressIndex);
+        }
+
+        private static Index compact(ChunkedList<Firestation> mappings, ShardedMap<Integer, Station> byStation,
+                                     ShardedMap<String, int[]> byAddress) {
+            int[] renumbered = new int[mappings.slotCount()];
+            BitSet live = mappings.liveSlots();
+            int next = 0;
+            for (int slot = live.nextSetBit(0); slot >= 0; slot = live.nextSetBit(slot + 1)) {
+                renumbered[slot] = next++;
+            }
+            Map<String, int[]> addressIndex = new HashMap<>(byAddress.size() * 4 / 3 + 1);
+            byAddress.forEach((key, slots) -> {
+                int[] copy = new int[slots.length];
+                for (int i = 0; i < slots.length; i++) {
+                    copy[i] = renumbered[slots[i]];
+                }
+                addressIndex.put(key, copy);
+            });
+            ChunkedList<Firestation> compacted = mappings.compact();
+            return new Index(compacted, compacted, byStation, ShardedMap.of(addressIndex));
+        }
+    }
+
+    /**
+     * Écriture des adresses d'une caserne.
+     */
+    private static final class StationWriter {
+        private final ChunkedList.Editor<Map.Entry<String, String>> addresses;
+        private final ShardedMap.Editor<String, Integer> slots;
+
+        private StationWriter(Station from) {
+            addresses = (from == null ? ChunkedList.<Map.Entry<String, String>>empty() : from.addresses()).edit();
+            slots = (from == null ? ShardedMap.<String, Integer>empty() : from.slots()).edit();
+        }
+
+        /**
+         * Ajoute une adresse en fin d'ordre, si la caserne ne la couvre pas déjà.
+         */
+        private void add(String key, String address) {
+            if (!slots.containsKey(key)) {
+                slots.put(key, addresses.add(Map.entry(key, address)));
+            }
+        }
+
+        private void remove(String key) {
+            Integer slot = slots.get(key);
+            if (slot != null) {
+                addresses.remove(slot);
+                slots.remove(key);
+            }
+        }
+
+        /**
+         * @return les adresses de la caserne, null si elle n'en couvre plus aucune
+         */
+        private Station build() {
+            ChunkedList<Map.Entry<String, String>> built = addresses.build();
+            if (built.isEmpty()) {
+                return null;
+            }
+            if (built.slotCount() - built.size() > Math.max(MIN_COMPACTION_SLOTS, built.slotCount() / 4)) {
+                return station(built);
+            }
+            return new Station(built, slots.build());
+        }
+    }
+}
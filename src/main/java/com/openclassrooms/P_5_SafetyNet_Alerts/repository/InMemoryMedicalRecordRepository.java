@@ -0,0 +1,201 @@
+package com.openclassrooms.P_5_SafetyNet_Alerts.repository;
+
+import com.openclassrooms.P_5_SafetyNet_Alerts.data.ChunkedList;
+import com.openclassrooms.P_5_SafetyNet_Alerts.data.DataLoader;
+import com.openclassrooms.P_5_SafetyNet_Alerts.data.IndexCache;
+import com.openclassrooms.P_5_SafetyNet_Alerts.data.ShardedMap;
+import com.openclassrooms.P_5_SafetyNet_Alerts.model.MedicalRecord;
+import com.openclassrooms.P_5_SafetyNet_Alerts.utils.KeyUtils;
+import com.openclassrooms.P_5_SafetyNet_Alerts.utils.StringPool;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Repository;
+
+import java.util.*;
+
+/**
+ * Implémentation en mémoire de {@link MedicalRecordRepository}, adossée à la liste du {@link DataLoader}.
+ * <p>
+ * Maintient un index identité (prénom + nom, insensible à la casse) -> dossiers, afin que la jointure
+ * personne / dossier médical des endpoints d'alerte se fasse en temps constant.
+ * L'index est immuable et propre à une version de la liste, gardé pour les dernières versions lues
+ * ({@link IndexCache}) : chaque écriture publie une nouvelle
+ * liste et un index dérivé du précédent. Comme pour les personnes, liste et index sont découpés en morceaux
+ * partagés d'une version à l'autre ({@link ChunkedList}, {@link ShardedMap}) : l'index repère les dossiers par
+ * leur case dans la liste, et une écriture ne copie que les morceaux et les entrées qu'elle touche. Une suppression
+ * vide ses cases sans décaler les suivantes ; la liste est compactée (et l'index reconstruit) quand les cases
+ * vides dépassent le quart des cases. Les écritures doivent être faites dans {@link DataLoader#write}.
+ * Les médicaments et allergies des dossiers écrits sont des listes partagées ({@link StringPool#shareList}).
+ */
+@Repository
+@RequiredArgsConstructor
+public class InMemoryMedicalRecordRepository implements MedicalRecordRepository {
+
+    private final DataLoader dataLoader;
+
+    // Cases vides tolérées avant compaction de la liste : un quart des cases, au moins un morceau
+    private static final int MIN_COMPACTION_SLOTS = ChunkedList.CHUNK_SIZE;
+
+    private static final int[] NO_SLOTS = new int[0];
+
+    private final IndexCache<Index> indexes = new IndexCache<>();
+
+    /**
+     * Index construit pour une liste donnée, jamais modifié après construction (ni ses tableaux de cases).
+     *
+     * @param source  liste exposée par le {@link DataLoader}
+     * @param records la même liste, découpée (la source elle-même une fois publiée par ce dépôt)
+     * @param byName  identité -> cases des dossiers homonymes, dans l'ordre de la liste
+     */
+    private record Index(List<MedicalRecord> source, ChunkedList<MedicalRecord> records,
+                         ShardedMap<String, int[]> byName) {
+    }
+
+    @Override
+    public List<MedicalRecord> findAll() {
+        return dataLoader.getMedicalRecords();
+    }
+
+    @Override
+    public Optional<MedicalRecord> findByName(String firstName, String lastName) {
+        Index current = index();
+        int[] slots = current.byName().get(KeyUtils.identityKey(firstName, lastName));
+        return slots == null ? Optional.empty() : Optional.of(current.records().slot(slots[0]));
+    }
+
+    @Override
+    public MedicalRecord save(MedicalRecord medicalRecord) {
+        saveAll(List.of(medicalRecord));
+        return medicalRecord;
+    }
+
+    @Override
+    public List<MedicalRecord> saveAll(List<MedicalRecord> added) {
+        Index current = index();
+        ChunkedList.Editor<MedicalRecord> records = current.records().edit();
+        ShardedMap.Editor<String, int[]> byName = current.byName().edit();
+        for (MedicalRecord medicalRecord : added) {
+            dataLoader.getStringPool().canonicalize(medicalRecord);
+            int slot = records.add(medicalRecord);
+            addTo(byName, KeyUtils.identityKey(medicalRecord.getFirstName(), medicalRecord.getLastName()), slot);
+        }
+        ChunkedList<MedicalRecord> published = records.build();
+        publish(new Index(published, published, byName.build()));
+        return added;
+    }
+
+    @Override
+    public Optional<MedicalRecord> update(MedicalRecord medicalRecord) {
+        return updateAll(List.of(medicalRecord)).get(0);
+    }
+
+    @Override
+    public List<Optional<MedicalRecord>> updateAll(List<MedicalRecord> changes) {
+        Index current = index();
+        // Les identités ne changent pas : seules les cases modifiées sont copiées, l'index est repris tel quel
+        ChunkedList.Editor<MedicalRecord> records = current.records().edit();
+        List<Optional<MedicalRecord>> results = new ArrayList<>(changes.size());
+        boolean changed = false;
+        for (MedicalRecord medicalRecord : changes) {
+            int[] slots = current.byName().get(KeyUtils.identityKey(medicalRecord.getFirstName(), medicalRecord.getLastName()));
+            if (slots == null) {
+                results.add(Optional.empty());
+                continue;
+            }
+            // Les versions publiées sont immuables : le dossier modifié est une nouvelle instance
+            MedicalRecord existing = records.get(slots[0]);
+            MedicalRecord updated = MedicalRecord.builder()
+                    .firstName(existing.getFirstName())
+                    .lastName(existing.getLastName())
+                    .birthdate(medicalRecord.getBirthdate())
+                    .medications(dataLoader.getStringPool().shareList(medicalRecord.getMedications()))
+                    .allergies(dataLoader.getStringPool().shareList(medicalRecord.getAllergies()))
+                    .build();
+            records.set(slots[0], updated);
+            changed = true;
+            results.add(Optional.of(updated));
+        }
+        if (!changed) {
+            return results;
+        }
+        ChunkedList<MedicalRecord> published = records.build();
+        publish(new Index(published, published, current.byName()));
+        return results;
+    }
+
+    @Override
+    public boolean deleteByName(String firstName, String lastName) {
+        Index current = index();
+        String key = KeyUtils.identityKey(firstName, lastName);
+        int[] slots = current.byName().get(key);
+        if (slots == null) {
+            return false;
+        }
+        ChunkedList.Editor<MedicalRecord> records = current.records().edit();
+        for (int slot : slots) {
+            records.remove(slot);
+        }
+        ChunkedList<MedicalRecord> published = records.build();
+        if (published.slotCount() - published.size() > Math.max(MIN_COMPACTION_SLOTS, published.slotCount() / 4)) {
+            // Cases renumérotées : index reconstruit, en temps amorti sur les suppressions accumulées
+            ChunkedList<MedicalRecord> compacted = published.compact();
+            publish(build(compacted, compacted));
+            return true;
+        }
+        ShardedMap.Editor<String, int[]> byName = current.byName().edit();
+        byName.remove(key);
+        publish(new Index(published, published, byName.build()));
+        return true;
+    }
+
+    /**
+     * Retourne l'index de la liste exposée par le {@link DataLoader}, en le reconstruisant
+     * si elle a changé.
+     */
+    private Index index() {
+        List<MedicalRecord> records = dataLoader.getMedicalRecords();
+        Index current = indexes.find(i -> i.source() == records);
+        if (current != null) {
+            return current;
+        }
+        current = build(records, ChunkedList.of(records == null ? List.of() : records));
+        // Une lecture figée sur une version dépassée ne doit pas évincer l'index de la dernière version
+        return indexes.add(current, records == dataLoader.getLatestDataset().getMedicalRecords());
+    }
+
+    /**
+     * Construit l'index d'une liste découpée, pour la liste {@code source} dont elle est tirée.
+     */
+    private static Index build(List<MedicalRecord> source, ChunkedList<MedicalRecord> records) {
+        Map<String, List<Integer>> byName = new HashMap<>();
+        BitSet slots = records.liveSlots();
+        for (int slot = slots.nextSetBit(0); slot >= 0; slot = slots.nextSetBit(slot + 1)) {
+            MedicalRecord record = records.slot(slot);
+            String key = KeyUtils.identityKey(record.getFirstName(), record.getLastName());
+            if (key != null) {
+                byName.computeIfAbsent(key, k -> new ArrayList<>(1)).add(slot);
+            }
+        }
+        Map<String, int[]> index = new HashMap<>(byName.size() * 4 / 3 + 1);
+        byName.forEach((key, list) -> index.put(key, list.stream().mapToInt(Integer::intValue).toArray()));
+        return new Index(source, records, ShardedMap.of(index));
+    }
+
+    /**
+     * Publie la liste d'un index. L'index est gardé avant : aucun lecteur de la nouvelle version ne le reconstruit.
+     */
+    private void publish(Index next) {
+        indexes.add(next, true);
+        dataLoader.setMedicalRecords(next.records());
+    }
+
+    /**
+     * Ajoute une case à une entrée d'index, en copiant le tableau de l'entrée (partagé avec la version précédente).
+     */
+    private static void addTo(ShardedMap.Editor<String, int[]> index, String key, int slot) {
+        if (key == null) return;
+        int[] slots = index.getOrDefault(key, NO_SLOTS);
+        int[] copy = Arrays.copyOf(slots, slots.length + 1);
+        copy[slots.length] = slot;
+        index.put(key, copy);
+    }
+}
@@ -0,0 +1,498 @@
+package com.openclassrooms.P_5_SafetyNet_Alerts.repository;
+
+import com.openclassrooms.P_5_SafetyNet_Alerts.data.DataLoader;
+import com.openclassrooms.P_5_SafetyNet_Alerts.data.IndexCache;
+import com.openclassrooms.P_5_SafetyNet_Alerts.data.PersonTable;
+import com.openclassrooms.P_5_SafetyNet_Alerts.data.Postings;
+import com.openclassrooms.P_5_SafetyNet_Alerts.data.ShardedMap;
+import com.openclassrooms.P_5_SafetyNet_Alerts.model.Person;
+import com.openclassrooms.P_5_SafetyNet_Alerts.utils.KeyUtils;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Repository;
+
+import java.util.*;
+import java.util.function.Function;
+import java.util.function.IntPredicate;
+
+/**
+ * Implémentation en mémoire de {@link PersonRepository}, adossée à la liste du {@link DataLoader}.
+ * <p>
+ * Les personnes publiées sont rangées en colonnes ({@link PersonTable}) et repérées par leur numéro de ligne.
+ * Maintient trois index, de clef vers lignes, sans aucune entrée par personne :
+ * <ul>
+ *     <li>adresse canonique -> habitants, pour que les recherches par adresse coûtent
+ *     la taille du foyer et non celle de la population ;</li>
+ *     <li>nom -> personnes triées par prénom, et ville -> habitants triés par email : ordres stables
+ *     d'une version à l'autre, sur lesquels reprend la pagination de /personInfo et /communityEmail.
+ *     Les opérations CRUD trouvent une identité (prénom + nom) par recherche dichotomique dans l'index des noms.</li>
+ *     <li>les clefs de l'index des noms, triées, pour les recherches par préfixe de nom : deux recherches
+ *     dichotomiques bornent les noms qui commencent par le préfixe.</li>
+ * </ul>
+ * Les index sont immuables et propres à une version de la liste, gardés pour les dernières versions lues
+ * ({@link IndexCache}) : ils sont reconstruits quand le {@link DataLoader} expose une liste inconnue
+ * (rechargement du fichier), et chaque écriture publie une nouvelle table accompagnée d'index dérivés des
+ * précédents. Tables et index sont découpés en morceaux partagés d'une version à l'autre ({@link ShardedMap}),
+ * de même que les entrées triées, dont une ville entière ({@link Postings}) : une écriture ne copie que les
+ * morceaux qu'elle touche. Les lignes d'une écriture par lot sont regroupées par entrée : chaque entrée touchée
+ * n'est dérivée qu'une fois par écriture. Une suppression laisse ses lignes en
+ * pierres tombales, sans décaler les suivantes ; la table est compactée (et les index reconstruits) quand
+ * les lignes supprimées dépassent le quart des lignes.
+ * Les écritures doivent être faites dans {@link DataLoader#write}.
+ */
+@Repository
+@RequiredArgsConstructor
+public class InMemoryPersonRepository implements PersonRepository {
+
+    private final DataLoader dataLoader;
+
+    // Clefs de tri des index par nom et par ville ; prénom absent traité comme vide
+    private static final Function<Person, String> FIRST_NAME_KEY =
+            p -> KeyUtils.lowerCaseKey(Objects.toString(p.getFirstName(), ""));
+    private static final Function<Person, String> EMAIL_KEY = Person::getEmail;
+    // Emails absents en dernier ; les ex aequo restent dans l'ordre des rangs
+    private static final Comparator<String> KEY_ORDER = Comparator.nullsLast(Comparator.naturalOrder());
+
+    // Lignes supprimées tolérées avant compaction de la table : un quart des lignes, au moins un morceau
+    private static final int MIN_COMPACTION_ROWS = PersonTable.CHUNK_SIZE;
+
+    private static final int[] NO_ROWS = new int[0];
+    private static final String[] NO_KEYS = new String[0];
+
+    private final IndexCache<Index> indexes = new IndexCache<>();
+
+    /**
+     * Index construits pour une liste donnée, jamais modifiés après construction (ni leurs tableaux de rangs).
+     */
+    private record Index(List<Person> source, PersonTable table, ShardedMap<String, int[]> byAddress,
+                         ShardedMap<String, Postings> byLastName, ShardedMap<String, Postings> byCity, String[] lastNames) {
+
+        private List<Person> rows(ShardedMap<String, Postings> index, String key) {
+            Postings rows = key == null ? null : index.get(key);
+            return rows == null ? Collections.emptyList() : table.rows(rows);
+        }
+
+        /**
+         * Rangs des homonymes (prénom + nom, sans tenir compte de la casse), dans l'ordre des rangs.
+         */
+        private int[] byName(String firstName, String lastName) {
+            Postings rows = firstName == null ? null : byLastName.get(KeyUtils.lowerCaseKey(lastName));
+            if (rows == null) {
+                return NO_ROWS;
+            }
+            String key = KeyUtils.lowerCaseKey(firstName);
+            int from = rows.bound(before(table, FIRST_NAME_KEY, key, false));
+            int to = rows.bound(before(table, FIRST_NAME_KEY, key, true));
+            // Un prénom absent est trié comme un prénom vide, mais n'a pas d'identité
+            return Arrays.stream(rows.toArray(from, to)).filter(row -> table.firstName(row) != null).toArray();
+        }
+    }
+
+    @Override
+    public List<Person> findAll() {
+        return dataLoader.getPersons();
+    }
+
+    @Override
+    public List<Person> findByAddress(String address) {
+        Index current = index();
+        String key = KeyUtils.canonicalAddress(address);
+        int[] rows = key == null ? null : current.byAddress().get(key);
+        return rows == null ? Collections.emptyList() : current.table().rows(rows);
+    }
+
+    @Override
+    public Optional<Person> findByName(String firstName, String lastName) {
+        List<Person> matches = findAllByName(firstName, lastName);
+        return matches.isEmpty() ? Optional.empty() : Optional.of(matches.get(0));
+    }
+
+    @Override
+    public List<Person> findAllByName(String firstName, String lastName) {
+        Index current = index();
+        return current.table().rows(current.byName(firstName, lastName));
+    }
+
+    @Override
+    public int[] findRowsByAddress(String address) {
+        String key = KeyUtils.canonicalAddress(address);
+        return key == null ? NO_ROWS : index().byAddress().getOrDefault(key, NO_ROWS);
+    }
+
+    @Override
+    public int[] findRowsByName(String firstName, String lastName) {
+        return index().byName(firstName, lastName);
+    }
+
+    @Override
+    public List<Person> findAllByRows(int[] rows) {
+        return index().table().rows(rows);
+    }
+
+    @Override
+    public BitSet findAllRows() {
+        return index().table().liveRows();
+    }
+
+    @Override
+    public int countRows() {
+        return index().table().rowCount();
+    }
+
+    @Override
+    public List<Person> findByLastNameOrderByFirstName(String lastName) {
+        Index current = index();
+        return current.rows(current.byLastName(), KeyUtils.lowerCaseKey(lastName));
+    }
+
+    @Override
+    public List<String> findLastNamesStartingWith(String prefix) {
+        String[] lastNames = index().lastNames();
+        String key = KeyUtils.lowerCaseKey(prefix);
+        if (key == null) {
+            return Collections.emptyList();
+        }
+        int from = lowerBound(lastNames, key);
+        // Fin des noms commençant par le préfixe : premier nom qui n'est pas avant le préfixe suivi du plus grand caractère
+        int to = lowerBound(lastNames, key + Character.MAX_VALUE);
+        return Collections.unmodifiableList(Arrays.asList(lastNames).subList(from, to));
+    }
+
+    @Override
+    public List<Person> findByCityOrderByEmail(String city) {
+        Index current = index();
+        return current.rows(current.byCity(), KeyUtils.lowerCaseKey(city));
+    }
+
+    @Override
+    public Person save(Person person) {
+        saveAll(List.of(person));
+        return person;
+    }
+
+    @Override
+    public List<Person> saveAll(List<Person> added) {
+        Index current = index();
+        PersonTable table = current.table().append(added);
+        AddressChanges byAddress = new AddressChanges();
+        SortedChanges byLastName = new SortedChanges(current.byLastName(), FIRST_NAME_KEY);
+        SortedChanges byCity = new SortedChanges(current.byCity(), EMAIL_KEY);
+        Set<String> newLastNames = new HashSet<>();
+        for (int row = current.table().rowCount(); row < table.rowCount(); row++) {
+            String lastName = KeyUtils.lowerCaseKey(table.lastName(row));
+            if (lastName != null && !current.byLastName().containsKey(lastName)) {
+                newLastNames.add(lastName);
+            }
+            byAddress.add(table.addressKey(row), row);
+            byLastName.insert(lastName, table, row);
+            byCity.insert(KeyUtils.lowerCaseKey(table.city(row)), table, row);
+        }
+        publish(new Index(table, table, byAddress.applyTo(current.byAddress()), byLastName.build(), byCity.build(),
+                addKeys(current.lastNames(), newLastNames)));
+        return added;
+    }
+
+    @Override
+    public Optional<Person> update(Person person) {
+        return updateAll(List.of(person)).get(0);
+    }
+
+    @Override
+    public List<Optional<Person>> updateAll(List<Person> changes) {
+        Index current = index();
+        PersonTable previous = current.table();
+        // Rang -> nouvelles valeurs ; une personne modifiée plusieurs fois garde ses dernières valeurs
+        Map<Integer, Person> updates = new LinkedHashMap<>();
+        List<Optional<Person>> results = new ArrayList<>(changes.size());
+        for (Person person : changes) {
+            int[] matches = current.byName(person.getFirstName(), person.getLastName());
+            if (matches.length == 0) {
+                results.add(Optional.empty());
+                continue;
+            }
+            int row = matches[0];
+            Person existing = updates.getOrDefault(row, previous.row(row));
+            Person updated = Person.builder()
+                    .firstName(existing.getFirstName())
+                    .lastName(existing.getLastName())
+                    .address(person.getAddress())
+                    .city(person.getCity())
+                    .zip(existing.getZip())
+                    .phone(person.getPhone())
+                    .email(person.getEmail())
+                    .build();
+            updates.put(row, updated);
+            results.add(Optional.of(updated));
+        }
+        if (updates.isEmpty()) {
+            return results;
+        }
+
+        PersonTable table = previous.update(updates);
+        // Le prénom et le nom ne changent pas, ni les lignes : seuls les index par adresse et par ville bougent
+        AddressChanges byAddress = new AddressChanges();
+        SortedChanges byCity = new SortedChanges(current.byCity(), EMAIL_KEY);
+        // Retraits d'abord : les entrées triées ne contiennent plus que des lignes inchangées avant les insertions
+        for (int row : updates.keySet()) {
+            byAddress.remove(previous.addressKey(row), row);
+            byCity.remove(KeyUtils.lowerCaseKey(previous.city(row)), previous, row);
+        }
+        for (int row : updates.keySet()) {
+            byAddress.add(table.addressKey(row), row);
+            byCity.insert(KeyUtils.lowerCaseKey(table.city(row)), table, row);
+        }
+        publish(new Index(table, table, byAddress.applyTo(current.byAddress()), current.byLastName(), byCity.build(),
+                current.lastNames()));
+        return results;
+    }
+
+    @Override
+    public boolean deleteByName(String firstName, String lastName) {
+        Index current = index();
+        // Homonymes dans l'ordre des rangs
+        int[] removed = current.byName(firstName, lastName);
+        if (removed.length == 0) {
+            return false;
+        }
+        PersonTable previous = current.table();
+        PersonTable table = previous.remove(removed);
+        if (table.rowCount() - table.size() > Math.max(MIN_COMPACTION_ROWS, table.rowCount() / 4)) {
+            // Lignes renumérotées : index reconstruits, en temps amorti sur les suppressions accumulées
+            PersonTable compacted = table.compact();
+            publish(build(compacted, compacted));
+            return true;
+        }
+        // Lignes supprimées retirées de leurs seules entrées ; les autres lignes gardent leur numéro
+        AddressChanges byAddress = new AddressChanges();
+        SortedChanges byLastName = new SortedChanges(current.byLastName(), FIRST_NAME_KEY);
+        SortedChanges byCity = new SortedChanges(current.byCity(), EMAIL_KEY);
+        for (int row : removed) {
+            byAddress.remove(previous.addressKey(row), row);
+            byLastName.remove(KeyUtils.lowerCaseKey(previous.lastName(row)), previous, row);
+            byCity.remove(KeyUtils.lowerCaseKey(previous.city(row)), previous, row);
+        }
+        ShardedMap<String, Postings> lastNameIndex = byLastName.build();
+        String[] lastNames = current.lastNames();
+        String lastNameKey = KeyUtils.lowerCaseKey(lastName);
+        if (!lastNameIndex.containsKey(lastNameKey)) {
+            // Derniers porteurs du nom supprimés
+            lastNames = removeKey(lastNames, lastNameKey);
+        }
+        publish(new Index(table, table, byAddress.applyTo(current.byAddress()), lastNameIndex, byCity.build(), lastNames));
+        return true;
+    }
+
+    /**
+     * Retourne les index de la liste exposée par le {@link DataLoader}, en les reconstruisant
+     * si elle a changé. Sans verrou : deux lecteurs peuvent construire le même index en parallèle.
+     */
+    private Index index() {
+        List<Person> persons = dataLoader.getPersons();
+        Index current = indexes.find(i -> i.source() == persons);
+        if (current != null) {
+            return current;
+        }
+        current = build(persons, PersonTable.of(persons == null ? List.of() : persons, dataLoader.getStringPool()));
+        // Une lecture figée sur une version dépassée ne doit pas évincer l'index de la dernière version
+        return indexes.add(current, persons == dataLoader.getLatestDataset().getPersons());
+    }
+
+    /**
+     * Construit les index d'une table, pour la liste {@code source} dont elle est tirée.
+     */
+    private static Index build(List<Person> source, PersonTable table) {
+        Map<String, List<Integer>> byAddress = new HashMap<>();
+        Map<String, List<Integer>> byLastName = new HashMap<>();
+        Map<String, List<Integer>> byCity = new HashMap<>();
+        BitSet rows = table.liveRows();
+        for (int row = rows.nextSetBit(0); row >= 0; row = rows.nextSetBit(row + 1)) {
+            group(byAddress, table.addressKey(row), row);
+            group(byLastName, KeyUtils.lowerCaseKey(table.lastName(row)), row);
+            group(byCity, KeyUtils.lowerCaseKey(table.city(row)), row);
+        }
+        String[] lastNames = byLastName.keySet().toArray(NO_KEYS);
+        Arrays.sort(lastNames);
+        return new Index(source, table, toRows(byAddress),
+                sort(byLastName, table, FIRST_NAME_KEY), sort(byCity, table, EMAIL_KEY), lastNames);
+    }
+
+    /**
+     * Publie la table d'un index. L'index est gardé avant : aucun lecteur de la nouvelle version ne le reconstruit.
+     */
+    private void publish(Index next) {
+        indexes.add(next, true);
+        dataLoader.setPersons(next.table());
+    }
+
+    /**
+     * Changements d'une écriture dans l'index des adresses, regroupés par entrée : chaque entrée touchée n'est
+     * copiée qu'une fois, sans ses lignes retirées et suivie de ses lignes ajoutées.
+     */
+    private static final class AddressChanges {
+        private final Map<String, Set<Integer>> removed = new HashMap<>();
+        private final Map<String, List<Integer>> added = new HashMap<>();
+
+        private void remove(String key, int row) {
+            if (key == null) return;
+            removed.computeIfAbsent(key, k -> new HashSet<>()).add(row);
+        }
+
+        private void add(String key, int row) {
+            if (key == null) return;
+            added.computeIfAbsent(key, k -> new ArrayList<>()).add(row);
+        }
+
+        private ShardedMap<String, int[]> applyTo(ShardedMap<String, int[]> index) {
+            ShardedMap.Editor<String, int[]> editor = index.edit();
+            Set<String> keys = new HashSet<>(removed.keySet());
+            keys.addAll(added.keySet());
+            for (String key : keys) {
+                Set<Integer> gone = removed.getOrDefault(key, Set.of());
+                List<Integer> rows = added.getOrDefault(key, List.of());
+                int[] previous = editor.getOrDefault(key, NO_ROWS);
+                int[] copy = new int[previous.length + rows.size()];
+                int n = 0;
+                for (int row : previous) {
+                    if (!gone.contains(row)) {
+                        copy[n++] = row;
+                    }
+                }
+                for (int row : rows) {
+                    copy[n++] = row;
+                }
+                if (n == 0) {
+                    editor.remove(key);
+                } else {
+                    editor.put(key, n == copy.length ? copy : Arrays.copyOf(copy, n));
+                }
+            }
+            return editor.build();
+        }
+    }
+
+    /**
+     * Changements d'une écriture dans un index trié : une écriture par entrée touchée ({@link Postings.Editor}),
+     * dont chaque morceau modifié est copié, puis figée une fois par {@link #build}.
+     */
+    private static final class SortedChanges {
+        private final ShardedMap<String, Postings> index;
+        private final Function<Person, String> sortKey;
+        private final Map<String, Postings.Editor> entries = new HashMap<>();
+
+        private SortedChanges(ShardedMap<String, Postings> index, Function<Person, String> sortKey) {
+            this.index = index;
+            this.sortKey = sortKey;
+        }
+
+        /**
+         * Insère une ligne après ses ex aequo, selon ses valeurs dans {@code table}.
+         */
+        private void insert(String key, PersonTable table, int row) {
+            if (key == null) return;
+            entry(key).insert(row, before(table, sortKey, sortKey.apply(table.row(row)), true));
+        }
+
+        /**
+         * Retire une ligne, cherchée parmi ses ex aequo selon ses valeurs dans {@code table}, celle où l'entrée est triée.
+         */
+        private void remove(String key, PersonTable table, int row) {
+            if (key == null || (!index.containsKey(key) && !entries.containsKey(key))) return;
+            entry(key).remove(row, before(table, sortKey, sortKey.apply(table.row(row)), false));
+        }
+
+        private Postings.Editor entry(String key) {
+            return entries.computeIfAbsent(key, k -> index.getOrDefault(k, Postings.empty()).edit());
+        }
+
+        private ShardedMap<String, Postings> build() {
+            if (entries.isEmpty()) {
+                return index;
+            }
+            ShardedMap.Editor<String, Postings> editor = index.edit();
+            entries.forEach((key, entry) -> {
+                if (entry.size() == 0) {
+                    editor.remove(key);
+                } else {
+                    editor.put(key, entry.build());
+                }
+            });
+            return editor.build();
+        }
+    }
+
+    /**
+     * Prédicat de recherche dichotomique dans une entrée d'index triée.
+     *
+     * @param upper false pour s'arrêter au premier rang de clef {@code value}, true après le dernier
+     */
+    private static IntPredicate before(PersonTable table, Function<Person, String> sortKey, String value, boolean upper) {
+        return row -> {
+            int cmp = KEY_ORDER.compare(sortKey.apply(table.row(row)), value);
+            return cmp < 0 || (upper && cmp == 0);
+        };
+    }
+
+    /**
+     * @return la position du premier nom de {@code keys} (trié) qui n'est pas avant {@code key}
+     */
+    private static int lowerBound(String[] keys, String key) {
+        int position = Arrays.binarySearch(keys, key);
+        return position >= 0 ? position : -position - 1;
+    }
+
+    /**
+     * Ajoute des noms au tableau trié des noms, en le copiant (partagé avec la version précédente).
+     */
+    private static String[] addKeys(String[] keys, Collection<String> added) {
+        if (added.isEmpty()) {
+            return keys;
+        }
+        String[] copy = Arrays.copyOf(keys, keys.length + added.size());
+        int n = keys.length;
+        for (String key : added) {
+            copy[n++] = key;
+        }
+        // Tableau presque trié : le tri par fusion le parcourt en temps linéaire
+        Arrays.sort(copy);
+        return copy;
+    }
+
+    private static String[] removeKey(String[] keys, String key) {
+        int position = Arrays.binarySearch(keys, key);
+        if (position < 0) {
+            return keys;
+        }
+        String[] copy = new String[keys.length - 1];
+        System.arraycopy(keys, 0, copy, 0, position);
+        System.arraycopy(keys, position + 1, copy, position, copy.length - position);
+        return copy;
+    }
+
+    /**
+     * Construction d'un index trié : regroupement sans copie, puis {@link #sort}.
+     */
+    private static void group(Map<String, List<Integer>> index, String key, int row) {
+        if (key == null) return;
+        index.computeIfAbsent(key, k -> new ArrayList<>()).add(row);
+    }
+
+    private static ShardedMap<String, Postings> sort(Map<String, List<Integer>> groups, PersonTable table,
+                                                  Function<Person, String> sortKey) {
+        groups.forEach((key, rows) -> {
+            // Clefs décodées une fois par ligne ; tri stable : les ex aequo restent dans l'ordre des lignes
+            Map<Integer, String> keys = new HashMap<>(rows.size() * 4 / 3 + 1);
+            for (int row : rows) {
+                keys.put(row, sortKey.apply(table.row(row)));
+            }
+            rows.sort(Comparator.comparing(keys::get, KEY_ORDER));
+        });
+        Map<String, Postings> index = new HashMap<>(groups.size() * 4 / 3 + 1);
+        groups.forEach((key, rows) -> index.put(key, Postings.of(rows.stream().mapToInt(Integer::intValue).toArray())));
+        return ShardedMap.of(index);
+    }
+
+    private static ShardedMap<String, int[]> toRows(Map<String, List<Integer>> groups) {
+        Map<String, int[]> index = new HashMap<>(groups.size() * 4 / 3 + 1);
+        groups.forEach((key, rows) -> index.put(key, rows.stream().mapToInt(Integer::intValue).toArray()));
+        return ShardedMap.of(index);
+    }
+}
@@ -1,4 +1,71 @@
 package com.openclassrooms.P_5_SafetyNet_Alerts.repository;
 
+import com.openclassrooms.P_5_SafetyNet_Alerts.model.MedicalRecord;
+
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Accès aux dossiers médicaux ({@link MedicalRecord}) chargés en mémoire.
+ * <p>
+ * Un dossier est identifié par le prénom et le nom de la personne, sans tenir compte de la casse.
+ */
 public interface MedicalRecordRepository {
+
+    /**
+     * @return la liste de tous les dossiers médicaux
+     */
+    List<MedicalRecord> findAll();
+
+    /**
+     * Recherche le dossier médical d'une personne.
+     *
+     * @param firstName prénom
+     * @param lastName  nom
+     * @return Optional du premier dossier trouvé
+     */
+    Optional<MedicalRecord> findByName(String firstName, String lastName);
+
+    /**
+     * Ajoute un dossier médical.
+     *
+     * @param medicalRecord dossier à ajouter
+     * @return le dossier ajouté
+     */
+    MedicalRecord save(MedicalRecord medicalRecord);
+
+    /**
+     * Ajoute des dossiers médicaux, publiés ensemble en une seule version.
+     *
+     * @param medicalRecords dossiers à ajouter
+     * @return les dossiers ajoutés
+     */
+    List<MedicalRecord> saveAll(List<MedicalRecord> medicalRecords);
+
+    /**
+     * Met à jour la date de naissance, les médicaments et les allergies d'un dossier existant,
+     * identifié par prénom et nom.
+     *
+     * @param medicalRecord nouvelles valeurs
+     * @return Optional du dossier modifié, vide si non trouvé
+     */
+    Optional<MedicalRecord> update(MedicalRecord medicalRecord);
+
+    /**
+     * Met à jour plusieurs dossiers médicaux, publiés ensemble en une seule version.
+     * Les mises à jour sont appliquées dans l'ordre.
+     *
+     * @param medicalRecords nouvelles valeurs
+     * @return pour chaque dossier, dans l'ordre, le dossier modifié ou vide si non trouvé
+     */
+    List<Optional<MedicalRecord>> updateAll(List<MedicalRecord> medicalRecords);
+
+    /**
+     * Supprime tous les dossiers portant ce prénom et ce nom.
+     *
+     * @param firstName prénom
+     * @param lastName  nom
+     * @return true si au moins un dossier a été supprimé
+     */
+    boolean deleteByName(String firstName, String lastName);
 }
@@ -1,4 +1,155 @@
 package com.openclassrooms.P_5_SafetyNet_Alerts.repository;
 
+import com.openclassrooms.P_5_SafetyNet_Alerts.model.Person;
+
+import java.util.BitSet;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Accès aux personnes ({@link Person}) chargées en mémoire.
+ * <p>
+ * Les recherches par adresse et par identité (prénom + nom) sont insensibles à la casse.
+ */
 public interface PersonRepository {
+
+    /**
+     * @return la liste de toutes les personnes
+     */
+    List<Person> findAll();
+
+    /**
+     * Retourne les habitants d'une adresse.
+     *
+     * @param address adresse recherchée
+     * @return liste des habitants (vide si aucun)
+     */
+    List<Person> findByAddress(String address);
+
+    /**
+     * Recherche une personne par prénom et nom.
+     *
+     * @param firstName prénom
+     * @param lastName  nom
+     * @return Optional de la première personne trouvée
+     */
+    Optional<Person> findByName(String firstName, String lastName);
+
+    /**
+     * Retourne toutes les personnes portant ce prénom et ce nom.
+     *
+     * @param firstName prénom
+     * @param lastName  nom
+     * @return liste des personnes (vide si aucune)
+     */
+    List<Person> findAllByName(String firstName, String lastName);
+
+    /**
+     * Numéros de ligne des habitants d'une adresse (voir {@link #findAllByRows}). Le tableau est partagé :
+     * il ne doit pas être modifié.
+     *
+     * @param address adresse recherchée
+     * @return lignes des habitants (vide si aucun)
+     */
+    int[] findRowsByAddress(String address);
+
+    /**
+     * Numéros de ligne des personnes portant ce prénom et ce nom (voir {@link #findAllByRows}).
+     *
+     * @param firstName prénom
+     * @param lastName  nom
+     * @return lignes croissantes des personnes (vide si aucune)
+     */
+    int[] findRowsByName(String firstName, String lastName);
+
+    /**
+     * Personnes désignées par leur numéro de ligne. Une ligne garde son numéro d'une version à l'autre,
+     * sauf rechargement ou réorganisation des données ; les numéros ne sont pas les positions dans {@link #findAll()}.
+     *
+     * @param rows lignes de personnes de la version lue
+     * @return les personnes de ces lignes, dans l'ordre donné
+     */
+    List<Person> findAllByRows(int[] rows);
+
+    /**
+     * @return les numéros de ligne de toutes les personnes de {@link #findAll()}, dans un ensemble propre à l'appelant
+     */
+    BitSet findAllRows();
+
+    /**
+     * @return le nombre de lignes, supprimées comprises : tous les numéros de ligne de la version lue lui sont
+     * inférieurs. Il ne diminue que lorsque les lignes sont renumérotées.
+     */
+    int countRows();
+
+    /**
+     * Retourne les personnes portant ce nom de famille, triées par prénom (sans tenir compte de la casse),
+     * les homonymes restant dans leur ordre d'ajout. Ordre stable d'une version à l'autre, utilisé par la pagination.
+     *
+     * @param lastName nom
+     * @return liste des personnes (vide si aucune)
+     */
+    List<Person> findByLastNameOrderByFirstName(String lastName);
+
+    /**
+     * Retourne les noms de famille commençant par un préfixe (sans tenir compte de la casse), en clefs
+     * minuscules triées, chacune utilisable avec {@link #findByLastNameOrderByFirstName}.
+     * Coût logarithmique en le nombre de noms : la liste est une vue sur l'index trié des noms.
+     *
+     * @param prefix début du nom
+     * @return liste triée des noms (vide si aucun)
+     */
+    List<String> findLastNamesStartingWith(String prefix);
+
+    /**
+     * Retourne les habitants d'une ville, triés par email, ceux sans email en dernier.
+     * Les habitants partageant un email sont contigus.
+     *
+     * @param city ville
+     * @return liste des habitants (vide si aucun)
+     */
+    List<Person> findByCityOrderByEmail(String city);
+
+    /**
+     * Ajoute une personne.
+     *
+     * @param person personne à ajouter
+     * @return la personne ajoutée
+     */
+    Person save(Person person);
+
+    /**
+     * Ajoute des personnes, publiées ensemble en une seule version.
+     *
+     * @param persons personnes à ajouter
+     * @return les personnes ajoutées
+     */
+    List<Person> saveAll(List<Person> persons);
+
+    /**
+     * Met à jour les coordonnées (adresse, ville, email, téléphone) d'une personne existante,
+     * identifiée par prénom et nom.
+     *
+     * @param person nouvelles valeurs
+     * @return Optional de la personne modifiée, vide si non trouvée
+     */
+    Optional<Person> update(Person person);
+
+    /**
+     * Met à jour plusieurs personnes, publiées ensemble en une seule version. Les mises à jour
+     * sont appliquées dans l'ordre : une personne modifiée deux fois garde la seconde.
+     *
+     * @param persons nouvelles valeurs
+     * @return pour chaque personne, dans l'ordre, la personne modifiée ou vide si non trouvée
+     */
+    List<Optional<Person>> updateAll(List<Person> persons);
+
+    /**
+     * Supprime toutes les personnes portant ce prénom et ce nom.
+     *
+     * @param firstName prénom
+     * @param lastName  nom
+     * @return true si au moins une personne a été supprimée
+     */
+    boolean deleteByName(String firstName, String lastName);
 }
@@ -0,0 +1,90 @@
+package com.openclassrooms.P_5_SafetyNet_Alerts.service;
+
+import com.openclassrooms.P_5_SafetyNet_Alerts.utils.DateUtils;
+import org.springframework.stereotype.Service;
+
+import java.time.Clock;
+import java.time.LocalDate;
+
+/**
+ * Service de calcul d'âge et de classification adulte / enfant.
+ * <p>
+ * La date du jour et la date limite de majorité (aujourd'hui - 18 ans) sont calculées une seule fois
+ * par jour puis mises en cache, sous forme d'entiers {@code aaaammjj} (voir {@link DateUtils#toPackedDate}).
+ * Un âge se calcule alors par une soustraction et une division entières, et la classification
+ * adulte / enfant par une simple comparaison, sans allocation.
+ * Le cache est renouvelé au premier appel qui suit minuit.
+ */
+@Service
+public class AgeService {
+
+    /**
+     * Âge à partir duquel une personne est considérée comme adulte.
+     */
+    public static final int MAJORITY_AGE = 18;
+
+    private final Clock clock;
+    private volatile Day day;
+
+    public AgeService() {
+        this(Clock.systemDefaultZone());
+    }
+
+    AgeService(Clock clock) {
+        this.clock = clock;
+        this.day = computeDay();
+    }
+
+    /**
+     * Calcule l'âge en années à partir d'une date de naissance.
+     *
+     * @param birthdate date de naissance
+     * @return l'âge en années, ou 0 si la date est nulle
+     */
+    public int ageOf(LocalDate birthdate) {
+        if (birthdate == null) return 0;
+        return (currentDay().today - DateUtils.toPackedDate(birthdate)) / 10000;
+    }
+
+    /**
+     * Indique si une personne née à cette date est mineure (moins de 18 ans).
+     * Une date nulle est considérée comme celle d'un enfant, comme un âge de 0.
+     *
+     * @param birthdate date de naissance
+     * @return true si la personne a moins de 18 ans
+     */
+    public boolean isChild(LocalDate birthdate) {
+        if (birthdate == null) return true;
+        return DateUtils.toPackedDate(birthdate) > currentDay().majorityCutoff;
+    }
+
+    /**
+     * @return la date du jour mise en cache
+     */
+    public LocalDate today() {
+        return currentDay().date;
+    }
+
+    private Day currentDay() {
+        Day current = day;
+        if (clock.millis() >= current.expiresAtMillis) {
+            current = computeDay();
+            day = current;
+        }
+        return current;
+    }
+
+    private Day computeDay() {
+        LocalDate today = LocalDate.now(clock);
+        long expiresAt = today.plusDays(1).atStartOfDay(clock.getZone()).toInstant().toEpochMilli();
+        int packedToday = DateUtils.toPackedDate(today);
+        return new Day(today, packedToday, packedToday - MAJORITY_AGE * 10000, expiresAt);
+    }
+
+    /**
+     * Valeurs calculées pour une journée.
+     * Une personne née après {@code majorityCutoff} est mineure.
+     */
+    private record Day(LocalDate date, int today, int majorityCutoff, long expiresAtMillis) {
+    }
+}
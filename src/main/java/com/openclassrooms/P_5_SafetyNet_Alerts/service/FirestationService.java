@@ -1,14 +1,14 @@
 package com.openclassrooms.P_5_SafetyNet_Alerts.service;
 
 import com.openclassrooms.P_5_SafetyNet_Alerts.data.DataLoader;
+import com.openclassrooms.P_5_SafetyNet_Alerts.data.Mutation;
 import com.openclassrooms.P_5_SafetyNet_Alerts.model.Firestation;
+import com.openclassrooms.P_5_SafetyNet_Alerts.repository.FirestationRepository;
+import com.openclassrooms.P_5_SafetyNet_Alerts.utils.KeyUtils;
 import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Service;
 
-import java.util.Collections;
-import java.util.List;
-import java.util.Optional;
-import java.util.stream.Collectors;
+import java.util.*;
 
 /**
  * Service métier dédié à la gestion des mappings adresse-caserne ({@link Firestation}).
@@ -17,6 +17,10 @@ import java.util.stream.Collectors;
  * modification et suppression de liaisons entre adresses et numéros de caserne, ainsi que
  * de fournir des listes utiles aux contrôleurs REST (par exemple: adresses par numéro de caserne,
  * caserne pour une adresse donnée, etc.).
+ * <p>
+ * Les écritures sont exécutées et journalisées sous le verrou d'écriture ({@link DataLoader#write}),
+ * invalident les réponses en cache des adresses et casernes concernées ({@link ResponseCache})
+ * et déplacent les foyers de ces adresses dans les vues par caserne ({@link StationViews}).
  */
 
 @Service
@@ -24,6 +28,9 @@ import java.util.stream.Collectors;
 public class FirestationService {
 
     private final DataLoader dataLoader;
+    private final FirestationRepository firestationRepository;
+    private final ResponseCache responseCache;
+    private final StationViews stationViews;
 
     /**
      * Retourne la liste de toutes les mappings caserne/adresse.
@@ -31,7 +38,7 @@ public class FirestationService {
      * @return Liste de Firestation (mapping adresse/station)
      */
     public List<Firestation> getFirestations() {
-        return dataLoader.getFirestations();
+        return firestationRepository.findAll();
     }
 
     /**
@@ -41,10 +48,7 @@ public class FirestationService {
      * @return Un Optional Firestation pour cette adresse
      */
     public Optional<Firestation> getFirestationByAdress(String address) {
-        return dataLoader.getFirestations()
-                .stream()
-                .filter(f -> f.getAddress().equalsIgnoreCase(address))
-                .findFirst();
+        return firestationRepository.findByAddress(address);
     }
 
     /**
@@ -54,9 +58,7 @@ public class FirestationService {
      * @return Liste d’objets Firestation pour ce numéro de station
      */
     public List<Firestation> getFirestationsByID(int stationID) {
-        return dataLoader.getFirestations().stream()
-                .filter(f -> f.getStation() == stationID)
-                .collect(Collectors.toList());
+        return firestationRepository.findByStation(stationID);
     }
 
     /**
@@ -67,11 +69,7 @@ public class FirestationService {
      * @return Liste d’adresses associées à cette caserne
      */
     public List<String> getAddressesByStationID(int stationID) {
-        return dataLoader.getFirestations().stream()
-                .filter(f -> f.getStation() == stationID)
-                .map(Firestation::getAddress)
-                .distinct()
-                .collect(Collectors.toList());
+        return firestationRepository.findAddressesByStations(List.of(stationID));
     }
 
     /**
@@ -82,11 +80,7 @@ public class FirestationService {
      */
     public List<String> getAddressesByStationIDs(List<Integer> stationIDs) {
         if (stationIDs == null || stationIDs.isEmpty()) return Collections.emptyList();
-        return dataLoader.getFirestations().stream()
-                .filter(f -> stationIDs.contains(f.getStation()))
-                .map(Firestation::getAddress)
-                .distinct()
-                .collect(Collectors.toList());
+        return firestationRepository.findAddressesByStations(stationIDs);
     }
 
     /**
@@ -111,22 +105,26 @@ public class FirestationService {
      */
     // POST : Ajouter une nouvelle Station
     public Optional<Firestation> addFirestation(Firestation firestation) {
-        if (firestation.getAddress() == null) {
-            return Optional.empty();
-        }
-        List<Firestation> firestations = dataLoader.getFirestations();
-        if (firestations.isEmpty()) {
-            return Optional.empty();
-        }
+        return dataLoader.write(() -> {
+            if (firestation.getAddress() == null) {
+                return Optional.empty();
+            }
+            List<Firestation> firestations = firestationRepository.findAll();
+            if (firestations.isEmpty()) {
+                return Optional.empty();
+            }
 
-        Boolean exist = firestations.stream()
-                .anyMatch(f -> f.getAddress().equalsIgnoreCase(firestation.getAddress()));
-        if (exist) {
-            return Optional.empty();
-        }
-        firestations.add(firestation);
-        dataLoader.saveData();
-        return Optional.of(firestation);
+            Boolean exist = firestationRepository.findByAddress(firestation.getAddress()).isPresent();
+            if (exist) {
+                return Optional.empty();
+            }
+            firestationRepository.save(firestation);
+            responseCache.invalidateAddress(firestation.getAddress());
+            responseCache.invalidateStation(firestation.getStation());
+            stationViews.refresh(firestation.getAddress());
+            dataLoader.saveData(Mutation.addFirestation(firestation));
+            return Optional.of(firestation);
+        });
     }
 
     /**
@@ -138,19 +136,113 @@ public class FirestationService {
      */
     // Put : Mettre à jour une station existante
     public Optional<Firestation> updateFirestation(Firestation firestation) {
-        if (firestation.getAddress() == null) {
-            return Optional.empty();
-        }
-        List<Firestation> firestations = dataLoader.getFirestations();
-        if (firestations.isEmpty()) {
-            return Optional.empty();
-        }
-        Optional<Firestation> resultOpt = firestations.stream().filter(f -> f.getAddress().equalsIgnoreCase(firestation.getAddress())).findFirst();
-        resultOpt.ifPresent(f -> {
-            f.setStation(firestation.getStation());
-            dataLoader.saveData(); // Ajouté ici
+        return dataLoader.write(() -> {
+            if (firestation.getAddress() == null) {
+                return Optional.empty();
+            }
+            List<Firestation> firestations = firestationRepository.findAll();
+            if (firestations.isEmpty()) {
+                return Optional.empty();
+            }
+            Optional<Firestation> resultOpt = firestationRepository.updateStation(firestation.getAddress(), firestation.getStation());
+            resultOpt.ifPresent(f -> {
+                // Les réponses de l'ancienne caserne dépendent déjà de l'adresse
+                responseCache.invalidateAddress(f.getAddress());
+                responseCache.invalidateStation(f.getStation());
+                stationViews.refresh(f.getAddress());
+                dataLoader.saveData(Mutation.updateFirestation(firestation));
+            });
+            return resultOpt;
+        });
+    }
+
+    /**
+     * Ajoute un lot de mappings, avec les règles de {@link #addFirestation} appliquées à chacun :
+     * une adresse déjà couverte, ou déjà présente plus tôt dans le lot, est refusée.
+     * Endpoint : POST /firestation/batch
+     * Les mappings acceptés sont publiés en une seule version et enregistrés en une seule sauvegarde.
+     *
+     * @param firestations mappings à ajouter
+     * @return pour chaque mapping, dans l'ordre, le mapping ajouté ou vide si refusé
+     */
+    public List<Optional<Firestation>> addFirestations(List<Firestation> firestations) {
+        return addFirestations(firestations, false);
+    }
+
+    /**
+     * Comme {@link #addFirestations(List)}, mais un jeu de données vide peut aussi accepter le lot si {@code intoEmpty}
+     * (import complet dans une instance vide).
+     */
+    List<Optional<Firestation>> addFirestations(List<Firestation> firestations, boolean intoEmpty) {
+        return dataLoader.write(() -> {
+            List<Optional<Firestation>> results = new ArrayList<>(firestations.size());
+            List<Firestation> accepted = new ArrayList<>();
+            boolean hasData = !firestationRepository.findAll().isEmpty();
+            Set<String> added = new HashSet<>();
+            for (Firestation firestation : firestations) {
+                String key = KeyUtils.canonicalAddress(firestation.getAddress());
+                if ((!hasData && !intoEmpty) || key == null || !added.add(key)
+                        || firestationRepository.findByAddress(firestation.getAddress()).isPresent()) {
+                    results.add(Optional.empty());
+                    continue;
+                }
+                accepted.add(firestation);
+                results.add(Optional.of(firestation));
+            }
+            if (accepted.isEmpty()) {
+                return results;
+            }
+            firestationRepository.saveAll(accepted);
+            refresh(accepted);
+            dataLoader.saveData(Mutation.batch(accepted.stream().map(Mutation::addFirestation).toList()));
+            return results;
         });
-        return resultOpt;
+    }
+
+    /**
+     * Met à jour le numéro de caserne d'un lot d'adresses, avec les règles de {@link #updateFirestation}
+     * appliquées à chacune.
+     * Endpoint : PUT /firestation/batch
+     * Les mappings modifiés sont publiés en une seule version et enregistrés en une seule sauvegarde.
+     *
+     * @param firestations mappings à mettre à jour (identifiés par l’adresse)
+     * @return pour chaque mapping, dans l'ordre, le mapping mis à jour ou vide si non trouvé
+     */
+    public List<Optional<Firestation>> updateFirestations(List<Firestation> firestations) {
+        return dataLoader.write(() -> {
+            if (firestationRepository.findAll().isEmpty()) {
+                return Collections.nCopies(firestations.size(), Optional.<Firestation>empty());
+            }
+            List<Optional<Firestation>> results = firestationRepository.updateStations(firestations);
+            List<Firestation> updated = new ArrayList<>();
+            List<Mutation> mutations = new ArrayList<>();
+            for (int i = 0; i < results.size(); i++) {
+                if (results.get(i).isPresent()) {
+                    updated.add(results.get(i).get());
+                    mutations.add(Mutation.updateFirestation(firestations.get(i)));
+                }
+            }
+            if (updated.isEmpty()) {
+                return results;
+            }
+            refresh(updated);
+            dataLoader.saveData(Mutation.batch(mutations));
+            return results;
+        });
+    }
+
+    /**
+     * Invalide les réponses de ces adresses et casernes et déplace leurs foyers,
+     * en une seule mise à jour des vues.
+     */
+    private void refresh(List<Firestation> firestations) {
+        List<String> addresses = new ArrayList<>(firestations.size());
+        for (Firestation f : firestations) {
+            responseCache.invalidateAddress(f.getAddress());
+            responseCache.invalidateStation(f.getStation());
+            addresses.add(f.getAddress());
+        }
+        stationViews.refresh(addresses);
     }
 
     /**
@@ -162,16 +254,23 @@ public class FirestationService {
      */
     //DELETE : Supprimer le mapping d'une caserne ou d'une adresse
     public Boolean deleteFirestationMappingByAdress(String adress) {
-        if (adress == null) {
-            return false;
-        }
-        List<Firestation> firestations = dataLoader.getFirestations();
-        if (firestations.isEmpty()) {
-            return false;
-        }
+        return dataLoader.write(() -> {
+            if (adress == null) {
+                return false;
+            }
+            List<Firestation> firestations = firestationRepository.findAll();
+            if (firestations.isEmpty()) {
+                return false;
+            }
 
-        dataLoader.saveData();
-        return firestations.removeIf(f -> f.getAddress().equalsIgnoreCase(adress));
+            boolean deleted = firestationRepository.deleteByAddress(adress);
+            if (deleted) {
+                responseCache.invalidateAddress(adress);
+                stationViews.refresh(adress);
+                dataLoader.saveData(Mutation.deleteFirestationByAddress(adress));
+            }
+            return deleted;
+        });
     }
 
     /**
@@ -182,11 +281,20 @@ public class FirestationService {
      * @return true si au moins un mapping a été supprimé, false sinon
      */
     public Boolean deleteFirestationMappingById(Integer id) {
-        List<Firestation> firestations = dataLoader.getFirestations();
-        if (firestations.isEmpty()) {
-            return false;
-        }
-        dataLoader.saveData();
-        return firestations.removeIf(f -> f.getStation() == id);
+        return dataLoader.write(() -> {
+            List<Firestation> firestations = firestationRepository.findAll();
+            if (firestations.isEmpty()) {
+                return false;
+            }
+            List<String> addresses = firestationRepository.findAddressesByStations(List.of(id));
+            boolean deleted = firestationRepository.deleteByStation(id);
+            if (deleted) {
+                addresses.forEach(responseCache::invalidateAddress);
+                responseCache.invalidateStation(id);
+                stationViews.refresh(addresses);
+                dataLoader.saveData(Mutation.deleteFirestationByStation(id));
+            }
+            return deleted;
+        });
     }
 }
@@ -0,0 +1,272 @@
+package com.openclassrooms.P_5_SafetyNet_Alerts.service;
+
+import com.openclassrooms.P_5_SafetyNet_Alerts.data.DataLoader;
+import com.openclassrooms.P_5_SafetyNet_Alerts.model.DTO.ImportProgressDTO;
+import com.openclassrooms.P_5_SafetyNet_Alerts.model.DTO.ImportRecordDTO;
+import com.openclassrooms.P_5_SafetyNet_Alerts.model.Firestation;
+import com.openclassrooms.P_5_SafetyNet_Alerts.model.MedicalRecord;
+import com.openclassrooms.P_5_SafetyNet_Alerts.model.Person;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * Import en masse de personnes, dossiers médicaux et mappings caserne/adresse dans l'instance en cours.
+ * <p>
+ * Les enregistrements sont lus un par un depuis la source et appliqués par paquets de
+ * {@code import.chunk-size}, chacun en une seule écriture ({@link DataLoader#write}) passant par
+ * les lots des services : un enregistrement existant est mis à jour, les autres sont ajoutés.
+ * <ul>
+ *     <li>Mémoire : seul le paquet en cours est gardé, quelle que soit la taille du flux.</li>
+ *     <li>Contre-pression : le paquet suivant n'est lu qu'une fois le précédent enregistré
+ *     (réécriture du fichier ou synchronisation du journal) ; en mode write-behind, l'import attend
+ *     l'écriture différée quand elle a plus de {@code import.max-persistence-lag-ms} de retard.
+ *     Une source lue depuis le corps d'une requête ralentit ainsi le client.</li>
+ *     <li>Lectures : le verrou d'écriture est rendu entre deux paquets et les lectures ne le prennent
+ *     jamais ; elles voient l'import progresser paquet par paquet.</li>
+ * </ul>
+ * Un seul import à la fois ; un import interrompu (flux invalide, client déconnecté) garde les paquets
+ * déjà appliqués.
+ */
+@Service
+public class ImportService {
+
+    // Attente maximale de l'écriture différée pour un paquet
+    private static final long BACKPRESSURE_TIMEOUT_MILLIS = 30_000;
+
+    /**
+     * Source d'enregistrements, lue au fil de l'import.
+     */
+    public interface RecordSource {
+        /**
+         * @return l'enregistrement suivant, ou null à la fin du flux
+         */
+        ImportRecordDTO next() throws IOException;
+    }
+
+    /**
+     * Échec de lecture de la source, avec le bilan de cet import (les paquets déjà appliqués sont gardés).
+     */
+    public static final class ImportFailedException extends IOException {
+
+        private final transient ImportProgressDTO progress;
+
+        public ImportFailedException(IOException cause, ImportProgressDTO progress) {
+            super(cause.getMessage(), cause);
+            this.progress = progress;
+        }
+
+        /**
+         * @return le bilan de l'import interrompu, et non celui d'un import lancé depuis
+         */
+        public ImportProgressDTO getProgress() {
+            return progress;
+        }
+
+        @Override
+        public synchronized IOException getCause() {
+            return (IOException) super.getCause();
+        }
+    }
+
+    private final DataLoader dataLoader;
+    private final PersonService personService;
+    private final MedicalRecordService medicalRecordService;
+    private final FirestationService firestationService;
+    private final int chunkSize;
+    private final long maxPersistenceLagMillis;
+
+    private final AtomicBoolean running = new AtomicBoolean();
+    // Avancement de l'import en cours, ou bilan du dernier import
+    private volatile ImportProgressDTO progress;
+
+    private final Counter created;
+    private final Counter updated;
+    private final Counter rejected;
+    private final Counter backpressureWaits;
+
+    public ImportService(DataLoader dataLoader, PersonService personService,
+                         MedicalRecordService medicalRecordService, FirestationService firestationService,
+                         MeterRegistry meterRegistry,
+                         @Value("${import.chunk-size:500}") int chunkSize,
+                         @Value("${import.max-persistence-lag-ms:2000}") long maxPersistenceLagMillis) {
+        this.dataLoader = dataLoader;
+        this.personService = personService;
+        this.medicalRecordService = medicalRecordService;
+        this.firestationService = firestationService;
+        this.chunkSize = Math.max(1, chunkSize);
+        this.maxPersistenceLagMillis = maxPersistenceLagMillis;
+        created = Counter.builder("safetynet.import.records")
+                .description("Enregistrements importés")
+                .tag("result", "created").register(meterRegistry);
+        updated = Counter.builder("safetynet.import.records")
+                .description("Enregistrements importés")
+                .tag("result", "updated").register(meterRegistry);
+        rejected = Counter.builder("safetynet.import.records")
+                .description("Enregistrements importés")
+                .tag("result", "rejected").register(meterRegistry);
+        backpressureWaits = Counter.builder("safetynet.import.backpressure")
+                .description("Attentes de l'écriture sur le disque pendant un import")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Décompte d'un import, tenu par le thread qui l'exécute.
+     */
+    private static final class Tally {
+        private final long start = System.nanoTime();
+        private long records;
+        private long created;
+        private long updated;
+        private long rejected;
+        private long chunks;
+        private long backpressureWaits;
+
+        private ImportProgressDTO toProgress(boolean running, String error) {
+            long elapsedNanos = System.nanoTime() - start;
+            return ImportProgressDTO.builder()
+                    .running(running)
+                    .records(records)
+                    .created(created)
+                    .updated(updated)
+                    .rejected(rejected)
+                    .chunks(chunks)
+                    .backpressureWaits(backpressureWaits)
+                    .elapsedMillis(TimeUnit.NANOSECONDS.toMillis(elapsedNanos))
+                    .recordsPerSecond(elapsedNanos == 0 ? 0 : records * 1e9 / elapsedNanos)
+                    .error(error)
+                    .build();
+        }
+    }
+
+    /**
+     * @return l'avancement de l'import en cours, ou le bilan du dernier import ; vide si aucun import
+     */
+    public Optional<ImportProgressDTO> getProgress() {
+        return Optional.ofNullable(progress);
+    }
+
+    /**
+     * Lit et applique tous les enregistrements de la source.
+     * Endpoint : POST /import
+     *
+     * @param source     enregistrements à importer
+     * @param onProgress appelé après chaque paquet appliqué
+     * @return le bilan de l'import, ou vide si un autre import est en cours
+     * @throws ImportFailedException si la lecture de la source échoue ; les paquets déjà appliqués sont gardés
+     */
+    public Optional<ImportProgressDTO> importRecords(RecordSource source, Consumer<ImportProgressDTO> onProgress) throws IOException {
+        if (!running.compareAndSet(false, true)) {
+            return Optional.empty();
+        }
+        Tally tally = new Tally();
+        progress = tally.toProgress(true, null);
+        try {
+            List<ImportRecordDTO> chunk = new ArrayList<>(chunkSize);
+            for (ImportRecordDTO record = source.next(); record != null; record = source.next()) {
+                chunk.add(record);
+                if (chunk.size() == chunkSize) {
+                    apply(chunk, tally, onProgress);
+                    chunk.clear();
+                }
+            }
+            if (!chunk.isEmpty()) {
+                apply(chunk, tally, onProgress);
+            }
+            progress = tally.toProgress(false, null);
+            return Optional.of(progress);
+        } catch (IOException e) {
+            progress = tally.toProgress(false, e.getMessage());
+            throw new ImportFailedException(e, progress);
+        } catch (RuntimeException e) {
+            progress = tally.toProgress(false, e.getMessage());
+            throw e;
+        } finally {
+            running.set(false);
+        }
+    }
+
+    private void apply(List<ImportRecordDTO> chunk, Tally tally, Consumer<ImportProgressDTO> onProgress) {
+        List<Person> persons = new ArrayList<>();
+        List<MedicalRecord> medicalRecords = new ArrayList<>();
+        List<Firestation> firestations = new ArrayList<>();
+        long invalid = 0;
+        for (ImportRecordDTO record : chunk) {
+            int entities = (record.getPerson() != null ? 1 : 0) + (record.getMedicalRecord() != null ? 1 : 0)
+                    + (record.getFirestation() != null ? 1 : 0);
+            if (entities != 1) {
+                invalid++;
+            } else if (record.getPerson() != null) {
+                persons.add(record.getPerson());
+            } else if (record.getMedicalRecord() != null) {
+                medicalRecords.add(record.getMedicalRecord());
+            } else {
+                firestations.add(record.getFirestation());
+            }
+        }
+        tally.rejected += invalid;
+        rejected.increment(invalid);
+
+        // Une seule écriture : les lots des services y sont imbriqués, et enregistrés ensemble à la fin
+        dataLoader.write(() -> {
+            // Un import peut remplir une instance vide : les ajouts n'y sont pas refusés
+            upsert(persons, items -> personService.addPersons(items, true), personService::updatePersons, tally);
+            upsert(medicalRecords, items -> medicalRecordService.addMedicalRecords(items, true),
+                    medicalRecordService::updateMedicalRecords, tally);
+            upsert(firestations, items -> firestationService.addFirestations(items, true),
+                    firestationService::updateFirestations, tally);
+            return null;
+        });
+        tally.records += chunk.size();
+        tally.chunks++;
+
+        if (dataLoader.awaitPersistence(maxPersistenceLagMillis, BACKPRESSURE_TIMEOUT_MILLIS)) {
+            tally.backpressureWaits++;
+            backpressureWaits.increment();
+        }
+        progress = tally.toProgress(true, null);
+        onProgress.accept(progress);
+    }
+
+    /**
+     * Ajoute les éléments, puis met à jour ceux qui existaient déjà.
+     */
+    private <T> void upsert(List<T> items, Function<List<T>, List<Optional<T>>> add,
+                            Function<List<T>, List<Optional<T>>> update, Tally tally) {
+        if (items.isEmpty()) {
+            return;
+        }
+        List<Optional<T>> added = add.apply(items);
+        List<T> existing = new ArrayList<>();
+        for (int i = 0; i < added.size(); i++) {
+            if (added.get(i).isPresent()) {
+                tally.created++;
+                created.increment();
+            } else {
+                existing.add(items.get(i));
+            }
+        }
+        if (existing.isEmpty()) {
+            return;
+        }
+        for (Optional<T> result : update.apply(existing)) {
+            if (result.isPresent()) {
+                tally.updated++;
+                updated.increment();
+            } else {
+                tally.rejected++;
+                rejected.increment();
+            }
+        }
+    }
+}
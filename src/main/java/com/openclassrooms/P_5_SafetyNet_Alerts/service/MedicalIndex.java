@@ -0,0 +1,307 @@
+package com.openclassrooms.P_5_SafetyNet_Alerts.service;
+
+import com.openclassrooms.P_5_SafetyNet_Alerts.data.DataLoader;
+import com.openclassrooms.P_5_SafetyNet_Alerts.data.Dataset;
+import com.openclassrooms.P_5_SafetyNet_Alerts.data.IndexCache;
+import com.openclassrooms.P_5_SafetyNet_Alerts.model.MedicalRecord;
+import com.openclassrooms.P_5_SafetyNet_Alerts.model.Person;
+import com.openclassrooms.P_5_SafetyNet_Alerts.repository.MedicalRecordRepository;
+import com.openclassrooms.P_5_SafetyNet_Alerts.repository.PersonRepository;
+import com.openclassrooms.P_5_SafetyNet_Alerts.utils.KeyUtils;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.stereotype.Component;
+
+import java.util.*;
+import java.util.stream.IntStream;
+
+/**
+ * Index inversé des dossiers médicaux, lu par /population : allergie -> personnes, médicament -> personnes.
+ * <p>
+ * Une personne y est désignée par son numéro de ligne ({@link PersonRepository#findAllByRows}) ; chaque terme
+ * (sans tenir compte de la casse) porte l'ensemble de bits des personnes dont le dossier le contient.
+ * Un médicament est indexé sous sa valeur complète ({@code aznol:350mg}) et sous son nom ({@code aznol}).
+ * Une recherche combine ces ensembles, et la couverture des casernes, par intersection de bits.
+ * <ul>
+ *     <li>Maintenance incrémentale : chaque écriture de {@link MedicalRecordService} signale les dossiers
+ *     touchés, chaque écriture de {@link PersonService} les lignes ajoutées ou supprimées (les autres lignes
+ *     gardent leur numéro) ; seuls les ensembles des termes concernés sont copiés et modifiés.
+ *     Quand les lignes sont renumérotées (compaction de la table des personnes), l'index est reconstruit
+ *     par l'écriture, et non par la lecture suivante.</li>
+ *     <li>Cohérence : l'index est immuable et propre à une liste de personnes et une liste de dossiers.
+ *     Toute autre publication (rechargement du fichier, rejeu du journal) le rend obsolète : il est
+ *     reconstruit à la lecture suivante.</li>
+ * </ul>
+ */
+@Component
+public class MedicalIndex {
+
+    private final DataLoader dataLoader;
+    private final PersonRepository personRepository;
+    private final MedicalRecordRepository medicalRecordRepository;
+
+    private final IndexCache<Terms> indexes = new IndexCache<>();
+
+    private final Counter rebuilds;
+
+    /**
+     * Index construit pour une liste de personnes et une liste de dossiers, jamais modifié après publication
+     * (ni ses ensembles de bits). {@code rows} est le nombre de lignes de personnes indexées.
+     */
+    private record Terms(List<Person> persons, List<MedicalRecord> medicalRecords, int rows,
+                         Map<String, BitSet> byAllergy, Map<String, BitSet> byMedication) {
+    }
+
+    public MedicalIndex(DataLoader dataLoader, PersonRepository personRepository,
+                        MedicalRecordRepository medicalRecordRepository, MeterRegistry meterRegistry) {
+        this.dataLoader = dataLoader;
+        this.personRepository = personRepository;
+        this.medicalRecordRepository = medicalRecordRepository;
+        rebuilds = Counter.builder("safetynet.medical.index.rebuilds")
+                .description("Reconstructions complètes de l'index des allergies et médicaments")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Personnes dont le dossier contient toutes ces allergies et tous ces médicaments,
+     * dans la version lue ({@link DataLoader#read}).
+     *
+     * @param allergies   allergies recherchées, sans tenir compte de la casse
+     * @param medications médicaments recherchés, par nom ou valeur complète, sans tenir compte de la casse
+     * @return lignes des personnes ({@link PersonRepository#findAllByRows}), dans un ensemble propre à l'appelant ;
+     * toutes les personnes si aucun terme n'est donné
+     */
+    public BitSet matching(Collection<String> allergies, Collection<String> medications) {
+        Terms current = terms();
+        BitSet rows = personRepository.findAllRows();
+        retain(rows, current.byAllergy(), allergies);
+        retain(rows, current.byMedication(), medications);
+        return rows;
+    }
+
+    private static void retain(BitSet rows, Map<String, BitSet> index, Collection<String> values) {
+        if (values == null) return;
+        for (String value : values) {
+            BitSet matches = index.get(KeyUtils.lowerCaseKey(value));
+            if (matches == null) {
+                rows.clear();
+                return;
+            }
+            rows.and(matches);
+        }
+    }
+
+    /**
+     * Répercute l'écriture du dossier d'une personne. Appelé sous le verrou d'écriture, après la publication.
+     *
+     * @param before    dossiers lus avant l'écriture
+     * @param firstName prénom
+     * @param lastName  nom
+     */
+    public void refreshPerson(List<MedicalRecord> before, String firstName, String lastName) {
+        refresh(before, List.of(MedicalRecord.builder().firstName(firstName).lastName(lastName).build()));
+    }
+
+    /**
+     * Répercute l'écriture de plusieurs dossiers, publiés en une seule version.
+     *
+     * @param before         dossiers lus avant l'écriture
+     * @param medicalRecords dossiers écrits (seule leur identité est lue)
+     */
+    public void refreshPersons(List<MedicalRecord> before, List<MedicalRecord> medicalRecords) {
+        refresh(before, medicalRecords);
+    }
+
+    private void refresh(List<MedicalRecord> before, List<MedicalRecord> changed) {
+        List<Person> persons = personRepository.findAll();
+        Terms current = indexes.find(t -> t.persons() == persons && t.medicalRecords() == before);
+        if (current == null) {
+            // Index de la version précédente absent : la lecture suivante le reconstruit
+            return;
+        }
+        Map<String, BitSet> byAllergy = new HashMap<>(current.byAllergy());
+        Map<String, BitSet> byMedication = new HashMap<>(current.byMedication());
+        // Ensembles déjà copiés par cette écriture, modifiables sur place
+        Set<BitSet> copied = Collections.newSetFromMap(new IdentityHashMap<>());
+        for (MedicalRecord identity : changed) {
+            int[] rows = personRepository.findRowsByName(identity.getFirstName(), identity.getLastName());
+            if (rows.length == 0) {
+                continue;
+            }
+            MedicalRecord record = medicalRecordRepository
+                    .findByName(identity.getFirstName(), identity.getLastName()).orElse(null);
+            update(byAllergy, allergyKeys(record), rows, copied);
+            update(byMedication, medicationKeys(record), rows, copied);
+        }
+        indexes.add(new Terms(persons, medicalRecordRepository.findAll(), current.rows(), byAllergy, byMedication), true);
+    }
+
+    /**
+     * Répercute une écriture de personnes : lignes ajoutées en fin de table, lignes supprimées, ou déménagements
+     * (aucune ligne touchée). Appelé sous le verrou d'écriture, après la publication.
+     *
+     * @param before  personnes lues avant l'écriture
+     * @param removed lignes supprimées par l'écriture, lues avant elle
+     */
+    public void refreshRows(List<Person> before, int[] removed) {
+        List<MedicalRecord> medicalRecords = medicalRecordRepository.findAll();
+        Terms current = indexes.find(t -> t.persons() == before && t.medicalRecords() == medicalRecords);
+        if (current == null) {
+            // Index de la version précédente absent : la lecture suivante le reconstruit
+            return;
+        }
+        List<Person> persons = personRepository.findAll();
+        int rows = personRepository.countRows();
+        if (rows < current.rows()) {
+            // Lignes renumérotées : reconstruction ici plutôt que par une lecture
+            indexes.add(build(persons, medicalRecords), true);
+            return;
+        }
+        Map<String, BitSet> byAllergy = new HashMap<>(current.byAllergy());
+        Map<String, BitSet> byMedication = new HashMap<>(current.byMedication());
+        Set<BitSet> copied = Collections.newSetFromMap(new IdentityHashMap<>());
+        for (int row : removed) {
+            update(byAllergy, Set.of(), new int[]{row}, copied);
+            update(byMedication, Set.of(), new int[]{row}, copied);
+        }
+        int[] added = IntStream.range(current.rows(), rows).toArray();
+        List<Person> addedPersons = personRepository.findAllByRows(added);
+        for (int i = 0; i < added.length; i++) {
+            Person person = addedPersons.get(i);
+            MedicalRecord record = medicalRecordRepository
+                    .findByName(person.getFirstName(), person.getLastName()).orElse(null);
+            for (String key : allergyKeys(record)) {
+                writable(byAllergy, key, copied).set(added[i]);
+            }
+            for (String key : medicationKeys(record)) {
+                writable(byMedication, key, copied).set(added[i]);
+            }
+        }
+        indexes.add(new Terms(persons, medicalRecords, rows, byAllergy, byMedication), true);
+    }
+
+    /**
+     * Remplace les termes des homonymes des lignes {@code rows}, qui partagent le même dossier, par {@code keys}
+     * (aucun terme pour une personne supprimée).
+     * Leurs termes actuels sont lus dans l'index, sur la première ligne.
+     */
+    private static void update(Map<String, BitSet> index, Set<String> keys, int[] rows, Set<BitSet> copied) {
+        List<String> removed = new ArrayList<>();
+        index.forEach((key, bits) -> {
+            if (bits.get(rows[0]) && !keys.contains(key)) {
+                removed.add(key);
+            }
+        });
+        for (String key : removed) {
+            BitSet bits = writable(index, key, copied);
+            for (int row : rows) {
+                bits.clear(row);
+            }
+            if (bits.isEmpty()) {
+                index.remove(key);
+            }
+        }
+        for (String key : keys) {
+            BitSet bits = index.get(key);
+            if (bits == null || !bits.get(rows[0])) {
+                bits = writable(index, key, copied);
+                for (int row : rows) {
+                    bits.set(row);
+                }
+            }
+        }
+    }
+
+    /**
+     * Ensemble d'un terme modifiable par l'écriture en cours : copie de celui de la version précédente.
+     */
+    private static BitSet writable(Map<String, BitSet> index, String key, Set<BitSet> copied) {
+        BitSet bits = index.get(key);
+        if (bits == null || !copied.contains(bits)) {
+            bits = bits == null ? new BitSet() : (BitSet) bits.clone();
+            copied.add(bits);
+            index.put(key, bits);
+        }
+        return bits;
+    }
+
+    /**
+     * Retourne l'index de la version lue, en le reconstruisant s'il est obsolète.
+     * Sans verrou : deux lecteurs peuvent construire le même index en parallèle.
+     */
+    private Terms terms() {
+        List<Person> persons = personRepository.findAll();
+        List<MedicalRecord> medicalRecords = medicalRecordRepository.findAll();
+        Terms current = indexes.find(t -> t.persons() == persons && t.medicalRecords() == medicalRecords);
+        if (current != null) {
+            return current;
+        }
+        current = build(persons, medicalRecords);
+        // Une lecture figée sur une version dépassée ne doit pas évincer l'index de la dernière version
+        Dataset latest = dataLoader.getLatestDataset();
+        return indexes.add(current, persons == latest.getPersons() && medicalRecords == latest.getMedicalRecords());
+    }
+
+    /**
+     * Construit l'index de la version lue.
+     */
+    private Terms build(List<Person> persons, List<MedicalRecord> medicalRecords) {
+        rebuilds.increment();
+        Map<String, BitSet> byAllergy = new HashMap<>();
+        Map<String, BitSet> byMedication = new HashMap<>();
+        for (MedicalRecord record : medicalRecords == null ? List.<MedicalRecord>of() : medicalRecords) {
+            // Seul le premier dossier d'une identité est joint à ses personnes
+            if (medicalRecordRepository.findByName(record.getFirstName(), record.getLastName()).orElse(null) != record) {
+                continue;
+            }
+            int[] rows = personRepository.findRowsByName(record.getFirstName(), record.getLastName());
+            if (rows.length == 0) {
+                continue;
+            }
+            for (String key : allergyKeys(record)) {
+                set(byAllergy, key, rows);
+            }
+            for (String key : medicationKeys(record)) {
+                set(byMedication, key, rows);
+            }
+        }
+        return new Terms(persons, medicalRecords, personRepository.countRows(), byAllergy, byMedication);
+    }
+
+    private static void set(Map<String, BitSet> index, String key, int[] rows) {
+        BitSet bits = index.computeIfAbsent(key, k -> new BitSet());
+        for (int row : rows) {
+            bits.set(row);
+        }
+    }
+
+    private static Set<String> allergyKeys(MedicalRecord record) {
+        Set<String> keys = new HashSet<>();
+        if (record != null && record.getAllergies() != null) {
+            for (String allergy : record.getAllergies()) {
+                addKey(keys, allergy);
+            }
+        }
+        return keys;
+    }
+
+    private static Set<String> medicationKeys(MedicalRecord record) {
+        Set<String> keys = new HashSet<>();
+        if (record != null && record.getMedications() != null) {
+            for (String medication : record.getMedications()) {
+                addKey(keys, medication);
+                if (medication != null && medication.indexOf(':') >= 0) {
+                    addKey(keys, medication.substring(0, medication.indexOf(':')));
+                }
+            }
+        }
+        return keys;
+    }
+
+    private static void addKey(Set<String> keys, String value) {
+        String key = KeyUtils.lowerCaseKey(value);
+        if (key != null && !key.isEmpty()) {
+            keys.add(key);
+        }
+    }
+}
@@ -1,12 +1,14 @@
 package com.openclassrooms.P_5_SafetyNet_Alerts.service;
 
 import com.openclassrooms.P_5_SafetyNet_Alerts.data.DataLoader;
+import com.openclassrooms.P_5_SafetyNet_Alerts.data.Mutation;
 import com.openclassrooms.P_5_SafetyNet_Alerts.model.MedicalRecord;
+import com.openclassrooms.P_5_SafetyNet_Alerts.repository.MedicalRecordRepository;
+import com.openclassrooms.P_5_SafetyNet_Alerts.utils.KeyUtils;
 import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Service;
 
-import java.util.List;
-import java.util.Optional;
+import java.util.*;
 
 /**
  * Service métier dédié à la gestion des dossiers médicaux ({@link MedicalRecord}).
@@ -15,6 +17,11 @@ import java.util.Optional;
  * modification et suppression de dossiers médicaux, ainsi que de fournir des informations
  * utiles aux contrôleurs REST (par exemple : dossier médical par personne, ajout ou suppression
  * de dossiers, etc.).
+ * <p>
+ * Les écritures sont exécutées et journalisées sous le verrou d'écriture ({@link DataLoader#write}),
+ * invalident les réponses en cache qui contiennent la personne concernée ({@link ResponseCache})
+ * et recomptent ses foyers dans les vues par caserne ({@link StationViews}) ; ses allergies et
+ * médicaments sont reportés dans l'index inversé ({@link MedicalIndex}).
  */
 
 @Service
@@ -22,6 +29,10 @@ import java.util.Optional;
 public class MedicalRecordService {
 
     private final DataLoader dataLoader;
+    private final MedicalRecordRepository medicalRecordRepository;
+    private final ResponseCache responseCache;
+    private final StationViews stationViews;
+    private final MedicalIndex medicalIndex;
 
     /**
      * Récupère tous les dossiers médicaux.
@@ -29,21 +40,18 @@ public class MedicalRecordService {
      * @return liste de MedicalRecord
      */
     public List<MedicalRecord> getMedicalRecords() {
-        return dataLoader.getMedicalRecords();
+        return medicalRecordRepository.findAll();
     }
 
     /**
-     * Retourne l'enregistrement médical d'une personne par prénom et nom.
+     * Retourne l'enregistrement médical d'une personne par prénom et nom (insensible à la casse).
      *
      * @param firstName prénom
      * @param lastName  nom
      * @return Optional contenant le dossier médical trouvé, ou vide si absent
      */
     public Optional<MedicalRecord> getMedicalRecordByName(String firstName, String lastName) {
-        return getMedicalRecords().stream()
-                .filter(mr -> mr.getFirstName().equals(firstName) && mr.getLastName().equals(lastName))
-                .findFirst();
-
+        return medicalRecordRepository.findByName(firstName, lastName);
     }
     //-----------------------------------------EndPoints-----------------------------------------//
 
@@ -56,23 +64,26 @@ public class MedicalRecordService {
      */
     //POST - Creation d'un nouveau registre medicale
     public Optional<MedicalRecord> addMedicalRecord(MedicalRecord medicalRecord) {
-        if (medicalRecord.getFirstName() == null || medicalRecord.getLastName() == null) {
-            return Optional.empty();
-        }
-        List<MedicalRecord> medicalRecords = dataLoader.getMedicalRecords();
-        if (medicalRecords.isEmpty()) {
-            return Optional.empty();
-        }
-
-        Boolean exist = medicalRecords.stream()
-                .anyMatch(m -> m.getFirstName().equalsIgnoreCase(medicalRecord.getFirstName())
-                        && m.getLastName().equalsIgnoreCase(medicalRecord.getLastName()));
-        if (exist) {
-            return Optional.empty();
-        }
-        medicalRecords.add(medicalRecord);
-        dataLoader.saveData();
-        return Optional.of(medicalRecord);
+        return dataLoader.write(() -> {
+            if (medicalRecord.getFirstName() == null || medicalRecord.getLastName() == null) {
+                return Optional.empty();
+            }
+            List<MedicalRecord> medicalRecords = medicalRecordRepository.findAll();
+            if (medicalRecords.isEmpty()) {
+                return Optional.empty();
+            }
+
+            Boolean exist = medicalRecordRepository.findByName(medicalRecord.getFirstName(), medicalRecord.getLastName()).isPresent();
+            if (exist) {
+                return Optional.empty();
+            }
+            medicalRecordRepository.save(medicalRecord);
+            responseCache.invalidatePerson(medicalRecord.getFirstName(), medicalRecord.getLastName());
+            stationViews.refreshPerson(medicalRecord.getFirstName(), medicalRecord.getLastName());
+            medicalIndex.refreshPerson(medicalRecords, medicalRecord.getFirstName(), medicalRecord.getLastName());
+            dataLoader.saveData(Mutation.addMedicalRecord(medicalRecord));
+            return Optional.of(medicalRecord);
+        });
     }
 
     /**
@@ -84,24 +95,110 @@ public class MedicalRecordService {
      */
     //PUT - Modification d'un registre medical existant
     public Optional<MedicalRecord> updateMedicalRecord(MedicalRecord medicalRecord) {
-        if (medicalRecord.getFirstName() == null || medicalRecord.getLastName() == null) {
-            return Optional.empty();
-        }
-        List<MedicalRecord> medicalRecords = dataLoader.getMedicalRecords();
-        if (medicalRecords.isEmpty()) {
-            return Optional.empty();
-        }
+        return dataLoader.write(() -> {
+            if (medicalRecord.getFirstName() == null || medicalRecord.getLastName() == null) {
+                return Optional.empty();
+            }
+            List<MedicalRecord> medicalRecords = medicalRecordRepository.findAll();
+            if (medicalRecords.isEmpty()) {
+                return Optional.empty();
+            }
+
+            Optional<MedicalRecord> resultOpt = medicalRecordRepository.update(medicalRecord);
+            resultOpt.ifPresent(r -> {
+                responseCache.invalidatePerson(r.getFirstName(), r.getLastName());
+                stationViews.refreshPerson(r.getFirstName(), r.getLastName());
+                medicalIndex.refreshPerson(medicalRecords, r.getFirstName(), r.getLastName());
+                dataLoader.saveData(Mutation.updateMedicalRecord(medicalRecord));
+            });
+            return resultOpt;
+        });
+    }
 
-        Optional<MedicalRecord> resultOpt = medicalRecords.stream().filter(m ->
-                m.getFirstName().equalsIgnoreCase(medicalRecord.getFirstName()) && m.getLastName().equalsIgnoreCase(medicalRecord.getLastName())).findFirst();
+    /**
+     * Ajoute un lot de dossiers médicaux, avec les règles de {@link #addMedicalRecord} appliquées
+     * à chacun : un dossier existant, ou déjà présent plus tôt dans le lot, est refusé.
+     * Endpoint: POST /medicalRecord/batch
+     * Les dossiers acceptés sont publiés en une seule version et enregistrés en une seule sauvegarde.
+     *
+     * @param medicalRecords dossiers à ajouter
+     * @return pour chaque dossier, dans l'ordre, le dossier ajouté ou vide si refusé
+     */
+    public List<Optional<MedicalRecord>> addMedicalRecords(List<MedicalRecord> medicalRecords) {
+        return addMedicalRecords(medicalRecords, false);
+    }
 
-        resultOpt.ifPresent(r -> {
-            r.setMedications(medicalRecord.getMedications());
-            r.setBirthdate(medicalRecord.getBirthdate());
-            r.setAllergies(medicalRecord.getAllergies());
-            dataLoader.saveData();
+    /**
+     * Comme {@link #addMedicalRecords(List)}, mais un jeu de données vide peut aussi accepter le lot si {@code intoEmpty}
+     * (import complet dans une instance vide).
+     */
+    List<Optional<MedicalRecord>> addMedicalRecords(List<MedicalRecord> medicalRecords, boolean intoEmpty) {
+        return dataLoader.write(() -> {
+            List<Optional<MedicalRecord>> results = new ArrayList<>(medicalRecords.size());
+            List<MedicalRecord> accepted = new ArrayList<>();
+            List<MedicalRecord> before = medicalRecordRepository.findAll();
+            boolean hasData = !before.isEmpty();
+            Set<String> added = new HashSet<>();
+            for (MedicalRecord medicalRecord : medicalRecords) {
+                String key = KeyUtils.identityKey(medicalRecord.getFirstName(), medicalRecord.getLastName());
+                if ((!hasData && !intoEmpty) || key == null || !added.add(key)
+                        || medicalRecordRepository.findByName(medicalRecord.getFirstName(), medicalRecord.getLastName()).isPresent()) {
+                    results.add(Optional.empty());
+                    continue;
+                }
+                accepted.add(medicalRecord);
+                results.add(Optional.of(medicalRecord));
+            }
+            if (accepted.isEmpty()) {
+                return results;
+            }
+            medicalRecordRepository.saveAll(accepted);
+            invalidatePersons(accepted);
+            stationViews.refreshPersons(accepted);
+            medicalIndex.refreshPersons(before, accepted);
+            dataLoader.saveData(Mutation.batch(accepted.stream().map(Mutation::addMedicalRecord).toList()));
+            return results;
         });
-        return resultOpt;
+    }
+
+    /**
+     * Met à jour un lot de dossiers médicaux, avec les règles de {@link #updateMedicalRecord} appliquées à chacun.
+     * Endpoint: PUT /medicalRecord/batch
+     * Les dossiers modifiés sont publiés en une seule version et enregistrés en une seule sauvegarde.
+     *
+     * @param medicalRecords nouvelles infos, identifiées par prénom+nom
+     * @return pour chaque dossier, dans l'ordre, le dossier modifié ou vide si non trouvé
+     */
+    public List<Optional<MedicalRecord>> updateMedicalRecords(List<MedicalRecord> medicalRecords) {
+        return dataLoader.write(() -> {
+            List<MedicalRecord> before = medicalRecordRepository.findAll();
+            if (before.isEmpty()) {
+                return Collections.nCopies(medicalRecords.size(), Optional.<MedicalRecord>empty());
+            }
+            List<Optional<MedicalRecord>> results = medicalRecordRepository.updateAll(medicalRecords);
+            List<MedicalRecord> updated = new ArrayList<>();
+            List<Mutation> mutations = new ArrayList<>();
+            for (int i = 0; i < results.size(); i++) {
+                if (results.get(i).isPresent()) {
+                    updated.add(results.get(i).get());
+                    mutations.add(Mutation.updateMedicalRecord(medicalRecords.get(i)));
+                }
+            }
+            if (updated.isEmpty()) {
+                return results;
+            }
+            invalidatePersons(updated);
+            stationViews.refreshPersons(updated);
+            medicalIndex.refreshPersons(before, updated);
+            dataLoader.saveData(Mutation.batch(mutations));
+            return results;
+        });
+    }
+
+    private void invalidatePersons(List<MedicalRecord> medicalRecords) {
+        for (MedicalRecord r : medicalRecords) {
+            responseCache.invalidatePerson(r.getFirstName(), r.getLastName());
+        }
     }
 
     /**
@@ -114,17 +211,23 @@ public class MedicalRecordService {
      */
     //DELETE : Supprimer un registre medical
     public Boolean deleteMedicalRecord(String firstName, String lastName) {
-        if (firstName == null || lastName == null) {
-            return false;
-        }
-        List<MedicalRecord> medicalRecords = dataLoader.getMedicalRecords();
-        if (medicalRecords.isEmpty()) {
-            return false;
-        }
-
-        dataLoader.saveData();
-
-        return medicalRecords.removeIf(m ->
-                m.getLastName().equalsIgnoreCase(lastName) && m.getFirstName().equalsIgnoreCase(firstName));
+        return dataLoader.write(() -> {
+            if (firstName == null || lastName == null) {
+                return false;
+            }
+            List<MedicalRecord> medicalRecords = medicalRecordRepository.findAll();
+            if (medicalRecords.isEmpty()) {
+                return false;
+            }
+
+            boolean deleted = medicalRecordRepository.deleteByName(firstName, lastName);
+            if (deleted) {
+                responseCache.invalidatePerson(firstName, lastName);
+                stationViews.refreshPerson(firstName, lastName);
+                medicalIndex.refreshPerson(medicalRecords, firstName, lastName);
+                dataLoader.saveData(Mutation.deleteMedicalRecord(firstName, lastName));
+            }
+            return deleted;
+        });
     }
 }
@@ -0,0 +1,52 @@
+package com.openclassrooms.P_5_SafetyNet_Alerts.service;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.Optional;
+
+/**
+ * Position dans un résultat paginé : clef de tri du dernier élément remis, et nombre d'éléments
+ * déjà remis parmi ceux qui partagent cette clef.
+ * <p>
+ * Le curseur désigne une position dans l'ordre de tri des index, et non un rang : la page suivante
+ * est retrouvée par recherche dichotomique, sans parcourir les pages précédentes, et une écriture
+ * faite entre deux pages ne décale pas les éléments suivants. Il est transmis au client sous une forme
+ * opaque ({@link #encode()}).
+ *
+ * @param key  clef de tri du dernier élément remis
+ * @param ties nombre d'éléments remis portant cette clef
+ */
+public record PageCursor(String key, int ties) {
+
+    private static final Base64.Encoder ENCODER = Base64.getUrlEncoder().withoutPadding();
+    private static final Base64.Decoder DECODER = Base64.getUrlDecoder();
+
+    /**
+     * @return la forme opaque du curseur, à renvoyer telle quelle pour obtenir la page suivante
+     */
+    public String encode() {
+        return ENCODER.encodeToString((ties + ":" + key).getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * @param token forme opaque produite par {@link #encode()}
+     * @return le curseur, ou Optional.empty() si le jeton est invalide
+     */
+    public static Optional<PageCursor> decode(String token) {
+        try {
+            String decoded = new String(DECODER.decode(token), StandardCharsets.UTF_8);
+            int separator = decoded.indexOf(':');
+            if (separator < 0) {
+                return Optional.empty();
+            }
+            int ties = Integer.parseInt(decoded.substring(0, separator));
+            if (ties < 1) {
+                return Optional.empty();
+            }
+            return Optional.of(new PageCursor(decoded.substring(separator + 1), ties));
+        } catch (IllegalArgumentException e) {
+            // Base64 ou nombre invalide
+            return Optional.empty();
+        }
+    }
+}
@@ -0,0 +1,105 @@
+package com.openclassrooms.P_5_SafetyNet_Alerts.service;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * Découpage d'un parcours trié en pages (voir {@link PageCursor}).
+ * <p>
+ * Les éléments sont proposés dans l'ordre de tri, à partir de {@link #from} ; ceux qui précèdent
+ * le curseur sont ignorés. Un élément de plus que la page est retenu, pour savoir s'il reste une page suivante.
+ *
+ * @param <T> type des éléments
+ */
+final class Pager<T> {
+
+    private final int limit;
+    private final PageCursor after;
+    private final List<T> items;
+    private int skippedTies;
+    // Position atteinte après le dernier élément retenu
+    private String lastKey;
+    private int lastTies;
+    private PageCursor next;
+
+    Pager(int limit, PageCursor after) {
+        this.limit = limit;
+        this.after = after;
+        this.items = new ArrayList<>(Math.min(limit, 1024));
+        if (after != null) {
+            lastKey = after.key();
+            lastTies = after.ties();
+        }
+    }
+
+    /**
+     * @return l'indice du premier élément de {@code sorted} dont la clef n'est pas avant le curseur
+     */
+    <E> int from(List<E> sorted, Function<? super E, String> key) {
+        return after == null ? 0 : lowerBound(sorted, key, after.key());
+    }
+
+    /**
+     * @return l'indice du premier élément de {@code sorted} dont la clef n'est pas avant {@code target}
+     */
+    static <E> int lowerBound(List<E> sorted, Function<? super E, String> key, String target) {
+        int low = 0;
+        int high = sorted.size();
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            String k = key.apply(sorted.get(mid));
+            // Clef nulle : en fin d'index
+            if (k != null && k.compareTo(target) < 0) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * Propose l'élément suivant dans l'ordre de tri.
+     *
+     * @return false une fois la page complète : le parcours peut s'arrêter
+     */
+    boolean offer(String key, T item) {
+        if (after != null) {
+            int cmp = key.compareTo(after.key());
+            if (cmp < 0) {
+                return true;
+            }
+            if (cmp == 0 && skippedTies < after.ties()) {
+                skippedTies++;
+                return true;
+            }
+        }
+        if (items.size() == limit) {
+            next = new PageCursor(lastKey, lastTies);
+            return false;
+        }
+        items.add(item);
+        if (key.equals(lastKey)) {
+            lastTies++;
+        } else {
+            lastKey = key;
+            lastTies = 1;
+        }
+        return true;
+    }
+
+    /**
+     * @return les éléments retenus, au plus {@code limit}
+     */
+    List<T> items() {
+        return items;
+    }
+
+    /**
+     * @return le curseur de la page suivante, null s'il n'y en a pas
+     */
+    PageCursor next() {
+        return next;
+    }
+}
@@ -1,14 +1,21 @@
 package com.openclassrooms.P_5_SafetyNet_Alerts.service;
 
 import com.openclassrooms.P_5_SafetyNet_Alerts.data.DataLoader;
+import com.openclassrooms.P_5_SafetyNet_Alerts.data.Dataset;
+import com.openclassrooms.P_5_SafetyNet_Alerts.data.Mutation;
 import com.openclassrooms.P_5_SafetyNet_Alerts.model.DTO.*;
 import com.openclassrooms.P_5_SafetyNet_Alerts.model.MedicalRecord;
 import com.openclassrooms.P_5_SafetyNet_Alerts.model.Person;
-import com.openclassrooms.P_5_SafetyNet_Alerts.utils.DateUtils;
+import com.openclassrooms.P_5_SafetyNet_Alerts.repository.PersonRepository;
+import com.openclassrooms.P_5_SafetyNet_Alerts.service.ServiceMetrics.Operation;
+import com.openclassrooms.P_5_SafetyNet_Alerts.service.ServiceMetrics.Stage;
+import com.openclassrooms.P_5_SafetyNet_Alerts.utils.KeyUtils;
+import com.openclassrooms.P_5_SafetyNet_Alerts.utils.StringPool;
 import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Service;
 
 import java.util.*;
+import java.util.function.Consumer;
 import java.util.stream.Collectors;
 
 /**
@@ -18,15 +25,37 @@ import java.util.stream.Collectors;
  * modification et suppression d'habitants, et de fournir des informations ou agrégations
  * utiles aux contrôleurs REST (par exemple: habitants desservis par une caserne, enfants par adresse,
  * informations pour alertes, filtres par ville, etc.).
+ * <p>
+ * Chaque requête est évaluée sur une seule version du jeu de données ({@link DataLoader#read}),
+ * et chaque écriture est exécutée et journalisée sous le verrou d'écriture ({@link DataLoader#write}).
+ * Les requêtes sont découpées en étapes (résolution des adresses, recherche des habitants, jointure
+ * des dossiers médicaux, calcul des âges, construction des DTO), chacune mesurée par {@link ServiceMetrics}.
+ * Leurs réponses sont mises en cache ({@link ResponseCache}) ; les écritures invalident celles qu'elles modifient.
+ * Les décomptes adultes / enfants et les téléphones d'une caserne sont lus dans sa vue matérialisée
+ * ({@link StationViews}), que les écritures tiennent à jour. /population intersecte la couverture des casernes
+ * avec l'index inversé des allergies et médicaments ({@link MedicalIndex}).
+ * <p>
+ * /firestation, /personInfo et /communityEmail existent aussi en pages ({@link ResultPage}) : chaque page
+ * reprend à un curseur ({@link PageCursor}) dans un ordre stable des index, sans calculer les précédentes.
+ * La recherche par préfixe de nom de /personInfo n'existe qu'en pages.
  */
 
 @Service
 @RequiredArgsConstructor
 public class PersonService {
 
+    // Écriture qui ne supprime aucune ligne de personne
+    private static final int[] NO_ROWS = new int[0];
+
     private final DataLoader dataLoader;
+    private final PersonRepository personRepository;
     private final MedicalRecordService medicalRecordService;
     private final FirestationService firestationService;
+    private final AgeService ageService;
+    private final ServiceMetrics metrics;
+    private final ResponseCache responseCache;
+    private final StationViews stationViews;
+    private final MedicalIndex medicalIndex;
 
     /**
      * Récupère la liste des personnes couvertes par une caserne particulière.
@@ -41,39 +70,138 @@ public class PersonService {
      */
     // -------------------- /firestation?stationNumber=xx --------------------- //
     public Optional<PersonsByFirestationIDReturn> getAllPersonsByDependingOfFirestationID(int stationId) {
-        List<String> addresses = firestationService.getAddressesByStationID(stationId);
+        return responseCache.get(Operation.FIRESTATION, stationId, deps -> {
+            Operation op = Operation.FIRESTATION;
+            long t = metrics.start();
+            List<String> addresses = firestationService.getAddressesByStationID(stationId);
+            t = metrics.stop(op, Stage.ADDRESS_RESOLUTION, t);
 
-        List<Person> coveredPersons = dataLoader.getPersons().stream()
-                .filter(p -> addresses.contains(p.getAddress()))
-                .collect(Collectors.toList());
+            List<Person> coveredPersons = findResidents(addresses);
+            t = metrics.stop(op, Stage.RESIDENT_SCAN, t);
+            deps.station(stationId).persons(coveredPersons);
+            addresses.forEach(deps::address);
 
-        List<PersonByFirestationID> dtos = coveredPersons.stream()
-                .map(p -> PersonByFirestationID.builder()
-                        .lastName(p.getLastName())
-                        .firstName(p.getFirstName())
-                        .adress(p.getAddress())
-                        .phoneNumber(p.getPhone())
-                        .build())
-                .collect(Collectors.toList());
-
-        Map<Boolean, Long> ageCount = coveredPersons.stream()
-                .map(p -> medicalRecordService.getMedicalRecordByName(p.getFirstName(), p.getLastName())
-                        .map(MedicalRecord::getBirthdate)
-                        .map(DateUtils::calculateAgeFromBirthdate)
-                        .orElse(0))
-                .collect(Collectors.partitioningBy(age -> age >= 18, Collectors.counting()));
-
-        if (dtos.isEmpty()) {
-            return Optional.empty();
-        }
+            int countOfChilds = 0;
+            Optional<StationViews.Counts> counts = stationViews.counts(stationId);
+            if (counts.isPresent()) {
+                countOfChilds = counts.get().children();
+                t = metrics.stop(op, Stage.STATION_VIEW, t);
+            } else {
+                MedicalRecord[] records = findMedicalRecords(coveredPersons);
+                t = metrics.stop(op, Stage.MEDICAL_RECORD_JOIN, t);
+                for (MedicalRecord record : records) {
+                    if (isChild(record)) {
+                        countOfChilds++;
+                    }
+                }
+                t = metrics.stop(op, Stage.AGE_COMPUTATION, t);
+            }
+
+            List<PersonByFirestationID> dtos = coveredPersons.stream()
+                    .map(p -> PersonByFirestationID.builder()
+                            .lastName(p.getLastName())
+                            .firstName(p.getFirstName())
+                            .adress(p.getAddress())
+                            .phoneNumber(p.getPhone())
+                            .build())
+                    .collect(Collectors.toList());
+
+            if (dtos.isEmpty()) {
+                metrics.stop(op, Stage.DTO_ASSEMBLY, t);
+                return Optional.empty();
+            }
+
+            Optional<PersonsByFirestationIDReturn> result = Optional.of(PersonsByFirestationIDReturn.builder()
+                    .persons(dtos)
+                    .countOfAdults(coveredPersons.size() - countOfChilds)
+                    .countOfChilds(countOfChilds)
+                    .build());
+            metrics.stop(op, Stage.DTO_ASSEMBLY, t);
 
-        Optional<PersonsByFirestationIDReturn> result = Optional.of(PersonsByFirestationIDReturn.builder()
-                .persons(dtos)
-                .countOfAdults(ageCount.getOrDefault(true, 0L).intValue())
-                .countOfChilds(ageCount.getOrDefault(false, 0L).intValue())
-                .build());
+            return result;
+        });
+    }
 
-        return result;
+    /**
+     * Page de {@link #getAllPersonsByDependingOfFirestationID} : les habitants sont triés par adresse
+     * canonique, puis par identité. Les décomptes adultes / enfants portent sur toute la caserne ; ils
+     * sont lus dans sa vue, sans parcourir ses habitants (par jointure si la vue ne reflète pas la version lue).
+     * Seules les adresses à partir de celle du curseur sont parcourues.
+     *
+     * @param stationId Numéro de la caserne
+     * @param limit     nombre maximal de personnes de la page
+     * @param after     position de la fin de la page précédente, null pour la première page
+     * @return la page et le curseur de la suivante, ou Optional.empty() si la caserne ne couvre personne
+     */
+    // -------------------- /firestation?stationNumber=xx&limit=n&cursor=xxx --------------------- //
+    public Optional<ResultPage<PersonsByFirestationIDReturn>> getPersonsByFirestationIDPage(int stationId, int limit,
+                                                                                         PageCursor after) {
+        return dataLoader.read(() -> {
+            Operation op = Operation.FIRESTATION;
+            long t = metrics.start();
+            List<String> addresses = firestationService.getAddressesByStationID(stationId);
+            List<String> keys = addresses.stream()
+                    .map(KeyUtils::canonicalAddress)
+                    .filter(Objects::nonNull)
+                    .distinct()
+                    .sorted()
+                    .collect(Collectors.toList());
+            t = metrics.stop(op, Stage.ADDRESS_RESOLUTION, t);
+
+            StationViews.Counts counts;
+            Optional<StationViews.Counts> view = stationViews.counts(stationId);
+            if (view.isPresent()) {
+                counts = view.get();
+                t = metrics.stop(op, Stage.STATION_VIEW, t);
+            } else {
+                List<Person> coveredPersons = findResidents(addresses);
+                int countOfChilds = 0;
+                for (MedicalRecord record : findMedicalRecords(coveredPersons)) {
+                    if (isChild(record)) {
+                        countOfChilds++;
+                    }
+                }
+                counts = new StationViews.Counts(coveredPersons.size() - countOfChilds, countOfChilds);
+                t = metrics.stop(op, Stage.MEDICAL_RECORD_JOIN, t);
+            }
+            if (counts.adults() + counts.children() == 0) {
+                return Optional.empty();
+            }
+
+            Pager<Person> pager = new Pager<>(limit, after);
+            boolean more = true;
+            int from = after == null ? 0 : Pager.lowerBound(keys, key -> key, headOf(after));
+            for (int i = from; i < keys.size() && more; i++) {
+                String address = keys.get(i);
+                List<Person> household = new ArrayList<>(personRepository.findByAddress(address));
+                household.sort(Comparator.comparing(p -> residentKey(address, p)));
+                for (Person p : household) {
+                    more = pager.offer(residentKey(address, p), p);
+                    if (!more) {
+                        break;
+                    }
+                }
+            }
+            t = metrics.stop(op, Stage.RESIDENT_SCAN, t);
+
+            List<PersonByFirestationID> dtos = pager.items().stream()
+                    .map(p -> PersonByFirestationID.builder()
+                            .lastName(p.getLastName())
+                            .firstName(p.getFirstName())
+                            .adress(p.getAddress())
+                            .phoneNumber(p.getPhone())
+                            .build())
+                    .collect(Collectors.toList());
+            Optional<ResultPage<PersonsByFirestationIDReturn>> result = Optional.of(new ResultPage<>(
+                    PersonsByFirestationIDReturn.builder()
+                            .persons(dtos)
+                            .countOfAdults(counts.adults())
+                            .countOfChilds(counts.children())
+                            .build(),
+                    pager.next()));
+            metrics.stop(op, Stage.DTO_ASSEMBLY, t);
+            return result;
+        });
     }
 
     /**
@@ -89,38 +217,53 @@ public class PersonService {
      */
     // -------------------- /childAlert?address=xxx --------------------- //
     public List<ChildAlertDTO> getChildsByAdress(String address) {
-        List<Person> residents = dataLoader.getPersons().stream()
-                .filter(p -> address.equalsIgnoreCase(p.getAddress()))
-                .collect(Collectors.toList());
+        return responseCache.get(Operation.CHILD_ALERT, KeyUtils.canonicalAddress(address), deps -> {
+            Operation op = Operation.CHILD_ALERT;
+            long t = metrics.start();
+            List<Person> residents = personRepository.findByAddress(address);
+            t = metrics.stop(op, Stage.RESIDENT_SCAN, t);
+            deps.address(address).persons(residents);
 
-        List<HouseholdMemberDTO> members = residents.stream()
-                .map(p -> HouseholdMemberDTO.builder()
-                        .firstName(p.getFirstName())
-                        .lastName(p.getLastName())
-                        .build())
-                .collect(Collectors.toList());
-
-        return residents.stream()
-                .filter(p -> medicalRecordService.getMedicalRecordByName(p.getFirstName(), p.getLastName())
-                        .map(MedicalRecord::getBirthdate)
-                        .map(DateUtils::calculateAgeFromBirthdate)
-                        .orElse(0) < 18)
-                .map(p -> {
-                    Optional<MedicalRecord> mr = medicalRecordService.getMedicalRecordByName(p.getFirstName(), p.getLastName());
-                    int age = mr.map(MedicalRecord::getBirthdate)
-                            .map(DateUtils::calculateAgeFromBirthdate)
-                            .orElse(0);
-                    List<HouseholdMemberDTO> otherMembers = members.stream()
-                            .filter(m -> !(m.getFirstName().equals(p.getFirstName()) && m.getLastName().equals(p.getLastName())))
-                            .collect(Collectors.toList());
-                    return ChildAlertDTO.builder()
+            // Un seul accès au dossier médical par habitant
+            MedicalRecord[] records = findMedicalRecords(residents);
+            t = metrics.stop(op, Stage.MEDICAL_RECORD_JOIN, t);
+
+            boolean[] isChild = new boolean[records.length];
+            int[] ages = new int[records.length];
+            for (int i = 0; i < records.length; i++) {
+                isChild[i] = isChild(records[i]);
+                if (isChild[i]) {
+                    ages[i] = ageOf(records[i]);
+                }
+            }
+            t = metrics.stop(op, Stage.AGE_COMPUTATION, t);
+
+            List<HouseholdMemberDTO> members = residents.stream()
+                    .map(p -> HouseholdMemberDTO.builder()
                             .firstName(p.getFirstName())
                             .lastName(p.getLastName())
-                            .age(age)
-                            .householdMembers(otherMembers)
-                            .build();
-                })
-                .collect(Collectors.toList());
+                            .build())
+                    .collect(Collectors.toList());
+
+            List<ChildAlertDTO> children = new ArrayList<>();
+            for (int i = 0; i < residents.size(); i++) {
+                if (!isChild[i]) {
+                    continue;
+                }
+                Person p = residents.get(i);
+                List<HouseholdMemberDTO> otherMembers = members.stream()
+                        .filter(m -> !(m.getFirstName().equals(p.getFirstName()) && m.getLastName().equals(p.getLastName())))
+                        .collect(Collectors.toList());
+                children.add(ChildAlertDTO.builder()
+                        .firstName(p.getFirstName())
+                        .lastName(p.getLastName())
+                        .age(ages[i])
+                        .householdMembers(otherMembers)
+                        .build());
+            }
+            metrics.stop(op, Stage.DTO_ASSEMBLY, t);
+            return children;
+        });
     }
 
     /**
@@ -134,33 +277,35 @@ public class PersonService {
      */
     // -------------------- /fire?address=xxx --------------------- //
     public Optional<FireAddressReturnDTO> getHouseholdInfoByAddress(String address) {
-        List<Person> persons = dataLoader.getPersons().stream()
-                .filter(p -> address.equalsIgnoreCase(p.getAddress()))
-                .collect(Collectors.toList());
-        Optional<Integer> firestationNumber = firestationService.getFirestationNumberByAddress(address);
+        return responseCache.get(Operation.FIRE, KeyUtils.canonicalAddress(address), deps -> {
+            Operation op = Operation.FIRE;
+            long t = metrics.start();
+            List<Person> persons = personRepository.findByAddress(address);
+            t = metrics.stop(op, Stage.RESIDENT_SCAN, t);
+            Optional<Integer> firestationNumber = firestationService.getFirestationNumberByAddress(address);
+            t = metrics.stop(op, Stage.ADDRESS_RESOLUTION, t);
+            deps.address(address).persons(persons);
 
-        if (persons.isEmpty() && firestationNumber.isEmpty()) {
-            return Optional.empty();
-        }
+            if (persons.isEmpty() && firestationNumber.isEmpty()) {
+                return Optional.empty();
+            }
 
-        List<FireAddressResidentDTO> residents = persons.stream()
-                .map(p -> {
-                    Optional<MedicalRecord> record = medicalRecordService.getMedicalRecordByName(p.getFirstName(), p.getLastName());
-                    return FireAddressResidentDTO.builder()
-                            .lastName(p.getLastName())
-                            .firstName(p.getFirstName())
-                            .phone(p.getPhone())
-                            .age(record.map(MedicalRecord::getBirthdate).map(DateUtils::calculateAgeFromBirthdate).orElse(0))
-                            .medications(record.map(MedicalRecord::getMedications).orElse(Collections.emptyList()))
-                            .allergies(record.map(MedicalRecord::getAllergies).orElse(Collections.emptyList()))
-                            .build();
-                })
-                .collect(Collectors.toList());
-        Optional<FireAddressReturnDTO> result = Optional.of(FireAddressReturnDTO.builder()
-                .stationNumber(firestationNumber.orElse(0))
-                .residents(residents)
-                .build());
-        return result;
+            MedicalRecord[] records = findMedicalRecords(persons);
+            t = metrics.stop(op, Stage.MEDICAL_RECORD_JOIN, t);
+            int[] ages = agesOf(records);
+            t = metrics.stop(op, Stage.AGE_COMPUTATION, t);
+
+            List<FireAddressResidentDTO> residents = new ArrayList<>(persons.size());
+            for (int i = 0; i < persons.size(); i++) {
+                residents.add(toResidentDTO(persons.get(i), records[i], ages[i]));
+            }
+            Optional<FireAddressReturnDTO> result = Optional.of(FireAddressReturnDTO.builder()
+                    .stationNumber(firestationNumber.orElse(0))
+                    .residents(residents)
+                    .build());
+            metrics.stop(op, Stage.DTO_ASSEMBLY, t);
+            return result;
+        });
     }
 
     /**
@@ -174,22 +319,40 @@ public class PersonService {
      */
     // -------------------- /phoneAlert?firestation=xx --------------------- //
     public Optional<PhoneAlertByFirestationDTO> getPhoneAlertByFirestation(int stationNumber) {
-        List<String> addresses = firestationService.getAddressesByStationID(stationNumber);
+        return responseCache.get(Operation.PHONE_ALERT, stationNumber, deps -> {
+            Operation op = Operation.PHONE_ALERT;
+            long t = metrics.start();
+            List<String> addresses = firestationService.getAddressesByStationID(stationNumber);
+            t = metrics.stop(op, Stage.ADDRESS_RESOLUTION, t);
+            // Les écritures sur une personne invalident aussi son adresse : les numéros n'ont pas à dépendre des identités
+            deps.station(stationNumber);
+            addresses.forEach(deps::address);
 
-        Set<String> phones = dataLoader.getPersons().stream()
-                .filter(p -> addresses.contains(p.getAddress()))
-                .map(Person::getPhone)
-                .filter(Objects::nonNull)
-                .collect(Collectors.toSet());
+            List<String> phones;
+            Optional<List<String>> viewPhones = stationViews.phoneNumbers(stationNumber);
+            if (viewPhones.isPresent()) {
+                phones = viewPhones.get();
+                t = metrics.stop(op, Stage.STATION_VIEW, t);
+            } else {
+                List<Person> residents = findResidents(addresses);
+                t = metrics.stop(op, Stage.RESIDENT_SCAN, t);
+                phones = new ArrayList<>(residents.stream()
+                        .map(Person::getPhone)
+                        .filter(Objects::nonNull)
+                        .collect(Collectors.toSet()));
+            }
 
-        if (phones.isEmpty()) {
-            return Optional.empty();
-        }
-        Optional<PhoneAlertByFirestationDTO> result = Optional.of(PhoneAlertByFirestationDTO.builder()
-                .phoneNumbers(new ArrayList<>(phones))
-                .build());
+            if (phones.isEmpty()) {
+                metrics.stop(op, Stage.DTO_ASSEMBLY, t);
+                return Optional.empty();
+            }
+            Optional<PhoneAlertByFirestationDTO> result = Optional.of(PhoneAlertByFirestationDTO.builder()
+                    .phoneNumbers(phones)
+                    .build());
+            metrics.stop(op, Stage.DTO_ASSEMBLY, t);
 
-        return result;
+            return result;
+        });
     }
 
     /**
@@ -203,25 +366,141 @@ public class PersonService {
      */
     // -------------------- /flood/stations?stations=xx,yy,zz --------------------- //
     public Map<String, List<FireAddressResidentDTO>> getFloodInfoByStations(List<Integer> stationNumbers) {
-        List<String> addresses = firestationService.getAddressesByStationIDs(stationNumbers);
-        return addresses.stream()
-                .collect(Collectors.toMap(
-                        address -> address,
-                        address -> dataLoader.getPersons().stream()
-                                .filter(p -> p.getAddress().equals(address))
-                                .map(p -> {
-                                    Optional<MedicalRecord> record = medicalRecordService.getMedicalRecordByName(p.getFirstName(), p.getLastName());
-                                    return FireAddressResidentDTO.builder()
-                                            .lastName(p.getLastName())
-                                            .firstName(p.getFirstName())
-                                            .phone(p.getPhone())
-                                            .age(record.map(MedicalRecord::getBirthdate).map(DateUtils::calculateAgeFromBirthdate).orElse(0))
-                                            .medications(record.map(MedicalRecord::getMedications).orElse(Collections.emptyList()))
-                                            .allergies(record.map(MedicalRecord::getAllergies).orElse(Collections.emptyList()))
-                                            .build();
-                                })
-                                .collect(Collectors.toList())
-                ));
+        return responseCache.get(Operation.FLOOD, stationNumbers == null ? null : List.copyOf(stationNumbers), deps -> {
+            Operation op = Operation.FLOOD;
+            long t = metrics.start();
+            List<String> addresses = firestationService.getAddressesByStationIDs(stationNumbers);
+            t = metrics.stop(op, Stage.ADDRESS_RESOLUTION, t);
+
+            // Habitants de toutes les adresses à la suite ; ends[i] marque la fin de ceux de l'adresse i
+            List<Person> residents = new ArrayList<>();
+            int[] ends = new int[addresses.size()];
+            for (int i = 0; i < addresses.size(); i++) {
+                residents.addAll(personRepository.findByAddress(addresses.get(i)));
+                ends[i] = residents.size();
+            }
+            t = metrics.stop(op, Stage.RESIDENT_SCAN, t);
+            if (stationNumbers != null) {
+                stationNumbers.forEach(deps::station);
+            }
+            addresses.forEach(deps::address);
+            deps.persons(residents);
+
+            MedicalRecord[] records = findMedicalRecords(residents);
+            t = metrics.stop(op, Stage.MEDICAL_RECORD_JOIN, t);
+            int[] ages = agesOf(records);
+            t = metrics.stop(op, Stage.AGE_COMPUTATION, t);
+
+            Map<String, List<FireAddressResidentDTO>> result = new HashMap<>();
+            int from = 0;
+            for (int i = 0; i < addresses.size(); i++) {
+                List<FireAddressResidentDTO> household = new ArrayList<>(ends[i] - from);
+                for (int j = from; j < ends[i]; j++) {
+                    household.add(toResidentDTO(residents.get(j), records[j], ages[j]));
+                }
+                result.put(addresses.get(i), household);
+                from = ends[i];
+            }
+            metrics.stop(op, Stage.DTO_ASSEMBLY, t);
+            return result;
+        });
+    }
+
+    /**
+     * Variante en flux de {@link #getFloodInfoByStations} : les foyers sont calculés un par un
+     * au moment du parcours, qui peut avoir lieu sur un autre thread, sans passer par le cache.
+     * Chaque foyer est remis avec son adresse, dans l'ordre des casernes puis des adresses.
+     *
+     * @param stationNumbers Liste de numéros de casernes à couvrir
+     * @return les foyers à parcourir, ou Optional.empty() si les casernes ne couvrent aucune adresse
+     */
+    // -------------------- /flood/stations?stations=xx,yy,zz&stream=true --------------------- //
+    public Optional<ResultStream<Map.Entry<String, List<FireAddressResidentDTO>>>> streamFloodInfoByStations(
+            List<Integer> stationNumbers) {
+        return dataLoader.read(() -> {
+            Dataset version = dataLoader.getDataset();
+            List<String> addresses = firestationService.getAddressesByStationIDs(stationNumbers);
+            if (addresses.isEmpty()) {
+                return Optional.empty();
+            }
+            return Optional.of(action -> dataLoader.read(version, () -> {
+                for (String address : addresses) {
+                    List<Person> persons = personRepository.findByAddress(address);
+                    MedicalRecord[] records = findMedicalRecords(persons);
+                    int[] ages = agesOf(records);
+                    List<FireAddressResidentDTO> household = new ArrayList<>(persons.size());
+                    for (int i = 0; i < persons.size(); i++) {
+                        household.add(toResidentDTO(persons.get(i), records[i], ages[i]));
+                    }
+                    action.accept(Map.entry(address, household));
+                }
+                return null;
+            }));
+        });
+    }
+
+    /**
+     * Recherche les habitants dont le dossier médical contient toutes les allergies et tous les médicaments
+     * donnés, parmi ceux couverts par des casernes ou habitant une adresse.
+     * <p>
+     * Endpoint  GET
+     * Les habitants sont désignés par leurs numéros de ligne : l'index des dossiers ({@link MedicalIndex}) et les
+     * habitants des adresses couvertes sont intersectés en ensembles de bits, avant toute jointure.
+     *
+     * @param stationNumbers numéros de casernes à couvrir, null ou vide pour ne pas filtrer par caserne
+     * @param address        adresse à couvrir, null pour ne pas filtrer par adresse
+     * @param allergies      allergies recherchées (insensibles à la casse), null si aucune
+     * @param medications    médicaments recherchés, par nom ({@code aznol}) ou valeur complète ({@code aznol:350mg}),
+     *                       null si aucun
+     * @return Map adresse de l'habitant -> habitants trouvés, vide si aucun ; toute la population couverte
+     * si aucune allergie ni aucun médicament n'est donné
+     */
+    // -------------------- /population?stations=xx,yy&address=xxx&allergy=xxx&medication=xxx --------------------- //
+    public Map<String, List<FireAddressResidentDTO>> getPopulationByMedicalTerms(List<Integer> stationNumbers, String address,
+                                                                                List<String> allergies,
+                                                                                List<String> medications) {
+        return dataLoader.read(() -> {
+            Operation op = Operation.POPULATION;
+            long t = metrics.start();
+            boolean byStations = stationNumbers != null && !stationNumbers.isEmpty();
+            BitSet covered = null;
+            if (byStations || address != null) {
+                List<String> addresses = new ArrayList<>(firestationService.getAddressesByStationIDs(stationNumbers));
+                if (address != null) {
+                    addresses.add(address);
+                }
+                t = metrics.stop(op, Stage.ADDRESS_RESOLUTION, t);
+                covered = new BitSet();
+                for (String a : addresses) {
+                    for (int row : personRepository.findRowsByAddress(a)) {
+                        covered.set(row);
+                    }
+                }
+                t = metrics.stop(op, Stage.RESIDENT_SCAN, t);
+            }
+
+            BitSet rows = medicalIndex.matching(allergies, medications);
+            if (covered != null) {
+                rows.and(covered);
+            }
+            List<Person> residents = personRepository.findAllByRows(rows.stream().toArray());
+            t = metrics.stop(op, Stage.MEDICAL_INDEX, t);
+
+            MedicalRecord[] records = findMedicalRecords(residents);
+            t = metrics.stop(op, Stage.MEDICAL_RECORD_JOIN, t);
+            int[] ages = agesOf(records);
+            t = metrics.stop(op, Stage.AGE_COMPUTATION, t);
+
+            Map<String, List<FireAddressResidentDTO>> result = new LinkedHashMap<>();
+            for (int i = 0; i < residents.size(); i++) {
+                Person p = residents.get(i);
+                // Adresse absente regroupée sous une clef vide : une clef nulle n'est pas sérialisable
+                result.computeIfAbsent(Objects.toString(p.getAddress(), ""), k -> new ArrayList<>())
+                        .add(toResidentDTO(p, records[i], ages[i]));
+            }
+            metrics.stop(op, Stage.DTO_ASSEMBLY, t);
+            return result;
+        });
     }
 
     /**
@@ -235,21 +514,120 @@ public class PersonService {
      */
     // -------------------- /personInfo?lastName=xxx --------------------- //
     public List<PersonInfoByNameDTO> getPersonsInfoByLastName(String lastName) {
-        return dataLoader.getPersons().stream()
-                .filter(p -> p.getLastName().equalsIgnoreCase(lastName))
-                .map(p -> {
-                    Optional<MedicalRecord> record = medicalRecordService.getMedicalRecordByName(p.getFirstName(), p.getLastName());
-                    return PersonInfoByNameDTO.builder()
-                            .firstName(p.getFirstName())
-                            .lastName(p.getLastName())
-                            .address(p.getAddress())
-                            .email(p.getEmail())
-                            .age(record.map(MedicalRecord::getBirthdate).map(DateUtils::calculateAgeFromBirthdate).orElse(0))
-                            .medications(record.map(MedicalRecord::getMedications).orElse(Collections.emptyList()))
-                            .allergies(record.map(MedicalRecord::getAllergies).orElse(Collections.emptyList()))
-                            .build();
-                })
-                .collect(Collectors.toList());
+        return responseCache.get(Operation.PERSON_INFO, lowerCase(lastName), deps -> {
+            Operation op = Operation.PERSON_INFO;
+            long t = metrics.start();
+            // Recherche dans l'index des noms : les personnes sont triées par prénom, comme les pages
+            List<Person> persons = personRepository.findByLastNameOrderByFirstName(lastName);
+            t = metrics.stop(op, Stage.RESIDENT_SCAN, t);
+            deps.lastName(lastName).persons(persons);
+
+            MedicalRecord[] records = findMedicalRecords(persons);
+            t = metrics.stop(op, Stage.MEDICAL_RECORD_JOIN, t);
+            int[] ages = agesOf(records);
+            t = metrics.stop(op, Stage.AGE_COMPUTATION, t);
+
+            List<PersonInfoByNameDTO> result = new ArrayList<>(persons.size());
+            for (int i = 0; i < persons.size(); i++) {
+                result.add(toPersonInfoDTO(persons.get(i), records[i], ages[i]));
+            }
+            metrics.stop(op, Stage.DTO_ASSEMBLY, t);
+            return result;
+        });
+    }
+
+    /**
+     * Page de {@link #getPersonsInfoByLastName} : les personnes sont triées par prénom, et la page
+     * reprend au curseur par recherche dichotomique dans l'index des noms.
+     *
+     * @param lastName Nom de famille à rechercher
+     * @param limit    nombre maximal de personnes de la page
+     * @param after    position de la fin de la page précédente, null pour la première page
+     * @return la page et le curseur de la suivante, ou Optional.empty() si personne ne porte ce nom
+     */
+    // -------------------- /personInfo?lastName=xxx&limit=n&cursor=xxx --------------------- //
+    public Optional<ResultPage<List<PersonInfoByNameDTO>>> getPersonsInfoByLastNamePage(String lastName, int limit,
+                                                                                       PageCursor after) {
+        return dataLoader.read(() -> {
+            Operation op = Operation.PERSON_INFO;
+            long t = metrics.start();
+            List<Person> persons = personRepository.findByLastNameOrderByFirstName(lastName);
+            if (persons.isEmpty()) {
+                return Optional.empty();
+            }
+            Pager<Person> pager = new Pager<>(limit, after);
+            for (int i = pager.from(persons, PersonService::firstNameKey); i < persons.size(); i++) {
+                Person p = persons.get(i);
+                if (!pager.offer(firstNameKey(p), p)) {
+                    break;
+                }
+            }
+            List<Person> page = pager.items();
+            t = metrics.stop(op, Stage.RESIDENT_SCAN, t);
+
+            MedicalRecord[] records = findMedicalRecords(page);
+            t = metrics.stop(op, Stage.MEDICAL_RECORD_JOIN, t);
+            int[] ages = agesOf(records);
+            t = metrics.stop(op, Stage.AGE_COMPUTATION, t);
+
+            List<PersonInfoByNameDTO> dtos = new ArrayList<>(page.size());
+            for (int i = 0; i < page.size(); i++) {
+                dtos.add(toPersonInfoDTO(page.get(i), records[i], ages[i]));
+            }
+            metrics.stop(op, Stage.DTO_ASSEMBLY, t);
+            return Optional.of(new ResultPage<>(dtos, pager.next()));
+        });
+    }
+
+    /**
+     * Recherche par préfixe de /personInfo, en pages : les personnes dont le nom commence par {@code prefix}
+     * (sans tenir compte de la casse) sont triées par nom, puis par prénom. Les noms sont bornés par
+     * recherche dichotomique dans l'index trié des noms, et la page reprend au nom du curseur : seules les
+     * personnes de la page, et celles du nom du curseur qui la précèdent, sont parcourues.
+     *
+     * @param prefix début du nom de famille
+     * @param limit  nombre maximal de personnes de la page
+     * @param after  position de la fin de la page précédente, null pour la première page
+     * @return la page et le curseur de la suivante, ou Optional.empty() si aucun nom ne commence par ce préfixe
+     */
+    // -------------------- /personInfo?lastName=xxx&prefix=true[&limit=n&cursor=xxx] --------------------- //
+    public Optional<ResultPage<List<PersonInfoByNameDTO>>> getPersonsInfoByLastNamePrefixPage(String prefix, int limit,
+                                                                                             PageCursor after) {
+        return dataLoader.read(() -> {
+            Operation op = Operation.PERSON_INFO;
+            long t = metrics.start();
+            List<String> lastNames = personRepository.findLastNamesStartingWith(prefix);
+            if (lastNames.isEmpty()) {
+                return Optional.empty();
+            }
+            Pager<Person> pager = new Pager<>(limit, after);
+            int first = after == null ? 0 : Pager.lowerBound(lastNames, name -> name, headOf(after));
+            scan:
+            for (int n = first; n < lastNames.size(); n++) {
+                String lastName = lastNames.get(n);
+                List<Person> persons = personRepository.findByLastNameOrderByFirstName(lastName);
+                for (int i = pager.from(persons, p -> nameKey(lastName, p)); i < persons.size(); i++) {
+                    Person p = persons.get(i);
+                    if (!pager.offer(nameKey(lastName, p), p)) {
+                        break scan;
+                    }
+                }
+            }
+            List<Person> page = pager.items();
+            t = metrics.stop(op, Stage.RESIDENT_SCAN, t);
+
+            MedicalRecord[] records = findMedicalRecords(page);
+            t = metrics.stop(op, Stage.MEDICAL_RECORD_JOIN, t);
+            int[] ages = agesOf(records);
+            t = metrics.stop(op, Stage.AGE_COMPUTATION, t);
+
+            List<PersonInfoByNameDTO> dtos = new ArrayList<>(page.size());
+            for (int i = 0; i < page.size(); i++) {
+                dtos.add(toPersonInfoDTO(page.get(i), records[i], ages[i]));
+            }
+            metrics.stop(op, Stage.DTO_ASSEMBLY, t);
+            return Optional.of(new ResultPage<>(dtos, pager.next()));
+        });
     }
 
     /**
@@ -258,16 +636,101 @@ public class PersonService {
      * Endpoint  GET
      *
      * @param city Ville à rechercher
-     * @return Liste d'emails (sans doublons)
+     * @return Liste d'emails triés (sans doublons)
      */
     // -------------------- /communityEmail?city=xxx --------------------- //
     public List<String> getEmailsByCity(String city) {
-        return dataLoader.getPersons().stream()
-                .filter(p -> city.equalsIgnoreCase(p.getCity()))
-                .map(Person::getEmail)
-                .filter(Objects::nonNull)
-                .distinct()
-                .collect(Collectors.toList());
+        return responseCache.get(Operation.COMMUNITY_EMAIL, lowerCase(city), deps -> {
+            Operation op = Operation.COMMUNITY_EMAIL;
+            long t = metrics.start();
+            // Recherche dans l'index des villes : habitants triés par email, doublons contigus
+            List<Person> residents = personRepository.findByCityOrderByEmail(city);
+            t = metrics.stop(op, Stage.RESIDENT_SCAN, t);
+            deps.city(city).persons(residents);
+
+            List<String> emails = new ArrayList<>();
+            forEachDistinctEmail(residents, emails::add);
+            metrics.stop(op, Stage.DTO_ASSEMBLY, t);
+            return emails;
+        });
+    }
+
+
+    /**
+     * Variante en flux de {@link #getEmailsByCity} : les emails sont remis au fur et à mesure du
+     * parcours des habitants, qui peut avoir lieu sur un autre thread, sans passer par le cache.
+     * Seuls les emails déjà remis sont retenus (références aux chaînes existantes), pour les doublons.
+     *
+     * @param city Ville à rechercher
+     * @return les emails à parcourir (sans doublons), ou Optional.empty() si aucun
+     */
+    // -------------------- /communityEmail?city=xxx&stream=true --------------------- //
+    public Optional<ResultStream<String>> streamEmailsByCity(String city) {
+        return dataLoader.read(() -> {
+            Dataset version = dataLoader.getDataset();
+            List<Person> residents = personRepository.findByCityOrderByEmail(city);
+            // Emails absents triés en dernier : il y a un email si le premier habitant en a un
+            if (residents.isEmpty() || residents.get(0).getEmail() == null) {
+                return Optional.empty();
+            }
+            return Optional.of(action -> dataLoader.read(version, () -> {
+                forEachDistinctEmail(personRepository.findByCityOrderByEmail(city), action);
+                return null;
+            }));
+        });
+    }
+
+    /**
+     * Remet une fois chaque email d'habitants triés par email, où les doublons sont contigus.
+     */
+    private static void forEachDistinctEmail(List<Person> residentsByEmail, Consumer<? super String> action) {
+        String previous = null;
+        for (Person p : residentsByEmail) {
+            String email = p.getEmail();
+            if (email != null && !email.equals(previous)) {
+                action.accept(email);
+                previous = email;
+            }
+        }
+    }
+
+    /**
+     * Page de {@link #getEmailsByCity} : les emails sont triés, et la page reprend au curseur par
+     * recherche dichotomique dans l'index des villes, où les doublons sont contigus.
+     *
+     * @param city  Ville à rechercher
+     * @param limit nombre maximal d'emails de la page
+     * @param after position de la fin de la page précédente, null pour la première page
+     * @return la page (sans doublons) et le curseur de la suivante, ou Optional.empty() si aucun email
+     */
+    // -------------------- /communityEmail?city=xxx&limit=n&cursor=xxx --------------------- //
+    public Optional<ResultPage<List<String>>> getEmailsByCityPage(String city, int limit, PageCursor after) {
+        return dataLoader.read(() -> {
+            Operation op = Operation.COMMUNITY_EMAIL;
+            long t = metrics.start();
+            List<Person> residents = personRepository.findByCityOrderByEmail(city);
+            // Les habitants sans email sont en fin d'index
+            if (residents.isEmpty() || residents.get(0).getEmail() == null) {
+                return Optional.empty();
+            }
+            Pager<String> pager = new Pager<>(limit, after);
+            String previous = null;
+            for (int i = pager.from(residents, Person::getEmail); i < residents.size(); i++) {
+                String email = residents.get(i).getEmail();
+                if (email == null) {
+                    break;
+                }
+                if (email.equals(previous)) {
+                    continue;
+                }
+                previous = email;
+                if (!pager.offer(email, email)) {
+                    break;
+                }
+            }
+            metrics.stop(op, Stage.RESIDENT_SCAN, t);
+            return Optional.of(new ResultPage<>(pager.items(), pager.next()));
+        });
     }
 
 
@@ -283,23 +746,26 @@ public class PersonService {
      */
     // POST : Ajouter une nouvelle personne
     public Optional<Person> addPerson(Person person) {
-        if (person.getFirstName() == null || person.getLastName() == null) {
-            return Optional.empty();
-        }
-        List<Person> persons = dataLoader.getPersons();
-        if (persons.isEmpty()) {
-            return Optional.empty();
-        }
+        return dataLoader.write(() -> {
+            if (person.getFirstName() == null || person.getLastName() == null) {
+                return Optional.empty();
+            }
+            List<Person> persons = personRepository.findAll();
+            if (persons.isEmpty()) {
+                return Optional.empty();
+            }
 
-        boolean exists = persons.stream()
-                .anyMatch(p -> p.getFirstName().equalsIgnoreCase(person.getFirstName())
-                        && p.getLastName().equalsIgnoreCase(person.getLastName()));
-        if (exists) {
-            return Optional.empty();
-        }
-        persons.add(person);
-        dataLoader.saveData();
-        return Optional.of(person);
+            boolean exists = personRepository.findByName(person.getFirstName(), person.getLastName()).isPresent();
+            if (exists) {
+                return Optional.empty();
+            }
+            personRepository.save(person);
+            responseCache.invalidateHousehold(person.getAddress(), person.getLastName(), person.getCity());
+            stationViews.refresh(person.getAddress());
+            medicalIndex.refreshRows(persons, NO_ROWS);
+            dataLoader.saveData(Mutation.addPerson(person));
+            return Optional.of(person);
+        });
     }
 
     /**
@@ -312,23 +778,26 @@ public class PersonService {
      */
     // PUT : Mettre à jour une personne existante (hors prénom et nom)
     public Optional<Person> updatePerson(Person person) {
-        List<Person> persons = dataLoader.getPersons();
-        if (persons.isEmpty()) {
-            return Optional.empty();
-        }
-        Optional<Person> existingOpt = persons.stream()
-                .filter(p -> p.getFirstName().equalsIgnoreCase(person.getFirstName())
-                        && p.getLastName().equalsIgnoreCase(person.getLastName()))
-                .findFirst();
-
-        existingOpt.ifPresent(p -> {
-            p.setAddress(person.getAddress());
-            p.setCity(person.getCity());
-            p.setEmail(person.getEmail());
-            p.setPhone(person.getPhone());
-            dataLoader.saveData();
+        return dataLoader.write(() -> {
+            List<Person> persons = personRepository.findAll();
+            if (persons.isEmpty()) {
+                return Optional.empty();
+            }
+            Optional<Person> previous = personRepository.findByName(person.getFirstName(), person.getLastName());
+            // Le dépôt déplace la personne dans l'index si son adresse change
+            Optional<Person> existingOpt = personRepository.update(person);
+            existingOpt.ifPresent(p -> {
+                // Anciennes réponses contenant la personne ou son ancienne adresse, et réponses de sa nouvelle adresse / ville
+                String previousAddress = previous.get().getAddress();
+                responseCache.invalidatePerson(p.getFirstName(), p.getLastName());
+                responseCache.invalidateAddress(previousAddress);
+                responseCache.invalidateHousehold(p.getAddress(), p.getLastName(), p.getCity());
+                stationViews.refresh(Arrays.asList(previousAddress, p.getAddress()));
+                medicalIndex.refreshRows(persons, NO_ROWS);
+                dataLoader.saveData(Mutation.updatePerson(person));
+            });
+            return existingOpt;
         });
-        return existingOpt;
     }
 
     /**
@@ -342,16 +811,244 @@ public class PersonService {
      */
     // DELETE : Supprimer une personne (clé nom/prénom)
     public boolean deletePerson(String firstName, String lastName) {
-        if (firstName == null || lastName == null) {
-            return false;
+        return dataLoader.write(() -> {
+            if (firstName == null || lastName == null) {
+                return false;
+            }
+            List<Person> persons = personRepository.findAll();
+            if (persons.isEmpty()) {
+                return false;
+            }
+            List<String> addresses = StationViews.addressesOf(personRepository.findAllByName(firstName, lastName));
+            int[] rows = personRepository.findRowsByName(firstName, lastName);
+            boolean deleted = personRepository.deleteByName(firstName, lastName);
+            if (deleted) {
+                responseCache.invalidatePerson(firstName, lastName);
+                addresses.forEach(responseCache::invalidateAddress);
+                stationViews.refresh(addresses);
+                medicalIndex.refreshRows(persons, rows);
+                dataLoader.saveData(Mutation.deletePerson(firstName, lastName));
+            }
+            return deleted;
+        });
+    }
+
+    /**
+     * Ajoute un lot de personnes, avec les règles de {@link #addPerson} appliquées à chacune :
+     * une personne existante, ou déjà présente plus tôt dans le lot, est refusée.
+     * <p>
+     * Endpoint : POST /person/batch
+     * Le lot est validé en un seul passage sur les index, puis les personnes acceptées sont publiées
+     * en une seule version et enregistrées en une seule sauvegarde.
+     *
+     * @param persons personnes à ajouter
+     * @return pour chaque personne, dans l'ordre, la personne ajoutée ou vide si refusée
+     */
+    public List<Optional<Person>> addPersons(List<Person> persons) {
+        return addPersons(persons, false);
+    }
+
+    /**
+     * Comme {@link #addPersons(List)}, mais un jeu de données vide peut aussi accepter le lot si {@code intoEmpty}
+     * (import complet dans une instance vide).
+     */
+    List<Optional<Person>> addPersons(List<Person> persons, boolean intoEmpty) {
+        return dataLoader.write(() -> {
+            List<Optional<Person>> results = new ArrayList<>(persons.size());
+            List<Person> accepted = new ArrayList<>();
+            List<Person> before = personRepository.findAll();
+            boolean hasData = !before.isEmpty();
+            Set<String> added = new HashSet<>();
+            for (Person person : persons) {
+                String key = KeyUtils.identityKey(person.getFirstName(), person.getLastName());
+                if ((!hasData && !intoEmpty) || key == null || !added.add(key)
+                        || personRepository.findByName(person.getFirstName(), person.getLastName()).isPresent()) {
+                    results.add(Optional.empty());
+                    continue;
+                }
+                accepted.add(person);
+                results.add(Optional.of(person));
+            }
+            if (accepted.isEmpty()) {
+                return results;
+            }
+            personRepository.saveAll(accepted);
+            List<Mutation> mutations = new ArrayList<>(accepted.size());
+            for (Person person : accepted) {
+                responseCache.invalidateHousehold(person.getAddress(), person.getLastName(), person.getCity());
+                mutations.add(Mutation.addPerson(person));
+            }
+            stationViews.refresh(StationViews.addressesOf(accepted));
+            medicalIndex.refreshRows(before, NO_ROWS);
+            dataLoader.saveData(Mutation.batch(mutations));
+            return results;
+        });
+    }
+
+    /**
+     * Met à jour un lot de personnes, avec les règles de {@link #updatePerson} appliquées à chacune.
+     * <p>
+     * Endpoint : PUT /person/batch
+     * Les mises à jour sont publiées en une seule version et enregistrées en une seule sauvegarde.
+     *
+     * @param persons identifiants par prénom/nom et nouvelles valeurs
+     * @return pour chaque personne, dans l'ordre, la personne mise à jour ou vide si non trouvée
+     */
+    public List<Optional<Person>> updatePersons(List<Person> persons) {
+        return dataLoader.write(() -> {
+            List<Person> before = personRepository.findAll();
+            if (before.isEmpty()) {
+                return Collections.nCopies(persons.size(), Optional.<Person>empty());
+            }
+            // Adresses avant le lot : une personne peut déménager plusieurs fois dans le même lot
+            List<String> addresses = new ArrayList<>();
+            for (Person person : persons) {
+                personRepository.findByName(person.getFirstName(), person.getLastName())
+                        .ifPresent(previous -> addresses.add(previous.getAddress()));
+            }
+            List<Optional<Person>> results = personRepository.updateAll(persons);
+            List<Mutation> mutations = new ArrayList<>();
+            for (int i = 0; i < results.size(); i++) {
+                if (results.get(i).isEmpty()) {
+                    continue;
+                }
+                Person p = results.get(i).get();
+                responseCache.invalidatePerson(p.getFirstName(), p.getLastName());
+                responseCache.invalidateHousehold(p.getAddress(), p.getLastName(), p.getCity());
+                addresses.add(p.getAddress());
+                mutations.add(Mutation.updatePerson(persons.get(i)));
+            }
+            if (mutations.isEmpty()) {
+                return results;
+            }
+            addresses.forEach(responseCache::invalidateAddress);
+            stationViews.refresh(addresses);
+            medicalIndex.refreshRows(before, NO_ROWS);
+            dataLoader.saveData(Mutation.batch(mutations));
+            return results;
+        });
+    }
+
+    /**
+     * Joint chaque personne à son dossier médical.
+     *
+     * @return dossiers dans l'ordre des personnes, null pour une personne sans dossier
+     */
+    private MedicalRecord[] findMedicalRecords(List<Person> persons) {
+        MedicalRecord[] records = new MedicalRecord[persons.size()];
+        for (int i = 0; i < records.length; i++) {
+            Person p = persons.get(i);
+            records[i] = medicalRecordService.getMedicalRecordByName(p.getFirstName(), p.getLastName()).orElse(null);
         }
-        List<Person> persons = dataLoader.getPersons();
-        if (persons.isEmpty()) {
-            return false;
+        return records;
+    }
+
+    private int[] agesOf(MedicalRecord[] records) {
+        int[] ages = new int[records.length];
+        for (int i = 0; i < records.length; i++) {
+            ages[i] = ageOf(records[i]);
         }
-        dataLoader.saveData();
+        return ages;
+    }
+
+    /**
+     * Âge d'une personne d'après son dossier médical ; 0 en l'absence de dossier ou de date de naissance.
+     */
+    private int ageOf(MedicalRecord record) {
+        return record != null ? ageService.ageOf(record.getBirthdate()) : 0;
+    }
+
+    /**
+     * Une personne sans dossier médical (âge 0) est comptée comme enfant.
+     */
+    private boolean isChild(MedicalRecord record) {
+        return record == null || ageService.isChild(record.getBirthdate());
+    }
 
-        return persons.removeIf(p -> p.getFirstName().equalsIgnoreCase(firstName)
-                && p.getLastName().equalsIgnoreCase(lastName));
+    private static FireAddressResidentDTO toResidentDTO(Person p, MedicalRecord record, int age) {
+        return FireAddressResidentDTO.builder()
+                .lastName(p.getLastName())
+                .firstName(p.getFirstName())
+                .phone(p.getPhone())
+                .age(age)
+                .medications(record != null ? materialize(record.getMedications()) : Collections.emptyList())
+                .allergies(record != null ? materialize(record.getAllergies()) : Collections.emptyList())
+                .build();
+    }
+
+    private static PersonInfoByNameDTO toPersonInfoDTO(Person p, MedicalRecord record, int age) {
+        return PersonInfoByNameDTO.builder()
+                .firstName(p.getFirstName())
+                .lastName(p.getLastName())
+                .address(p.getAddress())
+                .email(p.getEmail())
+                .age(age)
+                .medications(record != null ? materialize(record.getMedications()) : Collections.emptyList())
+                .allergies(record != null ? materialize(record.getAllergies()) : Collections.emptyList())
+                .build();
+    }
+
+    /**
+     * Décode une liste partagée de dossier médical ({@link StringPool#shareList}) en liste propre au DTO.
+     */
+    private static List<String> materialize(List<String> values) {
+        return values == null ? null : new ArrayList<>(values);
+    }
+
+    /**
+     * Clef de tri d'une personne dans l'index des noms (voir {@link PersonRepository#findByLastNameOrderByFirstName}).
+     */
+    private static String firstNameKey(Person p) {
+        return KeyUtils.lowerCaseKey(Objects.toString(p.getFirstName(), ""));
+    }
+
+    /**
+     * Clef de tri d'une personne dans les pages de recherche par préfixe : nom (clef de l'index), puis prénom.
+     * Le séparateur précède tout caractère d'un nom : l'ordre des clefs est celui des noms.
+     */
+    private static String nameKey(String lastNameKey, Person p) {
+        return lastNameKey + '\n' + firstNameKey(p);
+    }
+
+    /**
+     * Clef de tri d'un habitant dans les pages de /firestation : adresse canonique, puis identité.
+     * Le séparateur précède tout caractère d'une adresse canonique : l'ordre des clefs est celui des adresses.
+     */
+    private static String residentKey(String canonicalAddress, Person p) {
+        return canonicalAddress + '\n' + Objects.toString(KeyUtils.identityKey(p.getFirstName(), p.getLastName()), "");
+    }
+
+    /**
+     * @return la première partie de la clef d'un curseur produit par {@link #residentKey} (adresse canonique)
+     * ou {@link #nameKey} (nom)
+     */
+    private static String headOf(PageCursor cursor) {
+        int separator = cursor.key().indexOf('\n');
+        return separator < 0 ? cursor.key() : cursor.key().substring(0, separator);
+    }
+
+    /**
+     * Clef de cache d'un paramètre comparé sans tenir compte de la casse.
+     */
+    private static String lowerCase(String value) {
+        return value == null ? null : value.toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * Retourne les habitants d'une liste d'adresses via l'index du dépôt.
+     * Les adresses équivalentes (casse, espaces) ne sont parcourues qu'une fois.
+     *
+     * @param addresses adresses recherchées
+     * @return habitants de ces adresses, regroupés par adresse
+     */
+    private List<Person> findResidents(List<String> addresses) {
+        Set<String> seen = new HashSet<>();
+        List<Person> residents = new ArrayList<>();
+        for (String address : addresses) {
+            if (seen.add(KeyUtils.canonicalAddress(address))) {
+                residents.addAll(personRepository.findByAddress(address));
+            }
+        }
+        return residents;
     }
 }
@@ -0,0 +1,364 @@
+package com.openclassrooms.P_5_SafetyNet_Alerts.service;
+
+import com.openclassrooms.P_5_SafetyNet_Alerts.data.DataLoader;
+import com.openclassrooms.P_5_SafetyNet_Alerts.model.Person;
+import com.openclassrooms.P_5_SafetyNet_Alerts.service.ServiceMetrics.Operation;
+import com.openclassrooms.P_5_SafetyNet_Alerts.utils.KeyUtils;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Function;
+
+/**
+ * Cache borné des réponses des requêtes d'alerte de {@link PersonService}.
+ * <p>
+ * Chaque réponse est enregistrée avec ses dépendances ({@link Dependencies}) : la clef interrogée
+ * (adresse, caserne, nom, ville), les adresses couvertes par les casernes concernées et l'identité des
+ * personnes qu'elle contient. Les écritures des services invalident les seules réponses qui dépendent
+ * de ce qu'elles ont modifié : la mise à jour d'un foyer ne vide pas les réponses des autres foyers.
+ * <ul>
+ *     <li>Éviction : au-delà de {@code cache.responses.max-entries} réponses, la moins récemment
+ *     utilisée parmi un échantillon aléatoire de {@value #EVICTION_SAMPLE} est retirée (LRU approché) ;
+ *     0 désactive le cache.</li>
+ *     <li>Concurrence : une réponse en cache est lue sans verrou. Le verrou ne protège que
+ *     l'enregistrement, l'éviction et l'invalidation (index des dépendances).</li>
+ *     <li>Cohérence : une réponse calculée sur une version du jeu de données n'est enregistrée que si
+ *     aucune version plus récente n'a été publiée entre-temps, et le cache est vidé à chaque
+ *     rechargement du fichier de données.</li>
+ *     <li>Métriques : {@code safetynet.cache.requests{operation, result=hit|miss}},
+ *     {@code safetynet.cache.size}, {@code safetynet.cache.evictions}, {@code safetynet.cache.invalidations}.</li>
+ * </ul>
+ * Les réponses en cache sont partagées entre les appelants et ne doivent pas être modifiées.
+ */
+@Component
+public class ResponseCache {
+
+    // Au-delà, une réponse dépend de toute écriture sur une personne plutôt que d'identités précises
+    static final int MAX_PERSON_DEPENDENCIES = 10_000;
+
+    private static final String ANY_PERSON = "p*";
+
+    // Taille de l'échantillon dont la réponse la moins récemment utilisée est évincée
+    static final int EVICTION_SAMPLE = 8;
+
+    private final DataLoader dataLoader;
+    private final int maxEntries;
+
+    // Lue sans verrou ; modifiée sous le verrou
+    private final ConcurrentHashMap<Key, Entry> entries = new ConcurrentHashMap<>();
+    // Protège les ajouts et retraits d'entrées, ainsi que les structures suivantes
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Map<String, Set<Key>> keysByDependency = new HashMap<>();
+    // Clefs en cache, pour l'échantillonnage des évictions ; chaque entrée connaît sa place
+    private final List<Key> slots = new ArrayList<>();
+    private volatile long loadCount = -1;
+
+    private final Counter[] hits = new Counter[Operation.values().length];
+    private final Counter[] misses = new Counter[Operation.values().length];
+    private final Counter evictions;
+    private final Counter invalidations;
+
+    private record Key(Operation operation, Object argument) {
+    }
+
+    private static final class Entry {
+        private final Object value;
+        private final Set<String> dependencies;
+        // Dernier accès (System.nanoTime), écrit sans verrou par les lectures
+        private volatile long accessed = System.nanoTime();
+        // Place dans slots, sous le verrou
+        private int slot;
+
+        private Entry(Object value, Set<String> dependencies) {
+            this.value = value;
+            this.dependencies = dependencies;
+        }
+    }
+
+    public ResponseCache(DataLoader dataLoader, MeterRegistry meterRegistry,
+                         @Value("${cache.responses.max-entries:10000}") int maxEntries) {
+        this.dataLoader = dataLoader;
+        this.maxEntries = maxEntries;
+        for (Operation operation : Operation.values()) {
+            String tag = operation.name().toLowerCase(Locale.ROOT).replace('_', '-');
+            hits[operation.ordinal()] = Counter.builder("safetynet.cache.requests")
+                    .tag("operation", tag).tag("result", "hit").register(meterRegistry);
+            misses[operation.ordinal()] = Counter.builder("safetynet.cache.requests")
+                    .tag("operation", tag).tag("result", "miss").register(meterRegistry);
+        }
+        evictions = Counter.builder("safetynet.cache.evictions")
+                .description("Réponses retirées du cache faute de place")
+                .register(meterRegistry);
+        invalidations = Counter.builder("safetynet.cache.invalidations")
+                .description("Réponses retirées du cache par une écriture")
+                .register(meterRegistry);
+        Gauge.builder("safetynet.cache.size", this, ResponseCache::size)
+                .description("Nombre de réponses en cache")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Retourne la réponse en cache, ou la calcule sur une seule version du jeu de données
+     * ({@link DataLoader#read}) et l'enregistre avec les dépendances déclarées par {@code loader}.
+     *
+     * @param operation requête
+     * @param argument  paramètre de la requête, sous forme canonique
+     * @param loader    calcul de la réponse, qui déclare ses dépendances
+     * @return la réponse
+     */
+    @SuppressWarnings("unchecked")
+    public <T> T get(Operation operation, Object argument, Function<Dependencies, T> loader) {
+        if (maxEntries <= 0) {
+            return dataLoader.read(() -> loader.apply(new Dependencies()));
+        }
+        Key key = new Key(operation, argument);
+        if (dataLoader.getLoadCount() != loadCount) {
+            lock.lock();
+            try {
+                clearIfReloaded();
+            } finally {
+                lock.unlock();
+            }
+        }
+        Entry entry = entries.get(key);
+        if (entry != null) {
+            entry.accessed = System.nanoTime();
+            hits[operation.ordinal()].increment();
+            return (T) entry.value;
+        }
+        misses[operation.ordinal()].increment();
+
+        Dependencies dependencies = new Dependencies();
+        long[] version = new long[1];
+        long loads = dataLoader.getLoadCount();
+        T value = dataLoader.read(() -> {
+            version[0] = dataLoader.getDataset().getVersion();
+            return loader.apply(dependencies);
+        });
+
+        lock.lock();
+        try {
+            // Une écriture publiée pendant le calcul a pu invalider ce qu'il a lu
+            if (dataLoader.getLatestDataset().getVersion() == version[0] && loadCount == loads
+                    && !entries.containsKey(key)) {
+                put(key, new Entry(value, dependencies.keys()));
+            }
+        } finally {
+            lock.unlock();
+        }
+        return value;
+    }
+
+    /**
+     * Invalide les réponses contenant cette personne (mise à jour, suppression, dossier médical).
+     */
+    public void invalidatePerson(String firstName, String lastName) {
+        invalidate(List.of(personKey(firstName, lastName), ANY_PERSON));
+    }
+
+    /**
+     * Invalide les réponses qui incluraient un habitant de cette adresse, de ce nom ou de cette ville
+     * (ajout d'une personne ou déménagement).
+     */
+    public void invalidateHousehold(String address, String lastName, String city) {
+        invalidate(List.of(addressKey(address), lastNameKey(lastName), cityKey(city)));
+    }
+
+    /**
+     * Invalide les réponses dépendant d'une adresse (habitants ou caserne qui la dessert).
+     */
+    public void invalidateAddress(String address) {
+        invalidate(List.of(addressKey(address)));
+    }
+
+    /**
+     * Invalide les réponses dépendant des adresses couvertes par une caserne.
+     */
+    public void invalidateStation(int station) {
+        invalidate(List.of(stationKey(station)));
+    }
+
+    /**
+     * @return le nombre de réponses en cache
+     */
+    public int size() {
+        return entries.size();
+    }
+
+    private void invalidate(List<String> dependencies) {
+        if (maxEntries <= 0) {
+            return;
+        }
+        lock.lock();
+        try {
+            for (String dependency : dependencies) {
+                Set<Key> keys = keysByDependency.remove(dependency);
+                if (keys == null) {
+                    continue;
+                }
+                for (Key key : keys) {
+                    if (remove(key) != null) {
+                        invalidations.increment();
+                    }
+                }
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Enregistre une réponse, sous le verrou.
+     */
+    private void put(Key key, Entry entry) {
+        entry.slot = slots.size();
+        slots.add(key);
+        entries.put(key, entry);
+        for (String dependency : entry.dependencies) {
+            keysByDependency.computeIfAbsent(dependency, d -> new HashSet<>()).add(key);
+        }
+        if (entries.size() > maxEntries) {
+            remove(leastRecentlyUsedOfSample());
+            evictions.increment();
+        }
+    }
+
+    /**
+     * LRU approché : la réponse la moins récemment utilisée d'un échantillon aléatoire, sous le verrou.
+     */
+    private Key leastRecentlyUsedOfSample() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        // Petit cache : toutes les réponses sont comparées, l'éviction est exacte
+        boolean exact = slots.size() <= EVICTION_SAMPLE;
+        Key eldest = null;
+        long eldestAccess = Long.MAX_VALUE;
+        for (int i = 0; i < (exact ? slots.size() : EVICTION_SAMPLE); i++) {
+            Key candidate = slots.get(exact ? i : random.nextInt(slots.size()));
+            long accessed = entries.get(candidate).accessed;
+            if (eldest == null || accessed - eldestAccess < 0) {
+                eldest = candidate;
+                eldestAccess = accessed;
+            }
+        }
+        return eldest;
+    }
+
+    /**
+     * Retire une réponse et ses dépendances, sous le verrou.
+     *
+     * @return l'entrée retirée, ou null si la réponse n'était pas en cache
+     */
+    private Entry remove(Key key) {
+        Entry entry = entries.remove(key);
+        if (entry == null) {
+            return null;
+        }
+        // Le dernier emplacement prend la place libérée
+        Key last = slots.remove(slots.size() - 1);
+        if (entry.slot < slots.size()) {
+            slots.set(entry.slot, last);
+            entries.get(last).slot = entry.slot;
+        }
+        unindex(key, entry);
+        return entry;
+    }
+
+    private void unindex(Key key, Entry entry) {
+        for (String dependency : entry.dependencies) {
+            Set<Key> keys = keysByDependency.get(dependency);
+            if (keys != null && keys.remove(key) && keys.isEmpty()) {
+                keysByDependency.remove(dependency);
+            }
+        }
+    }
+
+    /**
+     * Vide le cache si le fichier de données a été rechargé (les versions rechargées ne sont pas
+     * le résultat d'écritures invalidantes).
+     */
+    private void clearIfReloaded() {
+        long loads = dataLoader.getLoadCount();
+        if (loads != loadCount) {
+            entries.clear();
+            keysByDependency.clear();
+            slots.clear();
+            loadCount = loads;
+        }
+    }
+
+    private static String addressKey(String address) {
+        return "a" + KeyUtils.canonicalAddress(address);
+    }
+
+    private static String stationKey(int station) {
+        return "s" + station;
+    }
+
+    private static String lastNameKey(String lastName) {
+        return "l" + (lastName == null ? null : lastName.toLowerCase(Locale.ROOT));
+    }
+
+    private static String cityKey(String city) {
+        return "c" + (city == null ? null : city.toLowerCase(Locale.ROOT));
+    }
+
+    private static String personKey(String firstName, String lastName) {
+        return "p" + KeyUtils.identityKey(firstName, lastName);
+    }
+
+    /**
+     * Dépendances d'une réponse, déclarées pendant son calcul.
+     */
+    public static final class Dependencies {
+
+        private final Set<String> keys = new HashSet<>();
+        private int persons;
+
+        public Dependencies address(String address) {
+            keys.add(addressKey(address));
+            return this;
+        }
+
+        public Dependencies station(int station) {
+            keys.add(stationKey(station));
+            return this;
+        }
+
+        public Dependencies lastName(String lastName) {
+            keys.add(lastNameKey(lastName));
+            return this;
+        }
+
+        public Dependencies city(String city) {
+            keys.add(cityKey(city));
+            return this;
+        }
+
+        /**
+         * Déclare les personnes contenues dans la réponse : elle sera invalidée par leur mise à jour,
+         * leur suppression ou l'écriture de leur dossier médical.
+         */
+        public Dependencies persons(List<Person> included) {
+            for (Person person : included) {
+                if (persons++ == MAX_PERSON_DEPENDENCIES) {
+                    keys.add(ANY_PERSON);
+                }
+                if (persons <= MAX_PERSON_DEPENDENCIES) {
+                    keys.add(personKey(person.getFirstName(), person.getLastName()));
+                }
+            }
+            return this;
+        }
+
+        private Set<String> keys() {
+            return keys;
+        }
+    }
+}
@@ -0,0 +1,11 @@
+package com.openclassrooms.P_5_SafetyNet_Alerts.service;
+
+/**
+ * Page d'un résultat, avec la position de la page suivante.
+ *
+ * @param content contenu de la page, de même forme que la réponse complète
+ * @param next    curseur de la page suivante, null s'il s'agit de la dernière
+ * @param <T>     type du contenu
+ */
+public record ResultPage<T>(T content, PageCursor next) {
+}
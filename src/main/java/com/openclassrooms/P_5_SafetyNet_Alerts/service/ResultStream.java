@@ -0,0 +1,23 @@
+package com.openclassrooms.P_5_SafetyNet_Alerts.service;
+
+import java.util.function.Consumer;
+
+/**
+ * Résultat d'une requête parcouru élément par élément au fur et à mesure de son calcul,
+ * sans être matérialisé dans une collection.
+ * <p>
+ * Le parcours peut être fait plus tard et sur un autre thread : il porte sur la version du jeu
+ * de données lue à la création du résultat. Une exception levée par {@code action} interrompt le parcours.
+ *
+ * @param <T> type des éléments
+ */
+@FunctionalInterface
+public interface ResultStream<T> {
+
+    /**
+     * Parcourt le résultat.
+     *
+     * @param action traitement de chaque élément, dans l'ordre du résultat
+     */
+    void forEach(Consumer<? super T> action);
+}
@@ -0,0 +1,91 @@
+package com.openclassrooms.P_5_SafetyNet_Alerts.service;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.stereotype.Component;
+
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Timers des étapes coûteuses des requêtes d'alerte, publiés sous le nom {@value #STAGE_TIMER}
+ * avec les tags {@code operation} (requête) et {@code stage} (étape).
+ * <p>
+ * Chaque étape est mesurée une fois par requête (et non par habitant) : une paire de lectures d'horloge
+ * par étape, sans allocation. Les percentiles sont configurés dans application.properties.
+ */
+@Component
+public class ServiceMetrics {
+
+    public static final String STAGE_TIMER = "safetynet.stage";
+
+    /**
+     * Requêtes instrumentées.
+     */
+    public enum Operation {
+        FIRESTATION, CHILD_ALERT, FIRE, PHONE_ALERT, FLOOD, PERSON_INFO, COMMUNITY_EMAIL, POPULATION
+    }
+
+    /**
+     * Étapes d'une requête.
+     */
+    public enum Stage {
+        /** Adresses couvertes par une ou plusieurs casernes. */
+        ADDRESS_RESOLUTION,
+        /** Recherche des habitants (index par adresse ou parcours complet). */
+        RESIDENT_SCAN,
+        /** Jointure habitant / dossier médical. */
+        MEDICAL_RECORD_JOIN,
+        /** Calcul des âges et classification adulte / enfant. */
+        AGE_COMPUTATION,
+        /** Lecture des agrégats d'une vue par caserne, à la place de la jointure et du calcul des âges. */
+        STATION_VIEW,
+        /** Intersection de l'index des allergies et médicaments avec les habitants couverts. */
+        MEDICAL_INDEX,
+        /** Construction des DTO de la réponse. */
+        DTO_ASSEMBLY
+    }
+
+    private final MeterRegistry registry;
+    // Timers créés au premier usage ; deux créations concurrentes renvoient le même timer du registre
+    private final Timer[][] timers = new Timer[Operation.values().length][Stage.values().length];
+
+    public ServiceMetrics(MeterRegistry registry) {
+        this.registry = registry;
+    }
+
+    /**
+     * @return l'instant de début d'une étape
+     */
+    public long start() {
+        return System.nanoTime();
+    }
+
+    /**
+     * Enregistre la durée d'une étape commencée à {@code start}.
+     *
+     * @return l'instant de fin, utilisable comme début de l'étape suivante
+     */
+    public long stop(Operation operation, Stage stage, long start) {
+        long end = System.nanoTime();
+        timer(operation, stage).record(end - start, TimeUnit.NANOSECONDS);
+        return end;
+    }
+
+    private Timer timer(Operation operation, Stage stage) {
+        Timer timer = timers[operation.ordinal()][stage.ordinal()];
+        if (timer == null) {
+            timer = Timer.builder(STAGE_TIMER)
+                    .description("Durée d'une étape de requête")
+                    .tag("operation", tagValue(operation))
+                    .tag("stage", tagValue(stage))
+                    .register(registry);
+            timers[operation.ordinal()][stage.ordinal()] = timer;
+        }
+        return timer;
+    }
+
+    private static String tagValue(Enum<?> value) {
+        return value.name().toLowerCase(Locale.ROOT).replace('_', '-');
+    }
+}
@@ -0,0 +1,403 @@
+package com.openclassrooms.P_5_SafetyNet_Alerts.service;
+
+import com.openclassrooms.P_5_SafetyNet_Alerts.data.DataLoader;
+import com.openclassrooms.P_5_SafetyNet_Alerts.data.Dataset;
+import com.openclassrooms.P_5_SafetyNet_Alerts.model.Firestation;
+import com.openclassrooms.P_5_SafetyNet_Alerts.model.MedicalRecord;
+import com.openclassrooms.P_5_SafetyNet_Alerts.model.Person;
+import com.openclassrooms.P_5_SafetyNet_Alerts.repository.FirestationRepository;
+import com.openclassrooms.P_5_SafetyNet_Alerts.repository.MedicalRecordRepository;
+import com.openclassrooms.P_5_SafetyNet_Alerts.repository.PersonRepository;
+import com.openclassrooms.P_5_SafetyNet_Alerts.utils.DateUtils;
+import com.openclassrooms.P_5_SafetyNet_Alerts.utils.KeyUtils;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDate;
+import java.util.*;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Function;
+
+/**
+ * Vues matérialisées par caserne, lues par /firestation et /phoneAlert à la place de la jointure
+ * casernes / personnes / dossiers médicaux.
+ * <p>
+ * Pour chaque caserne, la vue tient ses foyers (adresse canonique -> nombre d'habitants et d'enfants),
+ * les numéros de téléphone dédoublonnés (avec le nombre d'habitants qui partagent chaque numéro)
+ * et les totaux d'adultes et d'enfants.
+ * <ul>
+ *     <li>Maintenance incrémentale : chaque écriture des services signale les adresses touchées
+ *     (déménagement, mapping de caserne, date de naissance d'un habitant) ; seuls ces foyers sont
+ *     recalculés, dans toutes les casernes qui les couvrent.</li>
+ *     <li>Cohérence : les vues portent la version du jeu de données qu'elles reflètent et ne servent
+ *     qu'aux lectures figées sur cette version, les autres faisant la jointure. Une version publiée
+ *     sans passer par les services (rechargement du fichier, rejeu du journal) rend les vues
+ *     obsolètes : elles sont reconstruites à la lecture suivante.</li>
+ *     <li>Âges : un enfant devient majeur sans aucune écriture. Chaque caserne retient la date de
+ *     la prochaine majorité parmi ses enfants ; ses foyers sont recomptés une fois cette date atteinte.</li>
+ *     <li>Concurrence : les lectures prennent le verrou en lecture, y compris celles qui font la jointure.
+ *     Reconstruction et recomptage sont calculés hors verrou, puis installés sous le verrou en écriture
+ *     si la version reflétée n'a pas changé entre-temps.</li>
+ * </ul>
+ * {@code views.stations.enabled=false} désactive les vues (toutes les lectures font la jointure).
+ */
+@Component
+public class StationViews {
+
+    private final DataLoader dataLoader;
+    private final PersonRepository personRepository;
+    private final FirestationRepository firestationRepository;
+    private final MedicalRecordRepository medicalRecordRepository;
+    private final AgeService ageService;
+    private final boolean enabled;
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    // Version reflétée par les vues, -1 tant qu'elles sont à (re)construire
+    private long version = -1;
+    private long loadCount = -1;
+    private Map<Integer, Station> stations = new HashMap<>();
+    // Adresse canonique -> casernes qui la couvrent
+    private Map<String, Set<Integer>> coverage = new HashMap<>();
+
+    private final Counter rebuilds;
+    private final Counter fallbacks;
+
+    /**
+     * Adultes et enfants couverts par une caserne.
+     */
+    public record Counts(int adults, int children) {
+    }
+
+    /**
+     * Décompte des habitants d'une adresse, calculé pour une version du jeu de données.
+     * {@code nextMajority} est la date ({@code aaaammjj}) à laquelle le premier de ses enfants devient majeur.
+     */
+    private record Household(int persons, int children, List<String> phones, int nextMajority) {
+    }
+
+    /**
+     * Foyer d'une adresse canonique et casernes qui la desservent, calculés hors verrou pour une version.
+     * {@code household} est null si aucune caserne ne dessert l'adresse.
+     */
+    private record Placement(String key, List<Firestation> mappings, Household household) {
+    }
+
+    /**
+     * Vue d'une caserne, modifiée sous le verrou en écriture.
+     */
+    private static final class Station {
+
+        private static final Station EMPTY = new Station();
+
+        private final Map<String, Household> households = new HashMap<>();
+        // Numéro -> nombre d'habitants couverts qui le partagent
+        private final Map<String, Integer> phones = new LinkedHashMap<>();
+        private int persons;
+        private int children;
+        private int nextMajority = Integer.MAX_VALUE;
+
+        private void add(String key, Household household) {
+            households.put(key, household);
+            persons += household.persons();
+            children += household.children();
+            nextMajority = Math.min(nextMajority, household.nextMajority());
+            for (String phone : household.phones()) {
+                phones.merge(phone, 1, Integer::sum);
+            }
+        }
+
+        private void remove(String key) {
+            Household household = households.remove(key);
+            if (household == null) {
+                return;
+            }
+            persons -= household.persons();
+            children -= household.children();
+            for (String phone : household.phones()) {
+                phones.computeIfPresent(phone, (p, count) -> count == 1 ? null : count - 1);
+            }
+        }
+    }
+
+    public StationViews(DataLoader dataLoader, PersonRepository personRepository,
+                        FirestationRepository firestationRepository, MedicalRecordRepository medicalRecordRepository,
+                        AgeService ageService, MeterRegistry meterRegistry,
+                        @Value("${views.stations.enabled:true}") boolean enabled) {
+        this.dataLoader = dataLoader;
+        this.personRepository = personRepository;
+        this.firestationRepository = firestationRepository;
+        this.medicalRecordRepository = medicalRecordRepository;
+        this.ageService = ageService;
+        this.enabled = enabled;
+        rebuilds = Counter.builder("safetynet.views.rebuilds")
+                .description("Reconstructions complètes des vues par caserne")
+                .register(meterRegistry);
+        fallbacks = Counter.builder("safetynet.views.fallbacks")
+                .description("Lectures faites par jointure, les vues ne reflétant pas leur version")
+                .register(meterRegistry);
+    }
+
+    /**
+     * @param station numéro de la caserne
+     * @return les adultes et enfants couverts, ou vide si la vue ne reflète pas la version lue
+     */
+    public Optional<Counts> counts(int station) {
+        return query(station, s -> new Counts(s.persons - s.children, s.children));
+    }
+
+    /**
+     * @param station numéro de la caserne
+     * @return les numéros de téléphone dédoublonnés des habitants couverts,
+     * ou vide si la vue ne reflète pas la version lue
+     */
+    public Optional<List<String>> phoneNumbers(int station) {
+        return query(station, s -> new ArrayList<>(s.phones.keySet()));
+    }
+
+    /**
+     * Met à jour les foyers de ces adresses après une écriture, qui doit avoir publié exactement
+     * une version depuis la précédente mise à jour. À appeler dans {@link DataLoader#write}, pour
+     * toute écriture publiée, même si elle ne touche aucune adresse.
+     *
+     * @param addresses adresses dont les habitants, leurs dates de naissance ou la caserne ont changé
+     */
+    public void refresh(Collection<String> addresses) {
+        if (!enabled) {
+            return;
+        }
+        long latest = dataLoader.getLatestDataset().getVersion();
+        lock.writeLock().lock();
+        try {
+            if (version < 0 || version == latest) {
+                // À reconstruire, ou déjà reconstruites par une lecture de cette version
+                return;
+            }
+            if (version != latest - 1 || loadCount != dataLoader.getLoadCount()) {
+                // Une version a été publiée sans passer par les services
+                version = -1;
+                return;
+            }
+            for (String address : addresses) {
+                apply(address);
+            }
+            version = latest;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * @see #refresh(Collection)
+     */
+    public void refresh(String address) {
+        refresh(address == null ? List.of() : List.of(address));
+    }
+
+    /**
+     * Met à jour les foyers des personnes portant ce prénom et ce nom (écriture d'un dossier médical).
+     */
+    public void refreshPerson(String firstName, String lastName) {
+        if (!enabled) {
+            return;
+        }
+        refresh(addressesOf(personRepository.findAllByName(firstName, lastName)));
+    }
+
+    /**
+     * Met à jour, en une fois, les foyers des personnes de ces dossiers médicaux (écriture d'un lot).
+     */
+    public void refreshPersons(List<MedicalRecord> medicalRecords) {
+        if (!enabled) {
+            return;
+        }
+        List<String> addresses = new ArrayList<>();
+        for (MedicalRecord medicalRecord : medicalRecords) {
+            addresses.addAll(addressesOf(personRepository.findAllByName(medicalRecord.getFirstName(), medicalRecord.getLastName())));
+        }
+        refresh(addresses);
+    }
+
+    /**
+     * @return les adresses de ces personnes, à relever avant leur suppression
+     */
+    public static List<String> addressesOf(List<Person> persons) {
+        List<String> addresses = new ArrayList<>(persons.size());
+        for (Person person : persons) {
+            addresses.add(person.getAddress());
+        }
+        return addresses;
+    }
+
+    private <T> Optional<T> query(int stationNumber, Function<Station, T> reader) {
+        if (!enabled) {
+            return Optional.empty();
+        }
+        Dataset pinned = dataLoader.getDataset();
+        int today = DateUtils.toPackedDate(ageService.today());
+        List<String> due;
+        lock.readLock().lock();
+        try {
+            if (version >= 0 && loadCount == dataLoader.getLoadCount()) {
+                if (version != pinned.getVersion()) {
+                    // Écriture en cours de publication, ou lecture figée sur une version dépassée
+                    fallbacks.increment();
+                    return Optional.empty();
+                }
+                Station station = stations.getOrDefault(stationNumber, Station.EMPTY);
+                if (today < station.nextMajority) {
+                    return Optional.of(reader.apply(station));
+                }
+                due = new ArrayList<>(station.households.keySet());
+            } else if (pinned != dataLoader.getLatestDataset()) {
+                // Vues à reconstruire, mais seulement à partir de la dernière version
+                fallbacks.increment();
+                return Optional.empty();
+            } else {
+                due = null;
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        return due == null
+                ? rebuild(pinned, stationNumber, reader)
+                : recount(pinned, stationNumber, today, due, reader);
+    }
+
+    /**
+     * Reconstruit toutes les vues à partir de la version lue, qui est la dernière publiée.
+     * Calcul hors verrou ; les vues ne sont remplacées que si cette version est toujours la dernière.
+     */
+    private <T> Optional<T> rebuild(Dataset pinned, int stationNumber, Function<Station, T> reader) {
+        long loads = dataLoader.getLoadCount();
+        Map<Integer, Station> rebuiltStations = new HashMap<>();
+        Map<String, Set<Integer>> rebuiltCoverage = new HashMap<>();
+        for (Firestation firestation : firestationRepository.findAll()) {
+            String key = dataLoader.getStringPool().canonicalAddress(firestation.getAddress());
+            if (key != null && !rebuiltCoverage.containsKey(key)) {
+                place(rebuiltStations, rebuiltCoverage, placement(key));
+            }
+        }
+
+        lock.writeLock().lock();
+        try {
+            if (pinned != dataLoader.getLatestDataset() || loads != dataLoader.getLoadCount()) {
+                // Écriture publiée pendant la reconstruction : la lecture suivante reconstruira
+                fallbacks.increment();
+                return Optional.empty();
+            }
+            if (version < 0 || loadCount != loads) {
+                stations = rebuiltStations;
+                coverage = rebuiltCoverage;
+                version = pinned.getVersion();
+                loadCount = loads;
+                rebuilds.increment();
+            }
+            // Sinon, déjà reconstruites par une autre lecture de cette version
+            return Optional.of(reader.apply(stations.getOrDefault(stationNumber, Station.EMPTY)));
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Recompte les foyers d'une caserne dont un enfant est devenu majeur.
+     * Calcul hors verrou ; le résultat n'est installé que si les vues reflètent toujours la version lue.
+     *
+     * @param due adresses canoniques des foyers de la caserne
+     */
+    private <T> Optional<T> recount(Dataset pinned, int stationNumber, int today, List<String> due,
+                                    Function<Station, T> reader) {
+        long loads = dataLoader.getLoadCount();
+        List<Placement> placements = new ArrayList<>(due.size());
+        for (String key : due) {
+            placements.add(placement(key));
+        }
+
+        lock.writeLock().lock();
+        try {
+            if (version != pinned.getVersion() || loadCount != loads) {
+                fallbacks.increment();
+                return Optional.empty();
+            }
+            Station station = stations.getOrDefault(stationNumber, Station.EMPTY);
+            if (today >= station.nextMajority) {
+                // Sinon, déjà recomptée par une autre lecture
+                station.nextMajority = Integer.MAX_VALUE;
+                for (Placement placement : placements) {
+                    place(stations, coverage, placement);
+                }
+            }
+            return Optional.of(reader.apply(stations.getOrDefault(stationNumber, Station.EMPTY)));
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Recalcule le foyer d'une adresse et le replace dans les casernes qui la couvrent désormais.
+     */
+    private void apply(String address) {
+        String key = KeyUtils.canonicalAddress(address);
+        if (key == null) {
+            return;
+        }
+        place(stations, coverage, placement(key));
+    }
+
+    private Placement placement(String key) {
+        List<Firestation> mappings = firestationRepository.findAllByAddress(key);
+        return new Placement(key, mappings, mappings.isEmpty() ? null : household(key));
+    }
+
+    /**
+     * Retire le foyer des casernes qui le couvraient et le place dans celles qui le desservent désormais.
+     */
+    private static void place(Map<Integer, Station> stations, Map<String, Set<Integer>> coverage, Placement placement) {
+        String key = placement.key();
+        Set<Integer> previous = coverage.remove(key);
+        if (previous != null) {
+            for (Integer number : previous) {
+                Station station = stations.get(number);
+                station.remove(key);
+                if (station.households.isEmpty()) {
+                    stations.remove(number);
+                }
+            }
+        }
+        if (placement.mappings().isEmpty()) {
+            return;
+        }
+        Set<Integer> covering = new HashSet<>();
+        for (Firestation mapping : placement.mappings()) {
+            if (covering.add(mapping.getStation())) {
+                stations.computeIfAbsent(mapping.getStation(), n -> new Station()).add(key, placement.household());
+            }
+        }
+        coverage.put(key, covering);
+    }
+
+    private Household household(String address) {
+        List<Person> residents = personRepository.findByAddress(address);
+        int children = 0;
+        int nextMajority = Integer.MAX_VALUE;
+        List<String> phones = new ArrayList<>(residents.size());
+        for (Person person : residents) {
+            // Une personne sans dossier médical est comptée comme enfant, comme dans PersonService
+            LocalDate birthdate = medicalRecordRepository.findByName(person.getFirstName(), person.getLastName())
+                    .map(MedicalRecord::getBirthdate)
+                    .orElse(null);
+            if (ageService.isChild(birthdate)) {
+                children++;
+                if (birthdate != null) {
+                    nextMajority = Math.min(nextMajority, DateUtils.toPackedDate(birthdate) + AgeService.MAJORITY_AGE * 10000);
+                }
+            }
+            if (person.getPhone() != null) {
+                phones.add(person.getPhone());
+            }
+        }
+        return new Household(residents.size(), children, phones, nextMajority);
+    }
+}
@@ -22,4 +22,27 @@ public class DateUtils {
         if (birthdate == null) return -1;
         return Period.between(birthdate, LocalDate.now()).getYears();
     }
+
+    /**
+     * Encode une date sous forme d'entier {@code aaaammjj} (ex : 20120218).
+     * <p>
+     * Pour deux dates encodées, {@code (aujourdhui - naissance) / 10000} donne l'âge en années révolues,
+     * avec le même résultat que {@link Period#between(LocalDate, LocalDate)}.
+     *
+     * @param date date à encoder
+     * @return la date encodée
+     */
+    public static int toPackedDate(LocalDate date) {
+        return date.getYear() * 10000 + date.getMonthValue() * 100 + date.getDayOfMonth();
+    }
+
+    /**
+     * Décode une date encodée par {@link #toPackedDate(LocalDate)}.
+     *
+     * @param packed date sous forme {@code aaaammjj}
+     * @return la date correspondante
+     */
+    public static LocalDate fromPackedDate(int packed) {
+        return LocalDate.of(packed / 10000, packed / 100 % 100, packed % 100);
+    }
 }
@@ -0,0 +1,67 @@
+package com.openclassrooms.P_5_SafetyNet_Alerts.utils;
+
+import java.util.Locale;
+
+/**
+ * Classe utilitaire pour la construction des clefs d'index.
+ * <p>
+ * Les recherches de l'application comparent les adresses et les noms sans tenir compte
+ * de la casse ({@code equalsIgnoreCase}). Ces méthodes produisent une forme canonique
+ * équivalente, utilisable comme clef de {@link java.util.HashMap}.
+ */
+public class KeyUtils {
+
+    private KeyUtils() {
+    }
+
+    /**
+     * Retourne la forme canonique d'une adresse : espaces de début et de fin retirés,
+     * espaces internes consécutifs réduits à un seul, et passage en minuscules.
+     * <p>
+     * La clef d'une adresse du jeu de données est précalculée par son dictionnaire
+     * ({@link StringPool#canonicalAddress}).
+     *
+     * @param address adresse brute
+     * @return la clef canonique, ou null si l'adresse est nulle
+     */
+    public static String canonicalAddress(String address) {
+        if (address == null) return null;
+        StringBuilder sb = new StringBuilder(address.length());
+        boolean pendingSpace = false;
+        for (int i = 0; i < address.length(); i++) {
+            char c = address.charAt(i);
+            if (Character.isWhitespace(c)) {
+                pendingSpace = sb.length() > 0;
+                continue;
+            }
+            if (pendingSpace) {
+                sb.append(' ');
+                pendingSpace = false;
+            }
+            sb.append(c);
+        }
+        return sb.toString().toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * Retourne la clef d'un nom ou d'une ville, insensible à la casse.
+     *
+     * @param value nom ou ville
+     * @return la clef, ou null si la valeur est nulle
+     */
+    public static String lowerCaseKey(String value) {
+        return value == null ? null : value.toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * Retourne la clef d'identité d'une personne (prénom + nom), insensible à la casse.
+     *
+     * @param firstName prénom
+     * @param lastName  nom
+     * @return la clef d'identité, ou null si l'un des deux champs est nul
+     */
+    public static String identityKey(String firstName, String lastName) {
+        if (firstName == null || lastName == null) return null;
+        return firstName.toLowerCase(Locale.ROOT) + '\u0000' + lastName.toLowerCase(Locale.ROOT);
+    }
+}
@@ -0,0 +1,214 @@
+package com.openclassrooms.P_5_SafetyNet_Alerts.utils;
+
+import com.openclassrooms.P_5_SafetyNet_Alerts.model.Firestation;
+import com.openclassrooms.P_5_SafetyNet_Alerts.model.MedicalRecord;
+
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.RandomAccess;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Dictionnaire des chaînes répétées d'un jeu de données.
+ * <p>
+ * Nom, ville, code postal et adresse se répètent sur des milliers d'habitants : chaque valeur reçoit un
+ * code entier ({@link #code}), sous lequel les colonnes de personnes la rangent, et une instance partagée
+ * ({@link #share}). Chaque adresse partagée porte en plus sa clef canonique ({@link KeyUtils#canonicalAddress}),
+ * calculée une seule fois et retrouvée ensuite par une recherche dans une table de hachage.
+ * <p>
+ * Les listes de médicaments et d'allergies puisent dans un vocabulaire de quelques dizaines de valeurs et se
+ * répètent d'un dossier à l'autre : chaque combinaison est rangée une seule fois, en tableau de codes, et
+ * partagée par tous les dossiers qui la contiennent ({@link #shareList}).
+ * <p>
+ * Un dictionnaire appartient au {@link com.openclassrooms.P_5_SafetyNet_Alerts.data.DataLoader}, qui en crée un
+ * nouveau à chaque chargement du fichier de données. Les valeurs n'en sont jamais retirées : une valeur qui n'est
+ * plus utilisée (personne supprimée) reste dans le dictionnaire jusqu'au chargement suivant, après lequel le
+ * dictionnaire n'est plus retenu que par les versions précédentes du jeu de données encore lues.
+ * Les codes n'ont de sens que dans leur dictionnaire : les colonnes et listes codées gardent le leur.
+ */
+public final class StringPool {
+
+    // Valeur -> code
+    private final ConcurrentHashMap<String, Integer> codes = new ConcurrentHashMap<>();
+    // Code -> valeur ; agrandi sous le verrou du dictionnaire, seule la fin (codes pas encore attribués) change
+    private volatile String[] values = new String[1024];
+    private int count;
+    // Adresse partagée -> clef canonique, elle-même partagée entre les adresses de même clef
+    private final ConcurrentHashMap<String, String> addressKeys = new ConcurrentHashMap<>();
+    // Listes partagées : une instance par combinaison de valeurs
+    private final ConcurrentHashMap<CodedList, CodedList> lists = new ConcurrentHashMap<>();
+
+    /**
+     * @param value valeur à coder
+     * @return le code de la valeur, attribué au premier appel ; -1 si la valeur est nulle
+     */
+    public int code(String value) {
+        if (value == null) return -1;
+        Integer code = codes.get(value);
+        return code != null ? code : assign(value);
+    }
+
+    private synchronized int assign(String value) {
+        Integer code = codes.get(value);
+        if (code != null) return code;
+        String[] current = values;
+        if (count == current.length) {
+            current = Arrays.copyOf(current, current.length * 2);
+        }
+        current[count] = value;
+        // Écriture volatile : publie la valeur avant son code
+        values = current;
+        codes.put(value, count);
+        return count++;
+    }
+
+    /**
+     * @param code code retourné par {@link #code}
+     * @return la valeur partagée de ce code, ou null pour le code -1
+     */
+    public String value(int code) {
+        return code < 0 ? null : values[code];
+    }
+
+    /**
+     * @param value valeur à partager
+     * @return l'instance partagée de même valeur, ou null si la valeur est nulle
+     */
+    public String share(String value) {
+        return value(code(value));
+    }
+
+    /**
+     * Partage une adresse et lui associe sa clef canonique.
+     *
+     * @param address adresse à partager
+     * @return l'instance partagée de même valeur, ou null si l'adresse est nulle
+     */
+    public String shareAddress(String address) {
+        return value(addressCode(address));
+    }
+
+    /**
+     * Code d'une adresse ({@link #code}), dont la clef canonique est précalculée.
+     *
+     * @param address adresse à coder
+     * @return le code de l'adresse, ou -1 si elle est nulle
+     */
+    public int addressCode(String address) {
+        int code = code(address);
+        if (code >= 0) {
+            String shared = values[code];
+            if (!addressKeys.containsKey(shared)) {
+                addressKeys.putIfAbsent(shared, share(KeyUtils.canonicalAddress(shared)));
+            }
+        }
+        return code;
+    }
+
+    /**
+     * @param address adresse
+     * @return la clef canonique précalculée de cette adresse, ou null si elle n'a jamais été partagée
+     */
+    public String addressKey(String address) {
+        return address == null ? null : addressKeys.get(address);
+    }
+
+    /**
+     * Clef canonique d'une adresse ({@link KeyUtils#canonicalAddress}) : précalculée pour une adresse partagée
+     * par ce dictionnaire, calculée sinon.
+     *
+     * @param address adresse brute
+     * @return la clef canonique, ou null si l'adresse est nulle
+     */
+    public String canonicalAddress(String address) {
+        String key = addressKey(address);
+        return key != null ? key : KeyUtils.canonicalAddress(address);
+    }
+
+    /**
+     * @param values liste à partager
+     * @return une liste en lecture seule de mêmes valeurs, partagée avec les listes égales ; null si la liste est nulle
+     */
+    public List<String> shareList(List<String> values) {
+        if (values == null || values instanceof CodedList coded && coded.pool() == this) {
+            return values;
+        }
+        int[] codes = new int[values.size()];
+        for (int i = 0; i < codes.length; i++) {
+            codes[i] = code(values.get(i));
+        }
+        CodedList list = new CodedList(codes);
+        CodedList shared = lists.putIfAbsent(list, list);
+        return shared != null ? shared : list;
+    }
+
+    /**
+     * Remplace le nom, les médicaments et les allergies d'un dossier pas encore publié par leurs instances partagées.
+     *
+     * @param medicalRecord dossier à modifier
+     * @return le même dossier
+     */
+    public MedicalRecord canonicalize(MedicalRecord medicalRecord) {
+        medicalRecord.setLastName(share(medicalRecord.getLastName()));
+        medicalRecord.setMedications(shareList(medicalRecord.getMedications()));
+        medicalRecord.setAllergies(shareList(medicalRecord.getAllergies()));
+        return medicalRecord;
+    }
+
+    /**
+     * Remplace l'adresse d'un mapping pas encore publié par son instance partagée.
+     *
+     * @param firestation mapping à modifier
+     * @return le même mapping
+     */
+    public Firestation canonicalize(Firestation firestation) {
+        firestation.setAddress(shareAddress(firestation.getAddress()));
+        return firestation;
+    }
+
+    /**
+     * @return le nombre de valeurs partagées
+     */
+    public int size() {
+        return codes.size();
+    }
+
+    /**
+     * Liste en lecture seule de valeurs codées dans ce dictionnaire.
+     */
+    private final class CodedList extends AbstractList<String> implements RandomAccess {
+        private final int[] codes;
+        private final int hash;
+
+        private CodedList(int[] codes) {
+            this.codes = codes;
+            this.hash = super.hashCode();
+        }
+
+        private StringPool pool() {
+            return StringPool.this;
+        }
+
+        @Override
+        public String get(int index) {
+            return value(codes[index]);
+        }
+
+        @Override
+        public int size() {
+            return codes.length;
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            // Même code, même valeur : la comparaison des codes suffit entre listes d'un même dictionnaire
+            return o instanceof CodedList other && other.pool() == pool() ? Arrays.equals(codes, other.codes) : super.equals(o);
+        }
+    }
+}
@@ -2,7 +2,11 @@ package com.openclassrooms.P_5_SafetyNet_Alerts.IT;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.openclassrooms.P_5_SafetyNet_Alerts.data.DataLoader;
+import com.openclassrooms.P_5_SafetyNet_Alerts.controller.OutcomeMetrics;
 import com.openclassrooms.P_5_SafetyNet_Alerts.model.Person;
+import com.openclassrooms.P_5_SafetyNet_Alerts.service.ServiceMetrics;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -10,12 +14,16 @@ import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMock
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.http.MediaType;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
 
 import java.io.InputStream;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.List;
 
+import static org.assertj.core.api.Assertions.assertThat;
 import static org.hamcrest.Matchers.*;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
@@ -33,6 +41,9 @@ public class TestPersonController_IT {
     @Autowired
     DataLoader dataLoader;
 
+    @Autowired
+    MeterRegistry meterRegistry;
+
     // Chemins pour la restauration du jeu de données
     private static final String ORIGINAL_DATA_PATH = "/Data/data-original.json";
     private static final String WORKING_DATA_PATH = "Data/data.json";
@@ -65,6 +76,29 @@ public class TestPersonController_IT {
                 .andExpect(content().string(""));
     }
 
+    @Test
+    void testMetrics_countsNotFoundPerRouteAndTimesStages() throws Exception {
+        double before = notFoundCount("/firestation");
+
+        mockMvc.perform(get("/firestation?stationNumber=99"))
+                .andExpect(status().isNotFound());
+
+        assertThat(notFoundCount("/firestation")).isEqualTo(before + 1);
+        assertThat(meterRegistry.find(ServiceMetrics.STAGE_TIMER)
+                .tags("operation", "firestation", "stage", "address-resolution").timer())
+                .isNotNull()
+                .satisfies(timer -> assertThat(timer.count()).isPositive());
+        mockMvc.perform(get("/actuator/metrics/http.server.requests.percentile")
+                        .param("tag", "uri:/firestation", "phi:0.99"))
+                .andExpect(status().isOk());
+    }
+
+    private double notFoundCount(String uri) {
+        Counter counter = meterRegistry.find(OutcomeMetrics.OUTCOME_COUNTER)
+                .tags("uri", uri, "method", "GET", "status", "404").counter();
+        return counter == null ? 0 : counter.count();
+    }
+
     @Test
     void testGetChildsByAddress_found() throws Exception {
         mockMvc.perform(get("/childAlert")
@@ -119,6 +153,29 @@ public class TestPersonController_IT {
                 .andExpect(jsonPath("$['1509 Culver St']").exists());
     }
 
+    @Test
+    void testStreamFloodInfoByStations_sameJsonAsFullResponse() throws Exception {
+        String full = mockMvc.perform(get("/flood/stations").param("stations", "1,3"))
+                .andReturn().getResponse().getContentAsString();
+        MvcResult async = mockMvc.perform(get("/flood/stations").param("stations", "1,3").param("stream", "true"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        String streamed = mockMvc.perform(asyncDispatch(async))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString();
+
+        assertThat(objectMapper.readTree(streamed)).isEqualTo(objectMapper.readTree(full));
+    }
+
+    @Test
+    void testStreamFloodInfoByStations_notFound() throws Exception {
+        MvcResult async = mockMvc.perform(get("/flood/stations?stations=99&stream=true"))
+                .andReturn();
+        mockMvc.perform(asyncDispatch(async))
+                .andExpect(status().isNotFound())
+                .andExpect(content().json("{}"));
+    }
+
     @Test
     void testGetFloodInfoByStations_notFound() throws Exception {
         mockMvc.perform(get("/flood/stations?stations=99"))
@@ -152,6 +209,53 @@ public class TestPersonController_IT {
                 .andExpect(jsonPath("$", hasSize(greaterThanOrEqualTo(5))));
     }
 
+    @Test
+    void testStreamEmailsByCity_sameJsonAsFullResponse() throws Exception {
+        String full = mockMvc.perform(get("/communityEmail").param("city", "Culver"))
+                .andReturn().getResponse().getContentAsString();
+        MvcResult async = mockMvc.perform(get("/communityEmail").param("city", "Culver").param("stream", "true"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        mockMvc.perform(asyncDispatch(async))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType(MediaType.APPLICATION_JSON))
+                .andExpect(content().json(full, true));
+    }
+
+    @Test
+    void testGetEmailsByCity_pagesCoverTheFullResponse() throws Exception {
+        String[] full = objectMapper.readValue(mockMvc.perform(get("/communityEmail").param("city", "Culver"))
+                .andReturn().getResponse().getContentAsString(), String[].class);
+
+        List<String> paged = new ArrayList<>();
+        String cursor = null;
+        do {
+            var request = get("/communityEmail").param("city", "Culver").param("limit", "5");
+            if (cursor != null) {
+                request.param("cursor", cursor);
+            }
+            var response = mockMvc.perform(request)
+                    .andExpect(status().isOk())
+                    .andExpect(jsonPath("$", hasSize(lessThanOrEqualTo(5))))
+                    .andReturn().getResponse();
+            paged.addAll(List.of(objectMapper.readValue(response.getContentAsString(), String[].class)));
+            cursor = response.getHeader("X-Next-Cursor");
+        } while (cursor != null);
+
+        assertThat(paged).isSorted().containsExactlyInAnyOrder(full);
+    }
+
+    @Test
+    void testGetPersonsByFirestationId_pageKeepsStationCounts() throws Exception {
+        mockMvc.perform(get("/firestation").param("stationNumber", "1").param("limit", "2"))
+                .andExpect(status().isOk())
+                .andExpect(header().exists("X-Next-Cursor"))
+                .andExpect(jsonPath("$.persons", hasSize(2)))
+                .andExpect(jsonPath("$.countOfAdults").value(5))
+                .andExpect(jsonPath("$.countOfChilds").value(1));
+    }
+
     @Test
     void testGetEmailsByCity_notFound() throws Exception {
         mockMvc.perform(get("/communityEmail?city=Nowhere"))
@@ -197,6 +301,25 @@ public class TestPersonController_IT {
                 .andExpect(status().isConflict());
     }
 
+    @Test
+    void testAddPersons_batchIsPersistedWithPerItemStatus() throws Exception {
+        Person added = Person.builder().firstName("TestFirst").lastName("TestLast").address("1500 Test Rd")
+                .city("Culver").zip("99999").phone("999-888-7777").email("test@email.com").build();
+        Person existing = Person.builder().firstName("John").lastName("Boyd").address("1509 Culver St")
+                .city("Culver").zip("97451").phone("841-874-6512").email("jaboyd@email.com").build();
+
+        mockMvc.perform(post("/person/batch")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(List.of(added, existing, added))))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[*].status", contains(201, 409, 409)))
+                .andExpect(jsonPath("$[0].item.firstName").value("TestFirst"));
+
+        // Rechargement depuis le fichier : le lot a été enregistré
+        dataLoader.run();
+        assertThat(dataLoader.getPersons()).filteredOn(p -> "TestFirst".equals(p.getFirstName())).hasSize(1);
+    }
+
     @Test
     void testUpdatePerson_found() throws Exception {
         Person p = Person.builder()
@@ -3,6 +3,9 @@ package com.openclassrooms.P_5_SafetyNet_Alerts;
 import org.junit.jupiter.api.Test;
 import org.springframework.boot.test.context.SpringBootTest;
 
+import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
 @SpringBootTest
 class P5SafetyNetAlertsApplicationTests {
 
@@ -10,4 +13,11 @@ class P5SafetyNetAlertsApplicationTests {
     void contextLoads() {
     }
 
+    @Test
+    void testCheckVirtualThreads_refusedBeforeJava21() {
+        assertThrows(IllegalStateException.class, () -> P5SafetyNetAlertsApplication.checkVirtualThreads(true, 17));
+        assertDoesNotThrow(() -> P5SafetyNetAlertsApplication.checkVirtualThreads(true, 21));
+        assertDoesNotThrow(() -> P5SafetyNetAlertsApplication.checkVirtualThreads(false, 17));
+    }
+
 }
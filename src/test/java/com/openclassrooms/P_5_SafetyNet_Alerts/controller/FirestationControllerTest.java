@@ -11,11 +11,13 @@ import org.springframework.http.MediaType;
 import org.springframework.test.context.bean.override.mockito.MockitoBean;
 import org.springframework.test.web.servlet.MockMvc;
 
+import java.util.List;
 import java.util.Optional;
 
 import static org.mockito.ArgumentMatchers.*;
 import static org.mockito.Mockito.when;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
 @WebMvcTest(controllers = FirestationController.class)
@@ -86,6 +88,35 @@ public class FirestationControllerTest {
                 .andExpect(status().is(410));
     }
 
+    // BATCH
+    @Test
+    void testAddFirestations_reportsEachItem() throws Exception {
+        when(firestationService.addFirestations(anyList()))
+                .thenReturn(List.of(Optional.of(firestation), Optional.empty()));
+
+        mockMvc.perform(post("/firestation/batch")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(List.of(firestation, firestation))))
+                .andExpect(status().is(200))
+                .andExpect(jsonPath("$[0].status").value(201))
+                .andExpect(jsonPath("$[0].item.address").value("28 W 29th St"))
+                .andExpect(jsonPath("$[1].status").value(409))
+                .andExpect(jsonPath("$[1].item").doesNotExist());
+    }
+
+    @Test
+    void testUpdateFirestations_reportsEachItem() throws Exception {
+        when(firestationService.updateFirestations(anyList()))
+                .thenReturn(List.of(Optional.empty(), Optional.of(firestation)));
+
+        mockMvc.perform(put("/firestation/batch")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(List.of(firestation, firestation))))
+                .andExpect(status().is(200))
+                .andExpect(jsonPath("$[0].status").value(410))
+                .andExpect(jsonPath("$[1].status").value(200));
+    }
+
     // DELETE BY ADDRESS
     @Test
     void testDeleteFirestationByAddress_deleted() throws Exception {
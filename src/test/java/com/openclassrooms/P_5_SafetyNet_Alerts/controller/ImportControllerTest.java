@@ -0,0 +1,101 @@
+package com.openclassrooms.P_5_SafetyNet_Alerts.controller;
+
+import com.openclassrooms.P_5_SafetyNet_Alerts.model.DTO.ImportProgressDTO;
+import com.openclassrooms.P_5_SafetyNet_Alerts.model.DTO.ImportRecordDTO;
+import com.openclassrooms.P_5_SafetyNet_Alerts.service.ImportService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@WebMvcTest(controllers = ImportController.class)
+public class ImportControllerTest {
+
+    @Autowired
+    MockMvc mockMvc;
+
+    @MockitoBean
+    ImportService importService;
+
+    final List<ImportRecordDTO> read = new ArrayList<>();
+
+    @BeforeEach
+    void setUp() throws Exception {
+        // Le service simulé lit toute la source, comme le vrai
+        when(importService.importRecords(any(), any())).thenAnswer(invocation -> {
+            ImportService.RecordSource source = invocation.getArgument(0);
+            try {
+                for (ImportRecordDTO record = source.next(); record != null; record = source.next()) {
+                    read.add(record);
+                }
+            } catch (IOException e) {
+                throw new ImportService.ImportFailedException(e,
+                        ImportProgressDTO.builder().records(read.size()).error(e.getMessage()).build());
+            }
+            return Optional.of(ImportProgressDTO.builder().records(read.size()).build());
+        });
+    }
+
+    @Test
+    void testImport_parsesOneRecordPerLine() throws Exception {
+        mockMvc.perform(post("/import")
+                        .contentType("application/x-ndjson")
+                        .content("""
+                                {"person":{"firstName":"John","lastName":"Boyd","address":"1509 Culver St"}}
+                                {"medicalRecord":{"firstName":"John","lastName":"Boyd","birthdate":"03/06/1984"}}
+                                {"firestation":{"address":"1509 Culver St","station":3}}
+                                """))
+                .andExpect(status().is(200))
+                .andExpect(jsonPath("$.records").value(3));
+
+        assertEquals("Boyd", read.get(0).getPerson().getLastName());
+        assertEquals(1984, read.get(1).getMedicalRecord().getBirthdate().getYear());
+        assertEquals(3, read.get(2).getFirestation().getStation());
+    }
+
+    @Test
+    void testImport_invalidLine() throws Exception {
+        // Bilan d'un autre import, lancé depuis : la réponse porte celui de cet appel
+        when(importService.getProgress()).thenReturn(Optional.of(ImportProgressDTO.builder().records(99).build()));
+
+        mockMvc.perform(post("/import")
+                        .contentType("application/x-ndjson")
+                        .content("{\"firestation\":{\"address\":\"1509 Culver St\",\"station\":3}}\n{\"person\":"))
+                .andExpect(status().is(400))
+                .andExpect(jsonPath("$.records").value(1));
+    }
+
+    @Test
+    void testImport_conflictWhileRunning() throws Exception {
+        doReturn(Optional.empty()).when(importService).importRecords(any(), any());
+
+        mockMvc.perform(post("/import")
+                        .contentType("application/x-ndjson")
+                        .content(""))
+                .andExpect(status().is(409));
+    }
+
+    @Test
+    void testGetImportProgress_notFound() throws Exception {
+        when(importService.getProgress()).thenReturn(Optional.empty());
+
+        mockMvc.perform(get("/import"))
+                .andExpect(status().is(404));
+    }
+}
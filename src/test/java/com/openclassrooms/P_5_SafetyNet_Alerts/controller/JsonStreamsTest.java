@@ -0,0 +1,65 @@
+package com.openclassrooms.P_5_SafetyNet_Alerts.controller;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.openclassrooms.P_5_SafetyNet_Alerts.service.ResultStream;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class JsonStreamsTest {
+
+    final ObjectMapper mapper = new ObjectMapper();
+
+    @Test
+    void testArray_writesElementsAsJsonArray() throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        JsonStreams.array(mapper, action -> List.of("a@x.com", "b@x.com").forEach(action)).writeTo(out);
+
+        assertEquals("[\"a@x.com\",\"b@x.com\"]", out.toString());
+    }
+
+    @Test
+    void testObject_writesEntriesAsJsonObject() throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ResultStream<Map.Entry<String, List<Integer>>> fields = action -> {
+            action.accept(Map.entry("1509 Culver St", List.of(1, 2)));
+            action.accept(Map.entry("29 15th St", List.of()));
+        };
+
+        JsonStreams.object(mapper, fields).writeTo(out);
+
+        assertEquals("{\"1509 Culver St\":[1,2],\"29 15th St\":[]}", out.toString());
+    }
+
+    @Test
+    void testArray_stopsProducingWhenClientDisconnects() {
+        int[] produced = new int[1];
+        ResultStream<String> endless = action -> {
+            while (true) {
+                produced[0]++;
+                action.accept("someone@email.com");
+            }
+        };
+        OutputStream disconnected = new OutputStream() {
+            @Override
+            public void write(int b) throws IOException {
+                throw new IOException("Broken pipe");
+            }
+
+            @Override
+            public void write(byte[] b, int off, int len) throws IOException {
+                throw new IOException("Broken pipe");
+            }
+        };
+
+        assertThrows(IOException.class, () -> JsonStreams.array(mapper, endless).writeTo(disconnected));
+        assertEquals(JsonStreams.FLUSH_EVERY, produced[0]);
+    }
+}
@@ -3,7 +3,9 @@ package com.openclassrooms.P_5_SafetyNet_Alerts.controller;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.openclassrooms.P_5_SafetyNet_Alerts.model.DTO.*;
 import com.openclassrooms.P_5_SafetyNet_Alerts.model.Person;
+import com.openclassrooms.P_5_SafetyNet_Alerts.service.PageCursor;
 import com.openclassrooms.P_5_SafetyNet_Alerts.service.PersonService;
+import com.openclassrooms.P_5_SafetyNet_Alerts.service.ResultPage;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -18,8 +20,10 @@ import java.util.Optional;
 
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.verifyNoInteractions;
 import static org.mockito.Mockito.when;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
 @WebMvcTest(controllers = PersonController.class)
@@ -203,6 +207,32 @@ public class PersonControllerTest {
                 .andExpect(status().is(404));
     }
 
+    // POPULATION
+    @Test
+    public void testGetPopulationByMedicalTerms_found() throws Exception {
+        Map<String, List<FireAddressResidentDTO>> population = Map.of(EXISTING_ADDRESS, List.of(residentDto));
+        when(personService.getPopulationByMedicalTerms(List.of(EXISTING_STATION_ID), null, List.of("peanut"), null))
+                .thenReturn(population);
+
+        mockMvc.perform(get("/population?stations={ids}&allergy=peanut", EXISTING_STATION_ID))
+                .andExpect(status().isOk());
+    }
+
+    @Test
+    public void testGetPopulationByMedicalTerms_notFound() throws Exception {
+        when(personService.getPopulationByMedicalTerms(null, null, null, List.of("aznol"))).thenReturn(Map.of());
+
+        mockMvc.perform(get("/population?medication=aznol"))
+                .andExpect(status().is(404));
+    }
+
+    @Test
+    public void testGetPopulationByMedicalTerms_withoutTerms_badRequest() throws Exception {
+        mockMvc.perform(get("/population?stations={ids}", EXISTING_STATION_ID))
+                .andExpect(status().is(400));
+        verifyNoInteractions(personService);
+    }
+
     // PERSONINFO
     @Test
     public void testGetPersonInfoByName_found() throws Exception {
@@ -233,6 +263,42 @@ public class PersonControllerTest {
                 .andExpect(status().is(404));
     }
 
+    @Test
+    public void testGetCommunityEmail_pageWithNextCursorHeader() throws Exception {
+        PageCursor next = new PageCursor("foo@email.com", 1);
+        when(personService.getEmailsByCityPage(EXISTING_CITY, 1, null))
+                .thenReturn(Optional.of(new ResultPage<>(List.of("foo@email.com"), next)));
+        mockMvc.perform(get("/communityEmail?city={city}&limit=1", EXISTING_CITY))
+                .andExpect(status().isOk())
+                .andExpect(header().string(PersonController.NEXT_CURSOR_HEADER, next.encode()));
+    }
+
+    @Test
+    public void testGetPersonInfoByName_prefixIsPagedByDefault() throws Exception {
+        PageCursor next = new PageCursor("boyd\njohn", 1);
+        when(personService.getPersonsInfoByLastNamePrefixPage("Bo", PersonController.DEFAULT_PREFIX_LIMIT, null))
+                .thenReturn(Optional.of(new ResultPage<>(List.of(personInfoByNameDto), next)));
+        mockMvc.perform(get("/personInfo?lastName=Bo&prefix=true"))
+                .andExpect(status().isOk())
+                .andExpect(header().string(PersonController.NEXT_CURSOR_HEADER, next.encode()));
+
+        when(personService.getPersonsInfoByLastNamePrefixPage("Zz", 5, null)).thenReturn(Optional.empty());
+        mockMvc.perform(get("/personInfo?lastName=Zz&prefix=true&limit=5"))
+                .andExpect(status().is(404));
+        mockMvc.perform(get("/personInfo?lastName=Bo&prefix=true&limit=0"))
+                .andExpect(status().is(400));
+    }
+
+    @Test
+    public void testGetPersonInfoByName_invalidPageParameters() throws Exception {
+        mockMvc.perform(get("/personInfo?lastName={name}&limit=0", EXISTING_LASTNAME))
+                .andExpect(status().is(400));
+        mockMvc.perform(get("/personInfo?lastName={name}&limit=10&cursor=@@", EXISTING_LASTNAME))
+                .andExpect(status().is(400));
+        mockMvc.perform(get("/firestation?stationNumber={id}&cursor=MTpqb2hu", EXISTING_STATION_ID))
+                .andExpect(status().is(400));
+    }
+
     // ADD PERSON
     @Test
     public void testAddPerson_created() throws Exception {
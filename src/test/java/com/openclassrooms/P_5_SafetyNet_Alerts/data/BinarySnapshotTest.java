@@ -0,0 +1,97 @@
+package com.openclassrooms.P_5_SafetyNet_Alerts.data;
+
+import com.openclassrooms.P_5_SafetyNet_Alerts.model.Firestation;
+import com.openclassrooms.P_5_SafetyNet_Alerts.model.MedicalRecord;
+import com.openclassrooms.P_5_SafetyNet_Alerts.model.Person;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BinarySnapshotTest {
+
+    @TempDir
+    Path dir;
+
+    private DataWrapper sample() {
+        DataWrapper data = new DataWrapper();
+        data.setPersons(List.of(
+                new Person("John", "Boyd", "1509 Culver St", "Culver", "97451", "841-874-6512", "jaboyd@email.com"),
+                new Person("Zoé", "Boyd", "1509 Culver St", "Culver", null, null, "zoe@email.com")));
+        data.setFirestations(List.of(new Firestation("1509 Culver St", 3)));
+        data.setMedicalrecords(List.of(
+                new MedicalRecord("John", "Boyd", LocalDate.of(1984, 3, 6), List.of("aznol:350mg", "hydrapermazol:100mg"), List.of("nillacilan")),
+                new MedicalRecord("Zoé", "Boyd", null, null, List.of())));
+        data.setJournalSequence(42L);
+        return data;
+    }
+
+    @Test
+    void testWriteThenRead_roundTrip() throws IOException {
+        Path dataFile = Files.writeString(dir.resolve("data.json"), "{}");
+        Path snapshot = BinarySnapshot.pathFor(dataFile);
+        DataWrapper data = sample();
+
+        BinarySnapshot.write(snapshot, data, dataFile);
+        List<Person> persons = new ArrayList<>();
+        List<Firestation> firestations = new ArrayList<>();
+        List<MedicalRecord> medicalRecords = new ArrayList<>();
+        long sequence = BinarySnapshot.read(snapshot, persons, firestations, medicalRecords);
+
+        assertEquals(dir.resolve("data.snapshot"), snapshot);
+        assertEquals(42, sequence);
+        assertEquals(data.getPersons(), persons);
+        assertEquals(data.getFirestations(), firestations);
+        assertEquals(data.getMedicalrecords(), medicalRecords);
+        // la table des chaînes partage les valeurs répétées
+        assertSame(persons.get(0).getAddress(), persons.get(1).getAddress());
+        assertSame(persons.get(0).getAddress(), firestations.get(0).getAddress());
+    }
+
+    @Test
+    void testRead_acrossMappingWindows() throws IOException {
+        Path dataFile = Files.writeString(dir.resolve("data.json"), "{}");
+        Path snapshot = BinarySnapshot.pathFor(dataFile);
+        DataWrapper data = sample();
+        BinarySnapshot.write(snapshot, data, dataFile);
+
+        // Fenêtres de 16 octets : entiers en fin de fenêtre et chaînes à cheval sur deux fenêtres
+        List<Person> persons = new ArrayList<>();
+        List<Firestation> firestations = new ArrayList<>();
+        List<MedicalRecord> medicalRecords = new ArrayList<>();
+        long sequence = BinarySnapshot.read(snapshot, persons, firestations, medicalRecords, 16);
+
+        assertEquals(42, sequence);
+        assertEquals(data.getPersons(), persons);
+        assertEquals(data.getFirestations(), firestations);
+        assertEquals(data.getMedicalrecords(), medicalRecords);
+    }
+
+    @Test
+    void testIsCurrent_followsJsonChanges() throws IOException {
+        Path dataFile = Files.writeString(dir.resolve("data.json"), "{}");
+        Path snapshot = BinarySnapshot.pathFor(dataFile);
+        assertFalse(BinarySnapshot.isCurrent(snapshot, dataFile));
+
+        BinarySnapshot.write(snapshot, sample(), dataFile);
+        assertTrue(BinarySnapshot.isCurrent(snapshot, dataFile));
+
+        Files.setLastModifiedTime(dataFile, FileTime.fromMillis(Files.getLastModifiedTime(dataFile).toMillis() + 1000));
+        assertFalse(BinarySnapshot.isCurrent(snapshot, dataFile));
+    }
+
+    @Test
+    void testRead_rejectsUnknownFormat() throws IOException {
+        Path snapshot = Files.write(dir.resolve("data.snapshot"), new byte[200]);
+
+        assertThrows(IOException.class, () -> BinarySnapshot.read(snapshot, new ArrayList<>(), new ArrayList<>(), new ArrayList<>()));
+    }
+}
@@ -0,0 +1,73 @@
+package com.openclassrooms.P_5_SafetyNet_Alerts.data;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ChunkedListTest {
+
+    @Test
+    void testEdit_leavesThePreviousVersionUnchanged() {
+        ChunkedList<String> first = ChunkedList.of(List.of("a", "b", "c"));
+
+        ChunkedList.Editor<String> editor = first.edit();
+        assertEquals(3, editor.add("d"));
+        editor.set(0, "A");
+        editor.remove(1);
+        editor.remove(1);
+        ChunkedList<String> second = editor.build();
+
+        assertEquals(List.of("a", "b", "c"), first);
+        assertEquals(List.of("A", "c", "d"), second);
+        // Case vidée sans décaler les suivantes
+        assertEquals(4, second.slotCount());
+        assertEquals("c", second.slot(2));
+        assertEquals(List.of("d", "A"), second.slots(new int[]{3, 0}));
+        assertThrows(IllegalArgumentException.class, () -> second.slot(1));
+        assertThrows(UnsupportedOperationException.class, () -> second.add("e"));
+        assertSame(first, ChunkedList.of(first));
+    }
+
+    @Test
+    void testGet_skipsEmptySlotsAcrossChunks() {
+        List<Integer> expected = new ArrayList<>();
+        ChunkedList.Editor<Integer> editor = ChunkedList.<Integer>empty().edit();
+        for (int i = 0; i < 3 * ChunkedList.CHUNK_SIZE + 7; i++) {
+            editor.add(i);
+        }
+        ChunkedList<Integer> full = editor.build();
+        // Une suppression par écriture, un élément sur trois
+        ChunkedList<Integer> list = full;
+        for (int i = 0; i < full.slotCount(); i++) {
+            if (i % 3 == 0) {
+                ChunkedList.Editor<Integer> removal = list.edit();
+                removal.remove(i);
+                list = removal.build();
+            } else {
+                expected.add(i);
+            }
+        }
+
+        assertEquals(expected, list);
+        for (int i = 0; i < expected.size(); i += 97) {
+            assertEquals(expected.get(i), list.get(i));
+        }
+        assertEquals(expected.get(expected.size() - 1), list.get(expected.size() - 1));
+        assertEquals(full.slotCount(), list.slotCount());
+        BitSet live = list.liveSlots();
+        assertFalse(live.get(0));
+        assertTrue(live.get(1));
+        assertEquals(expected.size(), live.cardinality());
+
+        // Compaction : cases renumérotées dans leur ordre
+        ChunkedList<Integer> compacted = list.compact();
+        assertEquals(expected, compacted);
+        assertEquals(expected.size(), compacted.slotCount());
+        assertSame(compacted, compacted.compact());
+        assertEquals(3 * ChunkedList.CHUNK_SIZE + 7, full.size());
+    }
+}
@@ -0,0 +1,190 @@
+package com.openclassrooms.P_5_SafetyNet_Alerts.data;
+
+import com.openclassrooms.P_5_SafetyNet_Alerts.model.Person;
+import com.openclassrooms.P_5_SafetyNet_Alerts.utils.StringPool;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class DataLoaderTest {
+
+    @TempDir
+    Path dir;
+
+    private DataLoader loaderFor(String json) throws Exception {
+        Path dataFile = dir.resolve("data.json");
+        Files.writeString(dataFile, json);
+        DataLoader dataLoader = new DataLoader(new SimpleMeterRegistry(), null);
+        dataLoader.setDataFilePath(dataFile.toString());
+        dataLoader.setBinarySnapshotEnabled(true);
+        return dataLoader;
+    }
+
+    @Test
+    void testRun_streamsEverySection() throws Exception {
+        DataLoader dataLoader = loaderFor("""
+                {"firestations": [{"address": "1509 Culver St", "station": "3"}],
+                 "unknown": {"nested": [1, 2, {"a": null}]},
+                 "persons": [{"firstName": "John", "lastName": "Boyd", "address": "1509 Culver St", "city": "Culver"},
+                             {"firstName": "Jacob", "lastName": "Boyd", "address": "1509 Culver St", "city": "Culver"}],
+                 "medicalrecords": [{"firstName": "John", "lastName": "Boyd", "birthdate": "03/06/1984",
+                                     "medications": ["aznol:350mg"], "allergies": []}]}
+                """);
+
+        dataLoader.run();
+
+        assertEquals(List.of("John", "Jacob"), dataLoader.getPersons().stream().map(p -> p.getFirstName()).toList());
+        assertEquals(3, dataLoader.getFirestations().get(0).getStation());
+        assertEquals(LocalDate.of(1984, 3, 6), dataLoader.getMedicalRecords().get(0).getBirthdate());
+        assertEquals(List.of("aznol:350mg"), dataLoader.getMedicalRecords().get(0).getMedications());
+    }
+
+    @Test
+    void testRun_missingOrNullSectionsAreEmpty() throws Exception {
+        DataLoader dataLoader = loaderFor("""
+                {"persons": null, "firestations": [{"address": "1509 Culver St", "station": "3"}]}
+                """);
+
+        dataLoader.run();
+
+        assertTrue(dataLoader.getPersons().isEmpty());
+        assertTrue(dataLoader.getMedicalRecords().isEmpty());
+        assertEquals(1, dataLoader.getFirestations().size());
+    }
+
+    @Test
+    void testRun_truncatedFileFails() throws Exception {
+        DataLoader dataLoader = loaderFor("""
+                {"persons": [{"firstName": "John", "lastName": "Boyd"},
+                """);
+
+        assertThrows(Exception.class, dataLoader::run);
+    }
+
+    @Test
+    void testRun_prefersCurrentBinarySnapshot() throws Exception {
+        DataLoader dataLoader = loaderFor("""
+                {"persons": [{"firstName": "John", "lastName": "Boyd"}], "firestations": [], "medicalrecords": []}
+                """);
+        dataLoader.run();
+        Path dataFile = dir.resolve("data.json");
+        assertTrue(Files.exists(dir.resolve("data.snapshot")));
+
+        // JSON illisible mais de même taille et même date : seule la copie binaire peut être lue
+        FileTime modified = Files.getLastModifiedTime(dataFile);
+        Files.writeString(dataFile, " ".repeat((int) Files.size(dataFile)));
+        Files.setLastModifiedTime(dataFile, modified);
+        dataLoader.run();
+
+        assertEquals("John", dataLoader.getPersons().get(0).getFirstName());
+    }
+
+    @Test
+    void testRun_fallsBackToJsonWhenNewer() throws Exception {
+        DataLoader dataLoader = loaderFor("""
+                {"persons": [{"firstName": "John", "lastName": "Boyd"}], "firestations": [], "medicalrecords": []}
+                """);
+        dataLoader.run();
+
+        Files.writeString(dir.resolve("data.json"), "{\"persons\": [{\"firstName\": \"Jacob\", \"lastName\": \"Boyd\"}]}");
+        dataLoader.run();
+
+        assertEquals("Jacob", dataLoader.getPersons().get(0).getFirstName());
+    }
+
+    @Test
+    void testRun_reloadReplacesTheStringPool() throws Exception {
+        DataLoader dataLoader = loaderFor("""
+                {"persons": [{"firstName": "John", "lastName": "Boyd", "address": "1509 Culver St"}]}
+                """);
+        dataLoader.run();
+        StringPool first = dataLoader.getStringPool();
+        assertNotNull(first.addressKey("1509 Culver St"));
+
+        Files.writeString(dir.resolve("data.json"), "{\"persons\": [{\"firstName\": \"Jacob\", \"lastName\": \"Boyd\", \"address\": \"29 15th St\"}]}");
+        dataLoader.run();
+
+        // Les adresses de l'ancien fichier ne sont plus retenues
+        StringPool reloaded = dataLoader.getStringPool();
+        assertNotSame(first, reloaded);
+        assertNull(reloaded.addressKey("1509 Culver St"));
+        assertEquals("29 15th st", reloaded.addressKey("29 15th St"));
+        assertEquals("29 15th St", dataLoader.getPersons().get(0).getAddress());
+    }
+
+    @Test
+    void testRead_seesOneVersionWhileWritersPublish() throws Exception {
+        DataLoader dataLoader = new DataLoader(new SimpleMeterRegistry(), null);
+        dataLoader.setPersons(List.of(Person.builder().firstName("John").lastName("Boyd").build()));
+
+        long version = dataLoader.read(() -> {
+            long pinned = dataLoader.getDataset().getVersion();
+            // Publication concurrente d'une nouvelle version
+            Thread writer = new Thread(() -> dataLoader.write(() -> {
+                dataLoader.setPersons(List.of());
+                return null;
+            }));
+            writer.start();
+            try {
+                writer.join();
+            } catch (InterruptedException e) {
+                throw new IllegalStateException(e);
+            }
+            assertEquals(1, dataLoader.getPersons().size());
+            assertEquals(pinned, dataLoader.getDataset().getVersion());
+            return pinned;
+        });
+
+        assertTrue(dataLoader.getPersons().isEmpty());
+        assertEquals(version + 1, dataLoader.getDataset().getVersion());
+    }
+
+    @Test
+    void testWrite_rewritesDataFileAfterReleasingTheLock() throws Exception {
+        Path dataFile = dir.resolve("data.json");
+        DataLoader dataLoader = new DataLoader(new SimpleMeterRegistry(), null);
+        dataLoader.setDataFilePath(dataFile.toString());
+        dataLoader.setPersistenceMode("sync");
+
+        dataLoader.write(() -> {
+            dataLoader.setPersons(List.of(Person.builder().firstName("John").lastName("Boyd").build()));
+            dataLoader.saveData();
+            // Le fichier n'est pas écrit sous le verrou d'écriture
+            assertFalse(Files.exists(dataFile));
+            return null;
+        });
+
+        assertTrue(Files.readString(dataFile).contains("John"));
+    }
+
+    @Test
+    void testAwaitPersistence_waitsForALateWriteBehindFlush() throws Exception {
+        Path dataFile = dir.resolve("data.json");
+        DataLoader dataLoader = new DataLoader(new SimpleMeterRegistry(), null);
+        dataLoader.setDataFilePath(dataFile.toString());
+        dataLoader.setPersistenceMode("write-behind");
+        dataLoader.setFlushIntervalMillis(300);
+        dataLoader.setFlushThreshold(1000);
+        dataLoader.initPersistence();
+        try {
+            assertFalse(dataLoader.awaitPersistence(0, 5000));
+
+            dataLoader.setPersons(List.of(Person.builder().firstName("John").lastName("Boyd").build()));
+            dataLoader.saveData();
+            Thread.sleep(50);
+
+            assertTrue(dataLoader.awaitPersistence(10, 5000));
+            assertTrue(Files.readString(dataFile).contains("John"));
+        } finally {
+            dataLoader.shutdownPersistence();
+        }
+    }
+}
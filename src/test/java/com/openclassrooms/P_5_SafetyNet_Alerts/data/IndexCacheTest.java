@@ -0,0 +1,26 @@
+package com.openclassrooms.P_5_SafetyNet_Alerts.data;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class IndexCacheTest {
+
+    @Test
+    void staleIndexesNeverEvictTheLatest() {
+        IndexCache<String> cache = new IndexCache<>(2);
+        cache.add("v1", true);
+        cache.add("v2", true);
+        assertEquals("v1", cache.find("v1"::equals));
+
+        // Index d'une version dépassée : remplace la précédente, jamais la dernière
+        cache.add("v0", false);
+        assertEquals("v2", cache.find("v2"::equals));
+        assertEquals("v0", cache.find("v0"::equals));
+        assertNull(cache.find("v1"::equals));
+
+        cache.add("v3", true);
+        assertEquals("v2", cache.find("v2"::equals));
+        assertNull(cache.find("v0"::equals));
+    }
+}
@@ -0,0 +1,162 @@
+package com.openclassrooms.P_5_SafetyNet_Alerts.data;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import com.openclassrooms.P_5_SafetyNet_Alerts.model.Person;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MutationJournalTest {
+
+    private final ObjectMapper mapper = new ObjectMapper().registerModule(new JavaTimeModule());
+
+    @TempDir
+    Path dir;
+
+    private Person person(String firstName) {
+        Person p = new Person();
+        p.setFirstName(firstName);
+        p.setLastName("Boyd");
+        p.setAddress("1509 Culver St");
+        return p;
+    }
+
+    @Test
+    void testAppend_thenReplayInOrder() throws Exception {
+        Path dataFile = dir.resolve("data.json");
+        MutationJournal journal = new MutationJournal(dataFile, mapper, 0, Long.MAX_VALUE, upTo -> { });
+        journal.append(Mutation.addPerson(person("John")));
+        journal.append(Mutation.deletePerson("John", "Boyd"));
+        journal.append(Mutation.deleteFirestationByStation(3));
+        journal.close();
+
+        List<Mutation> replayed = new ArrayList<>();
+        long last = MutationJournal.replay(dataFile, mapper, 0, replayed::add);
+
+        assertEquals(3, last);
+        assertEquals(List.of(Mutation.Type.ADD_PERSON, Mutation.Type.DELETE_PERSON, Mutation.Type.DELETE_FIRESTATION_BY_STATION),
+                replayed.stream().map(Mutation::getType).toList());
+        assertEquals("John", replayed.get(0).getPerson().getFirstName());
+        assertEquals(3, replayed.get(2).getStation());
+    }
+
+    @Test
+    void testAppend_batchIsReplayedAsOneMutation() throws Exception {
+        Path dataFile = dir.resolve("data.json");
+        MutationJournal journal = new MutationJournal(dataFile, mapper, 0, Long.MAX_VALUE, upTo -> { });
+        journal.append(Mutation.batch(List.of(Mutation.addPerson(person("John")), Mutation.addPerson(person("Jacob")))));
+        journal.append(Mutation.deletePerson("John", "Boyd"));
+        journal.close();
+
+        List<Mutation> replayed = new ArrayList<>();
+        long last = MutationJournal.replay(dataFile, mapper, 0, replayed::add);
+
+        assertEquals(2, last);
+        assertEquals(Mutation.Type.BATCH, replayed.get(0).getType());
+        assertEquals(List.of("John", "Jacob"),
+                replayed.get(0).getBatch().stream().map(m -> m.getPerson().getFirstName()).toList());
+    }
+
+    @Test
+    void testReplay_skipsMutationsAlreadyInSnapshot() throws Exception {
+        Path dataFile = dir.resolve("data.json");
+        MutationJournal journal = new MutationJournal(dataFile, mapper, 0, Long.MAX_VALUE, upTo -> { });
+        for (int i = 0; i < 5; i++) {
+            journal.append(Mutation.addPerson(person("P" + i)));
+        }
+        journal.close();
+
+        List<Mutation> replayed = new ArrayList<>();
+        long last = MutationJournal.replay(dataFile, mapper, 3, replayed::add);
+
+        assertEquals(5, last);
+        assertEquals(List.of(4L, 5L), replayed.stream().map(Mutation::getSeq).toList());
+    }
+
+    @Test
+    void testReplay_stopsAtTornLine() throws Exception {
+        Path dataFile = dir.resolve("data.json");
+        MutationJournal journal = new MutationJournal(dataFile, mapper, 0, Long.MAX_VALUE, upTo -> { });
+        journal.append(Mutation.addPerson(person("John")));
+        journal.close();
+        Path segment = dir.resolve("data.journal.000001");
+        Files.writeString(segment, "{\"seq\":2,\"type\":\"ADD_PE", StandardOpenOption.APPEND);
+
+        List<Mutation> replayed = new ArrayList<>();
+        long last = MutationJournal.replay(dataFile, mapper, 0, replayed::add);
+
+        assertEquals(1, last);
+        assertEquals(1, replayed.size());
+    }
+
+    @Test
+    void testAppend_concurrentCallersShareCommits() throws Exception {
+        Path dataFile = dir.resolve("data.json");
+        MutationJournal journal = new MutationJournal(dataFile, mapper, 0, Long.MAX_VALUE, upTo -> { });
+        ExecutorService pool = Executors.newFixedThreadPool(16);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int i = 0; i < 400; i++) {
+            String name = "P" + i;
+            futures.add(pool.submit(() -> {
+                journal.append(Mutation.addPerson(person(name)));
+                return null;
+            }));
+        }
+        for (Future<?> f : futures) {
+            f.get(30, TimeUnit.SECONDS);
+        }
+        pool.shutdown();
+        journal.close();
+
+        assertEquals(400, journal.getLastWrittenSequence());
+        assertTrue(journal.getCommitCount() <= 400);
+        assertEquals(400, MutationJournal.replay(dataFile, mapper, 0, m -> { }));
+    }
+
+    @Test
+    void testCompaction_deletesCompactedSegments() throws Exception {
+        Path dataFile = dir.resolve("data.json");
+        AtomicLong compactedUpTo = new AtomicLong();
+        CountDownLatch compacted = new CountDownLatch(1);
+        MutationJournal journal = new MutationJournal(dataFile, mapper, 0, 1, upTo -> {
+            compactedUpTo.set(upTo);
+            compacted.countDown();
+        });
+
+        journal.append(Mutation.addPerson(person("John")));
+        assertTrue(compacted.await(5, TimeUnit.SECONDS));
+        journal.close();
+
+        assertEquals(1, compactedUpTo.get());
+        assertFalse(Files.exists(dir.resolve("data.journal.000001")));
+        assertTrue(Files.exists(dir.resolve("data.journal.000002")));
+        assertEquals(1, MutationJournal.replay(dataFile, mapper, compactedUpTo.get(), m -> fail()));
+    }
+
+    @Test
+    void testDeleteAll_removesEverySegment() throws Exception {
+        Path dataFile = dir.resolve("data.json");
+        MutationJournal journal = new MutationJournal(dataFile, mapper, 0, Long.MAX_VALUE, upTo -> { });
+        journal.append(Mutation.deletePerson("John", "Boyd"));
+        journal.close();
+        assertTrue(MutationJournal.exists(dataFile));
+
+        MutationJournal.deleteAll(dataFile);
+
+        assertFalse(MutationJournal.exists(dataFile));
+    }
+}
@@ -0,0 +1,119 @@
+package com.openclassrooms.P_5_SafetyNet_Alerts.data;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.openclassrooms.P_5_SafetyNet_Alerts.model.Person;
+import com.openclassrooms.P_5_SafetyNet_Alerts.utils.StringPool;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PersonTableTest {
+
+    private final Person john = new Person("John", "Boyd", "1509 Culver St", "Culver", "97451", "841-874-6512", "jaboyd@email.com");
+    private final Person zoe = new Person("Zoé", "Boyd", "1509 Culver St", "Culver", null, null, "zoe@email.com");
+    private final Person peter = new Person("Peter", "Duncan", "29 15th St", "Culver", "97451", "841-874-6544", "ssanw@email.com");
+
+    @Test
+    void testOf_viewsReadTheColumns() throws Exception {
+        PersonTable table = PersonTable.of(List.of(john, zoe), new StringPool());
+
+        assertEquals(List.of(john, zoe), table);
+        assertEquals(zoe, table.get(1));
+        assertEquals(zoe.hashCode(), table.get(1).hashCode());
+        assertNull(table.zip(1));
+        assertNull(table.phone(1));
+        assertEquals("Zoé", table.firstName(1));
+        // Valeurs répétées : une seule instance
+        assertSame(table.get(0).getAddress(), table.get(1).getAddress());
+        assertSame(table, PersonTable.of(table, new StringPool()));
+        // Les vues se sérialisent comme les personnes
+        ObjectMapper mapper = new ObjectMapper();
+        assertEquals(mapper.writeValueAsString(List.of(john, zoe)), mapper.writeValueAsString(table));
+    }
+
+    @Test
+    void testViews_areReadOnly() {
+        PersonTable table = PersonTable.of(List.of(john), new StringPool());
+
+        assertThrows(UnsupportedOperationException.class, () -> table.get(0).setEmail("other@email.com"));
+        assertThrows(UnsupportedOperationException.class, () -> table.add(peter));
+        assertThrows(IndexOutOfBoundsException.class, () -> table.get(1));
+    }
+
+    @Test
+    void testWrites_returnNewTablesAndKeepThePreviousOnes() {
+        PersonTable first = PersonTable.of(List.of(john, zoe), new StringPool());
+
+        PersonTable appended = first.append(List.of(peter));
+        PersonTable updated = appended.update(Map.of(0, new Person("John", "Boyd", "29 15th St", "Culver", "97451", "000", "new@email.com")));
+        PersonTable removed = updated.remove(new int[]{1});
+
+        assertEquals(List.of(john, zoe), first);
+        assertEquals(List.of(john, zoe, peter), appended);
+        assertEquals("new@email.com", updated.email(0));
+        assertEquals("jaboyd@email.com", appended.email(0));
+        assertEquals(List.of("John", "Peter"), removed.stream().map(Person::getFirstName).toList());
+        assertEquals("29 15th St", removed.address(0));
+        // Ligne supprimée sans décaler les suivantes
+        assertEquals(3, removed.rowCount());
+        assertEquals(List.of(peter), removed.rows(new int[]{2}));
+        assertEquals(BitSet.valueOf(new long[]{0b101}), removed.liveRows());
+        assertThrows(IllegalArgumentException.class, () -> removed.row(1));
+        assertEquals(List.of(zoe), updated.rows(new int[]{1}));
+
+        PersonTable compacted = removed.compact();
+        assertEquals(2, compacted.rowCount());
+        assertEquals(List.of(peter), compacted.rows(new int[]{1}));
+        assertEquals(removed, compacted);
+    }
+
+    @Test
+    void testRemove_listSkipsDeletedRowsAcrossChunks() {
+        List<Person> persons = new ArrayList<>();
+        for (int i = 0; i < 3 * PersonTable.CHUNK_SIZE; i++) {
+            persons.add(new Person("P" + i, "Boyd", i + " Culver St", "Culver", null, null, null));
+        }
+        PersonTable table = PersonTable.of(persons, new StringPool());
+        List<Integer> removed = new ArrayList<>();
+        for (int row = 0; row < table.rowCount(); row += 7) {
+            removed.add(row);
+        }
+        // Un morceau entier supprimé
+        for (int row = PersonTable.CHUNK_SIZE; row < 2 * PersonTable.CHUNK_SIZE; row++) {
+            if (row % 7 != 0) {
+                removed.add(row);
+            }
+        }
+        PersonTable pruned = table.remove(removed.stream().mapToInt(Integer::intValue).toArray());
+
+        List<Person> expected = new ArrayList<>(persons);
+        removed.stream().sorted(Comparator.reverseOrder()).forEach(row -> expected.remove((int) row));
+        assertEquals(expected.size(), pruned.size());
+        assertEquals(expected, pruned);
+        for (int i = 0; i < expected.size(); i += 97) {
+            assertEquals(expected.get(i), pruned.get(i));
+        }
+        assertEquals(expected.get(expected.size() - 1), pruned.get(pruned.size() - 1));
+        assertEquals(persons, table);
+    }
+
+    @Test
+    void testUpdates_compactTheReplacedValues() {
+        PersonTable table = PersonTable.of(List.of(john, zoe), new StringPool());
+        String email = "x".repeat(64 * 1024) + "@email.com";
+        // Plusieurs Mo d'emails remplacés : le tas est recopié sans eux en cours de route
+        for (int i = 0; i < 64; i++) {
+            table = table.update(Map.of(1, new Person("Zoé", "Boyd", "1509 Culver St", "Culver", null, null, i + email)));
+        }
+
+        assertEquals(john, table.get(0));
+        assertEquals("63" + email, table.email(1));
+        assertEquals(new ArrayList<>(table), List.copyOf(table));
+    }
+}
@@ -0,0 +1,61 @@
+package com.openclassrooms.P_5_SafetyNet_Alerts.data;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PostingsTest {
+
+    private static List<Integer> rows(Postings postings) {
+        return IntStream.range(0, postings.size()).map(postings::get).boxed().toList();
+    }
+
+    @Test
+    void testEdit_leavesThePreviousVersionUnchanged() {
+        Postings first = Postings.of(new int[]{10, 20, 30});
+
+        Postings.Editor editor = first.edit();
+        editor.insert(25, row -> row <= 25);
+        editor.insert(5, row -> row <= 5);
+        assertTrue(editor.remove(20, row -> row < 20));
+        assertFalse(editor.remove(21, row -> row < 21));
+        Postings second = editor.build();
+
+        assertEquals(List.of(10, 20, 30), rows(first));
+        assertEquals(List.of(5, 10, 25, 30), rows(second));
+        assertEquals(2, second.bound(row -> row < 25));
+        assertEquals(4, second.bound(row -> true));
+        assertArrayEquals(new int[]{10, 25}, second.toArray(1, 3));
+        assertTrue(Postings.of(new int[0]).isEmpty());
+    }
+
+    @Test
+    void testEdit_keepsTheOrderAcrossChunks() {
+        // Entrée triée sur valeur / 7 : ex aequo nombreux, insertions et retraits au hasard
+        SplittableRandom random = new SplittableRandom(42);
+        List<Integer> expected = new ArrayList<>();
+        Postings postings = Postings.empty();
+        for (int i = 0; i < 4 * Postings.CHUNK_SIZE; i++) {
+            int row = random.nextInt(100_000);
+            if (expected.contains(row)) continue;
+            Postings.Editor editor = postings.edit();
+            editor.insert(row, r -> r / 7 <= row / 7);
+            int position = 0;
+            while (position < expected.size() && expected.get(position) / 7 <= row / 7) position++;
+            expected.add(position, row);
+            if (i % 3 == 0) {
+                int removed = expected.remove(random.nextInt(expected.size()));
+                assertTrue(editor.remove(removed, r -> r / 7 < removed / 7));
+            }
+            postings = editor.build();
+        }
+
+        assertEquals(expected, rows(postings));
+        assertEquals(expected.size(), postings.size());
+    }
+}
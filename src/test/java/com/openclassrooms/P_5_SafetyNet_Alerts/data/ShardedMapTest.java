@@ -0,0 +1,57 @@
+package com.openclassrooms.P_5_SafetyNet_Alerts.data;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ShardedMapTest {
+
+    private static Map<String, Integer> entries(ShardedMap<String, Integer> map) {
+        Map<String, Integer> entries = new HashMap<>();
+        map.forEach(entries::put);
+        return entries;
+    }
+
+    @Test
+    void testEdit_leavesThePreviousVersionUnchanged() {
+        ShardedMap<String, Integer> first = ShardedMap.of(Map.of("a", 1, "b", 2));
+
+        ShardedMap.Editor<String, Integer> editor = first.edit();
+        editor.put("a", 10);
+        editor.put("c", 3);
+        editor.remove("b");
+        editor.remove("unknown");
+        ShardedMap<String, Integer> second = editor.build();
+
+        assertEquals(Map.of("a", 1, "b", 2), entries(first));
+        assertEquals(Map.of("a", 10, "c", 3), entries(second));
+        assertEquals(2, second.size());
+        assertNull(second.get("b"));
+        assertEquals(0, second.getOrDefault("b", 0));
+    }
+
+    @Test
+    void testBuild_growsTheShardsWithTheEntries() {
+        ShardedMap<String, Integer> map = ShardedMap.empty();
+        Map<String, Integer> expected = new HashMap<>();
+        // Une écriture par entrée, au-delà du seuil de recopie des sous-tables
+        for (int i = 0; i < 10_000; i++) {
+            ShardedMap.Editor<String, Integer> editor = map.edit();
+            editor.put("k" + i, i);
+            expected.put("k" + i, i);
+            if (i % 3 == 0) {
+                editor.remove("k" + (i / 2));
+                expected.remove("k" + (i / 2));
+            }
+            map = editor.build();
+        }
+
+        assertEquals(expected, entries(map));
+        assertEquals(expected.size(), map.size());
+        assertTrue(map.containsKey("k9998"));
+        assertEquals(0, ShardedMap.<String, Integer>empty().edit().build().size());
+    }
+}
@@ -0,0 +1,94 @@
+package com.openclassrooms.P_5_SafetyNet_Alerts.data;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class WriteBehindWriterTest {
+
+    @Test
+    void testMarkDirty_coalescedIntoOneWrite() throws Exception {
+        AtomicInteger writes = new AtomicInteger();
+        CountDownLatch written = new CountDownLatch(1);
+        WriteBehindWriter writer = new WriteBehindWriter(() -> {
+            writes.incrementAndGet();
+            written.countDown();
+        }, 200, 1000);
+
+        for (int i = 0; i < 100; i++) {
+            writer.markDirty();
+        }
+        assertEquals(100, writer.getPendingMutations());
+        assertTrue(writer.getLagMillis() >= 0);
+
+        assertTrue(written.await(5, TimeUnit.SECONDS));
+        writer.close();
+        assertEquals(1, writes.get());
+        assertEquals(0, writer.getPendingMutations());
+        assertEquals(0, writer.getLagMillis());
+    }
+
+    @Test
+    void testMarkDirty_thresholdFlushesBeforeInterval() throws Exception {
+        CountDownLatch written = new CountDownLatch(1);
+        WriteBehindWriter writer = new WriteBehindWriter(written::countDown, 60_000, 10);
+
+        for (int i = 0; i < 10; i++) {
+            writer.markDirty();
+        }
+
+        assertTrue(written.await(5, TimeUnit.SECONDS));
+        writer.close();
+    }
+
+    @Test
+    void testClose_flushesPendingMutations() {
+        AtomicInteger writes = new AtomicInteger();
+        WriteBehindWriter writer = new WriteBehindWriter(writes::incrementAndGet, 60_000, 1000);
+
+        writer.markDirty();
+        writer.close();
+
+        assertEquals(1, writes.get());
+        assertEquals(1, writer.getFlushCount());
+    }
+
+    @Test
+    void testFlushed_completesOnceSignaledMutationsAreWritten() throws Exception {
+        AtomicInteger writes = new AtomicInteger();
+        WriteBehindWriter writer = new WriteBehindWriter(writes::incrementAndGet, 100, 1000);
+        assertTrue(writer.flushed().isDone());
+
+        writer.markDirty();
+        CompletableFuture<Void> flushed = writer.flushed();
+        assertFalse(flushed.isDone());
+
+        flushed.get(5, TimeUnit.SECONDS);
+        assertEquals(1, writes.get());
+        writer.close();
+    }
+
+    @Test
+    void testFlush_failureKeepsMutationsPending() throws Exception {
+        AtomicInteger attempts = new AtomicInteger();
+        CountDownLatch retried = new CountDownLatch(2);
+        WriteBehindWriter writer = new WriteBehindWriter(() -> {
+            retried.countDown();
+            if (attempts.incrementAndGet() == 1) {
+                throw new IllegalStateException("disque plein");
+            }
+        }, 50, 1000);
+
+        writer.markDirty();
+
+        assertTrue(retried.await(5, TimeUnit.SECONDS));
+        writer.close();
+        assertEquals(2, attempts.get());
+        assertEquals(0, writer.getPendingMutations());
+    }
+}
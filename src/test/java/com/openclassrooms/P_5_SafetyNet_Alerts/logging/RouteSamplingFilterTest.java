@@ -0,0 +1,63 @@
+package com.openclassrooms.P_5_SafetyNet_Alerts.logging;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.LoggerContext;
+import ch.qos.logback.core.spi.FilterReply;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Marker;
+import org.slf4j.MarkerFactory;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class RouteSamplingFilterTest {
+
+    private static final Marker FIRESTATION = MarkerFactory.getMarker("GET /firestation");
+    private static final Marker FIRE = MarkerFactory.getMarker("GET /fire");
+
+    private RouteSamplingFilter filter;
+    private Logger logger;
+
+    @BeforeEach
+    void setUp() {
+        filter = new RouteSamplingFilter();
+        logger = new LoggerContext().getLogger("test");
+    }
+
+    private int accepted(Marker marker, Level level, int calls) {
+        int accepted = 0;
+        for (int i = 0; i < calls; i++) {
+            if (filter.decide(marker, logger, level, null, null, null) != FilterReply.DENY) {
+                accepted++;
+            }
+        }
+        return accepted;
+    }
+
+    @Test
+    void testDecide_keepsOneInfoLogInEveryPerRoute() {
+        filter.setEvery(10);
+        filter.setRoutes("GET /fire=2");
+
+        assertEquals(10, accepted(FIRESTATION, Level.INFO, 100));
+        assertEquals(50, accepted(FIRE, Level.INFO, 100));
+    }
+
+    @Test
+    void testDecide_neverSamplesErrorsOrUnmarkedLogs() {
+        filter.setEvery(10);
+
+        assertEquals(100, accepted(FIRESTATION, Level.ERROR, 100));
+        assertEquals(100, accepted(null, Level.INFO, 100));
+    }
+
+    @Test
+    void testDecide_logCallAfterAcceptedLevelCheckIsNotRecounted() {
+        filter.setEvery(2);
+
+        assertEquals(FilterReply.NEUTRAL, filter.decide(FIRESTATION, logger, Level.INFO, null, null, null));
+        assertEquals(FilterReply.NEUTRAL, filter.decide(FIRESTATION, logger, Level.INFO, "GET /firestation - OK", null, null));
+        assertEquals(FilterReply.DENY, filter.decide(FIRESTATION, logger, Level.INFO, null, null, null));
+    }
+}
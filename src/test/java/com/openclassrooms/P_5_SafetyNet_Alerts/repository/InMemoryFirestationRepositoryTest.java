@@ -0,0 +1,145 @@
+package com.openclassrooms.P_5_SafetyNet_Alerts.repository;
+
+import com.openclassrooms.P_5_SafetyNet_Alerts.data.ChunkedList;
+import com.openclassrooms.P_5_SafetyNet_Alerts.data.DataLoader;
+import com.openclassrooms.P_5_SafetyNet_Alerts.model.Firestation;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class InMemoryFirestationRepositoryTest {
+
+    DataLoader dataLoader;
+
+    InMemoryFirestationRepository repositoryUnderTest;
+
+    List<Firestation> firestationsMock;
+
+    @BeforeEach
+    void setUp() {
+        dataLoader = new DataLoader(new SimpleMeterRegistry(), null);
+        // Reprend les particularités du jeu de données : adresse couverte par deux casernes, mapping en double
+        firestationsMock = new ArrayList<>(Arrays.asList(
+                Firestation.builder().address("1509 Culver St").station(3).build(),
+                Firestation.builder().address("112 Steppes Pl").station(3).build(),
+                Firestation.builder().address("112 Steppes Pl").station(4).build(),
+                Firestation.builder().address("748 Townings Dr").station(3).build(),
+                Firestation.builder().address("748 Townings Dr").station(3).build(),
+                Firestation.builder().address("29 15th St").station(2).build()
+        ));
+        dataLoader.setFirestations(firestationsMock);
+        repositoryUnderTest = new InMemoryFirestationRepository(dataLoader);
+    }
+
+    @Test
+    void testFindByAddress_firstMappingWins() {
+        Optional<Firestation> result = repositoryUnderTest.findByAddress("112 STEPPES PL");
+        assertTrue(result.isPresent());
+        assertEquals(3, result.get().getStation());
+    }
+
+    @Test
+    void testFindAllByAddress_everyStationOfSharedAddress() {
+        List<Firestation> result = repositoryUnderTest.findAllByAddress("112 steppes pl");
+        assertEquals(List.of(3, 4), result.stream().map(Firestation::getStation).toList());
+        assertTrue(repositoryUnderTest.findAllByAddress("Unknown").isEmpty());
+    }
+
+    @Test
+    void testFindAddressesByStations_orderedAndDistinct() {
+        assertEquals(List.of("1509 Culver St", "112 Steppes Pl", "748 Townings Dr"),
+                repositoryUnderTest.findAddressesByStations(List.of(3)));
+        assertEquals(List.of("112 Steppes Pl", "29 15th St"),
+                repositoryUnderTest.findAddressesByStations(List.of(4, 2)));
+        assertTrue(repositoryUnderTest.findAddressesByStations(List.of(99)).isEmpty());
+    }
+
+    @Test
+    void testUpdateStation_movesAddressBetweenStations() {
+        repositoryUnderTest.updateStation("1509 Culver St", 2);
+
+        assertFalse(repositoryUnderTest.findAddressesByStations(List.of(3)).contains("1509 Culver St"));
+        assertEquals(List.of("29 15th St", "1509 Culver St"), repositoryUnderTest.findAddressesByStations(List.of(2)));
+    }
+
+    @Test
+    void testUpdateStation_sharedAddressKeepsUpdatingItsFirstMapping() {
+        assertEquals(5, repositoryUnderTest.updateStation("112 Steppes Pl", 5).orElseThrow().getStation());
+        assertEquals(5, repositoryUnderTest.findByAddress("112 Steppes Pl").orElseThrow().getStation());
+        assertEquals(List.of(5, 4), stationsOf("112 Steppes Pl"));
+
+        assertEquals(6, repositoryUnderTest.updateStation("112 Steppes Pl", 6).orElseThrow().getStation());
+        assertEquals(6, repositoryUnderTest.findByAddress("112 Steppes Pl").orElseThrow().getStation());
+        assertEquals(List.of(6, 4), stationsOf("112 Steppes Pl"));
+        // Même réponse après un rechargement de la liste publiée
+        assertEquals(List.of(6, 4), dataLoader.getFirestations().stream()
+                .filter(f -> f.getAddress().equals("112 Steppes Pl")).map(Firestation::getStation).toList());
+        assertTrue(repositoryUnderTest.findAddressesByStations(List.of(3, 5)).stream().noneMatch("112 Steppes Pl"::equals));
+        assertEquals(List.of("112 Steppes Pl"), repositoryUnderTest.findAddressesByStations(List.of(6)));
+    }
+
+    private List<Integer> stationsOf(String address) {
+        return repositoryUnderTest.findAllByAddress(address).stream().map(Firestation::getStation).toList();
+    }
+
+    @Test
+    void testDeleteByStation_keepsOtherStationsOfSharedAddress() {
+        assertTrue(repositoryUnderTest.deleteByStation(3));
+
+        assertEquals(2, dataLoader.getFirestations().size());
+        assertTrue(repositoryUnderTest.findByStation(3).isEmpty());
+        assertTrue(repositoryUnderTest.findAddressesByStations(List.of(3)).isEmpty());
+        assertEquals(4, repositoryUnderTest.findByAddress("112 Steppes Pl").get().getStation());
+        assertTrue(repositoryUnderTest.findByAddress("748 Townings Dr").isEmpty());
+        assertFalse(repositoryUnderTest.deleteByStation(3));
+    }
+
+    @Test
+    void testDeleteByAddress_removesEveryMapping() {
+        assertTrue(repositoryUnderTest.deleteByAddress("112 steppes pl"));
+
+        assertEquals(4, dataLoader.getFirestations().size());
+        assertTrue(repositoryUnderTest.findAddressesByStations(List.of(4)).isEmpty());
+        assertEquals(List.of("1509 Culver St", "748 Townings Dr"), repositoryUnderTest.findAddressesByStations(List.of(3)));
+    }
+
+    @Test
+    void testWrites_keepThePreviousVersionAndCompactBeyondAQuarterOfDeletedMappings() {
+        List<Firestation> firestations = new ArrayList<>();
+        for (int i = 0; i < 4 * ChunkedList.CHUNK_SIZE; i++) {
+            firestations.add(Firestation.builder().address(i + " Culver St").station(1 + i % 2).build());
+        }
+        dataLoader.setFirestations(firestations);
+        List<Firestation> first = repositoryUnderTest.findAll();
+
+        int deleted = 0;
+        do {
+            assertTrue(repositoryUnderTest.deleteByAddress((2 * deleted) + " culver st"));
+            deleted++;
+        } while (((ChunkedList<Firestation>) dataLoader.getFirestations()).slotCount() == firestations.size());
+
+        // Compaction : cases renumérotées, index des adresses recalculé
+        assertEquals(ChunkedList.CHUNK_SIZE + 1, deleted);
+        assertEquals(firestations, first);
+        assertEquals(firestations.size() - deleted, dataLoader.getFirestations().size());
+        assertEquals("1 Culver St", dataLoader.getFirestations().get(0).getAddress());
+        assertEquals(2, repositoryUnderTest.findByAddress("1 Culver St").orElseThrow().getStation());
+        assertTrue(repositoryUnderTest.findByAddress("0 Culver St").isEmpty());
+        assertEquals(2 * ChunkedList.CHUNK_SIZE, repositoryUnderTest.findByStation(2).size());
+        assertEquals(2 * ChunkedList.CHUNK_SIZE - deleted, repositoryUnderTest.findAddressesByStations(List.of(1)).size());
+        assertEquals(String.valueOf(2 * deleted) + " Culver St", repositoryUnderTest.findAddressesByStations(List.of(1)).get(0));
+
+        // Adresse rattachée à une autre caserne : ajoutée en fin d'ordre
+        repositoryUnderTest.updateStation("1 Culver St", 1);
+        List<String> station1 = repositoryUnderTest.findAddressesByStations(List.of(1));
+        assertEquals("1 Culver St", station1.get(station1.size() - 1));
+        assertEquals(2 * ChunkedList.CHUNK_SIZE - 1, repositoryUnderTest.findByStation(2).size());
+    }
+}
@@ -0,0 +1,305 @@
+package com.openclassrooms.P_5_SafetyNet_Alerts.repository;
+
+import com.openclassrooms.P_5_SafetyNet_Alerts.data.DataLoader;
+import com.openclassrooms.P_5_SafetyNet_Alerts.data.Dataset;
+import com.openclassrooms.P_5_SafetyNet_Alerts.data.PersonTable;
+import com.openclassrooms.P_5_SafetyNet_Alerts.data.Postings;
+import com.openclassrooms.P_5_SafetyNet_Alerts.model.Person;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class InMemoryPersonRepositoryTest {
+
+    DataLoader dataLoader;
+
+    InMemoryPersonRepository repositoryUnderTest;
+
+    List<Person> personsMock;
+
+    @BeforeEach
+    void setUp() {
+        dataLoader = new DataLoader(new SimpleMeterRegistry(), null);
+        personsMock = new ArrayList<>(Arrays.asList(
+                Person.builder().firstName("John").lastName("Boyd").address("1509 Culver St").city("Culver").build(),
+                Person.builder().firstName("Jacob").lastName("Boyd").address("1509 Culver St").city("Culver").build(),
+                Person.builder().firstName("Peter").lastName("Duncan").address("29 15th St").city("Culver").build()
+        ));
+        repositoryUnderTest = new InMemoryPersonRepository(dataLoader);
+    }
+
+    @Test
+    void testFindByAddress_ignoresCaseAndSpaces() {
+        dataLoader.setPersons(personsMock);
+
+        assertEquals(2, repositoryUnderTest.findByAddress("1509 culver st").size());
+        assertEquals(2, repositoryUnderTest.findByAddress("  1509  CULVER St ").size());
+        assertTrue(repositoryUnderTest.findByAddress("Unknown").isEmpty());
+        assertTrue(repositoryUnderTest.findByAddress(null).isEmpty());
+    }
+
+    @Test
+    void testFindByName_ignoresCase() {
+        dataLoader.setPersons(personsMock);
+
+        assertTrue(repositoryUnderTest.findByName("john", "BOYD").isPresent());
+        assertTrue(repositoryUnderTest.findByName("John", "Duncan").isEmpty());
+    }
+
+    @Test
+    void testFindAllByName_returnsEveryHomonym() {
+        personsMock.add(Person.builder().firstName("JOHN").lastName("boyd").address("29 15th St").build());
+        dataLoader.setPersons(personsMock);
+
+        assertEquals(2, repositoryUnderTest.findAllByName("John", "Boyd").size());
+        assertTrue(repositoryUnderTest.findAllByName("John", "Duncan").isEmpty());
+    }
+
+    @Test
+    void testSave_indexed() {
+        dataLoader.setPersons(personsMock);
+
+        repositoryUnderTest.save(Person.builder().firstName("Tenley").lastName("Boyd").address("1509 Culver St").build());
+
+        assertEquals(4, dataLoader.getPersons().size());
+        assertEquals(3, repositoryUnderTest.findByAddress("1509 Culver St").size());
+        assertTrue(repositoryUnderTest.findByName("Tenley", "Boyd").isPresent());
+    }
+
+    @Test
+    void testSaveAndUpdate_shareRepeatedStrings() {
+        dataLoader.setPersons(personsMock);
+
+        repositoryUnderTest.saveAll(List.of(
+                Person.builder().firstName("Tenley").lastName("Boyd")
+                        .address(new String("1509 Culver St")).city(new String("Culver")).zip(new String("97451")).build(),
+                Person.builder().firstName("Roger").lastName("Boyd")
+                        .address(new String("1509 Culver St")).city(new String("Culver")).zip(new String("97451")).build()));
+        repositoryUnderTest.update(Person.builder().firstName("Peter").lastName("Duncan")
+                .address(new String("1509 Culver St")).city(new String("Culver")).build());
+
+        Person tenley = repositoryUnderTest.findByName("Tenley", "Boyd").orElseThrow();
+        Person roger = repositoryUnderTest.findByName("Roger", "Boyd").orElseThrow();
+        Person peter = repositoryUnderTest.findByName("Peter", "Duncan").orElseThrow();
+        assertSame(tenley.getAddress(), roger.getAddress());
+        assertSame(tenley.getCity(), roger.getCity());
+        assertSame(tenley.getZip(), roger.getZip());
+        assertSame(tenley.getAddress(), peter.getAddress());
+        assertSame(tenley.getCity(), peter.getCity());
+    }
+
+    @Test
+    void testUpdate_movesAddress() {
+        dataLoader.setPersons(personsMock);
+
+        Person update = Person.builder().firstName("Jacob").lastName("Boyd").address("29 15th St").city("Culver").build();
+        assertTrue(repositoryUnderTest.update(update).isPresent());
+
+        assertEquals(1, repositoryUnderTest.findByAddress("1509 Culver St").size());
+        assertEquals(2, repositoryUnderTest.findByAddress("29 15th St").size());
+        assertEquals("29 15th St", dataLoader.getPersons().get(1).getAddress());
+        // La version précédente n'est jamais modifiée
+        assertEquals("1509 Culver St", personsMock.get(1).getAddress());
+    }
+
+    @Test
+    void testUpdateAll_publishesOneVersionWithTheLastChangeOfEachPerson() {
+        dataLoader.setPersons(personsMock);
+        long version = dataLoader.getLatestDataset().getVersion();
+
+        List<Optional<Person>> results = repositoryUnderTest.updateAll(List.of(
+                Person.builder().firstName("Jacob").lastName("Boyd").address("29 15th St").city("Culver").build(),
+                Person.builder().firstName("Eric").lastName("Cadigan").address("29 15th St").build(),
+                Person.builder().firstName("jacob").lastName("boyd").address("951 LoneTree Rd").city("Culver").build()));
+
+        assertEquals(List.of(true, false, true), results.stream().map(Optional::isPresent).toList());
+        assertEquals(version + 1, dataLoader.getLatestDataset().getVersion());
+        assertEquals(3, dataLoader.getPersons().size());
+        assertEquals("951 LoneTree Rd", dataLoader.getPersons().get(1).getAddress());
+        assertEquals(1, repositoryUnderTest.findByAddress("29 15th St").size());
+        assertEquals(1, repositoryUnderTest.findByAddress("951 LoneTree Rd").size());
+        assertEquals(dataLoader.getPersons().get(1), repositoryUnderTest.findByName("Jacob", "Boyd").orElseThrow());
+    }
+
+    @Test
+    void testDeleteByName_removesFromIndexes() {
+        dataLoader.setPersons(personsMock);
+
+        assertTrue(repositoryUnderTest.deleteByName("JOHN", "boyd"));
+
+        assertEquals(2, dataLoader.getPersons().size());
+        assertEquals(1, repositoryUnderTest.findByAddress("1509 Culver St").size());
+        assertTrue(repositoryUnderTest.findByName("John", "Boyd").isEmpty());
+        assertFalse(repositoryUnderTest.deleteByName("John", "Boyd"));
+    }
+
+    @Test
+    void testDeleteByName_keepsTheRowsOfTheOthers() {
+        personsMock.add(0, Person.builder().firstName("Eric").lastName("Cadigan").address("951 LoneTree Rd").city("Culver").build());
+        personsMock.add(Person.builder().firstName("john").lastName("BOYD").address("29 15th St").city("Culver").build());
+        dataLoader.setPersons(personsMock);
+
+        // Les deux homonymes sont supprimés, y compris celui placé après Peter
+        assertTrue(repositoryUnderTest.deleteByName("John", "Boyd"));
+
+        assertEquals(List.of("Eric", "Jacob", "Peter"), dataLoader.getPersons().stream().map(Person::getFirstName).toList());
+        assertEquals("Jacob", repositoryUnderTest.findByAddress("1509 Culver St").get(0).getFirstName());
+        assertEquals(List.of("Peter"), repositoryUnderTest.findByAddress("29 15th St").stream().map(Person::getFirstName).toList());
+        assertEquals("Eric", repositoryUnderTest.findByName("eric", "cadigan").orElseThrow().getFirstName());
+        assertEquals(List.of("Eric", "Jacob", "Peter"),
+                repositoryUnderTest.findByCityOrderByEmail("Culver").stream().map(Person::getFirstName).toList());
+        // Lignes supprimées sans décaler les suivantes
+        assertArrayEquals(new int[]{3}, repositoryUnderTest.findRowsByAddress("29 15th St"));
+        assertEquals(BitSet.valueOf(new long[]{0b01101}), repositoryUnderTest.findAllRows());
+        assertEquals(List.of("Peter"),
+                repositoryUnderTest.findAllByRows(new int[]{3}).stream().map(Person::getFirstName).toList());
+    }
+
+    @Test
+    void testDeleteByName_compactsTheTableBeyondAQuarterOfDeletedRows() {
+        List<Person> persons = new ArrayList<>();
+        for (int i = 0; i < 4 * PersonTable.CHUNK_SIZE; i++) {
+            persons.add(Person.builder().firstName("P" + i).lastName("Boyd").address((i % 10) + " Culver St").city("Culver").build());
+        }
+        dataLoader.setPersons(persons);
+
+        int deleted = 0;
+        do {
+            assertTrue(repositoryUnderTest.deleteByName("P" + (2 * deleted), "Boyd"));
+            deleted++;
+        } while (((PersonTable) dataLoader.getPersons()).rowCount() == persons.size());
+
+        // Compaction : lignes renumérotées, index reconstruits
+        assertEquals(PersonTable.CHUNK_SIZE + 1, deleted);
+        assertEquals(persons.size() - deleted, dataLoader.getPersons().size());
+        assertEquals(dataLoader.getPersons().size(), ((PersonTable) dataLoader.getPersons()).rowCount());
+        assertArrayEquals(new int[]{0}, repositoryUnderTest.findRowsByName("P1", "Boyd"));
+        assertEquals("P3", repositoryUnderTest.findAllByRows(new int[]{1}).get(0).getFirstName());
+        // Adresse des seuls rangs impairs, aucun supprimé
+        assertEquals(410, repositoryUnderTest.findByAddress("1 Culver St").size());
+        assertTrue(repositoryUnderTest.findByName("P0", "Boyd").isEmpty());
+        assertEquals(persons.size() - deleted, repositoryUnderTest.findByLastNameOrderByFirstName("boyd").size());
+    }
+
+    @Test
+    void testWrites_keepALargeCitySortedAcrossChunks() {
+        // Toute la population dans une ville : l'entrée de la ville couvre plusieurs morceaux
+        int size = 3 * Postings.CHUNK_SIZE;
+        List<Person> persons = new ArrayList<>();
+        for (int i = 0; i < size; i++) {
+            persons.add(Person.builder().firstName("P" + i).lastName("Boyd").address((i % 50) + " Culver St")
+                    .city("Culver").email("p" + (i * 7919 % size) + "@email.com").build());
+        }
+        dataLoader.setPersons(persons);
+        List<Person> before = repositoryUnderTest.findByCityOrderByEmail("Culver");
+        List<String> beforeEmails = before.stream().map(Person::getEmail).toList();
+
+        List<Person> batch = new ArrayList<>();
+        for (int i = 0; i < 200; i++) {
+            batch.add(Person.builder().firstName("N" + i).lastName("Boyd").address("1509 Culver St")
+                    .city("Culver").email("n" + (i * 31 % 200) + "@email.com").build());
+        }
+        repositoryUnderTest.saveAll(batch);
+        List<Person> moves = new ArrayList<>();
+        for (int i = 1; i < size; i += 5) {
+            moves.add(Person.builder().firstName("P" + i).lastName("Boyd").address("29 15th St")
+                    .city(i % 2 == 0 ? "Culver" : "Paris").email("m" + (size - i) + "@email.com").build());
+        }
+        repositoryUnderTest.updateAll(moves);
+        for (int i = 3; i < size; i += 11) {
+            assertTrue(repositoryUnderTest.deleteByName("P" + i, "Boyd"));
+        }
+
+        // Mêmes entrées qu'une reconstruction complète des index
+        InMemoryPersonRepository rebuilt = new InMemoryPersonRepository(dataLoader);
+        List<String> culver = repositoryUnderTest.findByCityOrderByEmail("Culver").stream().map(Person::getEmail).toList();
+        assertEquals(rebuilt.findByCityOrderByEmail("Culver").stream().map(Person::getEmail).toList(), culver);
+        assertEquals(culver.stream().sorted().toList(), culver);
+        assertEquals(rebuilt.findByCityOrderByEmail("Paris").stream().map(Person::getEmail).toList(),
+                repositoryUnderTest.findByCityOrderByEmail("Paris").stream().map(Person::getEmail).toList());
+        assertEquals(rebuilt.findByLastNameOrderByFirstName("Boyd").stream().map(Person::getFirstName).toList(),
+                repositoryUnderTest.findByLastNameOrderByFirstName("Boyd").stream().map(Person::getFirstName).toList());
+        assertEquals("N7", repositoryUnderTest.findByName("n7", "boyd").orElseThrow().getFirstName());
+        // La version lue avant les écritures est inchangée
+        assertEquals(beforeEmails, before.stream().map(Person::getEmail).toList());
+    }
+
+    @Test
+    void testSortedIndexes_followWrites() {
+        dataLoader.setPersons(personsMock);
+        assertEquals(List.of("Jacob", "John"),
+                repositoryUnderTest.findByLastNameOrderByFirstName("BOYD").stream().map(Person::getFirstName).toList());
+
+        repositoryUnderTest.save(Person.builder().firstName("allison").lastName("Boyd").city("Culver").email("b@mail.com").build());
+        repositoryUnderTest.update(Person.builder().firstName("Peter").lastName("Duncan").address("29 15th St")
+                .city("culver").email("a@mail.com").build());
+
+        assertEquals(List.of("allison", "Jacob", "John"),
+                repositoryUnderTest.findByLastNameOrderByFirstName("Boyd").stream().map(Person::getFirstName).toList());
+        // Tri par email, les habitants sans email en dernier
+        assertEquals(List.of("Peter", "allison", "John", "Jacob"),
+                repositoryUnderTest.findByCityOrderByEmail("Culver").stream().map(Person::getFirstName).toList());
+
+        assertTrue(repositoryUnderTest.deleteByName("Peter", "Duncan"));
+        assertEquals(3, repositoryUnderTest.findByCityOrderByEmail("Culver").size());
+    }
+
+    @Test
+    void testFindLastNamesStartingWith_followsWrites() {
+        dataLoader.setPersons(personsMock);
+        assertEquals(List.of("boyd"), repositoryUnderTest.findLastNamesStartingWith("B"));
+        assertEquals(List.of("boyd", "duncan"), repositoryUnderTest.findLastNamesStartingWith(""));
+
+        repositoryUnderTest.saveAll(List.of(
+                Person.builder().firstName("Eric").lastName("Bolton").build(),
+                Person.builder().firstName("Ron").lastName("BOYER").build()));
+        assertEquals(List.of("bolton", "boyd", "boyer"), repositoryUnderTest.findLastNamesStartingWith("bo"));
+        assertEquals(List.of("boyd", "boyer"), repositoryUnderTest.findLastNamesStartingWith("BOY"));
+
+        // Le nom disparaît avec son dernier porteur
+        assertTrue(repositoryUnderTest.deleteByName("Eric", "Bolton"));
+        assertTrue(repositoryUnderTest.deleteByName("John", "Boyd"));
+        assertEquals(List.of("boyd", "boyer"), repositoryUnderTest.findLastNamesStartingWith("bo"));
+        assertTrue(repositoryUnderTest.findLastNamesStartingWith("bol").isEmpty());
+        assertTrue(repositoryUnderTest.findLastNamesStartingWith(null).isEmpty());
+    }
+
+    @Test
+    void testIndex_keptForAStaleVersionAndReadyBeforePublication() {
+        dataLoader.setPersons(personsMock);
+        Dataset before = dataLoader.getDataset();
+        int[] rows = repositoryUnderTest.findRowsByAddress("1509 Culver St");
+
+        repositoryUnderTest.save(Person.builder().firstName("Tenley").lastName("Boyd").address("1509 Culver St").build());
+
+        // La version précédente, encore lue, garde son index : pas de reconstruction à chaque appel
+        dataLoader.read(before, () -> {
+            assertSame(rows, repositoryUnderTest.findRowsByAddress("1509 Culver St"));
+            return null;
+        });
+        int[] latest = repositoryUnderTest.findRowsByAddress("1509 Culver St");
+        assertEquals(3, latest.length);
+        assertSame(latest, repositoryUnderTest.findRowsByAddress("1509 Culver St"));
+    }
+
+    @Test
+    void testReindex_whenSourceListChanges() {
+        dataLoader.setPersons(personsMock);
+        assertEquals(2, repositoryUnderTest.findByAddress("1509 Culver St").size());
+
+        // Simule un rechargement du fichier de données
+        dataLoader.setPersons(new ArrayList<>(List.of(
+                Person.builder().firstName("Eric").lastName("Cadigan").address("951 LoneTree Rd").build())));
+
+        assertTrue(repositoryUnderTest.findByAddress("1509 Culver St").isEmpty());
+        assertEquals(1, repositoryUnderTest.findByAddress("951 LoneTree Rd").size());
+    }
+}
@@ -0,0 +1,80 @@
+package com.openclassrooms.P_5_SafetyNet_Alerts.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AgeServiceTest {
+
+    private static final ZoneId ZONE = ZoneId.of("Europe/Paris");
+
+    /**
+     * Horloge réglable pour simuler le passage de minuit.
+     */
+    static class MutableClock extends Clock {
+        Instant instant;
+
+        MutableClock(Instant instant) {
+            this.instant = instant;
+        }
+
+        @Override
+        public ZoneId getZone() {
+            return ZONE;
+        }
+
+        @Override
+        public Clock withZone(ZoneId zone) {
+            return this;
+        }
+
+        @Override
+        public Instant instant() {
+            return instant;
+        }
+    }
+
+    private static Instant at(int year, int month, int day, int hour, int minute) {
+        return LocalDateTime.of(year, month, day, hour, minute).atZone(ZONE).toInstant();
+    }
+
+    @Test
+    void testAgeOf_matchesPeriod() {
+        AgeService service = new AgeService(Clock.fixed(at(2026, 10, 18, 12, 0), ZONE));
+        LocalDate today = LocalDate.of(2026, 10, 18);
+
+        for (LocalDate birthdate : new LocalDate[]{
+                LocalDate.of(1984, 3, 6), LocalDate.of(2008, 10, 18), LocalDate.of(2008, 10, 19),
+                LocalDate.of(2008, 2, 29), LocalDate.of(2026, 10, 18)}) {
+            assertEquals(Period.between(birthdate, today).getYears(), service.ageOf(birthdate), birthdate.toString());
+        }
+        assertEquals(0, service.ageOf(null));
+    }
+
+    @Test
+    void testIsChild_aroundEighteenthBirthday() {
+        AgeService service = new AgeService(Clock.fixed(at(2026, 10, 18, 12, 0), ZONE));
+
+        assertFalse(service.isChild(LocalDate.of(2008, 10, 18)));
+        assertTrue(service.isChild(LocalDate.of(2008, 10, 19)));
+        assertTrue(service.isChild(null));
+    }
+
+    @Test
+    void testIsChild_reclassifiedAfterMidnight() {
+        MutableClock clock = new MutableClock(at(2026, 10, 18, 23, 59));
+        AgeService service = new AgeService(clock);
+        LocalDate birthdate = LocalDate.of(2008, 10, 19);
+
+        assertTrue(service.isChild(birthdate));
+        assertEquals(17, service.ageOf(birthdate));
+
+        clock.instant = at(2026, 10, 19, 0, 0);
+
+        assertFalse(service.isChild(birthdate));
+        assertEquals(18, service.ageOf(birthdate));
+        assertEquals(LocalDate.of(2026, 10, 19), service.today());
+    }
+}
@@ -2,21 +2,21 @@ package com.openclassrooms.P_5_SafetyNet_Alerts.service;
 
 import com.openclassrooms.P_5_SafetyNet_Alerts.data.DataLoader;
 import com.openclassrooms.P_5_SafetyNet_Alerts.model.Firestation;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
-import org.junit.jupiter.api.extension.ExtendWith;
-import org.mockito.Mock;
-import org.mockito.junit.jupiter.MockitoExtension;
+import org.junit.jupiter.api.io.TempDir;
 
+import java.nio.file.Path;
 import java.util.*;
 
 import static org.junit.jupiter.api.Assertions.*;
-import static org.mockito.Mockito.when;
 
-@ExtendWith(MockitoExtension.class)
 class FirestationServiceTest {
 
-    @Mock
+    @TempDir
+    Path dir;
+
     private DataLoader dataLoader;
 
     private FirestationService serviceUnderTest;
@@ -26,25 +26,27 @@ class FirestationServiceTest {
 
     @BeforeEach
     void setUp() {
+        dataLoader = new DataLoader(new SimpleMeterRegistry(), null);
+        dataLoader.setDataFilePath(dir.resolve("data.json").toString());
         firestationsMock = new ArrayList<>(Arrays.asList(
                 Firestation.builder().address("1509 Culver St").station(1).build(),
                 Firestation.builder().address("29 15th St").station(2).build(),
                 Firestation.builder().address("834 Binoc Ave").station(3).build(),
                 Firestation.builder().address("112 Steppes Pl").station(3).build()
         ));
-        serviceUnderTest = new FirestationService(dataLoader);
+        serviceUnderTest = ServiceGraph.builder(dataLoader).build().firestationService;
     }
 
     @Test
     void testGetFirestation_found() {
-        when(dataLoader.getFirestations()).thenReturn(firestationsMock);
+        dataLoader.setFirestations(firestationsMock);
         List<Firestation> result = serviceUnderTest.getFirestations();
         assertEquals(firestationsMock, result);
     }
 
     @Test
     void testGetFirestation_noFound() {
-        when(dataLoader.getFirestations()).thenReturn(Collections.emptyList());
+        dataLoader.setFirestations(Collections.emptyList());
         List<Firestation> result = serviceUnderTest.getFirestations();
         assertNotNull(result);
         assertTrue(result.isEmpty());
@@ -52,7 +54,7 @@ class FirestationServiceTest {
 
     @Test
     void testGetFirestationByAdress_found() {
-        when(dataLoader.getFirestations()).thenReturn(firestationsMock);
+        dataLoader.setFirestations(firestationsMock);
 
         Optional<Firestation> result = serviceUnderTest.getFirestationByAdress("834 Binoc Ave");
         assertTrue(result.isPresent());
@@ -67,7 +69,7 @@ class FirestationServiceTest {
 
     @Test
     void testGetFirestationByAdress_notFound() {
-        when(dataLoader.getFirestations()).thenReturn(firestationsMock);
+        dataLoader.setFirestations(firestationsMock);
         Optional<Firestation> result = serviceUnderTest.getFirestationByAdress("Non Existing Street");
         assertNotNull(result);
         assertTrue(result.isEmpty());
@@ -75,7 +77,7 @@ class FirestationServiceTest {
 
     @Test
     void testGetAddressesByStationIDs_found() {
-        when(dataLoader.getFirestations()).thenReturn(firestationsMock);
+        dataLoader.setFirestations(firestationsMock);
 
         List<Integer> ids = Arrays.asList(1, 2, 3);
         List<String> result = serviceUnderTest.getAddressesByStationIDs(ids);
@@ -89,7 +91,7 @@ class FirestationServiceTest {
 
     @Test
     void testGetAddressesByStationIDs_noneFound() {
-        when(dataLoader.getFirestations()).thenReturn(firestationsMock);
+        dataLoader.setFirestations(firestationsMock);
 
         List<Integer> ids = Collections.singletonList(99);
         List<String> result = serviceUnderTest.getAddressesByStationIDs(ids);
@@ -100,7 +102,7 @@ class FirestationServiceTest {
 
     @Test
     void testGetFirestationsByID_found() {
-        when(dataLoader.getFirestations()).thenReturn(firestationsMock);
+        dataLoader.setFirestations(firestationsMock);
 
         List<Firestation> result = serviceUnderTest.getFirestationsByID(3);
         assertEquals(2, result.size());
@@ -110,7 +112,7 @@ class FirestationServiceTest {
 
     @Test
     void testGetFirestationsByID_noneFound() {
-        when(dataLoader.getFirestations()).thenReturn(firestationsMock);
+        dataLoader.setFirestations(firestationsMock);
 
         List<Firestation> result = serviceUnderTest.getFirestationsByID(99);
         assertNotNull(result);
@@ -119,7 +121,7 @@ class FirestationServiceTest {
 
     @Test
     void testGetAddressesByStationID_found() {
-        when(dataLoader.getFirestations()).thenReturn(firestationsMock);
+        dataLoader.setFirestations(firestationsMock);
 
         List<String> result = serviceUnderTest.getAddressesByStationID(3);
         assertEquals(2, result.size());
@@ -129,7 +131,7 @@ class FirestationServiceTest {
 
     @Test
     void testGetAddressesByStationID_noneFound() {
-        when(dataLoader.getFirestations()).thenReturn(firestationsMock);
+        dataLoader.setFirestations(firestationsMock);
 
         List<String> result = serviceUnderTest.getAddressesByStationID(99);
         assertNotNull(result);
@@ -138,7 +140,7 @@ class FirestationServiceTest {
 
     @Test
     void testGetFirestationsByID_emptyData() {
-        when(dataLoader.getFirestations()).thenReturn(Collections.emptyList());
+        dataLoader.setFirestations(Collections.emptyList());
         List<Firestation> result = serviceUnderTest.getFirestationsByID(3);
         assertNotNull(result);
         assertTrue(result.isEmpty());
@@ -146,7 +148,7 @@ class FirestationServiceTest {
 
     @Test
     void testGetAddressesByStationID_emptyData() {
-        when(dataLoader.getFirestations()).thenReturn(Collections.emptyList());
+        dataLoader.setFirestations(Collections.emptyList());
         List<String> result = serviceUnderTest.getAddressesByStationID(3);
         assertNotNull(result);
         assertTrue(result.isEmpty());
@@ -154,7 +156,7 @@ class FirestationServiceTest {
 
     @Test
     void testGetAddressesByStationIDs_emptyData() {
-        when(dataLoader.getFirestations()).thenReturn(Collections.emptyList());
+        dataLoader.setFirestations(Collections.emptyList());
         List<String> result = serviceUnderTest.getAddressesByStationIDs(Arrays.asList(1, 2, 3));
         assertNotNull(result);
         assertTrue(result.isEmpty());
@@ -162,7 +164,7 @@ class FirestationServiceTest {
 
     @Test
     void testGetFirestationNumberByAddress_found() {
-        when(dataLoader.getFirestations()).thenReturn(firestationsMock);
+        dataLoader.setFirestations(firestationsMock);
 
         Optional<Integer> result = serviceUnderTest.getFirestationNumberByAddress("834 Binoc Ave");
         assertTrue(result.isPresent());
@@ -175,7 +177,7 @@ class FirestationServiceTest {
 
     @Test
     void testGetFirestationNumberByAddress_notFound() {
-        when(dataLoader.getFirestations()).thenReturn(firestationsMock);
+        dataLoader.setFirestations(firestationsMock);
 
         Optional<Integer> result = serviceUnderTest.getFirestationNumberByAddress("Non Existing Street");
         assertNotNull(result);
@@ -184,7 +186,7 @@ class FirestationServiceTest {
 
     @Test
     void testGetFirestationNumberByAddress_emptyData() {
-        when(dataLoader.getFirestations()).thenReturn(Collections.emptyList());
+        dataLoader.setFirestations(Collections.emptyList());
 
         Optional<Integer> result = serviceUnderTest.getFirestationNumberByAddress("834 Binoc Ave");
         assertNotNull(result);
@@ -194,7 +196,7 @@ class FirestationServiceTest {
     //---------EndPoint--------//
     @Test
     void testAddFirestation_added() {
-        when(dataLoader.getFirestations()).thenReturn(firestationsMock);
+        dataLoader.setFirestations(firestationsMock);
 
         Firestation firestation = Firestation.builder().station(9).address("9 Asimov street").build();
 
@@ -209,7 +211,7 @@ class FirestationServiceTest {
 
     @Test
     void testAddFirestation_notAdded_EverExist() {
-        when(dataLoader.getFirestations()).thenReturn(firestationsMock);
+        dataLoader.setFirestations(firestationsMock);
 
         Firestation firestation = Firestation.builder().station(9).address("1509 Culver St").build();
 
@@ -222,7 +224,7 @@ class FirestationServiceTest {
 
     @Test
     void testAddFirestation_NoData() {
-        when(dataLoader.getFirestations()).thenReturn(List.of());
+        dataLoader.setFirestations(List.of());
 
         Firestation firestation = Firestation.builder().station(9).address("22 Damasio street").build();
 
@@ -244,7 +246,7 @@ class FirestationServiceTest {
 
     @Test
     void testUpdateFirestation_Success() {
-        when(dataLoader.getFirestations()).thenReturn(firestationsMock);
+        dataLoader.setFirestations(firestationsMock);
 
         Firestation update = Firestation.builder().address("112 Steppes Pl").station(42).build();
 
@@ -253,12 +255,12 @@ class FirestationServiceTest {
         assertTrue(result.isPresent());
         assertEquals(42, result.get().getStation());
 
-        assertEquals(42, firestationsMock.get(3).getStation());
+        assertEquals(42, dataLoader.getFirestations().get(3).getStation());
     }
 
     @Test
     void testUpdateFirestation_EmptyList() {
-        when(dataLoader.getFirestations()).thenReturn(Collections.emptyList());
+        dataLoader.setFirestations(Collections.emptyList());
 
         Firestation toUpdate = Firestation.builder().station(42).address("15 E.Taylor street").build();
 
@@ -270,7 +272,7 @@ class FirestationServiceTest {
     @Test
     void testUpdateFirestation_NotFound() {
         firestationsMock.add(Firestation.builder().station(1).address("10 Dupontel street").build());
-        when(dataLoader.getFirestations()).thenReturn(firestationsMock);
+        dataLoader.setFirestations(firestationsMock);
 
         Firestation toUpdate = Firestation.builder().station(9).address("Adresse inconnue").build();
 
@@ -293,38 +295,38 @@ class FirestationServiceTest {
 
     @Test
     void testDeleteFirestationMappingByAdress_Success() {
-        when(dataLoader.getFirestations()).thenReturn(firestationsMock);
+        dataLoader.setFirestations(firestationsMock);
         int sizeBefore = firestationsMock.size();
 
         boolean result = serviceUnderTest.deleteFirestationMappingByAdress("834 Binoc Ave");
 
         assertTrue(result); // On a bien supprimé
-        assertEquals(sizeBefore - 1, firestationsMock.size()); // Il reste trois entrées
-        assertTrue(firestationsMock.stream().noneMatch(f -> "834 Binoc Ave".equalsIgnoreCase(f.getAddress())));
+        assertEquals(sizeBefore - 1, dataLoader.getFirestations().size()); // Il reste trois entrées
+        assertTrue(dataLoader.getFirestations().stream().noneMatch(f -> "834 Binoc Ave".equalsIgnoreCase(f.getAddress())));
     }
 
     @Test
     void testDeleteFirestationMappingById_Success() {
-        when(dataLoader.getFirestations()).thenReturn(firestationsMock);
+        dataLoader.setFirestations(firestationsMock);
         int sizeBefore = firestationsMock.size();
 
         boolean result = serviceUnderTest.deleteFirestationMappingById(3);
 
         // deux Firestation avec l'id 3, normalement partent toutes les deux
         assertTrue(result);
-        assertEquals(sizeBefore - 2, firestationsMock.size());
-        assertTrue(firestationsMock.stream().noneMatch(f -> f.getStation() == 3));
+        assertEquals(sizeBefore - 2, dataLoader.getFirestations().size());
+        assertTrue(dataLoader.getFirestations().stream().noneMatch(f -> f.getStation() == 3));
     }
 
     @Test
     void testDeleteFirestationMappingByAdress_NotFound() {
-        when(dataLoader.getFirestations()).thenReturn(firestationsMock);
+        dataLoader.setFirestations(firestationsMock);
         int sizeBefore = firestationsMock.size();
 
         boolean result = serviceUnderTest.deleteFirestationMappingByAdress("Adresse inconnue");
 
         assertFalse(result);
-        assertEquals(sizeBefore, firestationsMock.size());
+        assertEquals(sizeBefore, dataLoader.getFirestations().size());
     }
 
 }
@@ -0,0 +1,137 @@
+package com.openclassrooms.P_5_SafetyNet_Alerts.service;
+
+import com.openclassrooms.P_5_SafetyNet_Alerts.data.DataLoader;
+import com.openclassrooms.P_5_SafetyNet_Alerts.model.DTO.ImportProgressDTO;
+import com.openclassrooms.P_5_SafetyNet_Alerts.model.DTO.ImportRecordDTO;
+import com.openclassrooms.P_5_SafetyNet_Alerts.model.Firestation;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Optional;
+
+import static com.openclassrooms.P_5_SafetyNet_Alerts.service.ServiceGraph.person;
+import static com.openclassrooms.P_5_SafetyNet_Alerts.service.ServiceGraph.record;
+import static org.junit.jupiter.api.Assertions.*;
+
+class ImportServiceTest {
+
+    @TempDir
+    Path dir;
+
+    DataLoader dataLoader;
+    PersonService personService;
+    ImportService importService;
+    List<ImportProgressDTO> reported = new ArrayList<>();
+
+    @BeforeEach
+    void setUp() {
+        dataLoader = new DataLoader(new SimpleMeterRegistry(), null);
+        dataLoader.setDataFilePath(dir.resolve("data.json").toString());
+        dataLoader.setPersons(List.of(person("John", "Boyd", "1509 Culver St")));
+        dataLoader.setFirestations(List.of(new Firestation("1509 Culver St", 3)));
+        dataLoader.setMedicalRecords(List.of(record("John", "Boyd", LocalDate.of(1984, 3, 6))));
+
+        ServiceGraph graph = ServiceGraph.builder(dataLoader).cacheEntries(100).build();
+        personService = graph.personService;
+        importService = new ImportService(dataLoader, personService, graph.medicalRecordService, graph.firestationService,
+                new SimpleMeterRegistry(), 2, 2000);
+    }
+
+    private static ImportService.RecordSource sourceOf(List<ImportRecordDTO> records) {
+        Iterator<ImportRecordDTO> iterator = records.iterator();
+        return () -> iterator.hasNext() ? iterator.next() : null;
+    }
+
+    @Test
+    void testImportRecords_addsNewAndUpdatesExistingRecordsByChunk() throws Exception {
+        long version = dataLoader.getLatestDataset().getVersion();
+
+        ImportProgressDTO progress = importService.importRecords(sourceOf(List.of(
+                ImportRecordDTO.builder().person(person("Jacob", "Boyd", "29 15th St")).build(),
+                ImportRecordDTO.builder().person(person("John", "Boyd", "29 15th St")).build(),
+                ImportRecordDTO.builder().medicalRecord(record("Jacob", "Boyd", LocalDate.of(2015, 1, 1))).build(),
+                ImportRecordDTO.builder().firestation(new Firestation("29 15th St", 2)).build(),
+                // Ligne vide : aucun enregistrement
+                new ImportRecordDTO())), reported::add).orElseThrow();
+
+        assertFalse(progress.isRunning());
+        assertEquals(5, progress.getRecords());
+        assertEquals(3, progress.getCreated());
+        assertEquals(1, progress.getUpdated());
+        assertEquals(1, progress.getRejected());
+        assertEquals(3, progress.getChunks());
+        assertEquals(List.of(2L, 4L, 5L), reported.stream().map(ImportProgressDTO::getRecords).toList());
+        assertEquals(2, personService.getHouseholdInfoByAddress("29 15th St").orElseThrow().getResidents().size());
+        assertEquals(2, personService.getHouseholdInfoByAddress("29 15th St").orElseThrow().getStationNumber());
+        // Une version par lot appliqué : ajouts et mises à jour de personnes, puis dossier et mapping
+        assertEquals(version + 4, dataLoader.getLatestDataset().getVersion());
+    }
+
+    @Test
+    void testImportRecords_fillsAnEmptyInstance() throws Exception {
+        DataLoader empty = new DataLoader(new SimpleMeterRegistry(), null);
+        empty.setDataFilePath(dir.resolve("empty.json").toString());
+        ServiceGraph graph = ServiceGraph.builder(empty).build();
+        ImportService emptyImport = new ImportService(empty, graph.personService, graph.medicalRecordService,
+                graph.firestationService, new SimpleMeterRegistry(), 2, 2000);
+
+        ImportProgressDTO progress = emptyImport.importRecords(sourceOf(List.of(
+                ImportRecordDTO.builder().person(person("John", "Boyd", "1509 Culver St")).build(),
+                ImportRecordDTO.builder().person(person("John", "Boyd", "29 15th St")).build(),
+                ImportRecordDTO.builder().medicalRecord(record("John", "Boyd", LocalDate.of(1984, 3, 6))).build(),
+                ImportRecordDTO.builder().firestation(new Firestation("29 15th St", 2)).build())), p -> { }).orElseThrow();
+
+        assertEquals(3, progress.getCreated());
+        assertEquals(1, progress.getUpdated());
+        assertEquals(0, progress.getRejected());
+        assertEquals(1, empty.getPersons().size());
+        assertEquals(1, empty.getMedicalRecords().size());
+        assertEquals(2, graph.personService.getHouseholdInfoByAddress("29 15th St").orElseThrow().getStationNumber());
+    }
+
+    @Test
+    void testImportRecords_secondImportIsRejectedWhileRunning() throws Exception {
+        Optional<?>[] nested = new Optional<?>[1];
+        importService.importRecords(() -> {
+            if (nested[0] == null) {
+                nested[0] = importService.importRecords(sourceOf(List.of()), p -> { });
+                return ImportRecordDTO.builder().person(person("Jacob", "Boyd", "1509 Culver St")).build();
+            }
+            return null;
+        }, reported::add);
+
+        assertTrue(nested[0].isEmpty());
+        assertEquals(1, importService.getProgress().orElseThrow().getCreated());
+    }
+
+    @Test
+    void testImportRecords_readFailureKeepsAppliedChunks() {
+        Iterator<ImportRecordDTO> records = List.of(
+                ImportRecordDTO.builder().person(person("Jacob", "Boyd", "1509 Culver St")).build(),
+                ImportRecordDTO.builder().person(person("Tenley", "Boyd", "1509 Culver St")).build()).iterator();
+
+        ImportService.ImportFailedException failure = assertThrows(ImportService.ImportFailedException.class,
+                () -> importService.importRecords(() -> {
+                    if (records.hasNext()) {
+                        return records.next();
+                    }
+                    throw new IOException("ligne invalide");
+                }, reported::add));
+        assertEquals(2, failure.getProgress().getCreated());
+        assertEquals("ligne invalide", failure.getCause().getMessage());
+
+        ImportProgressDTO progress = importService.getProgress().orElseThrow();
+        assertFalse(progress.isRunning());
+        assertEquals("ligne invalide", progress.getError());
+        assertEquals(2, progress.getCreated());
+        assertEquals(3, dataLoader.getPersons().size());
+    }
+}
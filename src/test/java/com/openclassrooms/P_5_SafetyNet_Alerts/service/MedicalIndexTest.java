@@ -0,0 +1,142 @@
+package com.openclassrooms.P_5_SafetyNet_Alerts.service;
+
+import com.openclassrooms.P_5_SafetyNet_Alerts.data.DataLoader;
+import com.openclassrooms.P_5_SafetyNet_Alerts.model.DTO.FireAddressResidentDTO;
+import com.openclassrooms.P_5_SafetyNet_Alerts.model.Firestation;
+import com.openclassrooms.P_5_SafetyNet_Alerts.model.MedicalRecord;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.*;
+
+import static com.openclassrooms.P_5_SafetyNet_Alerts.service.ServiceGraph.person;
+import static org.junit.jupiter.api.Assertions.*;
+
+class MedicalIndexTest {
+
+    @TempDir
+    Path dir;
+
+    DataLoader dataLoader;
+    SimpleMeterRegistry meterRegistry;
+    MedicalIndex medicalIndex;
+    PersonService personService;
+    MedicalRecordService medicalRecordService;
+
+    @BeforeEach
+    void setUp() {
+        dataLoader = new DataLoader(new SimpleMeterRegistry(), null);
+        dataLoader.setDataFilePath(dir.resolve("data.json").toString());
+        dataLoader.setPersons(List.of(
+                person("John", "Boyd", "1509 Culver St"),
+                person("Tenley", "Boyd", "1509 Culver St"),
+                person("Peter", "Duncan", "29 15th St"),
+                person("Lily", "Cooper", "489 Manchester St")));
+        dataLoader.setFirestations(List.of(
+                new Firestation("1509 Culver St", 3),
+                new Firestation("29 15th St", 2),
+                new Firestation("489 Manchester St", 1)));
+        dataLoader.setMedicalRecords(List.of(
+                record("John", "Boyd", List.of("aznol:350mg", "hydrapermazol:100mg"), List.of("nillacilan")),
+                record("Tenley", "Boyd", List.of(), List.of("peanut")),
+                record("Peter", "Duncan", List.of("aznol:60mg"), List.of("Peanut", "shellfish")),
+                record("Lily", "Cooper", List.of(), List.of("peanut"))));
+
+        ServiceGraph graph = ServiceGraph.builder(dataLoader).build();
+        meterRegistry = graph.meterRegistry;
+        medicalIndex = graph.medicalIndex;
+        medicalRecordService = graph.medicalRecordService;
+        personService = graph.personService;
+    }
+
+    private static MedicalRecord record(String firstName, String lastName, List<String> medications, List<String> allergies) {
+        return ServiceGraph.record(firstName, lastName, LocalDate.of(1984, 3, 6), medications, allergies);
+    }
+
+    private double rebuilds() {
+        return meterRegistry.get("safetynet.medical.index.rebuilds").counter().count();
+    }
+
+    private Set<String> names(Map<String, List<FireAddressResidentDTO>> population) {
+        Set<String> names = new HashSet<>();
+        population.values().forEach(residents -> residents.forEach(r -> names.add(r.getFirstName())));
+        return names;
+    }
+
+    @Test
+    void testMatching_intersectsTermsIgnoringCase() {
+        assertEquals(BitSet.valueOf(new long[]{0b1110}), medicalIndex.matching(List.of("PEANUT"), null));
+        // Un médicament est trouvé par son nom ou par sa valeur complète
+        assertEquals(BitSet.valueOf(new long[]{0b0101}), medicalIndex.matching(null, List.of("aznol")));
+        assertEquals(BitSet.valueOf(new long[]{0b0001}), medicalIndex.matching(null, List.of("Aznol:350mg")));
+        assertEquals(BitSet.valueOf(new long[]{0b0100}), medicalIndex.matching(List.of("peanut"), List.of("aznol")));
+        assertTrue(medicalIndex.matching(List.of("peanut", "unknown"), null).isEmpty());
+        assertEquals(1, rebuilds());
+    }
+
+    @Test
+    void testGetPopulationByMedicalTerms_restrictedToTheCoverage() {
+        Map<String, List<FireAddressResidentDTO>> population =
+                personService.getPopulationByMedicalTerms(List.of(2, 3), null, List.of("peanut"), null);
+
+        assertEquals(List.of("1509 Culver St", "29 15th St"), new ArrayList<>(population.keySet()));
+        assertEquals(Set.of("Tenley", "Peter"), names(population));
+        assertEquals(List.of("Peanut", "shellfish"), population.get("29 15th St").get(0).getAllergies());
+
+        assertEquals(Set.of("Lily"), names(personService.getPopulationByMedicalTerms(null, "489 manchester st", List.of("peanut"), null)));
+        assertEquals(Set.of("John", "Peter"), names(personService.getPopulationByMedicalTerms(null, null, null, List.of("aznol"))));
+        assertTrue(personService.getPopulationByMedicalTerms(List.of(1), null, null, List.of("aznol")).isEmpty());
+    }
+
+    @Test
+    void testMedicalRecordWrites_updateTheIndexWithoutRebuild() {
+        medicalIndex.matching(List.of("peanut"), null);
+
+        medicalRecordService.updateMedicalRecord(record("John", "Boyd", List.of("aznol:350mg"), List.of("peanut")));
+        medicalRecordService.deleteMedicalRecord("Lily", "Cooper");
+        medicalRecordService.updateMedicalRecords(List.of(
+                record("Peter", "Duncan", List.of("terazine:10mg"), List.of("shellfish"))));
+
+        assertEquals(Set.of("John", "Tenley"), names(personService.getPopulationByMedicalTerms(null, null, List.of("peanut"), null)));
+        assertEquals(Set.of("John"), names(personService.getPopulationByMedicalTerms(null, null, null, List.of("aznol"))));
+        assertEquals(Set.of("Peter"), names(personService.getPopulationByMedicalTerms(null, null, null, List.of("terazine"))));
+        assertTrue(medicalIndex.matching(List.of("nillacilan"), null).isEmpty());
+
+        medicalRecordService.addMedicalRecord(record("Lily", "Cooper", List.of("terazine:10mg"), List.of()));
+        assertEquals(Set.of("Peter", "Lily"), names(personService.getPopulationByMedicalTerms(null, null, null, List.of("terazine"))));
+        assertEquals(1, rebuilds());
+    }
+
+    @Test
+    void testPersonWrites_updateTheIndexWithoutRebuild() {
+        medicalIndex.matching(List.of("peanut"), null);
+
+        // Une personne supprimée ne décale pas les lignes suivantes : ses seules lignes sont retirées
+        personService.deletePerson("Tenley", "Boyd");
+        assertEquals(Set.of("Peter", "Lily"), names(personService.getPopulationByMedicalTerms(null, null, List.of("peanut"), null)));
+        assertEquals(BitSet.valueOf(new long[]{0b1100}), medicalIndex.matching(List.of("peanut"), null));
+
+        // Personne ajoutée dont le dossier existe déjà, et déménagement
+        medicalRecordService.addMedicalRecord(record("Jacob", "Boyd", List.of("aznol:60mg"), List.of("peanut")));
+        personService.addPerson(person("Jacob", "Boyd", "1509 Culver St"));
+        personService.addPersons(List.of(person("Roger", "Boyd", "1509 Culver St")));
+        personService.updatePerson(person("Peter", "Duncan", "1509 Culver St"));
+        assertEquals(Set.of("Jacob", "Peter", "Lily"), names(personService.getPopulationByMedicalTerms(null, null, List.of("peanut"), null)));
+        assertEquals(Set.of("John", "Jacob", "Peter"), names(personService.getPopulationByMedicalTerms(List.of(3), null, null, List.of("aznol"))));
+        assertEquals(1, rebuilds());
+    }
+
+    @Test
+    void testRebuild_whenReloaded() {
+        medicalIndex.matching(List.of("peanut"), null);
+
+        // Rechargement du fichier, sans passer par les services
+        dataLoader.setMedicalRecords(List.of(record("Tenley", "Boyd", List.of(), List.of("shellfish"))));
+        assertEquals(Set.of("Tenley"), names(personService.getPopulationByMedicalTerms(null, null, List.of("shellfish"), null)));
+        assertEquals(2, rebuilds());
+    }
+}
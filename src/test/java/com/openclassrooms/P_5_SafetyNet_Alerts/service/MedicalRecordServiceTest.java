@@ -3,12 +3,12 @@ package com.openclassrooms.P_5_SafetyNet_Alerts.service;
 
 import com.openclassrooms.P_5_SafetyNet_Alerts.data.DataLoader;
 import com.openclassrooms.P_5_SafetyNet_Alerts.model.MedicalRecord;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
-import org.junit.jupiter.api.extension.ExtendWith;
-import org.mockito.Mock;
-import org.mockito.junit.jupiter.MockitoExtension;
+import org.junit.jupiter.api.io.TempDir;
 
+import java.nio.file.Path;
 import java.time.LocalDate;
 import java.time.format.DateTimeFormatter;
 import java.util.ArrayList;
@@ -17,12 +17,12 @@ import java.util.List;
 import java.util.Optional;
 
 import static org.junit.jupiter.api.Assertions.*;
-import static org.mockito.Mockito.when;
 
-@ExtendWith(MockitoExtension.class)
 public class MedicalRecordServiceTest {
 
-    @Mock
+    @TempDir
+    Path dir;
+
     DataLoader dataLoader;
 
 
@@ -34,6 +34,8 @@ public class MedicalRecordServiceTest {
 
     @BeforeEach
     public void setUp() {
+        dataLoader = new DataLoader(new SimpleMeterRegistry(), null);
+        dataLoader.setDataFilePath(dir.resolve("data.json").toString());
 
 
         medicalRecordsMock = new ArrayList<>(Arrays.asList(
@@ -66,13 +68,13 @@ public class MedicalRecordServiceTest {
                         .allergies(List.of("shellfish"))
                         .build()
         ));
-        serviceUnderTest = new MedicalRecordService(dataLoader);
+        serviceUnderTest = ServiceGraph.builder(dataLoader).build().medicalRecordService;
     }
 
     @Test
     public void testGetMedicalRecordByName_found() {
         //Arrange
-        when(dataLoader.getMedicalRecords()).thenReturn(medicalRecordsMock);
+        dataLoader.setMedicalRecords(medicalRecordsMock);
         //Act
         Optional<MedicalRecord> result = serviceUnderTest.getMedicalRecordByName("John", "Boyd");
         Optional<MedicalRecord> expected = Optional.of(MedicalRecord.builder()
@@ -86,10 +88,30 @@ public class MedicalRecordServiceTest {
         assertEquals(result, expected);
     }
 
+    @Test
+    public void testGetMedicalRecordByName_ignoresCase() {
+        dataLoader.setMedicalRecords(medicalRecordsMock);
+
+        Optional<MedicalRecord> result = serviceUnderTest.getMedicalRecordByName("JOHN", "boyd");
+
+        assertTrue(result.isPresent());
+        assertEquals(LocalDate.parse("03/06/1984", formatter), result.get().getBirthdate());
+    }
+
+    @Test
+    public void testGetMedicalRecordByName_afterDelete() {
+        dataLoader.setMedicalRecords(medicalRecordsMock);
+
+        assertTrue(serviceUnderTest.getMedicalRecordByName("Peter", "Duncan").isPresent());
+        serviceUnderTest.deleteMedicalRecord("peter", "duncan");
+
+        assertTrue(serviceUnderTest.getMedicalRecordByName("Peter", "Duncan").isEmpty());
+    }
+
     @Test
     public void testGetMedicalRecordByName_noneFound() {
         //Arrange
-        when(dataLoader.getMedicalRecords()).thenReturn(medicalRecordsMock);
+        dataLoader.setMedicalRecords(medicalRecordsMock);
         //Act
         Optional<MedicalRecord> result = serviceUnderTest.getMedicalRecordByName("Marc", "Valerie");
 
@@ -100,7 +122,7 @@ public class MedicalRecordServiceTest {
     @Test
     public void testGetMedicalRecordByName_getMRSnull() {
         //Arrange
-        when(dataLoader.getMedicalRecords()).thenReturn(List.of());
+        dataLoader.setMedicalRecords(List.of());
         //Act
         Optional<MedicalRecord> result = serviceUnderTest.getMedicalRecordByName("John", "Boyd");
 
@@ -112,7 +134,7 @@ public class MedicalRecordServiceTest {
     @Test
     public void testGetMedicalRecords() {
         //Arrange
-        when(dataLoader.getMedicalRecords()).thenReturn(medicalRecordsMock);
+        dataLoader.setMedicalRecords(medicalRecordsMock);
         //Act
         List<MedicalRecord> result = serviceUnderTest.getMedicalRecords();
         MedicalRecord expected1 = MedicalRecord.builder()
@@ -139,7 +161,7 @@ public class MedicalRecordServiceTest {
     @Test
     public void testGetMedicalRecords_dataNull() {
         //Arrange
-        when(dataLoader.getMedicalRecords()).thenReturn(null);
+        dataLoader.setMedicalRecords(null);
         //Act
         List<MedicalRecord> result = serviceUnderTest.getMedicalRecords();
         //Assert
@@ -149,7 +171,7 @@ public class MedicalRecordServiceTest {
 
     @Test
     void testAddMedicalRecord_Added() {
-        when(dataLoader.getMedicalRecords()).thenReturn(medicalRecordsMock);
+        dataLoader.setMedicalRecords(medicalRecordsMock);
 
         MedicalRecord record = MedicalRecord.builder()
                 .firstName("Rick").lastName("Sanchez")
@@ -166,7 +188,7 @@ public class MedicalRecordServiceTest {
 
     @Test
     void testAddMedicalRecord_NotAdded_AlreadyExists() {
-        when(dataLoader.getMedicalRecords()).thenReturn(medicalRecordsMock);
+        dataLoader.setMedicalRecords(medicalRecordsMock);
         // Already present
         MedicalRecord record = MedicalRecord.builder()
                 .firstName("John").lastName("Boyd")
@@ -180,7 +202,7 @@ public class MedicalRecordServiceTest {
 
     @Test
     void testAddMedicalRecord_NoData() {
-        when(dataLoader.getMedicalRecords()).thenReturn(new ArrayList<>());
+        dataLoader.setMedicalRecords(new ArrayList<>());
         MedicalRecord record = MedicalRecord.builder()
                 .firstName("Summer").lastName("Smith")
                 .birthdate(LocalDate.parse("02/14/2003", formatter))
@@ -209,7 +231,7 @@ public class MedicalRecordServiceTest {
 
     @Test
     void testUpdateMedicalRecord_Success() {
-        when(dataLoader.getMedicalRecords()).thenReturn(medicalRecordsMock);
+        dataLoader.setMedicalRecords(medicalRecordsMock);
 
         MedicalRecord update = MedicalRecord.builder()
                 .firstName("Tenley").lastName("Boyd")
@@ -228,7 +250,7 @@ public class MedicalRecordServiceTest {
 
     @Test
     void testUpdateMedicalRecord_EmptyList() {
-        when(dataLoader.getMedicalRecords()).thenReturn(new ArrayList<>());
+        dataLoader.setMedicalRecords(new ArrayList<>());
         MedicalRecord update = MedicalRecord.builder().firstName("Nobody").lastName("Unknown").build();
 
         Optional<MedicalRecord> result = serviceUnderTest.updateMedicalRecord(update);
@@ -238,7 +260,7 @@ public class MedicalRecordServiceTest {
 
     @Test
     void testUpdateMedicalRecord_NotFound() {
-        when(dataLoader.getMedicalRecords()).thenReturn(medicalRecordsMock);
+        dataLoader.setMedicalRecords(medicalRecordsMock);
 
         MedicalRecord update = MedicalRecord.builder().firstName("Alien").lastName("Invader").build();
 
@@ -251,25 +273,25 @@ public class MedicalRecordServiceTest {
 
     @Test
     void testDeleteMedicalRecord_Success() {
-        when(dataLoader.getMedicalRecords()).thenReturn(medicalRecordsMock);
+        dataLoader.setMedicalRecords(medicalRecordsMock);
         int sizeBefore = medicalRecordsMock.size();
 
         boolean result = serviceUnderTest.deleteMedicalRecord("Jacob", "Boyd");
 
         assertTrue(result);
-        assertEquals(sizeBefore - 1, medicalRecordsMock.size());
-        assertTrue(medicalRecordsMock.stream().noneMatch(r -> r.getFirstName().equals("Jacob") && r.getLastName().equals("Boyd")));
+        assertEquals(sizeBefore - 1, dataLoader.getMedicalRecords().size());
+        assertTrue(dataLoader.getMedicalRecords().stream().noneMatch(r -> r.getFirstName().equals("Jacob") && r.getLastName().equals("Boyd")));
     }
 
     @Test
     void testDeleteMedicalRecord_NotFound() {
-        when(dataLoader.getMedicalRecords()).thenReturn(medicalRecordsMock);
+        dataLoader.setMedicalRecords(medicalRecordsMock);
         int sizeBefore = medicalRecordsMock.size();
 
         boolean result = serviceUnderTest.deleteMedicalRecord("Not", "Exist");
 
         assertFalse(result);
-        assertEquals(sizeBefore, medicalRecordsMock.size());
+        assertEquals(sizeBefore, dataLoader.getMedicalRecords().size());
 
     }
 
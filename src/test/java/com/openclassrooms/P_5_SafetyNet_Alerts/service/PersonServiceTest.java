@@ -4,12 +4,15 @@ import com.openclassrooms.P_5_SafetyNet_Alerts.data.DataLoader;
 import com.openclassrooms.P_5_SafetyNet_Alerts.model.DTO.*;
 import com.openclassrooms.P_5_SafetyNet_Alerts.model.MedicalRecord;
 import com.openclassrooms.P_5_SafetyNet_Alerts.model.Person;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 
+import java.nio.file.Path;
 import java.time.LocalDate;
 import java.time.format.DateTimeFormatter;
 import java.util.*;
@@ -20,7 +23,9 @@ import static org.mockito.Mockito.*;
 @ExtendWith(MockitoExtension.class)
 class PersonServiceTest {
 
-    @Mock
+    @TempDir
+    Path dir;
+
     DataLoader dataLoader;
     @Mock
     MedicalRecordService medicalRecordService;
@@ -36,6 +41,8 @@ class PersonServiceTest {
 
     @BeforeEach
     void setUp() {
+        dataLoader = new DataLoader(new SimpleMeterRegistry(), null);
+        dataLoader.setDataFilePath(dir.resolve("data.json").toString());
         personsMock = new ArrayList<>(Arrays.asList(
                 Person.builder().firstName("John").lastName("Boyd").address("1509 Culver St").city("Culver").phone("111-1111").email("john@domain.com").build(),
                 Person.builder().firstName("Jacob").lastName("Boyd").address("1509 Culver St").city("Culver").phone("222-2222").email("jacob@domain.com").build(),
@@ -48,13 +55,15 @@ class PersonServiceTest {
                 MedicalRecord.builder().firstName("Tenley").lastName("Boyd").birthdate(LocalDate.parse("02/18/2012", formatter)).medications(List.of()).allergies(List.of("peanut")).build(),
                 MedicalRecord.builder().firstName("Peter").lastName("Duncan").birthdate(LocalDate.parse("09/06/2000", formatter)).medications(List.of("dodoxadin:30mg")).allergies(List.of("shellfish")).build()
         );
-        serviceUnderTest = new PersonService(dataLoader, medicalRecordService, firestationService);
+        // Vues désactivées : les casernes et dossiers médicaux viennent des services simulés
+        serviceUnderTest = ServiceGraph.builder(dataLoader).stationViews(false)
+                .medicalRecordService(medicalRecordService).firestationService(firestationService).build().personService;
     }
 
     @Test
     void testGetAllPersonsByDependingOfFirestationID_basic() {
         when(firestationService.getAddressesByStationID(1)).thenReturn(Collections.singletonList("1509 Culver St"));
-        when(dataLoader.getPersons()).thenReturn(personsMock);
+        dataLoader.setPersons(personsMock);
 
         personsMock.stream()
                 .filter(p -> "1509 Culver St".equals(p.getAddress()))
@@ -74,7 +83,7 @@ class PersonServiceTest {
     @Test
     void testGetAllPersonsByDependingOfFirestationID_noPersons() {
         when(firestationService.getAddressesByStationID(99)).thenReturn(Collections.singletonList("NoSuchAddress"));
-        when(dataLoader.getPersons()).thenReturn(personsMock);
+        dataLoader.setPersons(personsMock);
 
         Optional<PersonsByFirestationIDReturn> result = serviceUnderTest.getAllPersonsByDependingOfFirestationID(99);
         assertNotNull(result);
@@ -85,7 +94,7 @@ class PersonServiceTest {
     @Test
     void testGetAllPersonsByDependingOfFirestationID_noMedicalRecord() {
         when(firestationService.getAddressesByStationID(1)).thenReturn(Collections.singletonList("1509 Culver St"));
-        when(dataLoader.getPersons()).thenReturn(Collections.singletonList(
+        dataLoader.setPersons(Collections.singletonList(
                 Person.builder().firstName("NoMR").lastName("NoMR").address("1509 Culver St").build()
         ));
         when(medicalRecordService.getMedicalRecordByName(anyString(), anyString())).thenReturn(Optional.empty());
@@ -101,7 +110,7 @@ class PersonServiceTest {
     @Test
     void testGetHouseholdInfoByAddress_basic() {
         when(firestationService.getFirestationNumberByAddress("1509 Culver St")).thenReturn(Optional.of(1));
-        when(dataLoader.getPersons()).thenReturn(personsMock);
+        dataLoader.setPersons(personsMock);
 
         personsMock.stream()
                 .filter(p -> "1509 Culver St".equals(p.getAddress()))
@@ -125,7 +134,7 @@ class PersonServiceTest {
     @Test
     void testGetHouseholdInfoByAddress_noMatch() {
         when(firestationService.getFirestationNumberByAddress("unknown_address")).thenReturn(Optional.empty());
-        when(dataLoader.getPersons()).thenReturn(personsMock);
+        dataLoader.setPersons(personsMock);
 
         Optional<FireAddressReturnDTO> result = serviceUnderTest.getHouseholdInfoByAddress("unknown_address");
         assertNotNull(result);
@@ -137,7 +146,7 @@ class PersonServiceTest {
     @Test
     void testGetHouseholdInfoByAddress_noMedicalRecord() {
 
-        when(dataLoader.getPersons()).thenReturn(Collections.singletonList(
+        dataLoader.setPersons(Collections.singletonList(
                 Person.builder().firstName("Foo").lastName("Bar").address("1509 Culver St").build()
         ));
 
@@ -151,10 +160,23 @@ class PersonServiceTest {
         assertTrue(result.get().getResidents().get(0).getAllergies().isEmpty());
     }
 
+    @Test
+    void testGetHouseholdInfoByAddress_noBirthdate() {
+        dataLoader.setPersons(Collections.singletonList(
+                Person.builder().firstName("Foo").lastName("Bar").address("1509 Culver St").build()
+        ));
+        when(medicalRecordService.getMedicalRecordByName("Foo", "Bar")).thenReturn(Optional.of(
+                MedicalRecord.builder().firstName("Foo").lastName("Bar").medications(List.of()).allergies(List.of()).build()));
+
+        Optional<FireAddressReturnDTO> result = serviceUnderTest.getHouseholdInfoByAddress("1509 Culver St");
+        assertEquals(0, result.get().getResidents().get(0).getAge());
+        assertEquals(0, serviceUnderTest.getPersonsInfoByLastName("Bar").get(0).getAge());
+    }
+
     @Test
     void testGetFloodInfoByStations_basic() {
         when(firestationService.getAddressesByStationIDs(Arrays.asList(1, 2))).thenReturn(Arrays.asList("1509 Culver St", "29 15th St"));
-        when(dataLoader.getPersons()).thenReturn(personsMock);
+        dataLoader.setPersons(personsMock);
 
         personsMock.forEach(p -> {
             Optional<MedicalRecord> mrOpt = medicalRecordsMock.stream()
@@ -176,7 +198,7 @@ class PersonServiceTest {
     void testGetFloodInfoByStations_someAddressesEmpty() {
         when(firestationService.getAddressesByStationIDs(Arrays.asList(1, 2)))
                 .thenReturn(Arrays.asList("1509 Culver St", "EmptyAddr"));
-        when(dataLoader.getPersons()).thenReturn(personsMock);
+        dataLoader.setPersons(personsMock);
         Map<String, List<FireAddressResidentDTO>> result = serviceUnderTest.getFloodInfoByStations(Arrays.asList(1, 2));
         assertNotNull(result);
         assertTrue(result.containsKey("EmptyAddr"));
@@ -185,7 +207,7 @@ class PersonServiceTest {
 
     @Test
     void testGetPersonsInfoByLastName_found() {
-        when(dataLoader.getPersons()).thenReturn(personsMock);
+        dataLoader.setPersons(personsMock);
         personsMock.forEach(p -> {
             Optional<MedicalRecord> mrOpt = medicalRecordsMock.stream()
                     .filter(m -> m.getFirstName().equals(p.getFirstName()) && m.getLastName().equals(p.getLastName()))
@@ -199,9 +221,24 @@ class PersonServiceTest {
         for (var r : result) assertEquals("Boyd", r.getLastName());
     }
 
+    @Test
+    void testGetPersonsInfoByLastName_materializesTheSharedLists() {
+        dataLoader.setPersons(personsMock);
+        MedicalRecord record = dataLoader.getStringPool().canonicalize(medicalRecordsMock.get(3));
+        when(medicalRecordService.getMedicalRecordByName("Peter", "Duncan")).thenReturn(Optional.of(record));
+
+        PersonInfoByNameDTO result = serviceUnderTest.getPersonsInfoByLastName("Duncan").get(0);
+
+        assertEquals(List.of("dodoxadin:30mg"), result.getMedications());
+        assertEquals(List.of("shellfish"), result.getAllergies());
+        // Le DTO a ses propres listes : le dossier garde la liste partagée
+        assertNotSame(record.getMedications(), result.getMedications());
+        assertSame(dataLoader.getStringPool().shareList(List.of("dodoxadin:30mg")), record.getMedications());
+    }
+
     @Test
     void testGetPersonsInfoByLastName_notFound() {
-        when(dataLoader.getPersons()).thenReturn(personsMock);
+        dataLoader.setPersons(personsMock);
         List<PersonInfoByNameDTO> result = serviceUnderTest.getPersonsInfoByLastName("NoName");
         assertNotNull(result);
         assertTrue(result.isEmpty());
@@ -209,7 +246,7 @@ class PersonServiceTest {
 
     @Test
     void testGetEmailsByCity_found() {
-        when(dataLoader.getPersons()).thenReturn(personsMock);
+        dataLoader.setPersons(personsMock);
         List<String> emails = serviceUnderTest.getEmailsByCity("Culver");
         assertNotNull(emails);
         assertFalse(emails.isEmpty());
@@ -218,7 +255,7 @@ class PersonServiceTest {
 
     @Test
     void testGetEmailsByCity_notFound() {
-        when(dataLoader.getPersons()).thenReturn(personsMock);
+        dataLoader.setPersons(personsMock);
         List<String> emails = serviceUnderTest.getEmailsByCity("SomeUnknownCity");
         assertNotNull(emails);
         assertTrue(emails.isEmpty());
@@ -226,7 +263,7 @@ class PersonServiceTest {
 
     @Test
     void testGetChildsByAddress_noResidents() {
-        when(dataLoader.getPersons()).thenReturn(Collections.emptyList());
+        dataLoader.setPersons(Collections.emptyList());
         List<ChildAlertDTO> result = serviceUnderTest.getChildsByAdress("NoSuchAddress");
         assertNotNull(result);
         assertTrue(result.isEmpty());
@@ -235,7 +272,7 @@ class PersonServiceTest {
     @Test
     void testGetChildsByAddress_allAdults() {
         // Peter Duncan est adulte selon la date donnée dans mock
-        when(dataLoader.getPersons()).thenReturn(Collections.singletonList(
+        dataLoader.setPersons(Collections.singletonList(
                 Person.builder().firstName("Peter").lastName("Duncan").address("29 15th St").build()
         ));
         when(medicalRecordService.getMedicalRecordByName(any(), any()))
@@ -249,7 +286,7 @@ class PersonServiceTest {
 
     @Test
     void testGetChildsByAddress_childWithNoMedicalRecord() {
-        when(dataLoader.getPersons()).thenReturn(Collections.singletonList(
+        dataLoader.setPersons(Collections.singletonList(
                 Person.builder().firstName("Kid").lastName("Test").address("66 Kids St").build()
         ));
         when(medicalRecordService.getMedicalRecordByName(any(), any())).thenReturn(Optional.empty());
@@ -265,7 +302,6 @@ class PersonServiceTest {
     @Test
     void testGetPhoneAlertByFirestation_noAddresses() {
         when(firestationService.getAddressesByStationID(42)).thenReturn(Collections.emptyList());
-        when(dataLoader.getPersons()).thenReturn(personsMock);
 
         Optional<PhoneAlertByFirestationDTO> result = serviceUnderTest.getPhoneAlertByFirestation(42);
         assertNotNull(result);
@@ -276,7 +312,7 @@ class PersonServiceTest {
     @Test
     void testGetPhoneAlertByFirestation_nullPhoneValues() {
         when(firestationService.getAddressesByStationID(1)).thenReturn(Collections.singletonList("1509 Culver St"));
-        when(dataLoader.getPersons()).thenReturn(Collections.singletonList(
+        dataLoader.setPersons(Collections.singletonList(
                 Person.builder().firstName("X").lastName("Y").address("1509 Culver St").phone(null).build()
         ));
 
@@ -297,7 +333,7 @@ class PersonServiceTest {
     @Test
     void testGetFloodInfoByStations_addressButNoPerson() {
         when(firestationService.getAddressesByStationIDs(List.of(1))).thenReturn(Collections.singletonList("EmptyHouse"));
-        when(dataLoader.getPersons()).thenReturn(Collections.emptyList());
+        dataLoader.setPersons(Collections.emptyList());
 
         Map<String, List<FireAddressResidentDTO>> result = serviceUnderTest.getFloodInfoByStations(List.of(1));
         assertNotNull(result);
@@ -308,7 +344,7 @@ class PersonServiceTest {
     @Test
     void testGetFloodInfoByStations_personNoMedicalRecord() {
         when(firestationService.getAddressesByStationIDs(List.of(1))).thenReturn(Collections.singletonList("1509 Culver St"));
-        when(dataLoader.getPersons()).thenReturn(Collections.singletonList(
+        dataLoader.setPersons(Collections.singletonList(
                 Person.builder().firstName("Nommr").lastName("Nommr").address("1509 Culver St").phone("07-07").build()
         ));
         when(medicalRecordService.getMedicalRecordByName(any(), any())).thenReturn(Optional.empty());
@@ -320,7 +356,7 @@ class PersonServiceTest {
 
     @Test
     void testGetEmailsByCity_duplicates() {
-        when(dataLoader.getPersons()).thenReturn(Arrays.asList(
+        dataLoader.setPersons(Arrays.asList(
                 Person.builder().city("Metropolis").email("email@email.com").build(),
                 Person.builder().city("Metropolis").email("email@email.com").build()
         ));
@@ -328,11 +364,116 @@ class PersonServiceTest {
         assertEquals(1, emails.size());
     }
 
+    @Test
+    void testStreamEmailsByCity_readsTheVersionOfTheRequest() {
+        dataLoader.setPersons(personsMock);
+        Optional<ResultStream<String>> stream = serviceUnderTest.streamEmailsByCity("culver");
+        assertTrue(stream.isPresent());
+
+        // Écriture publiée avant le parcours, qui se fait plus tard sur un autre thread
+        dataLoader.setPersons(List.of());
+        List<String> emails = new ArrayList<>();
+        stream.get().forEach(emails::add);
+
+        // Emails triés, comme les pages de getEmailsByCityPage
+        assertEquals(List.of("jacob@domain.com", "john@domain.com", "tenley@domain.com"), emails);
+    }
+
+    @Test
+    void testStreamEmailsByCity_notFound() {
+        dataLoader.setPersons(personsMock);
+        assertTrue(serviceUnderTest.streamEmailsByCity("SomeUnknownCity").isEmpty());
+    }
+
+    @Test
+    void testStreamFloodInfoByStations_householdsInAddressOrder() {
+        when(firestationService.getAddressesByStationIDs(Arrays.asList(1, 2))).thenReturn(Arrays.asList("29 15th St", "1509 Culver St"));
+        dataLoader.setPersons(personsMock);
+
+        List<String> addresses = new ArrayList<>();
+        List<Integer> sizes = new ArrayList<>();
+        serviceUnderTest.streamFloodInfoByStations(Arrays.asList(1, 2)).orElseThrow().forEach(household -> {
+            addresses.add(household.getKey());
+            sizes.add(household.getValue().size());
+        });
+
+        assertEquals(List.of("29 15th St", "1509 Culver St"), addresses);
+        assertEquals(List.of(1, 3), sizes);
+    }
+
+    @Test
+    void testGetPersonsInfoByLastNamePage_resumesAtCursorInFirstNameOrder() {
+        dataLoader.setPersons(personsMock);
+
+        ResultPage<List<PersonInfoByNameDTO>> first = serviceUnderTest.getPersonsInfoByLastNamePage("boyd", 2, null).orElseThrow();
+        assertEquals(List.of("Jacob", "John"), first.content().stream().map(PersonInfoByNameDTO::getFirstName).toList());
+        assertNotNull(first.next());
+
+        // Une personne ajoutée avant le curseur n'est ni rendue ni décalée
+        serviceUnderTest.addPerson(Person.builder().firstName("Allison").lastName("Boyd").address("1509 Culver St").build());
+        ResultPage<List<PersonInfoByNameDTO>> second = serviceUnderTest
+                .getPersonsInfoByLastNamePage("Boyd", 2, PageCursor.decode(first.next().encode()).orElseThrow()).orElseThrow();
+        assertEquals(List.of("Tenley"), second.content().stream().map(PersonInfoByNameDTO::getFirstName).toList());
+        assertNull(second.next());
+
+        assertTrue(serviceUnderTest.getPersonsInfoByLastNamePage("Unknown", 2, null).isEmpty());
+    }
+
+    @Test
+    void testGetPersonsInfoByLastNamePrefixPage_sortedByNameThenFirstName() {
+        personsMock.add(Person.builder().firstName("Eric").lastName("Bolton").address("951 LoneTree Rd").build());
+        personsMock.add(Person.builder().firstName("Ron").lastName("Peters").address("112 Steppes Pl").build());
+        dataLoader.setPersons(personsMock);
+
+        List<String> names = new ArrayList<>();
+        PageCursor cursor = null;
+        do {
+            ResultPage<List<PersonInfoByNameDTO>> page =
+                    serviceUnderTest.getPersonsInfoByLastNamePrefixPage("BO", 2, cursor).orElseThrow();
+            page.content().forEach(dto -> names.add(dto.getFirstName() + " " + dto.getLastName()));
+            cursor = page.next() == null ? null : PageCursor.decode(page.next().encode()).orElseThrow();
+        } while (cursor != null);
+        assertEquals(List.of("Eric Bolton", "Jacob Boyd", "John Boyd", "Tenley Boyd"), names);
+
+        // Index des noms tenu à jour par les écritures
+        serviceUnderTest.addPerson(Person.builder().firstName("Tessa").lastName("Bowen").address("29 15th St").build());
+        assertTrue(serviceUnderTest.deletePerson("Eric", "Bolton"));
+        assertEquals(List.of("Tessa", "Jacob"), serviceUnderTest.getPersonsInfoByLastNamePrefixPage("bo", 2, null).orElseThrow()
+                .content().stream().map(PersonInfoByNameDTO::getFirstName).toList());
+        assertTrue(serviceUnderTest.getPersonsInfoByLastNamePrefixPage("bol", 2, null).isEmpty());
+    }
+
+    @Test
+    void testGetEmailsByCityPage_sortedWithoutDuplicates() {
+        personsMock.add(Person.builder().firstName("Felicia").lastName("Boyd").city("Culver").email("jacob@domain.com").build());
+        dataLoader.setPersons(personsMock);
+
+        List<String> emails = new ArrayList<>();
+        PageCursor cursor = null;
+        do {
+            ResultPage<List<String>> page = serviceUnderTest.getEmailsByCityPage("CULVER", 1, cursor).orElseThrow();
+            emails.addAll(page.content());
+            cursor = page.next();
+        } while (cursor != null);
+
+        assertEquals(List.of("jacob@domain.com", "john@domain.com", "tenley@domain.com"), emails);
+        assertTrue(serviceUnderTest.getEmailsByCityPage("Nowhere", 1, null).isEmpty());
+    }
+
+    @Test
+    void testPageCursor_rejectsInvalidToken() {
+        PageCursor cursor = new PageCursor("1509 culver st\njohn", 2);
+
+        assertEquals(cursor, PageCursor.decode(cursor.encode()).orElseThrow());
+        assertTrue(PageCursor.decode("not base64!").isEmpty());
+        assertTrue(PageCursor.decode("MDpqb2hu").isEmpty());
+    }
+
     //--- ADD
 
     @Test
     void testAddPerson_Added() {
-        when(dataLoader.getPersons()).thenReturn(personsMock);
+        dataLoader.setPersons(personsMock);
 
         Person person = Person.builder()
                 .firstName("Walter").lastName("White").address("308 Negra Arroyo").city("Albuquerque").phone("777-7777").email("heisenberg@meth.com").build();
@@ -345,7 +486,7 @@ class PersonServiceTest {
 
     @Test
     void testAddPerson_NotAdded_AlreadyExists() {
-        when(dataLoader.getPersons()).thenReturn(personsMock);
+        dataLoader.setPersons(personsMock);
         Person person = Person.builder().firstName("John").lastName("Boyd").address("Another Address").build();
 
         Optional<Person> result = serviceUnderTest.addPerson(person);
@@ -354,7 +495,7 @@ class PersonServiceTest {
 
     @Test
     void testAddPerson_NoData() {
-        when(dataLoader.getPersons()).thenReturn(new ArrayList<>());
+        dataLoader.setPersons(new ArrayList<>());
 
         Person person = Person.builder().firstName("Bruce").lastName("Wayne").address("Batcave").build();
 
@@ -381,7 +522,7 @@ class PersonServiceTest {
 
     @Test
     void testUpdatePerson_Success() {
-        when(dataLoader.getPersons()).thenReturn(personsMock);
+        dataLoader.setPersons(personsMock);
 
         Person update = Person.builder()
                 .firstName("Tenley").lastName("Boyd")
@@ -402,7 +543,7 @@ class PersonServiceTest {
 
     @Test
     void testUpdatePerson_EmptyList() {
-        when(dataLoader.getPersons()).thenReturn(new ArrayList<>());
+        dataLoader.setPersons(new ArrayList<>());
 
         Person update = Person.builder()
                 .firstName("Ghost").lastName("Invisible")
@@ -416,7 +557,7 @@ class PersonServiceTest {
 
     @Test
     void testUpdatePerson_NotFound() {
-        when(dataLoader.getPersons()).thenReturn(personsMock);
+        dataLoader.setPersons(personsMock);
 
         Person update = Person.builder()
                 .firstName("Not").lastName("Exist")
@@ -434,25 +575,25 @@ class PersonServiceTest {
 
     @Test
     void testDeletePerson_Success() {
-        when(dataLoader.getPersons()).thenReturn(personsMock);
+        dataLoader.setPersons(personsMock);
         int sizeBefore = personsMock.size();
 
         boolean result = serviceUnderTest.deletePerson("John", "Boyd");
 
         assertTrue(result);
-        assertEquals(sizeBefore - 1, personsMock.size());
-        assertTrue(personsMock.stream().noneMatch(p -> p.getFirstName().equals("John") && p.getLastName().equals("Boyd")));
+        assertEquals(sizeBefore - 1, dataLoader.getPersons().size());
+        assertTrue(dataLoader.getPersons().stream().noneMatch(p -> p.getFirstName().equals("John") && p.getLastName().equals("Boyd")));
     }
 
     @Test
     void testDeletePerson_NotFound() {
-        when(dataLoader.getPersons()).thenReturn(personsMock);
+        dataLoader.setPersons(personsMock);
         int sizeBefore = personsMock.size();
 
         boolean result = serviceUnderTest.deletePerson("Foo", "Bar");
 
         assertFalse(result);
-        assertEquals(sizeBefore, personsMock.size());
+        assertEquals(sizeBefore, dataLoader.getPersons().size());
     }
 
 
@@ -0,0 +1,167 @@
+package com.openclassrooms.P_5_SafetyNet_Alerts.service;
+
+import com.openclassrooms.P_5_SafetyNet_Alerts.data.DataLoader;
+import com.openclassrooms.P_5_SafetyNet_Alerts.model.DTO.FireAddressReturnDTO;
+import com.openclassrooms.P_5_SafetyNet_Alerts.model.DTO.PersonInfoByNameDTO;
+import com.openclassrooms.P_5_SafetyNet_Alerts.model.Firestation;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Optional;
+
+import static com.openclassrooms.P_5_SafetyNet_Alerts.service.ServiceGraph.person;
+import static com.openclassrooms.P_5_SafetyNet_Alerts.service.ServiceGraph.record;
+import static org.junit.jupiter.api.Assertions.*;
+
+class ResponseCacheTest {
+
+    @TempDir
+    Path dir;
+
+    DataLoader dataLoader;
+    SimpleMeterRegistry meterRegistry;
+    ResponseCache responseCache;
+    PersonService personService;
+    MedicalRecordService medicalRecordService;
+    FirestationService firestationService;
+
+    @BeforeEach
+    void setUp() {
+        dataLoader = new DataLoader(new SimpleMeterRegistry(), null);
+        dataLoader.setDataFilePath(dir.resolve("data.json").toString());
+        dataLoader.setPersons(List.of(
+                person("John", "Boyd", "1509 Culver St", "111-1111"),
+                person("Tenley", "Boyd", "1509 Culver St", "333-3333"),
+                person("Peter", "Duncan", "29 15th St", "444-4444")));
+        dataLoader.setFirestations(List.of(new Firestation("1509 Culver St", 3), new Firestation("29 15th St", 2)));
+        dataLoader.setMedicalRecords(List.of(
+                record("John", "Boyd", LocalDate.of(1984, 3, 6)),
+                record("Peter", "Duncan", LocalDate.of(2000, 9, 6))));
+
+        ServiceGraph graph = ServiceGraph.builder(dataLoader).cacheEntries(100).build();
+        meterRegistry = graph.meterRegistry;
+        responseCache = graph.responseCache;
+        medicalRecordService = graph.medicalRecordService;
+        firestationService = graph.firestationService;
+        personService = graph.personService;
+    }
+
+    private double count(String operation, String result) {
+        return meterRegistry.get("safetynet.cache.requests").tags("operation", operation, "result", result).counter().count();
+    }
+
+    @Test
+    void testGet_secondCallIsServedFromCache() {
+        Optional<FireAddressReturnDTO> first = personService.getHouseholdInfoByAddress("1509 Culver St");
+        Optional<FireAddressReturnDTO> second = personService.getHouseholdInfoByAddress("  1509 CULVER st ");
+
+        assertSame(first, second);
+        assertEquals(1, count("fire", "miss"));
+        assertEquals(1, count("fire", "hit"));
+    }
+
+    @Test
+    void testUpdatePerson_invalidatesOnlyThatHousehold() {
+        Optional<FireAddressReturnDTO> boyds = personService.getHouseholdInfoByAddress("1509 Culver St");
+        Optional<FireAddressReturnDTO> duncans = personService.getHouseholdInfoByAddress("29 15th St");
+
+        personService.updatePerson(person("John", "Boyd", "1509 Culver St", "999-9999"));
+
+        assertSame(duncans, personService.getHouseholdInfoByAddress("29 15th St"));
+        Optional<FireAddressReturnDTO> updated = personService.getHouseholdInfoByAddress("1509 Culver St");
+        assertNotSame(boyds, updated);
+        assertTrue(updated.get().getResidents().stream().anyMatch(r -> "999-9999".equals(r.getPhone())));
+    }
+
+    @Test
+    void testUpdatePerson_movingInvalidatesTheNewAddress() {
+        personService.getHouseholdInfoByAddress("29 15th St");
+
+        personService.updatePerson(person("John", "Boyd", "29 15th St", "111-1111"));
+
+        assertEquals(2, personService.getHouseholdInfoByAddress("29 15th St").get().getResidents().size());
+        assertEquals(1, personService.getHouseholdInfoByAddress("1509 Culver St").get().getResidents().size());
+    }
+
+    @Test
+    void testUpdateMedicalRecord_invalidatesResponsesContainingThePerson() {
+        List<PersonInfoByNameDTO> boyds = personService.getPersonsInfoByLastName("Boyd");
+        List<String> emails = personService.getEmailsByCity("Culver");
+
+        medicalRecordService.updateMedicalRecord(record("John", "Boyd", LocalDate.of(1984, 3, 6), List.of("aznol:350mg"), List.of()));
+
+        assertEquals(List.of("aznol:350mg"), personService.getPersonsInfoByLastName("boyd").get(0).getMedications());
+        assertNotSame(boyds, personService.getPersonsInfoByLastName("Boyd"));
+        // Les emails ne dépendent pas des dossiers médicaux, mais de l'identité des personnes
+        assertNotSame(emails, personService.getEmailsByCity("Culver"));
+    }
+
+    @Test
+    void testAddFirestation_invalidatesTheStation() {
+        assertTrue(personService.getPhoneAlertByFirestation(4).isEmpty());
+        Optional<?> station2 = personService.getPhoneAlertByFirestation(2);
+
+        firestationService.updateFirestation(new Firestation("1509 Culver St", 4));
+
+        assertEquals(2, personService.getPhoneAlertByFirestation(4).get().getPhoneNumbers().size());
+        assertSame(station2, personService.getPhoneAlertByFirestation(2));
+        assertEquals(4, personService.getHouseholdInfoByAddress("1509 Culver St").get().getStationNumber());
+    }
+
+    @Test
+    void testDeleteStation_invalidatesItsAddresses() {
+        assertEquals(3, personService.getHouseholdInfoByAddress("1509 Culver St").get().getStationNumber());
+
+        firestationService.deleteFirestationMappingById(3);
+
+        assertEquals(0, personService.getHouseholdInfoByAddress("1509 Culver St").get().getStationNumber());
+    }
+
+    @Test
+    void testGet_evictsLeastRecentlyUsedBeyondMaxEntries() {
+        ResponseCache small = new ResponseCache(dataLoader, new SimpleMeterRegistry(), 2);
+        small.get(ServiceMetrics.Operation.FIRE, "a", deps -> "a");
+        small.get(ServiceMetrics.Operation.FIRE, "b", deps -> "b");
+        small.get(ServiceMetrics.Operation.FIRE, "a", deps -> "a");
+        small.get(ServiceMetrics.Operation.FIRE, "c", deps -> "c");
+
+        assertEquals(2, small.size());
+        assertEquals("a", small.get(ServiceMetrics.Operation.FIRE, "a", deps -> "recomputed"));
+        assertEquals("recomputed", small.get(ServiceMetrics.Operation.FIRE, "b", deps -> "recomputed"));
+    }
+
+    @Test
+    void testGet_sampledEvictionKeepsTheCacheBoundedAndInvalidable() {
+        ResponseCache bounded = new ResponseCache(dataLoader, new SimpleMeterRegistry(), 3 * ResponseCache.EVICTION_SAMPLE);
+        for (int i = 0; i < 100; i++) {
+            String address = "address " + i;
+            bounded.get(ServiceMetrics.Operation.FIRE, address, deps -> {
+                deps.address(address);
+                return address;
+            });
+        }
+        assertEquals(3 * ResponseCache.EVICTION_SAMPLE, bounded.size());
+
+        // Toutes les réponses restantes sont encore retrouvées par leurs dépendances
+        for (int i = 0; i < 100; i++) {
+            bounded.invalidateAddress("address " + i);
+        }
+        assertEquals(0, bounded.size());
+    }
+
+    @Test
+    void testGet_doesNotCacheResultComputedOnAnOutdatedVersion() {
+        responseCache.get(ServiceMetrics.Operation.FIRE, "x", deps -> {
+            // Écriture publiée pendant le calcul
+            dataLoader.setPersons(List.of());
+            return "stale";
+        });
+
+        assertEquals(0, responseCache.size());
+    }
+}
@@ -0,0 +1,132 @@
+package com.openclassrooms.P_5_SafetyNet_Alerts.service;
+
+import com.openclassrooms.P_5_SafetyNet_Alerts.data.DataLoader;
+import com.openclassrooms.P_5_SafetyNet_Alerts.model.MedicalRecord;
+import com.openclassrooms.P_5_SafetyNet_Alerts.model.Person;
+import com.openclassrooms.P_5_SafetyNet_Alerts.repository.InMemoryFirestationRepository;
+import com.openclassrooms.P_5_SafetyNet_Alerts.repository.InMemoryMedicalRecordRepository;
+import com.openclassrooms.P_5_SafetyNet_Alerts.repository.InMemoryPersonRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+import java.time.LocalDate;
+import java.util.List;
+
+/**
+ * Services branchés comme dans l'application sur les dépôts en mémoire d'un {@link DataLoader}, sans contexte Spring.
+ * <p>
+ * Par défaut : cache des réponses désactivé, vues par caserne activées, horloge système ; les métriques de tous
+ * les composants vont dans le registre du graphe.
+ */
+final class ServiceGraph {
+
+    final DataLoader dataLoader;
+    final SimpleMeterRegistry meterRegistry;
+    final InMemoryPersonRepository personRepository;
+    final InMemoryFirestationRepository firestationRepository;
+    final InMemoryMedicalRecordRepository medicalRecordRepository;
+    final AgeService ageService;
+    final ResponseCache responseCache;
+    final StationViews stationViews;
+    final MedicalIndex medicalIndex;
+    final MedicalRecordService medicalRecordService;
+    final FirestationService firestationService;
+    final PersonService personService;
+
+    private ServiceGraph(Builder builder) {
+        dataLoader = builder.dataLoader;
+        meterRegistry = new SimpleMeterRegistry();
+        personRepository = new InMemoryPersonRepository(dataLoader);
+        firestationRepository = new InMemoryFirestationRepository(dataLoader);
+        medicalRecordRepository = new InMemoryMedicalRecordRepository(dataLoader);
+        ageService = builder.ageService;
+        responseCache = new ResponseCache(dataLoader, meterRegistry, builder.cacheEntries);
+        stationViews = new StationViews(dataLoader, personRepository, firestationRepository, medicalRecordRepository,
+                ageService, meterRegistry, builder.stationViews);
+        medicalIndex = new MedicalIndex(dataLoader, personRepository, medicalRecordRepository, meterRegistry);
+        medicalRecordService = builder.medicalRecordService != null ? builder.medicalRecordService
+                : new MedicalRecordService(dataLoader, medicalRecordRepository, responseCache, stationViews, medicalIndex);
+        firestationService = builder.firestationService != null ? builder.firestationService
+                : new FirestationService(dataLoader, firestationRepository, responseCache, stationViews);
+        personService = new PersonService(dataLoader, personRepository, medicalRecordService, firestationService,
+                ageService, new ServiceMetrics(meterRegistry), responseCache, stationViews, medicalIndex);
+    }
+
+    /**
+     * @param dataLoader jeu de données partagé par les dépôts
+     */
+    static Builder builder(DataLoader dataLoader) {
+        return new Builder(dataLoader);
+    }
+
+    static final class Builder {
+        private final DataLoader dataLoader;
+        private AgeService ageService = new AgeService();
+        private int cacheEntries;
+        private boolean stationViews = true;
+        private MedicalRecordService medicalRecordService;
+        private FirestationService firestationService;
+
+        private Builder(DataLoader dataLoader) {
+            this.dataLoader = dataLoader;
+        }
+
+        Builder ageService(AgeService ageService) {
+            this.ageService = ageService;
+            return this;
+        }
+
+        /**
+         * @param cacheEntries taille du cache des réponses, 0 pour le désactiver
+         */
+        Builder cacheEntries(int cacheEntries) {
+            this.cacheEntries = cacheEntries;
+            return this;
+        }
+
+        Builder stationViews(boolean enabled) {
+            this.stationViews = enabled;
+            return this;
+        }
+
+        /**
+         * Remplace le service des dossiers médicaux (service simulé), sans le brancher sur les vues ni l'index.
+         */
+        Builder medicalRecordService(MedicalRecordService medicalRecordService) {
+            this.medicalRecordService = medicalRecordService;
+            return this;
+        }
+
+        /**
+         * Remplace le service des casernes (service simulé), sans le brancher sur les vues.
+         */
+        Builder firestationService(FirestationService firestationService) {
+            this.firestationService = firestationService;
+            return this;
+        }
+
+        ServiceGraph build() {
+            return new ServiceGraph(this);
+        }
+    }
+
+    static Person person(String firstName, String lastName, String address) {
+        return Person.builder().firstName(firstName).lastName(lastName).address(address).city("Culver").build();
+    }
+
+    static Person person(String firstName, String lastName, String address, String phone) {
+        return Person.builder().firstName(firstName).lastName(lastName).address(address).city("Culver").phone(phone).build();
+    }
+
+    /**
+     * @return un dossier sans médicament ni allergie
+     */
+    static MedicalRecord record(String firstName, String lastName, LocalDate birthdate) {
+        return record(firstName, lastName, birthdate, List.of(), List.of());
+    }
+
+    static MedicalRecord record(String firstName, String lastName, LocalDate birthdate,
+                                       List<String> medications, List<String> allergies) {
+        return MedicalRecord.builder().firstName(firstName).lastName(lastName).birthdate(birthdate)
+                .medications(medications).allergies(allergies).build();
+    }
+}
@@ -0,0 +1,310 @@
+package com.openclassrooms.P_5_SafetyNet_Alerts.service;
+
+import com.openclassrooms.P_5_SafetyNet_Alerts.data.DataLoader;
+import com.openclassrooms.P_5_SafetyNet_Alerts.data.Dataset;
+import com.openclassrooms.P_5_SafetyNet_Alerts.model.DTO.PersonsByFirestationIDReturn;
+import com.openclassrooms.P_5_SafetyNet_Alerts.model.DTO.PhoneAlertByFirestationDTO;
+import com.openclassrooms.P_5_SafetyNet_Alerts.model.Firestation;
+import com.openclassrooms.P_5_SafetyNet_Alerts.model.Person;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.time.*;
+import java.util.*;
+
+import static com.openclassrooms.P_5_SafetyNet_Alerts.service.ServiceGraph.person;
+import static com.openclassrooms.P_5_SafetyNet_Alerts.service.ServiceGraph.record;
+import static org.junit.jupiter.api.Assertions.*;
+
+class StationViewsTest {
+
+    @TempDir
+    Path dir;
+
+    // Horloge modifiable, pour faire vieillir les habitants sans écriture
+    final MutableClock clock = new MutableClock(Instant.parse("2025-06-15T10:00:00Z"));
+
+    DataLoader dataLoader;
+    SimpleMeterRegistry meterRegistry;
+    StationViews stationViews;
+    PersonService personService;
+    MedicalRecordService medicalRecordService;
+    FirestationService firestationService;
+    // Même jeu de données, requêtes faites par jointure
+    PersonService joinService;
+
+    @BeforeEach
+    void setUp() {
+        dataLoader = new DataLoader(new SimpleMeterRegistry(), null);
+        dataLoader.setDataFilePath(dir.resolve("data.json").toString());
+        dataLoader.setPersons(List.of(
+                person("John", "Boyd", "1509 Culver St", "111-1111"),
+                person("Tenley", "Boyd", "1509 Culver St", "111-1111"),
+                person("Peter", "Duncan", "29 15th St", "444-4444"),
+                person("Lily", "Cooper", "489 Manchester St", "555-5555")));
+        dataLoader.setFirestations(List.of(
+                new Firestation("1509 Culver St", 3),
+                new Firestation("29 15th St", 2),
+                new Firestation("489 Manchester St", 3)));
+        dataLoader.setMedicalRecords(List.of(
+                record("John", "Boyd", LocalDate.of(1984, 3, 6)),
+                record("Tenley", "Boyd", LocalDate.of(2012, 2, 18)),
+                record("Peter", "Duncan", LocalDate.of(2000, 9, 6)),
+                record("Lily", "Cooper", LocalDate.of(1994, 3, 6))));
+
+        ServiceGraph graph = ServiceGraph.builder(dataLoader).ageService(new AgeService(clock)).build();
+        meterRegistry = graph.meterRegistry;
+        stationViews = graph.stationViews;
+        medicalRecordService = graph.medicalRecordService;
+        firestationService = graph.firestationService;
+        personService = graph.personService;
+
+        StationViews disabled = new StationViews(dataLoader, graph.personRepository, graph.firestationRepository,
+                graph.medicalRecordRepository, graph.ageService, new SimpleMeterRegistry(), false);
+        joinService = new PersonService(dataLoader, graph.personRepository, medicalRecordService, firestationService,
+                graph.ageService, new ServiceMetrics(new SimpleMeterRegistry()), graph.responseCache, disabled, graph.medicalIndex);
+    }
+
+    private double rebuilds() {
+        return meterRegistry.get("safetynet.views.rebuilds").counter().count();
+    }
+
+    private Set<String> phones(int station) {
+        return new HashSet<>(stationViews.phoneNumbers(station).orElseThrow());
+    }
+
+    @Test
+    void testCounts_builtOnFirstReadThenServedFromTheView() {
+        assertEquals(new StationViews.Counts(2, 1), stationViews.counts(3).orElseThrow());
+        assertEquals(Set.of("111-1111", "555-5555"), phones(3));
+        assertEquals(new StationViews.Counts(0, 0), stationViews.counts(9).orElseThrow());
+        assertEquals(1, rebuilds());
+    }
+
+    @Test
+    void testUpdatePerson_movesTheResidentBetweenStations() {
+        stationViews.counts(3);
+
+        personService.updatePerson(person("Lily", "Cooper", "29 15th St", "555-5555"));
+
+        assertEquals(new StationViews.Counts(1, 1), stationViews.counts(3).orElseThrow());
+        assertEquals(new StationViews.Counts(2, 0), stationViews.counts(2).orElseThrow());
+        assertEquals(Set.of("111-1111"), phones(3));
+        assertEquals(Set.of("444-4444", "555-5555"), phones(2));
+        assertEquals(1, rebuilds());
+    }
+
+    @Test
+    void testDeletePerson_keepsAPhoneSharedByAnotherResident() {
+        stationViews.counts(3);
+
+        personService.deletePerson("John", "Boyd");
+
+        assertEquals(Set.of("111-1111", "555-5555"), phones(3));
+        assertEquals(new StationViews.Counts(1, 1), stationViews.counts(3).orElseThrow());
+
+        personService.deletePerson("Tenley", "Boyd");
+
+        assertEquals(Set.of("555-5555"), phones(3));
+        assertEquals(new StationViews.Counts(1, 0), stationViews.counts(3).orElseThrow());
+    }
+
+    @Test
+    void testUpdateMedicalRecord_recountsTheHousehold() {
+        stationViews.counts(2);
+
+        medicalRecordService.updateMedicalRecord(record("Peter", "Duncan", LocalDate.of(2015, 1, 1)));
+
+        assertEquals(new StationViews.Counts(0, 1), stationViews.counts(2).orElseThrow());
+
+        // Une personne sans dossier médical est comptée comme enfant
+        medicalRecordService.deleteMedicalRecord("Lily", "Cooper");
+
+        assertEquals(new StationViews.Counts(1, 2), stationViews.counts(3).orElseThrow());
+        assertEquals(1, rebuilds());
+    }
+
+    @Test
+    void testFirestationMappings_moveWholeHouseholds() {
+        stationViews.counts(3);
+
+        firestationService.updateFirestation(new Firestation("1509 Culver St", 2));
+        assertEquals(new StationViews.Counts(1, 0), stationViews.counts(3).orElseThrow());
+        assertEquals(new StationViews.Counts(2, 1), stationViews.counts(2).orElseThrow());
+
+        firestationService.deleteFirestationMappingById(2);
+        assertEquals(new StationViews.Counts(0, 0), stationViews.counts(2).orElseThrow());
+
+        firestationService.addFirestation(new Firestation("29 15th St", 4));
+        assertEquals(Set.of("444-4444"), phones(4));
+        assertEquals(1, rebuilds());
+    }
+
+    @Test
+    void testBatches_publishOneVersionEachAndKeepTheViews() {
+        stationViews.counts(3);
+        long version = dataLoader.getLatestDataset().getVersion();
+
+        List<Optional<Person>> added = personService.addPersons(List.of(
+                person("Jacob", "Boyd", "29 15th St", "222-2222"),
+                person("John", "Boyd", "29 15th St", "999-9999"),
+                person("JACOB", "boyd", "489 Manchester St", "333-3333"),
+                person("Zach", "Zemicks", "489 Manchester St", "666-6666")));
+
+        // Personne existante, puis doublon d'une personne plus tôt dans le lot
+        assertEquals(List.of(true, false, false, true), added.stream().map(Optional::isPresent).toList());
+        assertEquals(version + 1, dataLoader.getLatestDataset().getVersion());
+
+        List<Optional<Person>> updated = personService.updatePersons(List.of(
+                person("Jacob", "Boyd", "1509 Culver St", "222-2222"),
+                person("Unknown", "Nobody", "1509 Culver St", "000-0000"),
+                person("Jacob", "Boyd", "489 Manchester St", "222-2222")));
+        assertEquals(List.of(true, false, true), updated.stream().map(Optional::isPresent).toList());
+        assertEquals("489 Manchester St", dataLoader.getPersons().stream()
+                .filter(p -> "Jacob".equals(p.getFirstName())).findFirst().orElseThrow().getAddress());
+
+        medicalRecordService.addMedicalRecords(List.of(
+                record("Jacob", "Boyd", LocalDate.of(1990, 1, 1)),
+                record("Zach", "Zemicks", LocalDate.of(2017, 3, 6))));
+        medicalRecordService.updateMedicalRecords(List.of(record("Peter", "Duncan", LocalDate.of(2015, 1, 1))));
+        List<Optional<Firestation>> stations = firestationService.addFirestations(List.of(
+                new Firestation("1509 Culver St", 4), new Firestation("908 73rd St", 1)));
+        assertEquals(List.of(false, true), stations.stream().map(Optional::isPresent).toList());
+        firestationService.updateFirestations(List.of(new Firestation("29 15th St", 3), new Firestation("29 15th St", 1)));
+
+        assertEquals(version + 6, dataLoader.getLatestDataset().getVersion());
+        for (int station = 1; station <= 4; station++) {
+            assertEquals(joinService.getAllPersonsByDependingOfFirestationID(station),
+                    personService.getAllPersonsByDependingOfFirestationID(station), "caserne " + station);
+        }
+        assertEquals(new StationViews.Counts(0, 1), stationViews.counts(1).orElseThrow());
+        assertEquals(1, rebuilds());
+    }
+
+    @Test
+    void testCounts_childBecomingAdultIsRecountedWithoutWrite() {
+        assertEquals(new StationViews.Counts(2, 1), stationViews.counts(3).orElseThrow());
+
+        clock.set(Instant.parse("2030-02-18T10:00:00Z"));
+
+        assertEquals(new StationViews.Counts(3, 0), stationViews.counts(3).orElseThrow());
+    }
+
+    @Test
+    void testCounts_versionPublishedOutsideTheServicesFallsBackThenRebuilds() {
+        stationViews.counts(3);
+
+        // Publication directe, sans notification : les vues ne reflètent plus la dernière version
+        dataLoader.setPersons(List.of(person("John", "Boyd", "1509 Culver St", "111-1111")));
+        assertTrue(stationViews.counts(3).isEmpty());
+        assertEquals(new StationViews.Counts(1, 0),
+                personService.getAllPersonsByDependingOfFirestationID(3).map(r ->
+                        new StationViews.Counts(r.getCountOfAdults(), r.getCountOfChilds())).orElseThrow());
+
+        // L'écriture suivante constate le trou dans les versions : reconstruction à la lecture suivante
+        personService.addPerson(person("Jacob", "Boyd", "1509 Culver St", "222-2222"));
+        assertEquals(new StationViews.Counts(1, 1), stationViews.counts(3).orElseThrow());
+        assertEquals(2, rebuilds());
+    }
+
+    @Test
+    void testCounts_readPinnedOnAnOutdatedVersionFallsBackWithoutRebuild() {
+        stationViews.counts(3);
+        Dataset before = dataLoader.getDataset();
+        personService.addPerson(person("Jacob", "Boyd", "1509 Culver St", "222-2222"));
+
+        assertTrue(dataLoader.read(before, () -> stationViews.counts(3)).isEmpty());
+        assertEquals(new StationViews.Counts(2, 2), stationViews.counts(3).orElseThrow());
+        assertEquals(1, meterRegistry.get("safetynet.views.fallbacks").counter().count());
+        assertEquals(1, rebuilds());
+    }
+
+    @Test
+    void testViews_matchTheJoinAfterRandomWrites() {
+        SplittableRandom random = new SplittableRandom(7);
+        List<String> addresses = List.of("1509 Culver St", "29 15th St", "489 Manchester St", "908 73rd St");
+        List<String> firstNames = List.of("John", "Tenley", "Peter", "Lily", "Ron", "Zach");
+        stationViews.counts(1);
+
+        for (int i = 0; i < 300; i++) {
+            String firstName = firstNames.get(random.nextInt(firstNames.size()));
+            String address = addresses.get(random.nextInt(addresses.size()));
+            String phone = "000-000" + random.nextInt(4);
+            switch (random.nextInt(7)) {
+                case 0 -> personService.addPerson(person(firstName, "Doe", address, phone));
+                case 1 -> personService.updatePerson(person(firstName, "Doe", address, phone));
+                case 2 -> personService.deletePerson(firstName, "Doe");
+                case 3 -> medicalRecordService.addMedicalRecord(
+                        record(firstName, "Doe", LocalDate.of(1990 + random.nextInt(30), 1, 1)));
+                case 4 -> medicalRecordService.updateMedicalRecord(
+                        record(firstName, "Doe", LocalDate.of(1990 + random.nextInt(30), 1, 1)));
+                case 5 -> firestationService.addFirestation(new Firestation(address, 1 + random.nextInt(4)));
+                default -> firestationService.updateFirestation(new Firestation(address, 1 + random.nextInt(4)));
+            }
+
+            for (int station = 1; station <= 4; station++) {
+                Optional<PersonsByFirestationIDReturn> expected = joinService.getAllPersonsByDependingOfFirestationID(station);
+                Optional<PersonsByFirestationIDReturn> actual = personService.getAllPersonsByDependingOfFirestationID(station);
+                assertEquals(expected, actual, "caserne " + station + " après l'écriture " + i);
+                Optional<PhoneAlertByFirestationDTO> expectedPhones = joinService.getPhoneAlertByFirestation(station);
+                Optional<PhoneAlertByFirestationDTO> actualPhones = personService.getPhoneAlertByFirestation(station);
+                assertEquals(expectedPhones.map(p -> new HashSet<>(p.getPhoneNumbers())),
+                        actualPhones.map(p -> new HashSet<>(p.getPhoneNumbers())), "caserne " + station + " après l'écriture " + i);
+            }
+        }
+        assertEquals(1, rebuilds());
+    }
+
+    @Test
+    void testFirestationPage_countsTheWholeStationFromTheView() {
+        stationViews.counts(3);
+        personService.addPerson(person("Jacob", "Boyd", "489 Manchester St", "222-2222"));
+
+        List<String> names = new ArrayList<>();
+        PageCursor cursor = null;
+        do {
+            ResultPage<PersonsByFirestationIDReturn> page = personService.getPersonsByFirestationIDPage(3, 2, cursor).orElseThrow();
+            // Jacob n'a pas de dossier médical : compté comme enfant
+            assertEquals(2, page.content().getCountOfAdults());
+            assertEquals(2, page.content().getCountOfChilds());
+            page.content().getPersons().forEach(p -> names.add(p.getFirstName()));
+            cursor = page.next();
+        } while (cursor != null);
+
+        // Adresses triées, puis habitants par identité
+        assertEquals(List.of("John", "Tenley", "Jacob", "Lily"), names);
+        assertEquals(1, rebuilds());
+        assertTrue(personService.getPersonsByFirestationIDPage(9, 2, null).isEmpty());
+    }
+
+    static final class MutableClock extends Clock {
+
+        private Instant instant;
+
+        MutableClock(Instant instant) {
+            this.instant = instant;
+        }
+
+        void set(Instant instant) {
+            this.instant = instant;
+        }
+
+        @Override
+        public ZoneId getZone() {
+            return ZoneOffset.UTC;
+        }
+
+        @Override
+        public Clock withZone(ZoneId zone) {
+            return this;
+        }
+
+        @Override
+        public Instant instant() {
+            return instant;
+        }
+    }
+}
@@ -36,4 +36,22 @@ public class DateUtilsTest {
         // Assert
         assertEquals(-1, result, "Doit retourner -1 si la date est nulle");
     }
-}
\ No newline at end of file
+
+    @Test
+    public void toPackedDateTest() {
+        // Act
+        int result = DateUtils.toPackedDate(LocalDate.of(2012, 2, 18));
+
+        // Assert
+        assertEquals(20120218, result, "La date doit être encodée au format aaaammjj");
+    }
+
+    @Test
+    public void fromPackedDateTest() {
+        // Act
+        LocalDate result = DateUtils.fromPackedDate(20120218);
+
+        // Assert
+        assertEquals(LocalDate.of(2012, 2, 18), result, "La date doit être décodée depuis le format aaaammjj");
+    }
+}
@@ -0,0 +1,88 @@
+package com.openclassrooms.P_5_SafetyNet_Alerts.utils;
+
+import com.openclassrooms.P_5_SafetyNet_Alerts.model.Firestation;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+
+public class StringPoolTest {
+
+    private final StringPool pool = new StringPool();
+
+    @Test
+    public void codeSharesRepeatedValuesTest() {
+        // Arrange : valeurs lues séparément (instances distinctes de même valeur)
+        String culver = new String("Culver");
+        Firestation mapping = new Firestation(new String("1509 Culver St"), 3);
+
+        // Act
+        int code = pool.code(culver);
+        pool.canonicalize(mapping);
+
+        // Assert : un code et une instance par valeur
+        assertEquals(code, pool.code(new String("Culver")));
+        assertSame(pool.value(code), pool.share(new String("Culver")));
+        assertSame(mapping.getAddress(), pool.shareAddress(new String("1509 Culver St")));
+        assertEquals(-1, pool.code(null));
+        assertNull(pool.value(-1));
+    }
+
+    @Test
+    public void sharedAddressHasPrecomputedKeyTest() {
+        // Act
+        String address = pool.shareAddress(new String("  29 15th   St "));
+
+        // Assert : la clef est calculée une fois, et partagée avec les graphies équivalentes
+        assertEquals("29 15th st", pool.addressKey(address));
+        assertSame(pool.addressKey(address), pool.canonicalAddress(address));
+        assertSame(pool.addressKey(address), pool.addressKey(pool.shareAddress("29 15TH ST")));
+    }
+
+    @Test
+    public void unknownAddressIsComputedTest() {
+        // Une adresse jamais partagée (saisie d'une requête) n'entre pas dans le pool
+        assertNull(pool.addressKey("748 Townings Dr, unknown"));
+        assertEquals("748 townings dr, unknown", KeyUtils.canonicalAddress(" 748 Townings  Dr, UNKNOWN"));
+        assertNull(pool.addressKey(null));
+        assertNull(KeyUtils.canonicalAddress(null));
+    }
+
+    @Test
+    public void poolsAreIndependentTest() {
+        // Arrange : un dictionnaire par chargement
+        StringPool reloaded = new StringPool();
+        List<String> shared = pool.shareList(List.of("aznol:350mg"));
+        pool.shareAddress("1509 Culver St");
+
+        // Assert : rien n'est partagé d'un dictionnaire à l'autre
+        assertEquals(0, reloaded.size());
+        assertNull(reloaded.addressKey("1509 Culver St"));
+        assertNotSame(shared, reloaded.shareList(shared));
+        assertEquals(shared, reloaded.shareList(shared));
+    }
+
+    @Test
+    public void shareListStoresEachCombinationOnceTest() {
+        // Arrange : mêmes médicaments lus pour deux dossiers
+        List<String> first = new ArrayList<>(List.of(new String("aznol:350mg"), new String("hydrapermazol:100mg")));
+        List<String> second = new ArrayList<>(List.of(new String("aznol:350mg"), new String("hydrapermazol:100mg")));
+
+        // Act
+        List<String> shared = pool.shareList(first);
+
+        // Assert : une seule liste, égale aux listes d'origine et en lecture seule
+        assertSame(shared, pool.shareList(second));
+        assertSame(shared, pool.shareList(shared));
+        assertEquals(first, shared);
+        assertEquals(shared, first);
+        assertEquals(first.hashCode(), shared.hashCode());
+        assertSame(pool.share("aznol:350mg"), shared.get(0));
+        assertNotSame(shared, pool.shareList(List.of("hydrapermazol:100mg", "aznol:350mg")));
+        assertThrows(UnsupportedOperationException.class, () -> shared.add("noznazol:250mg"));
+        assertNull(pool.shareList(null));
+    }
+}